@@ -1,18 +1,37 @@
 package fiveHundred;
 
+import fiveHundred.ai.HeuristicStrategy;
+import fiveHundred.ai.PlayoutSearch;
+import fiveHundred.ai.Ponderer;
+import fiveHundred.ai.SearchPosition;
+import fiveHundred.ai.Strategy;
 import fiveHundred.cards.Card;
 import fiveHundred.cards.Deck;
+import fiveHundred.cards.DeckSpec;
 import fiveHundred.cards.Hand;
+import fiveHundred.engine.PlayState;
+import fiveHundred.engine.TableState;
 import fiveHundred.entity.FiveHundredAIPlayer;
 import fiveHundred.entity.FiveHundredPlayer;
 import fiveHundred.entity.GameTable;
 import fiveHundred.entity.Player;
+import fiveHundred.entity.SeatLayout;
+import fiveHundred.learn.EvaluationModel;
+import fiveHundred.learn.ModelStrategy;
+import fiveHundred.record.GameRecordReader;
+import fiveHundred.record.GameRecordWriter;
+import fiveHundred.record.HandRecord;
+import fiveHundred.record.ReplayEngine;
+import fiveHundred.record.SavedGame;
 import fiveHundred.rules.Bid;
 import fiveHundred.rules.FiveHundredRules;
+import fiveHundred.stats.GameStatistics;
 import gameCore.GameCore;
+import gameCore.graphics.Sprite;
 import gameCore.input.Keyboard;
 import gameCore.math.Vector2i;
 import gameCore.time.GameTime;
+import gameCore.util.UnsynchronizedRandom;
 
 import java.awt.Choice;
 import java.awt.Color;
@@ -20,16 +39,28 @@ import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 /** This class contains the main methods of our game */
 public class Game extends GameCore
@@ -37,7 +68,7 @@ public class Game extends GameCore
 	/** The enumeration for the different game states. */
 	private enum GameState
 	{
-		DEALING_CARDS, BIDDING, PLAYING, SCORING
+		DEALING_CARDS, BIDDING, PLAYING, SCORING, REPLAYING
 	}
 
 	/** The current screen state. */
@@ -46,6 +77,15 @@ public class Game extends GameCore
 	/** Default serial version UID. */
 	private static final long serialVersionUID = 1L;
 
+	/** The directory the games are saved to. */
+	private static final String SAVE_DIRECTORY = "saves";
+
+	/** The extension of the saved games. */
+	private static final String SAVE_EXTENSION = "fhs";
+
+	/** The largest number of hands loaded from a game record file for a replay. */
+	private static final int MAX_REPLAY_HANDS = 10000;
+
 	/** A menu bar */
 	private JMenuBar mb;
 
@@ -55,6 +95,12 @@ public class Game extends GameCore
 	/** The deck of cards used to play this game. */
 	private Deck deck;
 
+	/**
+	 * The specification of the deck, which also determines the number of
+	 * players at the table.
+	 */
+	private DeckSpec deckSpec;
+
 	/**
 	 * The Hand object holding the cards in the widow.
 	 */
@@ -69,8 +115,59 @@ public class Game extends GameCore
 	/** Keyboard states used to determine single key presses. */
 	private Keyboard currentKeyboardState;
 
-	/** A random number generator. */
-	private Random random;
+	/** A random number generator, whose state is saved with the game. */
+	private UnsynchronizedRandom random;
+
+	/**
+	 * The seed every hand of this game is dealt from. Along with the deal
+	 * index of a hand, it is all we need to deal that hand again.
+	 */
+	private long baseSeed;
+
+	/** The index of the hand being played, starting at 0. */
+	private long dealIndex;
+
+	/** The random number generator used to shuffle the deck. */
+	private Random dealRandom;
+
+	/** Everything that happened during the hand being played. */
+	private HandRecord handRecord;
+
+	/** The number of trumps in the contractor's hand when the play started. */
+	private int contractorTrumpLength;
+
+	/** The statistics of the hands played in this game. */
+	private final GameStatistics statistics = new GameStatistics();
+
+	/**
+	 * Writes every hand played to the game record file, or {@code null} if the
+	 * file couldn't be created.
+	 */
+	private volatile GameRecordWriter recordWriter;
+
+	/**
+	 * The game record file the player asked to replay from the menu, until the
+	 * game thread loads it.
+	 */
+	private volatile Path pendingReplay;
+
+	/** The file the player asked to save the game to, until the game thread takes the snapshot. */
+	private volatile Path pendingSave;
+
+	/** The saved game the player asked to load, until the game thread loads it. */
+	private volatile Path pendingLoad;
+
+	/** Replays the hand being reviewed, or {@code null} if we aren't replaying. */
+	private ReplayEngine replayEngine;
+
+	/** The hands of the game record file being replayed. */
+	private List<HandRecord> replayHands;
+
+	/** The index of the hand being replayed. */
+	private int replayHandIndex;
+
+	/** The keys that were down during the last update, to detect single key presses. */
+	private boolean[] previousKeysDown = new boolean[256];
 
 	/**
 	 * The index of the player who is dealing the cards. The first one to bid
@@ -122,7 +219,10 @@ public class Game extends GameCore
 	/*
 	 * An array containing the position at which each player's text should be rendered.
 	 */
-	private Vector2i[] playersTextPosition = { new Vector2i(), new Vector2i(), new Vector2i() };
+	private Vector2i[] playersTextPosition;
+
+	/** Where everything belonging to each player is rendered, indexed by player. */
+	private SeatLayout[] seatLayouts;
 
 	// TODO: Should calculate this from font
 	private int lineHeight = 20;
@@ -130,19 +230,61 @@ public class Game extends GameCore
 	/** A FPS counter */
 	private FPS_Counter fpsCounter;
 
+	/** Searches ahead for the AI players while the human player decides. */
+	private Ponderer ponderer;
+
+	/** The strategy the AI players follow during the playouts of their searches. */
+	private Strategy playoutStrategy;
+
+	/**
+	 * The value of numCardsPlayed when we last asked the ponderer to ponder,
+	 * so we only do it once per turn. Reset from the event dispatch thread
+	 * when the game is restored so pondering can resume.
+	 */
+	private volatile int ponderedCardsPlayed = -1;
+
 	public Game()
+	{
+		this(DeckSpec.THREE_PLAYERS);
+	}
+
+	/**
+	 * Creates a game for the number of players of the specified deck. The
+	 * human player plays against AI players.
+	 * 
+	 * @param deckSpec
+	 *        The specification of the deck to play with.
+	 */
+	public Game(DeckSpec deckSpec)
 	{
 		super(800, 520, "Le 500");
 
+		this.deckSpec = deckSpec;
 		gameFont = new Font("Verdana", Font.PLAIN, 16);
 
+		seatLayouts = SeatLayout.create(deckSpec.getNumberOfPlayers(), getScreenWidth(), getScreenHeight(),
+				Sprite.blankCard.getWidth(), Sprite.blankCard.getHeight(), DeckSpec.HAND_SIZE, Card.cardSpacing);
+		playersTextPosition = new Vector2i[seatLayouts.length];
+
 		widow = new Hand();
 		playersList = new ArrayList<>();
 		playersList.add(new FiveHundredPlayer("Eric"));
-		playersList.add(new FiveHundredAIPlayer("Left"));
-		playersList.add(new FiveHundredAIPlayer("Right"));
-		gameTable = new GameTable();
-		random = new Random();
+		playoutStrategy = loadPlayoutStrategy();
+		for (int i = 1; i < seatLayouts.length; ++i)
+		{
+			playersList.add(new FiveHundredAIPlayer(seatLayouts[i].getSeatName(), playoutStrategy));
+		}
+		for (int i = 0; i < seatLayouts.length; ++i)
+		{
+			playersList.get(i).setSeatLayout(seatLayouts[i]);
+			playersTextPosition[i] = seatLayouts[i].getTextPosition();
+		}
+		gameTable = new GameTable(seatLayouts);
+		random = new UnsynchronizedRandom();
+		baseSeed = random.nextLong();
+		dealRandom = new Random();
+		handRecord = new HandRecord(deckSpec);
+		openRecordWriter();
 		mb = new JMenuBar();
 
 		// TODO : Take care of the Keyboard input and detect single key presses
@@ -154,16 +296,20 @@ public class Game extends GameCore
 		initNextRoundButton();
 
 		fpsCounter = new FPS_Counter(this);
+		ponderer = new Ponderer(new PlayoutSearch(random.nextLong(), playoutStrategy), PlayoutSearch.DEFAULT_BUDGET, 0);
 
 		// Randomly select the first person to be the dealer
 		dealerIndex = random.nextInt(playersList.size());
 
-		deck = new Deck(Deck.CINQ_CENT, false);
-		totalNumPlayableCards = playersList.size() * 10;
+		deck = new Deck(deckSpec);
+		totalNumPlayableCards = deckSpec.getPlayableCards();
 
 		// TODO: Used for AI players until they can bid by themselves
 		playersList.get(1).setBid(Bid._6_PIQUES);
-		playersList.get(2).setBid(Bid._6_SANS);
+		for (int i = 2; i < playersList.size(); ++i)
+		{
+			playersList.get(i).setBid(Bid._6_SANS);
+		}
 
 		initialize();
 	}
@@ -174,11 +320,6 @@ public class Game extends GameCore
 		super.initialize();
 
 		currentGameState = GameState.DEALING_CARDS;
-
-		// Index 0 = Human, 1 = Left, 2 = Right
-		playersTextPosition[0].set((int) (super.getScreenWidth() / 3.5), super.getScreenHeight() - 161);
-		playersTextPosition[1].set(50, (super.getScreenHeight() - 376) / 2 - 25);
-		playersTextPosition[2].set(super.getScreenWidth() - 130, (super.getScreenHeight() - 376) / 2 - 25);
 	}
 
 	public void update(GameTime gameTime)
@@ -193,13 +334,29 @@ public class Game extends GameCore
 		// Update the human player since he has mouse and keyboard controls.
 		playersList.get(0).update(gameTime);
 
+		if (pendingReplay != null)
+			startReplay();
+		// A hand is dealt on the update after it is asked for, and a round is
+		// scored on the update after its last card, so the game is saved once
+		// they are.
+		if (pendingSave != null && currentGameState != GameState.DEALING_CARDS && !isRoundUnscored())
+			saveGame();
+		if (pendingLoad != null)
+			loadGame();
+
 		switch (currentGameState)
 		{
 			case DEALING_CARDS:
 				bidCount = 0;
 				numCardsPlayed = 0;
+				ponderedCardsPlayed = -1;
 				highestBid = Bid.PASS;
-				deck.shuffle();
+				// As on the server, the first bidder leads if every player passes.
+				highestBidder = (dealerIndex + 1) % playersList.size();
+				widow.clear();
+				dealRandom.setSeed(DeckSpec.dealSeed(baseSeed, dealIndex));
+				deck.shuffle(dealRandom);
+				handRecord.reset(dealIndex, dealerIndex);
 				// Deal cards to the players and the widow
 				dealCards();
 				// Set the initial positions of each player's cards for rendering
@@ -225,12 +382,16 @@ public class Game extends GameCore
 				break;
 			case SCORING:
 				// Wait for the table to be cleared
-				if (gameTable.getCardsOnTable().isEmpty())
+				if (gameTable.isEmpty())
 				{
 					// Wait until player presses the button
 					nextRound.setVisible(true);
 				}
 				break;
+			case REPLAYING:
+				updateReplay();
+				// The table is driven by the replay, so it must not animate.
+				return;
 		}
 
 		gameTable.update(gameTime);
@@ -250,6 +411,7 @@ public class Game extends GameCore
 		if (currentBid != null)
 		{
 			++bidCount;
+			handRecord.setBid(currentPlayer, currentBid);
 			if (currentBid.ordinal() > highestBid.ordinal())
 			{
 				highestBid = currentBid;
@@ -259,9 +421,23 @@ public class Game extends GameCore
 			playersList.get(currentPlayer).setYourTurn(true);
 		}
 
-		// If all three player called their bid, start playing.
-		if (bidCount == 3)
+		// If all the players called their bid, start playing.
+		if (bidCount == playersList.size())
 		{
+			// The contractor doesn't exchange cards with the widow in this
+			// game, so the discard recorded is the widow itself.
+			handRecord.setContractor(highestBidder);
+			contractorTrumpLength = 0;
+			Hand contractorHand = playersList.get(highestBidder).getHand();
+			for (int i = 0; i < contractorHand.getCardCount(); ++i)
+			{
+				if (highestBid.hasTrump() && getCardSuit(contractorHand.getCard(i)) == highestBid.getTrumpSuit())
+					++contractorTrumpLength;
+			}
+			for (int i = 0; i < widow.getCardCount(); ++i)
+			{
+				handRecord.setDiscard(i, widow.getCard(i).getId());
+			}
 			currentPlayer = highestBidder;
 			currentGameState = GameState.PLAYING;
 		}
@@ -280,55 +456,12 @@ public class Game extends GameCore
     /// appropriate.</remarks>
     public int getCardValue(Card card)
     {
-        switch(card.getValue())
-        {
-            case Card.JACK:
-            	if (highestBid.hasTrump())
-            	{
-            		if (card.getSuit() == highestBid.getLeftBower())
-            			return 16;
-            		else if (card.getSuit() == highestBid.getRightBower())
-            			return 15;
-            		else
-            			return 11;
-            			
-            	}
-            	else
-            	{
-            		return 11;
-            	}
-            default:
-                return card.getValue();
-		}
+        return FiveHundredRules.getCardValue(card, highestBid);
     }
 
     public int getCardSuit(Card card)
     {
-    	if (highestBid.hasTrump() &&
-    		card.getValue() == Card.JACK &&
-    		card.getSuit() == highestBid.getRightBower())
-    	{
-    		return highestBid.getLeftBower();
-    	}
-    	else if (highestBid.hasTrump() &&
-        		card.getSuit() == Card.JOKER)
-        {
-        	return highestBid.getLeftBower();
-        }
-    	else
-    	{
-	        switch (card.getSuit())
-	        {
-	            case Card.CLUBS:
-	            case Card.DIAMONDS:
-	            case Card.SPADES:
-	            case Card.HEARTS:
-	            case Card.JOKER:
-	                return card.getSuit();
-	            default:
-	                throw new IllegalArgumentException("Ambigous card suit");
-	        }
-    	}
+        return FiveHundredRules.getCardSuit(card, highestBid);
     }
 
     /**
@@ -354,13 +487,22 @@ public class Game extends GameCore
 	{
 		if (numCardsPlayed == totalNumPlayableCards)
 		{
+			scoreRound();
 			currentGameState = GameState.SCORING;
 			return;
 		}
 		Card card = null;
 
+		// Use the time the human player takes to decide to search ahead for
+		// the AI players.
+		if (currentPlayer == 0 && ponderedCardsPlayed != numCardsPlayed)
+		{
+			ponderedCardsPlayed = numCardsPlayed;
+			ponderer.ponder(createSearchPosition());
+		}
+
 		// Poll the current player to see if he played a card and store it.
-		if (gameTable.getCardsOnTable().size() < 3)
+		if (!gameTable.isFull())
 		{
 			card = playersList.get(currentPlayer).playCard(this);
 		}
@@ -369,10 +511,14 @@ public class Game extends GameCore
 		// playACard to true so he can play.
 		if (card != null)
 		{
+			// Only keep the search matching the card the human player played.
+			if (currentPlayer == 0)
+				ponderer.stop(card);
 			if (firstCardPlayed == -1)
 				firstCardPlayed = currentPlayer;
 			++numCardsPlayed;
-			gameTable.getCardsOnTable().put(currentPlayer, card);
+			handRecord.addPlay(card.getId());
+			gameTable.playCard(currentPlayer, card);
 			currentPlayer = ((currentPlayer + 1) % playersList.size());
 			playersList.get(currentPlayer).setYourTurn(true);
 		}
@@ -380,11 +526,12 @@ public class Game extends GameCore
 
 	private void checkRules()
 	{
-		if (gameTable.getCardsOnTable().size() != 3 || firstCardPlayed == -1)
+		if (!gameTable.isFull() || firstCardPlayed == -1)
 			return;
 
-		int trickWinner = FiveHundredRules.trickWinner(gameTable.getCardsOnTable(), firstCardPlayed, this);
+		int trickWinner = FiveHundredRules.trickWinner(gameTable.getCardsOnTable(), firstCardPlayed, highestBid);
 		playersList.get(trickWinner).addTrick();
+		handRecord.addTrickWinner(trickWinner);
 		gameTable.trickWinner = trickWinner;
 		currentPlayer = trickWinner;
 		playersList.get(currentPlayer).setYourTurn(true);
@@ -392,6 +539,570 @@ public class Game extends GameCore
 		// gameTable.moveTrick(trickWinner, gameTime);
 	}
 
+	/**
+	 * Adds the points scored during this round to each player's score and
+	 * records the hand.
+	 */
+	private void scoreRound()
+	{
+		int[] tricksWon = new int[playersList.size()];
+		for (int i = 0; i < tricksWon.length; ++i)
+		{
+			tricksWon[i] = playersList.get(i).getTricksWon();
+		}
+
+		int[] scoreDeltas = new int[playersList.size()];
+		FiveHundredRules.scoreRound(highestBid, highestBidder, tricksWon, scoreDeltas);
+		for (int i = 0; i < scoreDeltas.length; ++i)
+		{
+			playersList.get(i).addScore(scoreDeltas[i]);
+			handRecord.setScoreDelta(i, scoreDeltas[i]);
+		}
+		statistics.recordHand(handRecord, contractorTrumpLength);
+
+		GameRecordWriter writer = recordWriter;
+		if (writer != null)
+		{
+			try
+			{
+				writer.append(handRecord);
+			}
+			catch (UncheckedIOException | IllegalArgumentException e)
+			{
+				e.printStackTrace();
+				closeRecordWriter();
+			}
+		}
+		++dealIndex;
+	}
+
+	/**
+	 * Chooses the strategy the AI players follow during their playouts: the
+	 * evaluation model trained by self-play if there is one, the heuristic
+	 * otherwise.
+	 * 
+	 * @return the strategy.
+	 */
+	private Strategy loadPlayoutStrategy()
+	{
+		Path path = Paths.get("models", EvaluationModel.DEFAULT_FILE_NAME);
+		if (Files.exists(path))
+		{
+			try
+			{
+				return new ModelStrategy(EvaluationModel.load(path));
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		return new HeuristicStrategy();
+	}
+
+	/**
+	 * Creates the file in which every hand of this game is recorded. The game
+	 * can still be played without it if the file can't be created.
+	 */
+	private void openRecordWriter()
+	{
+		try
+		{
+			Path directory = Paths.get("records");
+			Files.createDirectories(directory);
+			// A game resumed from a save goes on in a file of its own.
+			Path path = directory.resolve(String.format("game-%016x.fhr", baseSeed));
+			for (int part = 2; Files.exists(path); ++part)
+			{
+				path = directory.resolve(String.format("game-%016x-%d.fhr", baseSeed, part));
+			}
+			recordWriter = new GameRecordWriter(path, deckSpec, baseSeed);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			recordWriter = null;
+		}
+	}
+
+	/** Writes the last hands recorded and closes the game record file. */
+	private void closeRecordWriter()
+	{
+		GameRecordWriter writer = recordWriter;
+		recordWriter = null;
+		if (writer == null)
+			return;
+		try
+		{
+			writer.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Loads the game record file the player asked to replay and shows its first
+	 * hand. The round being played is abandoned.
+	 */
+	private void startReplay()
+	{
+		Path path = pendingReplay;
+		pendingReplay = null;
+
+		List<HandRecord> hands = new ArrayList<>();
+		ReplayEngine engine;
+		try (GameRecordReader reader = new GameRecordReader(path))
+		{
+			if (reader.getHeader().getDeckSpec() != deckSpec)
+			{
+				System.err.println("Can't replay a game played with " + reader.getHeader().getDeckSpec()
+						+ " at a table of " + playersList.size() + " players.");
+				return;
+			}
+			engine = new ReplayEngine(reader.getHeader());
+			HandRecord record = reader.createRecord();
+			while (hands.size() < MAX_REPLAY_HANDS && reader.next(record))
+			{
+				hands.add(record);
+				record = reader.createRecord();
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return;
+		}
+		if (hands.isEmpty())
+			return;
+
+		ponderer.stop(null);
+		bidDropMenu.setVisible(false);
+		OK.setVisible(false);
+		nextRound.setVisible(false);
+		// The hand being played is abandoned, so the next one is a new deal.
+		if (currentGameState == GameState.BIDDING || currentGameState == GameState.PLAYING)
+			++dealIndex;
+
+		replayEngine = engine;
+		replayHands = hands;
+		replayHandIndex = 0;
+		replayEngine.load(replayHands.get(0));
+		currentGameState = GameState.REPLAYING;
+		showReplayStep();
+	}
+
+	/**
+	 * Moves through the replay according to the keys pressed: the arrows move
+	 * one step or one trick, Page Up and Page Down change hand, Home and End go
+	 * to the beginning or the end of the hand and Escape ends the replay.
+	 */
+	private void updateReplay()
+	{
+		boolean[] keysDown = currentKeyboardState.getKeysDown();
+		int step = replayEngine.getStep();
+		int handIndex = replayHandIndex;
+
+		if (isKeyPressed(keysDown, KeyEvent.VK_ESCAPE))
+		{
+			stopReplay();
+			previousKeysDown = keysDown;
+			return;
+		}
+		if (isKeyPressed(keysDown, KeyEvent.VK_RIGHT))
+			step = Math.min(step + 1, replayEngine.getStepCount());
+		if (isKeyPressed(keysDown, KeyEvent.VK_LEFT))
+			step = Math.max(step - 1, 0);
+		if (isKeyPressed(keysDown, KeyEvent.VK_UP))
+			step = replayEngine.isBidding() ? replayEngine.getTrickStep(0) : replayEngine.getTrickStep(Math.min(
+					replayEngine.getCurrentTrick() + 1, HandRecord.TRICKS_PER_HAND));
+		if (isKeyPressed(keysDown, KeyEvent.VK_DOWN))
+		{
+			int trick = replayEngine.getCurrentTrick();
+			if (replayEngine.getStep() == replayEngine.getTrickStep(trick))
+				--trick;
+			step = trick < 0 || replayEngine.isBidding() ? 0 : replayEngine.getTrickStep(trick);
+		}
+		if (isKeyPressed(keysDown, KeyEvent.VK_HOME))
+			step = 0;
+		if (isKeyPressed(keysDown, KeyEvent.VK_END))
+			step = replayEngine.getStepCount();
+		if (isKeyPressed(keysDown, KeyEvent.VK_PAGE_DOWN))
+			handIndex = Math.min(handIndex + 1, replayHands.size() - 1);
+		if (isKeyPressed(keysDown, KeyEvent.VK_PAGE_UP))
+			handIndex = Math.max(handIndex - 1, 0);
+		previousKeysDown = keysDown;
+
+		if (handIndex != replayHandIndex)
+		{
+			replayHandIndex = handIndex;
+			replayEngine.load(replayHands.get(handIndex));
+			showReplayStep();
+		}
+		else if (step != replayEngine.getStep())
+		{
+			if (step == replayEngine.getStep() + 1)
+				replayEngine.stepForward();
+			else
+				replayEngine.seek(step);
+			showReplayStep();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if a key was pressed since the last update.
+	 * 
+	 * @param keysDown
+	 *        The keys currently down.
+	 * @param keyCode
+	 *        The code of the key.
+	 * @return {@code true} if the key just went down.
+	 */
+	private boolean isKeyPressed(boolean[] keysDown, int keyCode)
+	{
+		return keysDown[keyCode] && !previousKeysDown[keyCode];
+	}
+
+	/**
+	 * Shows the current step of the replay: the hand of each player, the cards
+	 * on the table and the tricks won. Between two tricks, the table shows the
+	 * last trick completed.
+	 */
+	private void showReplayStep()
+	{
+		highestBid = replayEngine.getHighestBid();
+		highestBidder = replayEngine.getRecord().getContractor();
+
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			Player player = playersList.get(i);
+			player.getHand().clear();
+			for (long cards = replayEngine.getHand(i); cards != 0; cards &= cards - 1)
+			{
+				player.getHand().addCard(deck.getCard(Long.numberOfTrailingZeros(cards)));
+			}
+			player.getHand().sort(this::cardComparator);
+			seatLayouts[i].layoutHand(player.getHand());
+
+			player.clearTricksWon();
+			for (int j = 0; j < replayEngine.getTricksWon(i); ++j)
+			{
+				player.addTrick();
+			}
+		}
+
+		boolean isTableEmpty = true;
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			if (replayEngine.getCardOnTable(i) != -1)
+				isTableEmpty = false;
+		}
+		gameTable.clear();
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			int id = isTableEmpty ? replayEngine.getLastTrickCard(i) : replayEngine.getCardOnTable(i);
+			if (id == -1)
+				continue;
+			Card card = deck.getCard(id);
+			card.setX(seatLayouts[i].getPlayedCardDestination().getX());
+			card.setY(seatLayouts[i].getPlayedCardDestination().getY());
+			gameTable.playCard(i, card);
+		}
+	}
+
+	/**
+	 * Ends the replay and deals a new hand.
+	 */
+	private void stopReplay()
+	{
+		replayEngine = null;
+		replayHands = null;
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			playersList.get(i).getHand().clear();
+			playersList.get(i).clearTricksWon();
+			playersList.get(i).setYourTurn(false);
+		}
+		playersList.get(0).setBid(null);
+		gameTable.clear();
+		firstCardPlayed = -1;
+		currentGameState = GameState.DEALING_CARDS;
+	}
+
+	/**
+	 * Returns a value indicating whether the last card of the round was
+	 * played but the round wasn't scored yet.
+	 */
+	private boolean isRoundUnscored()
+	{
+		return currentGameState == GameState.PLAYING && numCardsPlayed == totalNumPlayableCards;
+	}
+
+	/**
+	 * Takes a snapshot of the game and writes it to the file the player chose
+	 * on a thread of its own, so the game never waits for the disk. A replay
+	 * can't be saved.
+	 */
+	private void saveGame()
+	{
+		Path path = pendingSave;
+		pendingSave = null;
+		if (currentGameState == GameState.REPLAYING)
+		{
+			System.err.println("Can't save a game during a replay.");
+			return;
+		}
+
+		SavedGame save = createSavedGame();
+		Thread saver = new Thread(() -> {
+			try
+			{
+				save.save(path);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}, "Game saver");
+		saver.start();
+	}
+
+	/**
+	 * Packs the game into the table state the server uses, by dealing the
+	 * cards of the hand again and replaying its bids and plays on it.
+	 * 
+	 * @return the snapshot of the game.
+	 */
+	private SavedGame createSavedGame()
+	{
+		int numberOfPlayers = playersList.size();
+		SavedGame save = new SavedGame(deckSpec);
+		save.setBaseSeed(baseSeed);
+		save.setDealIndex(dealIndex);
+		save.setRandomState(random.getState());
+		save.setContractorTrumpLength(contractorTrumpLength);
+
+		TableState state = save.getState();
+		long[] dealtHands = new long[numberOfPlayers + 1];
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			dealtHands[i] = getCardIds(playersList.get(i).getHand()) | handRecord.getCardsPlayed(i);
+		}
+		dealtHands[numberOfPlayers] = getCardIds(widow);
+		int dealer = handRecord.getDealer();
+		state.startRound((int) handRecord.getDealIndex() + 1, dealer, dealtHands);
+		for (int i = 0; i < bidCount; ++i)
+		{
+			state.callBid(handRecord.getBid((dealer + 1 + i) % numberOfPlayers));
+		}
+		if (state.getPhase() == TableState.PLAYING)
+		{
+			PlayState play = new PlayState(deckSpec);
+			play.set(state);
+			HandRecord record = save.getRecord();
+			for (int i = 0; i < handRecord.getPlayCount(); ++i)
+			{
+				state.playCard(play, handRecord.getPlay(i));
+				record.addPlay(handRecord.getPlay(i));
+			}
+			for (int i = 0; i < handRecord.getTrickCount(); ++i)
+			{
+				record.addTrickWinner(handRecord.getTrickWinner(i));
+			}
+		}
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			state.setScore(i, playersList.get(i).getScore());
+		}
+		return save;
+	}
+
+	/**
+	 * Loads the game the player chose and resumes it where it was saved. The
+	 * round being played or replayed is abandoned.
+	 */
+	private void loadGame()
+	{
+		Path path = pendingLoad;
+		pendingLoad = null;
+		SavedGame save;
+		try
+		{
+			save = SavedGame.load(path);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return;
+		}
+		if (save.getDeckSpec() != deckSpec)
+		{
+			System.err.println("Can't load a game played with " + save.getDeckSpec() + " at a table of "
+					+ playersList.size() + " players.");
+			return;
+		}
+
+		ponderer.stop(null);
+		bidDropMenu.setVisible(false);
+		OK.setVisible(false);
+		nextRound.setVisible(false);
+		replayEngine = null;
+		replayHands = null;
+
+		if (save.getBaseSeed() != baseSeed)
+		{
+			closeRecordWriter();
+			baseSeed = save.getBaseSeed();
+			openRecordWriter();
+		}
+		dealIndex = save.getDealIndex();
+		random.setState(save.getRandomState());
+		contractorTrumpLength = save.getContractorTrumpLength();
+
+		TableState state = save.getState();
+		widow.clear();
+		addCards(widow, state.getWidow());
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			Player player = playersList.get(i);
+			player.getHand().clear();
+			addCards(player.getHand(), state.getHand(i));
+			player.clearTricksWon();
+			for (int j = 0; j < state.getTricksWon(i); ++j)
+			{
+				player.addTrick();
+			}
+			player.setScore(state.getScore(i));
+			player.setYourTurn(false);
+			// The AI players keep the bid they always call until they can bid
+			// by themselves.
+			if (i == 0 || state.getBid(i) != null)
+				player.setBid(state.getBid(i));
+		}
+		handRecord.copyFrom(save.getRecord());
+		dealerIndex = state.getDealer();
+		highestBid = state.getHighestBid();
+		highestBidder = state.getContractor();
+		bidCount = state.getBidCount();
+		currentPlayer = state.getSeatToAct();
+		firstCardPlayed = state.getLeader();
+		numCardsPlayed = Long.bitCount(state.getPlayedCards());
+		ponderedCardsPlayed = -1;
+
+		gameTable.clear();
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			int id = state.getCardOnTable(i);
+			if (id == -1)
+				continue;
+			Card card = deck.getCard(id);
+			card.setX(seatLayouts[i].getPlayedCardDestination().getX());
+			card.setY(seatLayouts[i].getPlayedCardDestination().getY());
+			gameTable.playCard(i, card);
+		}
+		setPositions();
+
+		switch (state.getPhase())
+		{
+			case TableState.BIDDING:
+				playersList.get(currentPlayer).setYourTurn(true);
+				bidDropMenu.setVisible(!playersList.get(0).hasBid());
+				OK.setVisible(!playersList.get(0).hasBid());
+				currentGameState = GameState.BIDDING;
+				break;
+			case TableState.PLAYING:
+				playersList.get(currentPlayer).setYourTurn(true);
+				currentGameState = GameState.PLAYING;
+				break;
+			case TableState.ROUND_OVER:
+				currentGameState = GameState.SCORING;
+				break;
+			default:
+				currentGameState = GameState.DEALING_CARDS;
+				break;
+		}
+	}
+
+	/**
+	 * Returns the cards of a hand as a bit set of card ids.
+	 */
+	private static long getCardIds(Hand hand)
+	{
+		long cards = 0;
+		for (int i = 0; i < hand.getCardCount(); ++i)
+		{
+			cards |= 1L << hand.getCard(i).getId();
+		}
+		return cards;
+	}
+
+	/**
+	 * Adds cards of the deck to a hand.
+	 * 
+	 * @param hand
+	 *        The hand.
+	 * @param cards
+	 *        The cards as a bit set of card ids.
+	 */
+	private void addCards(Hand hand, long cards)
+	{
+		for (; cards != 0; cards &= cards - 1)
+		{
+			hand.addCard(deck.getCard(Long.numberOfTrailingZeros(cards)));
+		}
+	}
+
+	/**
+	 * Creates a copy of the current state of the round for the AI, from the
+	 * point of view of the player who has to play.
+	 * 
+	 * @return The position of the player who has to play.
+	 */
+	public SearchPosition createSearchPosition()
+	{
+		Card[] cardsOnTable = new Card[playersList.size()];
+		// Until the table is cleared, it still holds the cards of the last
+		// trick, which is over when firstCardPlayed is -1.
+		if (firstCardPlayed != -1)
+		{
+			for (int i = 0; i < cardsOnTable.length; ++i)
+			{
+				cardsOnTable[i] = gameTable.getCardOnTable(i);
+			}
+		}
+
+		Hand[] hands = new Hand[playersList.size()];
+		for (int i = 0; i < hands.length; ++i)
+		{
+			hands[i] = playersList.get(i).getHand();
+		}
+
+		return new SearchPosition(highestBid, highestBidder, currentPlayer, firstCardPlayed, cardsOnTable, hands, widow,
+				numCardsPlayed);
+	}
+
+	@Override
+	protected void onActivated()
+	{
+		ponderer.setEnabled(true);
+		// Ask the ponderer to resume where it left.
+		ponderedCardsPlayed = -1;
+	}
+
+	@Override
+	protected void onDeactivated()
+	{
+		ponderer.setEnabled(false);
+	}
+
+	@Override
+	protected void onExiting()
+	{
+		ponderer.shutdown();
+		closeRecordWriter();
+	}
+
 	protected void draw(GameTime gameTime)
 	{
 		gameTable.draw(spriteBatch);
@@ -411,6 +1122,12 @@ public class Game extends GameCore
 		// Display players name, score, number of tricks won and bids.
 		// If we are Bidding, display all bids, else display only the highest
 		// bid.
+		if (currentGameState.equals(GameState.REPLAYING))
+		{
+			drawReplayText();
+			return;
+		}
+
 		for (int i = 0; i < playersList.size(); ++i)
 		{
 			g.drawString(playersList.get(i).getName() + " : " + playersList.get(i).getScore(),
@@ -436,6 +1153,35 @@ public class Game extends GameCore
 		// g2.drawString("TEST ROTATION", 200, 200);
 	}
 
+	/**
+	 * Displays the bids, the tricks won and the points scored during the hand
+	 * being replayed, and where we are in the replay.
+	 */
+	private void drawReplayText()
+	{
+		HandRecord record = replayEngine.getRecord();
+		for (int i = 0; i < playersList.size(); ++i)
+		{
+			String points = replayEngine.getStep() == replayEngine.getStepCount() ? " : "
+					+ record.getScoreDelta(i) : "";
+			g.drawString(playersList.get(i).getName() + points, playersTextPosition[i].getX(),
+					playersTextPosition[i].getY());
+			g.drawString("Tricks won: " + replayEngine.getTricksWon(i), playersTextPosition[i].getX(),
+					playersTextPosition[i].getY() + lineHeight);
+			Bid bid = replayEngine.isBidding() ? replayEngine.getBid(i) : (i == record.getContractor() ? record
+					.getHighestBid() : null);
+			if (bid != null)
+			{
+				g.drawString(bid.getName(), playersTextPosition[i].getX(), playersTextPosition[i].getY()
+						- lineHeight);
+			}
+		}
+
+		g.drawString("Replay - hand " + (replayHandIndex + 1) + "/" + replayHands.size() + ", step "
+				+ replayEngine.getStep() + "/" + replayEngine.getStepCount(), 20, 20);
+		g.drawString("Arrows: step / trick, Page Up/Down: hand, Esc: quit", 20, 20 + lineHeight);
+	}
+
 	/**
 	 * Deal the cards to the player and the widow according to the rules. We
 	 * first deal 3 cards to each player and the widow. The 4 to each player
@@ -443,50 +1189,13 @@ public class Game extends GameCore
 	 */
 	private void dealCards()
 	{
-		for (int i = 0; i < 3; ++i)
-		{
-			switch (i)
-			{
-				case 0:
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					widow.addCard(deck.dealCard());
-					widow.addCard(deck.dealCard());
-					widow.addCard(deck.dealCard());
-					break;
-				case 1:
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					break;
-				case 2:
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(0).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(1).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					playersList.get(2).getHand().addCard(deck.dealCard());
-					break;
-			}
+		for (int position = 0; position < deckSpec.getDeckSize(); ++position)
+		{
+			int target = deckSpec.getDealTarget(position);
+			if (target == playersList.size())
+				widow.addCard(deck.dealCard());
+			else
+				playersList.get(target).getHand().addCard(deck.dealCard());
 		}
 	}
 
@@ -496,28 +1205,12 @@ public class Game extends GameCore
 	 */
 	private void setPositions()
 	{
-		// TODO : Clean up positions
-		// Set the x and y position of cards for rendering
-		for (int i = 0; i < 10; ++i)
+		for (int i = 0; i < playersList.size(); ++i)
 		{
-			playersList
-					.get(0)
-					.getHand()
-					.getCard(i)
-					.setY(getScreenHeight() - playersList.get(0).getHand().getCard(i).getSprite().getHeight()
-							- Card.cardSpacing);
-			playersList.get(1).getHand().getCard(i).setX(50);
-			playersList.get(2).getHand().getCard(i).setX(getScreenWidth() - 130);
+			// TODO: Only sort the human player's hand when finished debugging
+			playersList.get(i).getHand().sort(this::cardComparator);
+			seatLayouts[i].layoutHand(playersList.get(i).getHand());
 		}
-		playersList.get(0).getHand().sort(this::cardComparator);
-		playersList.get(0).getHand().updateXPosition(this);
-
-		// TODO: Delete when finished debugging
-		playersList.get(1).getHand().sort(this::cardComparator);
-		playersList.get(2).getHand().sort(this::cardComparator);
-
-		playersList.get(1).getHand().updateYPosition(this);
-		playersList.get(2).getHand().updateYPosition(this);
 	}
 
 	private void createMenuBar()
@@ -532,12 +1225,24 @@ public class Game extends GameCore
 		// Create and add menu items to the drop down menus
 		JMenuItem newGameAction = new JMenuItem("Nouvelle partie");
 		newGameAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F2, 0));
+		JMenuItem replayAction = new JMenuItem("Revoir une partie");
+		replayAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0));
+		JMenuItem saveAction = new JMenuItem("Sauvegarder la partie");
+		saveAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F6, 0));
+		JMenuItem loadAction = new JMenuItem("Reprendre une partie");
+		loadAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F8, 0));
+		JMenuItem statisticsAction = new JMenuItem("Statistiques");
+		statisticsAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F4, 0));
 		JMenuItem optionsAction = new JMenuItem("Options");
 		optionsAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F5, 0));
 		JMenuItem appearanceAction = new JMenuItem("Modifier l'apparence");
 		appearanceAction.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F7, 0));
 		JMenuItem exitAction = new JMenuItem("Quitter");
 		partieMenu.add(newGameAction);
+		partieMenu.add(saveAction);
+		partieMenu.add(loadAction);
+		partieMenu.add(replayAction);
+		partieMenu.add(statisticsAction);
 		partieMenu.addSeparator();
 		partieMenu.add(optionsAction);
 		partieMenu.add(appearanceAction);
@@ -557,6 +1262,58 @@ public class Game extends GameCore
 
 			}
 		});
+		replayAction.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e)
+			{
+				JFileChooser chooser = new JFileChooser(new File("records"));
+				chooser.setFileFilter(new FileNameExtensionFilter("Game records", "fhr"));
+				if (chooser.showOpenDialog(getFrame()) == JFileChooser.APPROVE_OPTION)
+				{
+					// The game thread loads the file on its next update.
+					pendingReplay = chooser.getSelectedFile().toPath();
+				}
+			}
+		});
+		saveAction.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e)
+			{
+				File directory = new File(SAVE_DIRECTORY);
+				directory.mkdirs();
+				JFileChooser chooser = new JFileChooser(directory);
+				chooser.setFileFilter(new FileNameExtensionFilter("Saved games", SAVE_EXTENSION));
+				if (chooser.showSaveDialog(getFrame()) == JFileChooser.APPROVE_OPTION)
+				{
+					Path path = chooser.getSelectedFile().toPath();
+					if (!path.getFileName().toString().endsWith("." + SAVE_EXTENSION))
+						path = path.resolveSibling(path.getFileName() + "." + SAVE_EXTENSION);
+					// The game thread takes the snapshot on its next update.
+					pendingSave = path;
+				}
+			}
+		});
+		loadAction.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e)
+			{
+				JFileChooser chooser = new JFileChooser(new File(SAVE_DIRECTORY));
+				chooser.setFileFilter(new FileNameExtensionFilter("Saved games", SAVE_EXTENSION));
+				if (chooser.showOpenDialog(getFrame()) == JFileChooser.APPROVE_OPTION)
+				{
+					// The game thread loads the file on its next update.
+					pendingLoad = chooser.getSelectedFile().toPath();
+				}
+			}
+		});
+		statisticsAction.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e)
+			{
+				ByteArrayOutputStream text = new ByteArrayOutputStream();
+				statistics.snapshot().print(new PrintStream(text), playersList.size());
+				JTextArea textArea = new JTextArea(text.toString());
+				textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+				textArea.setEditable(false);
+				JOptionPane.showMessageDialog(getFrame(), textArea, "Statistiques", JOptionPane.PLAIN_MESSAGE);
+			}
+		});
 		optionsAction.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e)
 			{
@@ -651,6 +1408,11 @@ public class Game extends GameCore
 		return playersList.size();
 	}
 
+	public Ponderer getPonderer()
+	{
+		return ponderer;
+	}
+
 	public GameTable getGameTable()
 	{
 		return gameTable;
@@ -1,10 +1,13 @@
 package fiveHundred;
 
+import fiveHundred.cards.DeckSpec;
+
 import javax.swing.UIManager;
 
 /**
  * This class is the main entry point of the program. It contains
- * the main method to launch the game.
+ * the main method to launch the game. The number of players, from
+ * 3 to 6, can be given as the first argument.
  */
 public class Main
 {
@@ -21,7 +24,11 @@ public class Main
 			e.printStackTrace();
 		}
 		
-		Game game = new Game();
+		DeckSpec deckSpec = DeckSpec.THREE_PLAYERS;
+		if (args.length > 0)
+			deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[0]));
+
+		Game game = new Game(deckSpec);
 		game.start();
 	}
 }
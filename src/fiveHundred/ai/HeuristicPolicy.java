@@ -0,0 +1,197 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.Card;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.cards.Hand;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+/**
+ * The hand-written rules the AI players use to select a bid and a card. They
+ * are cheap enough to be used to play the rest of a round during a search.
+ */
+public class HeuristicPolicy
+{
+	/** Every bid, in their natural ordering. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The number of bids for each number of tricks, one per trump and one without trump. */
+	private static final int BIDS_PER_LEVEL = 5;
+
+	/** The smallest number of tricks a player can bid. */
+	private static final int LOWEST_LEVEL = 6;
+
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private HeuristicPolicy() {}
+
+	/**
+	 * Returns the bid to call with a hand. The player counts one trick for
+	 * every trump and one for every other ace, for each possible trump, and
+	 * calls the highest contract he expects to make if it beats the highest
+	 * bid so far.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the round is played with.
+	 * @param hand
+	 *        The cards of the player as a bit set of card ids.
+	 * @param highestBid
+	 *        The highest bid called so far, {@link Bid#PASS} if there is none.
+	 * @return The bid to call, {@link Bid#PASS} to pass.
+	 */
+	public static Bid chooseBid(DeckSpec deckSpec, long hand, Bid highestBid)
+	{
+		Bid bestBid = Bid.PASS;
+		for (int trump = 0; trump < BIDS_PER_LEVEL; ++trump)
+		{
+			Bid bid = BIDS[1 + trump];
+			int tricks = 0;
+			for (long cards = hand; cards != 0; cards &= cards - 1)
+			{
+				int id = Long.numberOfTrailingZeros(cards);
+				int suit = FiveHundredRules.getCardSuit(deckSpec.getSuit(id), deckSpec.getValue(id), bid);
+				if (bid.hasTrump() ? suit == bid.getTrumpSuit() : suit == Card.JOKER)
+					++tricks;
+				else if (deckSpec.getValue(id) == Card.ACE_HIGH)
+					++tricks;
+			}
+
+			tricks = Math.min(tricks, DeckSpec.HAND_SIZE);
+			if (tricks >= LOWEST_LEVEL)
+			{
+				Bid contract = BIDS[bid.ordinal() + (tricks - LOWEST_LEVEL) * BIDS_PER_LEVEL];
+				if (contract.ordinal() > bestBid.ordinal())
+					bestBid = contract;
+			}
+		}
+		return bestBid.ordinal() > highestBid.ordinal() ? bestBid : Bid.PASS;
+	}
+
+	// TODO : Take care of the Joker in both situations (hasTrump and not)
+	/**
+	 * Returns the position in the hand of the card to play.
+	 *
+	 * <p>
+	 * The hand doesn't need to be sorted, which is the case for the hands dealt at random during a
+	 * search.
+	 *
+	 * @param hand
+	 *        The hand of the player who has to play.
+	 * @param firstCardPlayed
+	 *        The first card played during this trick or {@code null} if the
+	 *        player is the first to play.
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @return The position of the card to play in the hand.
+	 */
+	public static int chooseCard(Hand hand, Card firstCardPlayed, Bid bid)
+	{
+		// If we are the first to play
+		if (firstCardPlayed == null)
+		{
+			// TODO : Logic to find which card to play
+			return 0;
+		}
+
+		int leadSuit = FiveHundredRules.getCardSuit(firstCardPlayed, bid);
+		int lowestSameSuit = -1, highestSameSuit = -1, highestTrump = -1, lowestOverallCard = -1;
+
+		for (int i = 0; i < hand.getCardCount(); ++i)
+		{
+			Card card = hand.getCard(i);
+			int suit = FiveHundredRules.getCardSuit(card, bid);
+			int value = FiveHundredRules.getCardValue(card, bid);
+			if (suit == leadSuit)
+			{
+				if (lowestSameSuit == -1 || value < FiveHundredRules.getCardValue(hand.getCard(lowestSameSuit), bid))
+					lowestSameSuit = i;
+				if (highestSameSuit == -1 || value > FiveHundredRules.getCardValue(hand.getCard(highestSameSuit), bid))
+					highestSameSuit = i;
+			}
+			else if (suit == bid.getTrumpSuit())
+			{
+				if (highestTrump == -1 || value > FiveHundredRules.getCardValue(hand.getCard(highestTrump), bid))
+					highestTrump = i;
+			}
+			else if (lowestOverallCard == -1 || value < FiveHundredRules.getCardValue(hand.getCard(lowestOverallCard), bid))
+			{
+				lowestOverallCard = i;
+			}
+		}
+
+		// Select which card to play
+		if (highestSameSuit != -1)
+		{
+			if (FiveHundredRules.getCardValue(hand.getCard(highestSameSuit), bid) > FiveHundredRules.getCardValue(firstCardPlayed, bid))
+				return highestSameSuit;
+			else
+				return lowestSameSuit;
+		}
+		else if (highestTrump != -1)
+		{
+			// TODO : Choose whether playing the highest or lowest trump.
+			return highestTrump;
+		}
+		else
+		{
+			return lowestOverallCard;
+		}
+	}
+
+	/**
+	 * Returns the card to play in a search state. The card is the one
+	 * {@link #chooseCard(Hand, Card, Bid)} selects when the hand is sorted by
+	 * card id, so leading means playing the card with the lowest id.
+	 *
+	 * @param state
+	 *        The state of the round, for the player who has to play.
+	 * @return The id of the card to play.
+	 */
+	public static int chooseCard(PlayState state)
+	{
+		long hand = state.getHand(state.getSeatToPlay());
+		int leader = state.getLeader();
+
+		// If we are the first to play
+		if (leader == -1)
+			return Long.numberOfTrailingZeros(hand);
+
+		int firstCardPlayed = state.getCardOnTable(leader);
+		int leadSuit = state.getSuit(firstCardPlayed);
+		int trumpSuit = state.getBid().getTrumpSuit();
+		int lowestSameSuit = -1, highestSameSuit = -1, highestTrump = -1, lowestOverallCard = -1;
+
+		for (long cards = hand; cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			int suit = state.getSuit(card);
+			int value = state.getRank(card);
+			if (suit == leadSuit)
+			{
+				if (lowestSameSuit == -1 || value < state.getRank(lowestSameSuit))
+					lowestSameSuit = card;
+				if (highestSameSuit == -1 || value > state.getRank(highestSameSuit))
+					highestSameSuit = card;
+			}
+			else if (suit == trumpSuit)
+			{
+				if (highestTrump == -1 || value > state.getRank(highestTrump))
+					highestTrump = card;
+			}
+			else if (lowestOverallCard == -1 || value < state.getRank(lowestOverallCard))
+			{
+				lowestOverallCard = card;
+			}
+		}
+
+		// Select which card to play
+		if (highestSameSuit != -1)
+			return state.getRank(highestSameSuit) > state.getRank(firstCardPlayed) ? highestSameSuit : lowestSameSuit;
+		else if (highestTrump != -1)
+			return highestTrump;
+		else
+			return lowestOverallCard;
+	}
+}
@@ -0,0 +1,29 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+
+/**
+ * The strategy made of the hand-written rules of {@link HeuristicPolicy}.
+ */
+public class HeuristicStrategy implements Strategy
+{
+	@Override
+	public String getName()
+	{
+		return "heuristic-1";
+	}
+
+	@Override
+	public Bid chooseBid(DeckSpec deckSpec, long hand, Bid highestBid)
+	{
+		return HeuristicPolicy.chooseBid(deckSpec, hand, highestBid);
+	}
+
+	@Override
+	public int chooseCard(PlayState state)
+	{
+		return HeuristicPolicy.chooseCard(state);
+	}
+}
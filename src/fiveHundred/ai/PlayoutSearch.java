@@ -0,0 +1,228 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.Card;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.cards.Hand;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.FiveHundredRules;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Selects the card to play by simulating the rest of the round. For every
+ * playout, the cards the player can't see are dealt at random to the other
+ * players and everyone plays the rest of the round with the playout
+ * {@link Strategy}, the {@link HeuristicStrategy} unless another one is
+ * given. The card that wins the most tricks for the player's side on average
+ * is the one to play.
+ *
+ * <p>
+ * The playouts are played in a {@link PlayState} that is modified in place and taken back to the
+ * root after each playout, so a search doesn't create any garbage.
+ *
+ * <p>
+ * An instance of this class must only be used by one thread at a time.
+ */
+public class PlayoutSearch
+{
+	/** The number of playouts made before an AI player selects a card. */
+	public static final int DEFAULT_BUDGET = 1500;
+
+	/** The random number generator used to deal the unseen cards. */
+	private final Random random;
+
+	/** The strategy every player follows during the playouts. */
+	private final Strategy playoutStrategy;
+
+	/** The state the playouts are played in, reused from one playout to the next. */
+	private PlayState state;
+
+	/** The cards the player who has to play can't see. */
+	private int[] unseenCards;
+
+	/** The number of cards in {@code unseenCards}. */
+	private int unseenCount;
+
+	/** The number of cards in each player's hand at the root, indexed by player. */
+	private int[] handSizes;
+
+	/** The hands of the root position, indexed by player. */
+	private long[] hands;
+
+	/** The cards on the table at the root, indexed by player. */
+	private int[] cardsOnTable;
+
+	/**
+	 * Creates a search using its own random number generator.
+	 *
+	 * @param seed
+	 *        The seed of the random number generator.
+	 */
+	public PlayoutSearch(long seed)
+	{
+		this(seed, new HeuristicStrategy());
+	}
+
+	/**
+	 * Creates a search using its own random number generator and playing the
+	 * playouts with the specified strategy.
+	 *
+	 * @param seed
+	 *        The seed of the random number generator.
+	 * @param playoutStrategy
+	 *        The strategy every player follows during the playouts.
+	 */
+	public PlayoutSearch(long seed, Strategy playoutStrategy)
+	{
+		random = new Random(seed);
+		this.playoutStrategy = playoutStrategy;
+	}
+
+	/**
+	 * Creates an empty result holding every card the player who has to play
+	 * can legally play.
+	 *
+	 * @param position
+	 *        The position to search.
+	 * @return An empty result for this position.
+	 */
+	public SearchResult createResult(SearchPosition position)
+	{
+		Hand hand = position.getHand(position.getSeatToPlay());
+		Card firstCardPlayed = position.getFirstCardPlayed();
+
+		ArrayList<Card> candidates = new ArrayList<>();
+		for (int i = 0; i < hand.getCardCount(); ++i)
+		{
+			if (FiveHundredRules.isValidCard(hand, hand.getCard(i), firstCardPlayed, position.getBid()))
+			{
+				candidates.add(hand.getCard(i));
+			}
+		}
+
+		return new SearchResult(position, candidates.toArray(new Card[candidates.size()]));
+	}
+
+	/**
+	 * Makes more playouts for a position and adds them to its result. The
+	 * playouts are spread evenly between the candidates.
+	 *
+	 * @param result
+	 *        The result to add the playouts to.
+	 * @param playouts
+	 *        The number of playouts to make.
+	 */
+	public void run(SearchResult result, int playouts)
+	{
+		// There is nothing to search if only one card can be played.
+		if (result.getCandidateCount() < 2)
+			return;
+
+		setRoot(result.getPosition());
+		for (int i = 0; i < playouts; ++i)
+		{
+			int candidate = result.getPlayouts() % result.getCandidateCount();
+			result.addPlayout(candidate, playout(result.getCandidate(candidate).getId()));
+		}
+	}
+
+	/**
+	 * Sets the state the playouts start from and gathers the cards the player
+	 * who has to play can't see.
+	 *
+	 * @param position
+	 *        The position to search.
+	 */
+	private void setRoot(SearchPosition position)
+	{
+		int numberOfPlayers = position.getNumberOfPlayers();
+		if (state == null || state.getNumberOfPlayers() != numberOfPlayers)
+		{
+			state = new PlayState(DeckSpec.forPlayers(numberOfPlayers));
+			unseenCards = new int[state.getDeckSpec().getDeckSize()];
+			handSizes = new int[numberOfPlayers];
+			hands = new long[numberOfPlayers];
+			cardsOnTable = new int[numberOfPlayers];
+		}
+
+		int seat = position.getSeatToPlay();
+		unseenCount = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			Hand hand = position.getHand(i);
+			hands[i] = 0;
+			for (int j = 0; j < hand.getCardCount(); ++j)
+			{
+				hands[i] |= 1L << hand.getCard(j).getId();
+				if (i != seat)
+					unseenCards[unseenCount++] = hand.getCard(j).getId();
+			}
+			handSizes[i] = hand.getCardCount();
+			Card card = position.getCardOnTable(i);
+			cardsOnTable[i] = card == null ? -1 : card.getId();
+		}
+		for (int j = 0; j < position.getWidow().getCardCount(); ++j)
+		{
+			unseenCards[unseenCount++] = position.getWidow().getCard(j).getId();
+		}
+
+		state.set(position.getBid(), position.getContractor(), hands, cardsOnTable, position.getLeader(), seat);
+	}
+
+	/**
+	 * Plays the rest of the round once from the root state, starting with the
+	 * specified card. The state is back at the root when this method returns.
+	 *
+	 * @param card
+	 *        The id of the card played by the player who has to play.
+	 * @return The number of tricks won by the side of the player who has to
+	 *         play.
+	 */
+	private int playout(int card)
+	{
+		int numberOfPlayers = state.getNumberOfPlayers();
+		int seat = state.getSeatToPlay();
+
+		// Deal the cards we can't see at random to the other players. Each
+		// player keeps the number of cards he really has.
+		int nextUnseenCard = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (i == seat)
+				continue;
+			long cards = 0;
+			for (int j = 0; j < handSizes[i]; ++j)
+			{
+				int k = nextUnseenCard + random.nextInt(unseenCount - nextUnseenCard);
+				int unseenCard = unseenCards[k];
+				unseenCards[k] = unseenCards[nextUnseenCard];
+				unseenCards[nextUnseenCard++] = unseenCard;
+				cards |= 1L << unseenCard;
+			}
+			state.setHand(i, cards);
+		}
+
+		state.makeMove(card);
+		while (!state.isRoundOver())
+		{
+			state.makeMove(playoutStrategy.chooseCard(state));
+		}
+
+		// The defenders play together against the contractor and his partners.
+		int contractor = state.getContractor();
+		boolean isContracting = FiveHundredRules.arePartners(seat, contractor, numberOfPlayers);
+		int sideTricks = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (FiveHundredRules.arePartners(i, contractor, numberOfPlayers) == isContracting)
+				sideTricks += state.getTricksWon(i);
+		}
+
+		while (state.getMoveCount() > 0)
+		{
+			state.unmakeMove();
+		}
+		return sideTricks;
+	}
+}
@@ -0,0 +1,268 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.Card;
+
+/**
+ * Uses the time the human player takes to select a card to search ahead for
+ * the AI players. For every card the human player can play, the ponderer
+ * searches the position the next AI player will be in. Once the human player
+ * plays, only the search matching the card he played is kept and the AI player
+ * can claim it instead of starting from scratch.
+ *
+ * <p>
+ * The search runs on a low priority daemon thread so it never competes with the game thread. The
+ * methods of this class are called from the game thread and from the event dispatch thread.
+ */
+public class Ponderer implements Runnable
+{
+	/**
+	 * The number of playouts made on a continuation between two checks of
+	 * whether we should stop pondering.
+	 */
+	private static final int PLAYOUTS_PER_STEP = 25;
+
+	/** The search used by the pondering thread. */
+	private final PlayoutSearch search;
+
+	/** The number of playouts after which a continuation is complete. */
+	private final int budget;
+
+	/** The index of the human player. We only ponder while it is his turn. */
+	private final int humanSeat;
+
+	/** The thread currently pondering, if any. */
+	private Thread ponderThread;
+
+	/** Value indicating whether the pondering thread should keep going. */
+	private volatile boolean isPondering;
+
+	/**
+	 * Value indicating whether pondering is allowed. It is {@code false} while
+	 * the game is paused or once it is closed.
+	 */
+	private boolean isEnabled;
+
+	/** Value indicating whether this ponderer was shut down for good. */
+	private boolean isShutdown;
+
+	/** The position of the human player we are pondering for. */
+	private SearchPosition rootPosition;
+
+	/** The cards the human player can play, the most likely one first. */
+	private Card[] continuations;
+
+	/**
+	 * The search of the next AI player for each continuation. An entry is
+	 * {@code null} if it is not an AI player's turn after that continuation.
+	 */
+	private SearchResult[] results;
+
+	/** The result kept after the human player played a card. */
+	private SearchResult keptResult;
+
+	/**
+	 * Creates a ponderer.
+	 *
+	 * @param search
+	 *        The search used by the pondering thread. It must not be used by
+	 *        another thread.
+	 * @param budget
+	 *        The number of playouts after which a continuation is complete.
+	 * @param humanSeat
+	 *        The index of the human player.
+	 */
+	public Ponderer(PlayoutSearch search, int budget, int humanSeat)
+	{
+		this.search = search;
+		this.budget = budget;
+		this.humanSeat = humanSeat;
+		isEnabled = true;
+		isShutdown = false;
+	}
+
+	/**
+	 * Starts pondering while the human player decides which card to play. If
+	 * we are already pondering this position, the work already done is kept
+	 * and pondering resumes where it left.
+	 *
+	 * @param position
+	 *        The position of the human player.
+	 */
+	public synchronized void ponder(SearchPosition position)
+	{
+		if (!isEnabled)
+			return;
+
+		if (position.isSameMoment(rootPosition))
+		{
+			if (ponderThread == null || !ponderThread.isAlive())
+				startThread();
+			return;
+		}
+
+		halt();
+		keptResult = null;
+		rootPosition = position;
+
+		SearchResult humanMoves = search.createResult(position);
+		continuations = new Card[humanMoves.getCandidateCount()];
+		results = new SearchResult[continuations.length];
+
+		// The card the human player would play according to the heuristic is
+		// the most likely one, so it is pondered first.
+		int likelyIndex = HeuristicPolicy.chooseCard(position.getHand(humanSeat), position.getFirstCardPlayed(),
+				position.getBid());
+		Card likelyCard = position.getHand(humanSeat).getCard(likelyIndex);
+		int next = 0;
+		for (int i = 0; i < humanMoves.getCandidateCount(); ++i)
+		{
+			if (humanMoves.getCandidate(i) == likelyCard)
+				continuations[next++] = likelyCard;
+		}
+		for (int i = 0; i < humanMoves.getCandidateCount(); ++i)
+		{
+			if (humanMoves.getCandidate(i) != likelyCard)
+				continuations[next++] = humanMoves.getCandidate(i);
+		}
+
+		for (int i = 0; i < continuations.length; ++i)
+		{
+			SearchPosition nextPosition = position.play(continuations[i]);
+			if (!nextPosition.isRoundOver() && nextPosition.getSeatToPlay() != humanSeat)
+			{
+				SearchResult result = search.createResult(nextPosition);
+				// There is nothing to search if only one card can be played.
+				if (result.getCandidateCount() > 1)
+					results[i] = result;
+			}
+		}
+
+		startThread();
+	}
+
+	/**
+	 * Stops pondering because the human player played a card. The search
+	 * matching that card is kept and the others are discarded.
+	 *
+	 * @param cardPlayed
+	 *        The card played by the human player.
+	 */
+	public synchronized void stop(Card cardPlayed)
+	{
+		halt();
+		keptResult = null;
+		if (continuations != null)
+		{
+			for (int i = 0; i < continuations.length; ++i)
+			{
+				if (continuations[i] == cardPlayed)
+					keptResult = results[i];
+			}
+		}
+		rootPosition = null;
+		continuations = null;
+		results = null;
+	}
+
+	/**
+	 * Returns the search kept for the specified position, if any. The result
+	 * can only be claimed once.
+	 *
+	 * @param position
+	 *        The position of the AI player who has to play.
+	 * @return The search made while pondering or {@code null} if there is
+	 *         none for this position.
+	 */
+	public synchronized SearchResult claim(SearchPosition position)
+	{
+		if (keptResult == null || !keptResult.getPosition().isSameMoment(position))
+			return null;
+
+		SearchResult result = keptResult;
+		keptResult = null;
+		return result;
+	}
+
+	/**
+	 * Allows or forbids pondering. The pondering thread is stopped right away
+	 * when pondering is forbidden, but the work already done is kept so it can
+	 * resume later.
+	 *
+	 * @param value
+	 *        {@code true} to allow pondering.
+	 */
+	public synchronized void setEnabled(boolean value)
+	{
+		isEnabled = value && !isShutdown;
+		if (!isEnabled)
+			halt();
+	}
+
+	/**
+	 * Stops pondering for good and discards all the work done. Used when the
+	 * game is closing.
+	 */
+	public synchronized void shutdown()
+	{
+		isShutdown = true;
+		isEnabled = false;
+		halt();
+		rootPosition = null;
+		continuations = null;
+		results = null;
+		keptResult = null;
+	}
+
+	/**
+	 * Ponders every continuation in order of likelihood until each one has
+	 * received its budget or until we are asked to stop.
+	 */
+	public void run()
+	{
+		for (int i = 0; i < results.length && isPondering; ++i)
+		{
+			SearchResult result = results[i];
+			while (result != null && result.getPlayouts() < budget && isPondering)
+			{
+				search.run(result, Math.min(PLAYOUTS_PER_STEP, budget - result.getPlayouts()));
+			}
+		}
+	}
+
+	/** Starts a new pondering thread. */
+	private void startThread()
+	{
+		isPondering = true;
+		ponderThread = new Thread(this, "Ponder");
+		ponderThread.setPriority(Thread.MIN_PRIORITY);
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+
+	/**
+	 * Asks the pondering thread to stop and waits until it does. This never
+	 * takes longer than a few playouts.
+	 */
+	private void halt()
+	{
+		isPondering = false;
+		if (ponderThread == null)
+			return;
+
+		boolean interrupted = false;
+		while (ponderThread.isAlive())
+		{
+			try
+			{
+				ponderThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		ponderThread = null;
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+}
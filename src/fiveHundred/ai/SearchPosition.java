@@ -0,0 +1,220 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.Card;
+import fiveHundred.cards.Hand;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+/**
+ * An object of type SearchPosition is a copy of the state of a round at the
+ * moment a player has to play a card. It holds every hand, but the search only
+ * trusts the hand of the player who has to play and deals the other cards at
+ * random.
+ *
+ * <p>
+ * A position is never modified once created, which makes it safe to share between the game thread
+ * and the pondering thread.
+ */
+public class SearchPosition
+{
+	/** The highest bid of this round. */
+	private final Bid bid;
+
+	/** The index of the player who made the highest bid. */
+	private final int contractor;
+
+	/** The index of the player who has to play. */
+	private final int seatToPlay;
+
+	/**
+	 * The index of the player who played the first card of the trick in
+	 * progress, or -1 if no card was played in this trick.
+	 */
+	private final int leader;
+
+	/** The cards of the trick in progress, indexed by player. */
+	private final Card[] cardsOnTable;
+
+	/** A copy of each player's hand, indexed by player. */
+	private final Hand[] hands;
+
+	/** A copy of the widow. */
+	private final Hand widow;
+
+	/** The number of cards played since the beginning of the round. */
+	private final int cardsPlayed;
+
+	/**
+	 * Creates a position from the state of a round. The hands are copied, but
+	 * not the cards they hold.
+	 *
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @param contractor
+	 *        The index of the player who made the highest bid.
+	 * @param seatToPlay
+	 *        The index of the player who has to play.
+	 * @param leader
+	 *        The index of the player who played the first card of the trick
+	 *        in progress, or -1 if no card was played in this trick.
+	 * @param cardsOnTable
+	 *        The cards of the trick in progress, indexed by player.
+	 * @param hands
+	 *        Each player's hand, indexed by player.
+	 * @param widow
+	 *        The cards in the widow.
+	 * @param cardsPlayed
+	 *        The number of cards played since the beginning of the round.
+	 */
+	public SearchPosition(Bid bid, int contractor, int seatToPlay, int leader, Card[] cardsOnTable, Hand[] hands,
+			Hand widow, int cardsPlayed)
+	{
+		this.bid = bid;
+		this.contractor = contractor;
+		this.seatToPlay = seatToPlay;
+		this.leader = leader;
+		this.cardsOnTable = cardsOnTable.clone();
+		this.hands = new Hand[hands.length];
+		for (int i = 0; i < hands.length; ++i)
+		{
+			this.hands[i] = new Hand(hands[i]);
+		}
+		this.widow = new Hand(widow);
+		this.cardsPlayed = cardsPlayed;
+	}
+
+	/**
+	 * Returns the position reached once the player who has to play plays the
+	 * specified card. If the card completes the trick, the winner of the trick
+	 * is the next player to play.
+	 *
+	 * @param card
+	 *        The card played. It must be in the hand of the player who has to
+	 *        play.
+	 * @return The position after the card is played.
+	 */
+	public SearchPosition play(Card card)
+	{
+		Card[] table = cardsOnTable.clone();
+		table[seatToPlay] = card;
+
+		int newLeader = leader == -1 ? seatToPlay : leader;
+		int nextSeat = (seatToPlay + 1) % hands.length;
+		if (nextSeat == newLeader)
+		{
+			nextSeat = FiveHundredRules.trickWinner(table, newLeader, bid);
+			newLeader = -1;
+			table = new Card[hands.length];
+		}
+
+		// The constructor copies the hands, so we can safely remove the card
+		// from the copy.
+		SearchPosition next = new SearchPosition(bid, contractor, nextSeat, newLeader, table, hands, widow,
+				cardsPlayed + 1);
+		next.hands[seatToPlay].removeCard(card);
+		return next;
+	}
+
+	/**
+	 * Returns {@code true} if every card of this round has been played.
+	 *
+	 * @return {@code true} if every card of this round has been played.
+	 */
+	public boolean isRoundOver()
+	{
+		return hands[seatToPlay].getCardCount() == 0;
+	}
+
+	/**
+	 * Returns {@code true} if both positions are reached at the same moment of
+	 * the same round, that is, a search started on one can be continued on the
+	 * other.
+	 *
+	 * @param other
+	 *        The position to compare to.
+	 * @return {@code true} if both positions are at the same moment of the
+	 *         round.
+	 */
+	public boolean isSameMoment(SearchPosition other)
+	{
+		return other != null && other.seatToPlay == seatToPlay && other.cardsPlayed == cardsPlayed &&
+				other.bid == bid && other.hands[seatToPlay].getCardCount() == hands[seatToPlay].getCardCount();
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public Bid getBid()
+	{
+		return bid;
+	}
+
+	public int getContractor()
+	{
+		return contractor;
+	}
+
+	public int getSeatToPlay()
+	{
+		return seatToPlay;
+	}
+
+	public int getLeader()
+	{
+		return leader;
+	}
+
+	/**
+	 * Returns the first card played during the trick in progress.
+	 *
+	 * @return the first card played or {@code null} if no card was played in
+	 *         this trick.
+	 */
+	public Card getFirstCardPlayed()
+	{
+		return leader == -1 ? null : cardsOnTable[leader];
+	}
+
+	/**
+	 * Returns the card played by a player during the trick in progress.
+	 *
+	 * @param seat
+	 *        The index of the player.
+	 * @return the card played by that player or {@code null}.
+	 */
+	public Card getCardOnTable(int seat)
+	{
+		return cardsOnTable[seat];
+	}
+
+	/**
+	 * Returns the hand of a player. The returned hand must not be modified.
+	 *
+	 * @param seat
+	 *        The index of the player.
+	 * @return the hand of that player.
+	 */
+	public Hand getHand(int seat)
+	{
+		return hands[seat];
+	}
+
+	/**
+	 * Returns the cards in the widow. The returned hand must not be modified.
+	 *
+	 * @return the cards in the widow.
+	 */
+	public Hand getWidow()
+	{
+		return widow;
+	}
+
+	public int getNumberOfPlayers()
+	{
+		return hands.length;
+	}
+
+	public int getCardsPlayed()
+	{
+		return cardsPlayed;
+	}
+}
@@ -0,0 +1,108 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.Card;
+
+/**
+ * Holds the statistics gathered by a {@link PlayoutSearch} for every card a
+ * player can play in a given position. The statistics keep growing as long as
+ * the search is run on the same position, which is what lets a player keep the
+ * work done while pondering.
+ */
+public class SearchResult
+{
+	/** The position this result was gathered for. */
+	private final SearchPosition position;
+
+	/** The cards the player can legally play. */
+	private final Card[] candidates;
+
+	/** The total score obtained by each candidate over all its playouts. */
+	private final long[] totalScores;
+
+	/** The number of playouts made for each candidate. */
+	private final int[] visits;
+
+	/** The total number of playouts made for this position. */
+	private int playouts;
+
+	/**
+	 * Creates an empty result.
+	 *
+	 * @param position
+	 *        The position the result is gathered for.
+	 * @param candidates
+	 *        The cards the player can legally play.
+	 */
+	SearchResult(SearchPosition position, Card[] candidates)
+	{
+		this.position = position;
+		this.candidates = candidates;
+		totalScores = new long[candidates.length];
+		visits = new int[candidates.length];
+		playouts = 0;
+	}
+
+	/**
+	 * Adds the score of one playout to a candidate.
+	 *
+	 * @param candidate
+	 *        The index of the candidate.
+	 * @param score
+	 *        The score obtained by the playout.
+	 */
+	void addPlayout(int candidate, int score)
+	{
+		totalScores[candidate] += score;
+		++visits[candidate];
+		++playouts;
+	}
+
+	/**
+	 * Returns the candidate with the best average score. When no playout was
+	 * made, the first candidate is returned.
+	 *
+	 * @return the card with the best average score.
+	 */
+	public Card getBestCard()
+	{
+		int best = 0;
+		for (int i = 1; i < candidates.length; ++i)
+		{
+			// Compare totalScores[i] / visits[i] > totalScores[best] / visits[best]
+			// without dividing so unvisited candidates are never chosen.
+			if (visits[i] > 0 &&
+				(visits[best] == 0 || totalScores[i] * visits[best] > totalScores[best] * visits[i]))
+			{
+				best = i;
+			}
+		}
+		return candidates[best];
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public SearchPosition getPosition()
+	{
+		return position;
+	}
+
+	public int getCandidateCount()
+	{
+		return candidates.length;
+	}
+
+	public Card getCandidate(int index)
+	{
+		return candidates[index];
+	}
+
+	/**
+	 * Returns the total number of playouts made for this position.
+	 *
+	 * @return the number of playouts made.
+	 */
+	public int getPlayouts()
+	{
+		return playouts;
+	}
+}
@@ -0,0 +1,46 @@
+package fiveHundred.ai;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+
+/**
+ * A way of bidding and playing that can be given to a seat of a simulated
+ * table or used to play out the rest of a round during a search.
+ *
+ * <p>
+ * A strategy can be used by several threads at once, so it must not keep any state between calls.
+ */
+public interface Strategy
+{
+	/**
+	 * Returns the name of this strategy, including its version, as shown in
+	 * the results of a tournament.
+	 *
+	 * @return the name of this strategy.
+	 */
+	String getName();
+
+	/**
+	 * Returns the bid to call with a hand.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the round is played with.
+	 * @param hand
+	 *        The cards of the player as a bit set of card ids.
+	 * @param highestBid
+	 *        The highest bid called so far, {@link Bid#PASS} if there is none.
+	 * @return The bid to call, {@link Bid#PASS} to pass. Any other bid must
+	 *         beat the highest bid.
+	 */
+	Bid chooseBid(DeckSpec deckSpec, long hand, Bid highestBid);
+
+	/**
+	 * Returns the card to play.
+	 *
+	 * @param state
+	 *        The state of the round, for the player who has to play.
+	 * @return The id of the card to play. It must be a legal move.
+	 */
+	int chooseCard(PlayState state);
+}
@@ -0,0 +1,170 @@
+package fiveHundred.analysis;
+
+import fiveHundred.record.HandRecord;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+import java.io.PrintStream;
+
+/**
+ * The totals an analysis computes over the hands it accepts: the contracts
+ * taken and made for each bid and each contractor seat, and the tricks won by
+ * the contractor's side.
+ *
+ * <p>
+ * Each thread of an analysis fills its own aggregate, which only adds to arrays of longs, and the
+ * aggregates are merged at the end.
+ */
+public class HandAggregate
+{
+	/** The largest number of players at a table. */
+	private static final int MAX_PLAYERS = 6;
+
+	/** The number of bids. */
+	private static final int BID_COUNT = Bid.values().length;
+
+	/** The number of hands scanned, accepted or not. */
+	private long handsScanned;
+
+	/** The number of hands accepted. */
+	private long handsAccepted;
+
+	/** The number of contracts of each bid, indexed by the bid's ordinal. */
+	private final long[] bidContracts = new long[BID_COUNT];
+
+	/** The number of contracts made for each bid, indexed by the bid's ordinal. */
+	private final long[] bidMade = new long[BID_COUNT];
+
+	/** The tricks won by the contractor's side for each bid, indexed by the bid's ordinal. */
+	private final long[] bidTricks = new long[BID_COUNT];
+
+	/** The number of contracts of each seat, indexed by seat. */
+	private final long[] seatContracts = new long[MAX_PLAYERS];
+
+	/** The number of contracts made by each seat, indexed by seat. */
+	private final long[] seatMade = new long[MAX_PLAYERS];
+
+	/**
+	 * Adds a hand to the totals if the filter accepts it.
+	 *
+	 * @param record
+	 *        The hand.
+	 * @param filter
+	 *        Selects the hands to add.
+	 */
+	public void add(HandRecord record, HandFilter filter)
+	{
+		++handsScanned;
+		if (!filter.accept(record))
+			return;
+		++handsAccepted;
+
+		Bid bid = record.getHighestBid();
+		if (bid == Bid.PASS)
+			return;
+
+		int numberOfPlayers = record.getNumberOfPlayers();
+		int contractor = record.getContractor();
+		int sideTricks = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (FiveHundredRules.arePartners(i, contractor, numberOfPlayers))
+				sideTricks += record.getTricksWon(i);
+		}
+
+		++bidContracts[bid.ordinal()];
+		bidTricks[bid.ordinal()] += sideTricks;
+		++seatContracts[contractor];
+		if (sideTricks >= bid.getTricksToWin())
+		{
+			++bidMade[bid.ordinal()];
+			++seatMade[contractor];
+		}
+	}
+
+	/**
+	 * Adds the totals of another aggregate to this one.
+	 *
+	 * @param other
+	 *        The other aggregate.
+	 */
+	public void merge(HandAggregate other)
+	{
+		handsScanned += other.handsScanned;
+		handsAccepted += other.handsAccepted;
+		for (int i = 0; i < BID_COUNT; ++i)
+		{
+			bidContracts[i] += other.bidContracts[i];
+			bidMade[i] += other.bidMade[i];
+			bidTricks[i] += other.bidTricks[i];
+		}
+		for (int i = 0; i < MAX_PLAYERS; ++i)
+		{
+			seatContracts[i] += other.seatContracts[i];
+			seatMade[i] += other.seatMade[i];
+		}
+	}
+
+	/**
+	 * Prints the totals.
+	 *
+	 * @param out
+	 *        The stream to print to.
+	 */
+	public void print(PrintStream out)
+	{
+		out.printf("Hands scanned: %d, accepted: %d%n", handsScanned, handsAccepted);
+		out.println("Bid               Contracts      Made  Make rate  Average tricks");
+		for (Bid bid : Bid.values())
+		{
+			int i = bid.ordinal();
+			if (bidContracts[i] > 0)
+				out.printf("%-16s %10d  %8d  %8.1f%%  %14.2f%n", bid.getName(), bidContracts[i], bidMade[i], 100.0
+						* bidMade[i] / bidContracts[i], (double) bidTricks[i] / bidContracts[i]);
+		}
+		out.println("Seat  Contracts      Made  Make rate");
+		for (int i = 0; i < MAX_PLAYERS; ++i)
+		{
+			if (seatContracts[i] > 0)
+				out.printf("%4d  %9d  %8d  %8.1f%%%n", i, seatContracts[i], seatMade[i], 100.0 * seatMade[i]
+						/ seatContracts[i]);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public long getHandsScanned()
+	{
+		return handsScanned;
+	}
+
+	public long getHandsAccepted()
+	{
+		return handsAccepted;
+	}
+
+	public long getContracts(Bid bid)
+	{
+		return bidContracts[bid.ordinal()];
+	}
+
+	public long getMade(Bid bid)
+	{
+		return bidMade[bid.ordinal()];
+	}
+
+	public long getTricks(Bid bid)
+	{
+		return bidTricks[bid.ordinal()];
+	}
+
+	public long getContracts(int seat)
+	{
+		return seatContracts[seat];
+	}
+
+	public long getMade(int seat)
+	{
+		return seatMade[seat];
+	}
+}
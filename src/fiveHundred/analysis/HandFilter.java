@@ -0,0 +1,107 @@
+package fiveHundred.analysis;
+
+import fiveHundred.record.HandRecord;
+import fiveHundred.rules.Bid;
+
+/**
+ * Selects the hands an analysis looks at. A filter is called for every hand
+ * scanned, from several threads at once, so it must not keep any state.
+ */
+public interface HandFilter
+{
+	/** Accepts every hand. */
+	HandFilter ALL = record -> true;
+
+	/**
+	 * Returns {@code true} if a hand must be analyzed.
+	 *
+	 * @param record
+	 *        The hand.
+	 * @return {@code true} to analyze the hand.
+	 */
+	boolean accept(HandRecord record);
+
+	/**
+	 * Returns {@code true} if this filter looks at the cards discarded or
+	 * played. The hands are scanned much faster when no filter needs them.
+	 *
+	 * @return {@code true} if the cards must be decoded.
+	 */
+	default boolean needsCards()
+	{
+		return false;
+	}
+
+	/**
+	 * Returns a filter accepting the hands accepted by both this filter and
+	 * another one.
+	 *
+	 * @param other
+	 *        The other filter.
+	 * @return the combined filter.
+	 */
+	default HandFilter and(HandFilter other)
+	{
+		HandFilter first = this;
+		return new HandFilter() {
+			public boolean accept(HandRecord record)
+			{
+				return first.accept(record) && other.accept(record);
+			}
+
+			public boolean needsCards()
+			{
+				return first.needsCards() || other.needsCards();
+			}
+		};
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Returns a filter accepting the hands won by a bid.
+	 *
+	 * @param bid
+	 *        The highest bid of the hands to accept.
+	 * @return the filter.
+	 */
+	static HandFilter highestBid(Bid bid)
+	{
+		return record -> record.getHighestBid() == bid;
+	}
+
+	/**
+	 * Returns a filter accepting the hands in which a seat won the auction.
+	 *
+	 * @param seat
+	 *        The index of the contractor's seat.
+	 * @return the filter.
+	 */
+	static HandFilter contractor(int seat)
+	{
+		return record -> record.getContractor() == seat;
+	}
+
+	/**
+	 * Returns a filter accepting the hands in which the contractor held the
+	 * Joker.
+	 *
+	 * @return the filter.
+	 */
+	static HandFilter contractorHeldJoker()
+	{
+		return new HandFilter() {
+			public boolean accept(HandRecord record)
+			{
+				// The Joker is the last card of every deck.
+				long joker = 1L << (record.getDeckSpec().getDeckSize() - 1);
+				return (record.getCardsPlayed(record.getContractor()) & joker) != 0;
+			}
+
+			public boolean needsCards()
+			{
+				return true;
+			}
+		};
+	}
+}
@@ -0,0 +1,262 @@
+package fiveHundred.analysis;
+
+import fiveHundred.record.GameRecordReader;
+import fiveHundred.record.HandRecord;
+import fiveHundred.rules.Bid;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans game record files on every core and aggregates the hands a filter
+ * accepts.
+ *
+ * <p>
+ * The files are split into chunks of whole blocks by reading only the block headers. Each thread
+ * takes chunks from a shared counter, maps them with its own {@link GameRecordReader}, decodes
+ * every hand into the same record and adds it to its own {@link HandAggregate}. The aggregates
+ * are merged once every chunk is done, so the threads share nothing while they scan. The cards of
+ * each hand are only dealt again and decoded when the filter looks at them.
+ */
+public class RecordAnalyzer
+{
+	/** The number of chunks each thread gets on average, so the threads finish together. */
+	private static final int CHUNKS_PER_THREAD = 8;
+
+	/** A range of blocks of a file, read by one thread. */
+	private static class Chunk
+	{
+		/** The path of the file. */
+		final Path path;
+
+		/** The offset of the first block of the chunk. */
+		final long startOffset;
+
+		/** The offset after the last block of the chunk. */
+		final long endOffset;
+
+		Chunk(Path path, long startOffset, long endOffset)
+		{
+			this.path = path;
+			this.startOffset = startOffset;
+			this.endOffset = endOffset;
+		}
+	}
+
+	/** The number of threads scanning the files. */
+	private final int threadCount;
+
+	/**
+	 * Creates an analyzer.
+	 *
+	 * @param threadCount
+	 *        The number of threads scanning the files.
+	 */
+	public RecordAnalyzer(int threadCount)
+	{
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Scans files and aggregates the hands a filter accepts.
+	 *
+	 * @param paths
+	 *        The paths of the game record files.
+	 * @param filter
+	 *        Selects the hands to aggregate.
+	 * @return the totals of the accepted hands.
+	 * @throws IOException
+	 *         if a file can't be read or is corrupted.
+	 * @throws InterruptedException
+	 *         if the current thread is interrupted while waiting.
+	 */
+	public HandAggregate analyze(List<Path> paths, HandFilter filter) throws IOException, InterruptedException
+	{
+		List<Chunk> chunks = split(paths);
+		AtomicInteger nextChunk = new AtomicInteger();
+		HandAggregate[] aggregates = new HandAggregate[threadCount];
+		IOException[] failures = new IOException[threadCount];
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; ++i)
+		{
+			int index = i;
+			aggregates[i] = new HandAggregate();
+			threads[i] = new Thread(() ->
+			{
+				try
+				{
+					scan(chunks, nextChunk, filter, aggregates[index]);
+				}
+				catch (IOException e)
+				{
+					failures[index] = e;
+				}
+			}, "Analyzer " + i);
+			threads[i].start();
+		}
+
+		HandAggregate total = new HandAggregate();
+		for (int i = 0; i < threadCount; ++i)
+		{
+			threads[i].join();
+			if (failures[i] != null)
+				throw failures[i];
+			total.merge(aggregates[i]);
+		}
+		return total;
+	}
+
+	/**
+	 * Splits files into chunks of whole blocks of about the same size.
+	 *
+	 * @param paths
+	 *        The paths of the files.
+	 * @return the chunks.
+	 * @throws IOException
+	 *         if a file can't be read or is corrupted.
+	 */
+	private List<Chunk> split(List<Path> paths) throws IOException
+	{
+		List<long[]> blocks = new ArrayList<>();
+		long totalSize = 0;
+		for (Path path : paths)
+		{
+			long[] offsets = GameRecordReader.findBlocks(path);
+			blocks.add(offsets);
+			totalSize += offsets[offsets.length - 1] - offsets[0];
+		}
+
+		long chunkSize = Math.max(1, totalSize / (threadCount * CHUNKS_PER_THREAD));
+		List<Chunk> chunks = new ArrayList<>();
+		for (int i = 0; i < paths.size(); ++i)
+		{
+			long[] offsets = blocks.get(i);
+			int first = 0;
+			for (int block = 1; block < offsets.length; ++block)
+			{
+				if (offsets[block] - offsets[first] >= chunkSize || block == offsets.length - 1)
+				{
+					chunks.add(new Chunk(paths.get(i), offsets[first], offsets[block]));
+					first = block;
+				}
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * The loop of each thread. Scans chunks until every chunk is taken.
+	 *
+	 * @param chunks
+	 *        The chunks of every file.
+	 * @param nextChunk
+	 *        The index of the next chunk to take.
+	 * @param filter
+	 *        Selects the hands to aggregate.
+	 * @param aggregate
+	 *        Receives the totals of the accepted hands.
+	 * @throws IOException
+	 *         if a file can't be read or is corrupted.
+	 */
+	private static void scan(List<Chunk> chunks, AtomicInteger nextChunk, HandFilter filter, HandAggregate aggregate)
+			throws IOException
+	{
+		HandRecord record = null;
+		int index;
+		while ((index = nextChunk.getAndIncrement()) < chunks.size())
+		{
+			Chunk chunk = chunks.get(index);
+			try (GameRecordReader reader = new GameRecordReader(chunk.path, chunk.startOffset, chunk.endOffset))
+			{
+				if (record == null || record.getDeckSpec() != reader.getHeader().getDeckSpec())
+					record = reader.createRecord();
+				reader.setDecodingCards(filter.needsCards());
+				while (reader.next(record))
+				{
+					aggregate.add(record, filter);
+				}
+			}
+		}
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Analyzes game record files from the command line and prints the totals.
+	 *
+	 * <p>
+	 * Options, followed by the paths of the files:
+	 * <ul>
+	 * <li>{@code --bid <bid>}: only the hands won by a bid, such as {@code 6_SANS}.</li>
+	 * <li>{@code --seat <seat>}: only the hands won by a seat.</li>
+	 * <li>{@code --joker}: only the hands in which the contractor held the Joker.</li>
+	 * <li>{@code --threads <count>}: the number of threads, one per core by default.</li>
+	 * </ul>
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		HandFilter filter = HandFilter.ALL;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Path> paths = new ArrayList<>();
+		try
+		{
+			for (int i = 0; i < args.length; ++i)
+			{
+				switch (args[i])
+				{
+					case "--bid":
+						String name = args[++i].toUpperCase();
+						filter = filter.and(HandFilter.highestBid(Bid.valueOf(Character.isDigit(name.charAt(0)) ? "_"
+								+ name : name)));
+						break;
+					case "--seat":
+						filter = filter.and(HandFilter.contractor(Integer.parseInt(args[++i])));
+						break;
+					case "--joker":
+						filter = filter.and(HandFilter.contractorHeldJoker());
+						break;
+					case "--threads":
+						threads = Integer.parseInt(args[++i]);
+						break;
+					default:
+						paths.add(Paths.get(args[i]));
+						break;
+				}
+			}
+		}
+		catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+		{
+			paths.clear();
+		}
+		if (paths.isEmpty())
+		{
+			System.err.println("Usage: RecordAnalyzer [--bid <bid>] [--seat <seat>] [--joker] [--threads <count>] "
+					+ "<file>...");
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		HandAggregate aggregate;
+		try
+		{
+			aggregate = new RecordAnalyzer(threads).analyze(paths, filter);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		aggregate.print(System.out);
+		System.out.printf("Scanned in %.2f s (%.1f M hands/s) on %d threads%n", seconds, aggregate
+				.getHandsScanned() / seconds / 1e6, threads);
+	}
+}
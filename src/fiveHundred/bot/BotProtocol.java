@@ -0,0 +1,161 @@
+package fiveHundred.bot;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+import fiveHundred.server.Protocol;
+
+import java.util.Arrays;
+
+/**
+ * The protocol spoken with the bot processes on their standard input and
+ * output, made of text lines in the spirit of UCI. The game sends:
+ * <ul>
+ * <li>{@code fhp 1}: once, when the bot starts. The bot answers {@code id name <name>}, then
+ * {@code fhpok}.</li>
+ * <li>{@code bid <id> <players> <hand> <highest bid>}: asks for a bid.</li>
+ * <li>{@code play <id> <players> <seat> <contract> <contractor> <hand> <legal cards> <tricks>}: asks
+ * for a card. The tricks are every trick of the round so far, the last one possibly incomplete,
+ * separated by {@code /}; a trick is its leader, {@code :}, then its cards in the order they were
+ * played, separated by {@code ,}. {@code -} stands for no trick.</li>
+ * <li>{@code go <milliseconds>}: the requests sent since the last {@code go} form a batch, which
+ * must be answered within that time.</li>
+ * <li>{@code quit}: the bot must exit.</li>
+ * </ul>
+ * The bot answers each request of a batch with {@code <id> <answer>}, in any order, the answer
+ * being a bid such as {@code 7_COEUR} or {@code PASS}, or the id of a card. Bids are named as in
+ * the line protocol of the game server and sets of cards are bit sets of card ids in hexadecimal.
+ * The lines the game doesn't expect are ignored, so a bot may print {@code info} lines.
+ *
+ * <p>
+ * There is no widow to exchange: as in the game, the contractor plays the hand dealt.
+ */
+public class BotProtocol
+{
+	/** The version of the protocol. */
+	public static final int VERSION = 1;
+
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private BotProtocol() {}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Returns the line asking for a bid.
+	 *
+	 * @param id
+	 *        The id of the request.
+	 * @param deckSpec
+	 *        The deck the round is played with.
+	 * @param hand
+	 *        The cards of the player.
+	 * @param highestBid
+	 *        The highest bid called so far.
+	 * @return the line.
+	 */
+	public static String bidRequest(long id, DeckSpec deckSpec, long hand, Bid highestBid)
+	{
+		return "bid " + id + " " + deckSpec.getNumberOfPlayers() + " " + Long.toHexString(hand) + " " + Protocol
+				.bidName(highestBid);
+	}
+
+	/**
+	 * Returns the line asking for a card.
+	 *
+	 * @param id
+	 *        The id of the request.
+	 * @param state
+	 *        The state of the round, for the player who has to play.
+	 * @return the line.
+	 */
+	public static String playRequest(long id, PlayState state)
+	{
+		int numberOfPlayers = state.getNumberOfPlayers();
+		int seat = state.getSeatToPlay();
+		StringBuilder line = new StringBuilder(160);
+		line.append("play ").append(id).append(' ').append(numberOfPlayers).append(' ').append(seat).append(' ');
+		line.append(Protocol.bidName(state.getBid())).append(' ').append(state.getContractor()).append(' ');
+		line.append(Long.toHexString(state.getHand(seat))).append(' ');
+		line.append(Long.toHexString(state.getLegalMoves())).append(' ');
+
+		// The completed tricks, then the trick being played.
+		int trickCount = state.getTricksPlayed() + (state.getLeader() != -1 ? 1 : 0);
+		for (int trick = 0; trick < trickCount; ++trick)
+		{
+			boolean isComplete = trick < state.getTricksPlayed();
+			int leader = isComplete ? state.getTrickLeader(trick) : state.getLeader();
+			int cardCount = isComplete ? numberOfPlayers : state.getCardsInTrick();
+			line.append(trick == 0 ? "" : "/").append(leader).append(':');
+			for (int i = 0; i < cardCount; ++i)
+			{
+				int player = (leader + i) % numberOfPlayers;
+				line.append(i == 0 ? "" : ",");
+				line.append(isComplete ? state.getTrickCard(trick, player) : state.getCardOnTable(player));
+			}
+		}
+		if (trickCount == 0)
+			line.append('-');
+		return line.toString();
+	}
+
+	/**
+	 * Rebuilds, on the side of a bot, the state of a round from a play request.
+	 * The hands of the other players are unknown, so each of them is given
+	 * every card the bot wasn't dealt.
+	 *
+	 * @param words
+	 *        The words of the request.
+	 * @param state
+	 *        The state to set, for the deck of the request.
+	 * @throws IllegalArgumentException
+	 *         if the request is invalid.
+	 */
+	public static void restorePlayState(String[] words, PlayState state)
+	{
+		int numberOfPlayers = state.getNumberOfPlayers();
+		int seat = Integer.parseInt(words[3]);
+		Bid contract = Protocol.parseBid(words[4]);
+		int contractor = Integer.parseInt(words[5]);
+		long hand = Long.parseUnsignedLong(words[6], 16);
+		String[] tricks = words[8].equals("-") ? new String[0] : words[8].split("/");
+
+		// Every card the bot played is given back to its hand.
+		int firstLeader = seat;
+		int[][] trickCards = new int[tricks.length][];
+		for (int trick = 0; trick < tricks.length; ++trick)
+		{
+			int colon = tricks[trick].indexOf(':');
+			int leader = Integer.parseInt(tricks[trick].substring(0, colon));
+			if (trick == 0)
+				firstLeader = leader;
+			trickCards[trick] = Arrays.stream(tricks[trick].substring(colon + 1).split(",")).mapToInt(
+					Integer::parseInt).toArray();
+			for (int i = 0; i < trickCards[trick].length; ++i)
+			{
+				if ((leader + i) % numberOfPlayers == seat)
+					hand |= 1L << trickCards[trick][i];
+			}
+		}
+
+		long deck = -1L >>> (Long.SIZE - state.getDeckSpec().getDeckSize());
+		long[] hands = new long[numberOfPlayers];
+		int[] emptyTable = new int[numberOfPlayers];
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			hands[player] = player == seat ? hand : deck & ~hand;
+			emptyTable[player] = -1;
+		}
+		state.set(contract, contractor, hands, emptyTable, -1, firstLeader);
+		for (int[] cards : trickCards)
+		{
+			for (int card : cards)
+			{
+				state.makeObservedMove(card);
+			}
+		}
+		if (state.getSeatToPlay() != seat)
+			throw new IllegalArgumentException("The tricks don't lead to the seat of the bot.");
+	}
+}
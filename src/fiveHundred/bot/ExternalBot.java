@@ -0,0 +1,495 @@
+package fiveHundred.bot;
+
+import fiveHundred.ai.HeuristicStrategy;
+import fiveHundred.ai.Strategy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+import fiveHundred.server.Protocol;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A strategy played by a bot in another process, speaking the
+ * {@link BotProtocol} on its standard input and output.
+ *
+ * <p>
+ * The decisions asked while the bot is busy are sent together as the next batch, so a bot serving
+ * the many threads of a {@link fiveHundred.sim.TournamentRunner} plays many tables for the cost of
+ * one round trip. Each batch is given {@code moveMillis} per request; the requests left unanswered
+ * in time, and the illegal answers, are played by the {@link HeuristicStrategy} instead and counted.
+ */
+public class ExternalBot implements Strategy, Closeable
+{
+	/** The longest time the bot may take to answer the handshake. */
+	private static final long HANDSHAKE_MILLIS = 10000;
+
+	/** The longest time the bot may take to exit once asked to. */
+	private static final long EXIT_MILLIS = 1000;
+
+	/** Stands for the end of the output of the bot in {@link #lines}. */
+	private static final String END_OF_OUTPUT = new String("end of output");
+
+	/** Plays the moves the bot didn't answer in time or answered illegally. */
+	private static final Strategy FALLBACK = new HeuristicStrategy();
+
+	/** The process of the bot. */
+	private final Process process;
+
+	/** The standard input of the bot. Only used by the thread sending the batches. */
+	private final Writer output;
+
+	/** The lines printed by the bot, waiting to be read. */
+	private final BlockingQueue<String> lines;
+
+	/** The time given to the bot for each request of a batch, in milliseconds. */
+	private final long moveMillis;
+
+	/** The name of the bot, as given in the handshake. */
+	private final String name;
+
+	/** The requests waiting for the next batch. Guarded by this bot. */
+	private final ArrayList<Request> waiting;
+
+	/** The id of the next request. */
+	private final AtomicLong nextId;
+
+	/** The thread sending the batches and collecting the answers. */
+	private final Thread batchThread;
+
+	/** The number of requests sent, of batches sent, of requests not answered in time and of illegal answers. */
+	private final AtomicLong requestCount, batchCount, timeoutCount, illegalCount;
+
+	/** Value indicating whether the bot can still answer. */
+	private volatile boolean isRunning;
+
+	/**
+	 * A decision asked to the bot.
+	 */
+	private static final class Request
+	{
+		/** The id of the request. */
+		private final long id;
+
+		/** The line of the request. */
+		private final String line;
+
+		/** The answer of the bot, or {@code null} if it didn't answer in time. */
+		private String answer;
+
+		/** Value indicating whether the request is over. Guarded by the request. */
+		private boolean isDone;
+
+		private Request(long id, String line)
+		{
+			this.id = id;
+			this.line = line;
+		}
+	}
+
+	/**
+	 * Starts a bot and waits for its handshake.
+	 *
+	 * @param command
+	 *        The program of the bot and its arguments.
+	 * @param moveMillis
+	 *        The time given to the bot for each decision, in milliseconds.
+	 * @throws IOException
+	 *         if the bot can't be started or doesn't answer the handshake.
+	 */
+	public ExternalBot(List<String> command, long moveMillis) throws IOException
+	{
+		this.moveMillis = moveMillis;
+		process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		output = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+		lines = new LinkedBlockingQueue<>();
+		waiting = new ArrayList<>();
+		nextId = new AtomicLong();
+		requestCount = new AtomicLong();
+		batchCount = new AtomicLong();
+		timeoutCount = new AtomicLong();
+		illegalCount = new AtomicLong();
+
+		Thread readThread = new Thread(this::readOutput, "Bot output " + command.get(0));
+		readThread.setDaemon(true);
+		readThread.start();
+
+		String botName = null;
+		try
+		{
+			output.write("fhp " + BotProtocol.VERSION + "\n");
+			output.flush();
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HANDSHAKE_MILLIS);
+			String line;
+			while ((line = lines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null
+					&& line != END_OF_OUTPUT && !line.equals("fhpok"))
+			{
+				if (line.startsWith("id name "))
+					botName = line.substring("id name ".length()).trim();
+			}
+			if (line == null || line == END_OF_OUTPUT)
+				throw new IOException("The bot " + command.get(0) + " didn't answer the handshake.");
+		}
+		catch (IOException | InterruptedException e)
+		{
+			process.destroyForcibly();
+			if (e instanceof InterruptedException)
+				Thread.currentThread().interrupt();
+			throw e instanceof IOException ? (IOException) e : new IOException(e);
+		}
+		name = botName != null ? botName : command.get(0);
+
+		isRunning = true;
+		batchThread = new Thread(this::sendBatches, "Bot batches " + name);
+		batchThread.setDaemon(true);
+		batchThread.start();
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public Bid chooseBid(DeckSpec deckSpec, long hand, Bid highestBid)
+	{
+		long id = nextId.getAndIncrement();
+		String answer = ask(id, BotProtocol.bidRequest(id, deckSpec, hand, highestBid));
+		if (answer != null)
+		{
+			try
+			{
+				Bid bid = Protocol.parseBid(answer);
+				if (bid == Bid.PASS || bid.ordinal() > highestBid.ordinal())
+					return bid;
+			}
+			catch (IllegalArgumentException e)
+			{
+				// Counted as illegal below.
+			}
+			illegalCount.incrementAndGet();
+		}
+		return FALLBACK.chooseBid(deckSpec, hand, highestBid);
+	}
+
+	@Override
+	public int chooseCard(PlayState state)
+	{
+		long id = nextId.getAndIncrement();
+		String answer = ask(id, BotProtocol.playRequest(id, state));
+		if (answer != null)
+		{
+			try
+			{
+				int card = Integer.parseInt(answer);
+				if (card >= 0 && card < Long.SIZE && (state.getLegalMoves() & 1L << card) != 0)
+					return card;
+			}
+			catch (NumberFormatException e)
+			{
+				// Counted as illegal below.
+			}
+			illegalCount.incrementAndGet();
+		}
+		return FALLBACK.chooseCard(state);
+	}
+
+	/**
+	 * Queues a request for the next batch and waits for its answer.
+	 *
+	 * @return the answer, or {@code null} if the bot didn't answer in time.
+	 * @throws IllegalStateException
+	 *         if the bot exited.
+	 */
+	private String ask(long id, String line)
+	{
+		Request request = new Request(id, line);
+		synchronized (this)
+		{
+			if (!isRunning)
+				throw new IllegalStateException("The bot " + name + " exited.");
+			waiting.add(request);
+			notifyAll();
+		}
+
+		synchronized (request)
+		{
+			try
+			{
+				while (!request.isDone)
+				{
+					request.wait();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+		if (request.answer == null && !isRunning)
+			throw new IllegalStateException("The bot " + name + " exited.");
+		return request.answer;
+	}
+
+	/**
+	 * The loop of the thread sending the batches: sends every request waiting,
+	 * then collects the answers until the time of the batch is up.
+	 */
+	private void sendBatches()
+	{
+		ArrayList<Request> batch = new ArrayList<>();
+		Map<Long, Request> pending = new HashMap<>();
+		try
+		{
+			while (isRunning)
+			{
+				synchronized (this)
+				{
+					while (waiting.isEmpty() && isRunning)
+					{
+						wait();
+					}
+					batch.addAll(waiting);
+					waiting.clear();
+				}
+				if (batch.isEmpty())
+					break;
+
+				long batchMillis = moveMillis * batch.size();
+				for (Request request : batch)
+				{
+					output.write(request.line);
+					output.write('\n');
+					pending.put(request.id, request);
+				}
+				output.write("go " + batchMillis + "\n");
+				output.flush();
+				requestCount.addAndGet(batch.size());
+				batchCount.incrementAndGet();
+
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchMillis);
+				while (!pending.isEmpty())
+				{
+					String line = lines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (line == null)
+						break;
+					if (line == END_OF_OUTPUT)
+					{
+						isRunning = false;
+						break;
+					}
+					readAnswer(line, pending);
+				}
+
+				timeoutCount.addAndGet(pending.size());
+				for (Request request : pending.values())
+				{
+					complete(request, null);
+				}
+				pending.clear();
+				batch.clear();
+			}
+		}
+		catch (IOException e)
+		{
+			isRunning = false;
+		}
+		catch (InterruptedException e)
+		{
+			// The bot is closing.
+		}
+
+		// Nobody answers the requests left any more.
+		isRunning = false;
+		synchronized (this)
+		{
+			batch.addAll(waiting);
+			waiting.clear();
+		}
+		batch.addAll(pending.values());
+		for (Request request : batch)
+		{
+			complete(request, null);
+		}
+	}
+
+	/**
+	 * Completes the request answered by a line of the bot, if the line is an
+	 * answer to a pending request. Late answers are ignored.
+	 */
+	private static void readAnswer(String line, Map<Long, Request> pending)
+	{
+		int space = line.indexOf(' ');
+		if (space <= 0)
+			return;
+		try
+		{
+			Request request = pending.remove(Long.parseLong(line.substring(0, space)));
+			if (request != null)
+				complete(request, line.substring(space + 1).trim());
+		}
+		catch (NumberFormatException e)
+		{
+			// Not an answer, such as an info line.
+		}
+	}
+
+	/**
+	 * Hands its answer to the thread waiting for a request.
+	 */
+	private static void complete(Request request, String answer)
+	{
+		synchronized (request)
+		{
+			request.answer = answer;
+			request.isDone = true;
+			request.notifyAll();
+		}
+	}
+
+	/**
+	 * The loop of the thread reading the output of the bot.
+	 */
+	private void readOutput()
+	{
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+				StandardCharsets.US_ASCII)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				lines.add(line);
+			}
+		}
+		catch (IOException e)
+		{
+			// Same as the end of the output.
+		}
+		lines.add(END_OF_OUTPUT);
+	}
+
+	/**
+	 * Asks the bot to exit, and kills it if it doesn't. The decisions still
+	 * waiting fail.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (this)
+		{
+			isRunning = false;
+			notifyAll();
+		}
+		batchThread.interrupt();
+		try
+		{
+			batchThread.join();
+			output.write("quit\n");
+			output.close();
+			if (!process.waitFor(EXIT_MILLIS, TimeUnit.MILLISECONDS))
+				process.destroyForcibly();
+		}
+		catch (IOException e)
+		{
+			process.destroyForcibly();
+		}
+		catch (InterruptedException e)
+		{
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public long getMoveMillis()
+	{
+		return moveMillis;
+	}
+
+	/**
+	 * Returns the number of decisions asked to the bot.
+	 *
+	 * @return the number of requests.
+	 */
+	public long getRequestCount()
+	{
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the number of batches sent to the bot, each costing one round
+	 * trip.
+	 *
+	 * @return the number of batches.
+	 */
+	public long getBatchCount()
+	{
+		return batchCount.get();
+	}
+
+	/**
+	 * Returns the number of decisions the bot didn't answer in time.
+	 *
+	 * @return the number of timeouts.
+	 */
+	public long getTimeoutCount()
+	{
+		return timeoutCount.get();
+	}
+
+	/**
+	 * Returns the number of answers which weren't legal moves.
+	 *
+	 * @return the number of illegal answers.
+	 */
+	public long getIllegalCount()
+	{
+		return illegalCount.get();
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Starts a bot from a description such as {@code bot:100:python3 bot.py},
+	 * the number being the time for each decision in milliseconds. It may be
+	 * left out, as in {@code bot:python3 bot.py}, for the default time.
+	 *
+	 * @param description
+	 *        The description, the command being split on spaces.
+	 * @param defaultMoveMillis
+	 *        The time for each decision when the description gives none.
+	 * @return the bot.
+	 * @throws IOException
+	 *         if the bot can't be started.
+	 */
+	public static ExternalBot start(String description, long defaultMoveMillis) throws IOException
+	{
+		String command = description.substring(description.indexOf(':') + 1);
+		long moveMillis = defaultMoveMillis;
+		int colon = command.indexOf(':');
+		if (colon > 0 && command.substring(0, colon).chars().allMatch(Character::isDigit))
+		{
+			moveMillis = Long.parseLong(command.substring(0, colon));
+			command = command.substring(colon + 1);
+		}
+		return new ExternalBot(List.of(command.trim().split(" +")), moveMillis);
+	}
+}
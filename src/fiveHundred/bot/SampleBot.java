@@ -0,0 +1,106 @@
+package fiveHundred.bot;
+
+import fiveHundred.ai.HeuristicPolicy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+import fiveHundred.server.Protocol;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A bot process following the rules of {@link HeuristicPolicy}, as an example
+ * of the {@link BotProtocol} and to measure its cost: it should score as the
+ * {@link fiveHundred.ai.HeuristicStrategy} in a match. The answers of a batch
+ * are written together once the batch is complete.
+ */
+public class SampleBot
+{
+	/** The name of the bot. */
+	public static final String NAME = "sample-heuristic-1";
+
+	/** The state of a round for each deck, created when first needed. */
+	private final PlayState[] states;
+
+	/**
+	 * Creates a bot.
+	 */
+	public SampleBot()
+	{
+		states = new PlayState[DeckSpec.values().length];
+	}
+
+	/**
+	 * Answers a request.
+	 *
+	 * @param words
+	 *        The words of the request.
+	 * @return the answer, without the id of the request.
+	 */
+	public String answer(String[] words)
+	{
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(words[2]));
+		if (words[0].equals("bid"))
+		{
+			Bid highestBid = Protocol.parseBid(words[4]);
+			return Protocol.bidName(HeuristicPolicy.chooseBid(deckSpec, Long.parseUnsignedLong(words[3], 16),
+					highestBid));
+		}
+
+		PlayState state = states[deckSpec.ordinal()];
+		if (state == null)
+		{
+			state = new PlayState(deckSpec);
+			states[deckSpec.ordinal()] = state;
+		}
+		long legalMoves = Long.parseUnsignedLong(words[7], 16);
+		BotProtocol.restorePlayState(words, state);
+		int card = HeuristicPolicy.chooseCard(state);
+		return Integer.toString((legalMoves & 1L << card) != 0 ? card : Long.numberOfTrailingZeros(legalMoves));
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Plays on the standard input and output until asked to quit.
+	 *
+	 * @param args
+	 *        Unused.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		SampleBot bot = new SampleBot();
+		BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+		Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+		String line;
+		while ((line = input.readLine()) != null)
+		{
+			String[] words = line.split(" ");
+			switch (words[0])
+			{
+				case "fhp":
+					output.write("id name " + NAME + "\nfhpok\n");
+					output.flush();
+					break;
+				case "bid":
+				case "play":
+					output.write(words[1] + " " + bot.answer(words) + "\n");
+					break;
+				case "go":
+					output.flush();
+					break;
+				case "quit":
+					output.flush();
+					return;
+				default:
+					break;
+			}
+		}
+	}
+}
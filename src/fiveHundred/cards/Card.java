@@ -32,6 +32,18 @@ public class Card
 	public final static int QUEEN = 12;
 	public final static int KING = 13;
 
+	/*
+	 * Codes for the 11, 12 and 13 numbered cards used in the six players
+	 * deck. They can't use their numerical values since those are taken by the
+	 * Jack, Queen and King.
+	 */
+	public final static int ELEVEN = 15;
+	public final static int TWELVE = 16;
+	public final static int THIRTEEN = 17;
+
+	/** The value of the Joker used in a Five-Hundred deck. */
+	public final static int JOKER_VALUE = 20;
+
 	/** The amount of space in pixels between two cards in the player's hand */
 	public final static int cardSpacing = 30;
 
@@ -50,6 +62,12 @@ public class Card
 	 */
 	private final int value;
 
+	/**
+	 * This card's id in the deck it belongs to, or -1 if it doesn't belong to
+	 * a deck described by a {@link DeckSpec}.
+	 */
+	private final int id;
+
 	/** This card's sprite */
 	private Sprite sprite;
 
@@ -97,19 +115,54 @@ public class Card
 	 *         permissible ranges
 	 */
 	public Card(int theValue, int theSuit, Sprite theSprite) throws IllegalArgumentException
+	{
+		this(theValue, theSuit, theSprite, -1);
+	}
+
+	/**
+	 * Creates a card with a specified suit, value, sprite and id.
+	 * 
+	 * @param theValue
+	 *        The value of the new card. For a regular card (non-joker),
+	 *        the value must be in the range 1 through 14 or one of the
+	 *        constants Card.ELEVEN, Card.TWELVE or Card.THIRTEEN.
+	 * @param theSuit
+	 *        The suit of the new card.
+	 * @param theSprite
+	 *        The Sprite of the new card.
+	 * @param theId
+	 *        The id of the card in its {@link DeckSpec}, or -1.
+	 * @throws IllegalArgumentException
+	 *         If the parameter values are not in the
+	 *         permissible ranges
+	 */
+	public Card(int theValue, int theSuit, Sprite theSprite, int theId) throws IllegalArgumentException
 	{
 		if (theSuit != SPADES && theSuit != HEARTS && theSuit != DIAMONDS && theSuit != CLUBS && theSuit != JOKER)
 			throw new IllegalArgumentException("Illegal playing card suit");
-		if (theSuit != JOKER && (theValue < 1 || theValue > 14)) // ACE_HIGH =
-																	// 14
+		if (theSuit != JOKER && (theValue < 1 || theValue > THIRTEEN)) // ACE_HIGH = 14, THIRTEEN = 17
 			throw new IllegalArgumentException("Illegal playing card value");
 		value = theValue;
 		suit = theSuit;
 		sprite = theSprite;
+		id = theId;
 		x = 0;
 		y = 0;
 	}
 
+	/**
+	 * Returns the value code of a numbered card.
+	 * 
+	 * @param pip
+	 *        The number on the card, from 1 to 13.
+	 * @return the value code for that number. Numbers 11 to 13 return
+	 *         Card.ELEVEN, Card.TWELVE and Card.THIRTEEN.
+	 */
+	public static int pipValue(int pip)
+	{
+		return pip <= 10 ? pip : ELEVEN + pip - 11;
+	}
+
 	/**
 	 * Returns the suit of this card.
 	 * 
@@ -132,6 +185,17 @@ public class Card
 		return value;
 	}
 
+	/**
+	 * Returns the id of this card in its deck.
+	 * 
+	 * @return the id of this card, or -1 if it doesn't belong to a deck
+	 *         described by a {@link DeckSpec}.
+	 */
+	public int getId()
+	{
+		return id;
+	}
+
 	/**
 	 * Returns the sprite of this card.
 	 * 
@@ -224,8 +288,16 @@ public class Card
 					return "Jack";
 				case 12:
 					return "Queen";
-				default:
+				case 13:
 					return "King";
+				case 14:
+					return "Ace";
+				case ELEVEN:
+					return "11";
+				case TWELVE:
+					return "12";
+				default:
+					return "13";
 			}
 		}
 	}
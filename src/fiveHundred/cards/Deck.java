@@ -2,8 +2,14 @@ package fiveHundred.cards;
 
 import gameCore.graphics.Sprite;
 
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 /**
  * An object of type Deck represents a deck of playing cards. The deck
@@ -24,6 +30,30 @@ public class Deck
 	 */
 	private int cardsUsed;
 
+	/**
+	 * The specification of this deck, or {@code null} if it is a regular poker
+	 * deck.
+	 */
+	private DeckSpec spec;
+
+	/**
+	 * The cards of this deck indexed by id, or {@code null} if it is a regular
+	 * poker deck.
+	 */
+	private Card[] cardsById;
+
+	/** The order of the ids after the last seeded shuffle. */
+	private int[] shuffledIds;
+
+	/** The symbols of the suits, indexed by suit. */
+	private static final String[] SUIT_SYMBOLS = { "\u2663", "\u2666", "\u2660", "\u2665" };
+
+	/**
+	 * The sprites of the cards numbered from 11 to 13, created on demand and
+	 * indexed by {@code suit * 3 + number - 11}.
+	 */
+	private static final Sprite[] numberedSprites = new Sprite[12];
+
 	/**
 	 * The list of sprite used in the constructor to associate a card to a
 	 * sprite
@@ -73,6 +103,12 @@ public class Deck
 	 */
 	public Deck(int typeOfDeck, boolean includeJokers)
 	{
+		if (typeOfDeck == CINQ_CENT && !includeJokers)
+		{
+			initialize(DeckSpec.THREE_PLAYERS);
+			return;
+		}
+
 		if (includeJokers)
 			deck = new Card[54];
 		else if (typeOfDeck == NORMAL)
@@ -118,6 +154,86 @@ public class Deck
 		cardsUsed = 0;
 	}
 
+	/**
+	 * Constructs the Five-Hundred deck described by a deck specification. Each
+	 * card receives its id in that specification. Initially the cards are
+	 * sorted by id.
+	 * 
+	 * @param spec
+	 *        The specification of the deck to create.
+	 */
+	public Deck(DeckSpec spec)
+	{
+		initialize(spec);
+	}
+
+	/**
+	 * Creates the cards of a Five-Hundred deck from its specification.
+	 * 
+	 * @param spec
+	 *        The specification of the deck to create.
+	 */
+	private void initialize(DeckSpec spec)
+	{
+		this.spec = spec;
+		deck = new Card[spec.getDeckSize()];
+		for (int id = 0; id < deck.length; ++id)
+		{
+			int suit = spec.getSuit(id);
+			int value = spec.getValue(id);
+			Sprite sprite;
+			if (suit == Card.JOKER)
+				sprite = Sprite.firstJoker;
+			else if (value == Card.ACE_HIGH)
+				sprite = spriteList.get(suit * 13);
+			else if (value >= Card.ELEVEN)
+				sprite = getNumberedSprite(suit, value - Card.ELEVEN + 11);
+			else
+				sprite = spriteList.get(value - 1 + suit * 13);
+			deck[id] = new Card(value, suit, sprite, id);
+		}
+		cardsById = deck.clone();
+		shuffledIds = new int[deck.length];
+		cardsUsed = 0;
+	}
+
+	/**
+	 * Returns the sprite of a card numbered from 11 to 13. There are no images
+	 * for those cards, so the number and the suit are drawn on a blank card the
+	 * first time the sprite is needed.
+	 * 
+	 * @param suit
+	 *        The suit of the card.
+	 * @param pip
+	 *        The number of the card, from 11 to 13.
+	 * @return the sprite of the card.
+	 */
+	private static synchronized Sprite getNumberedSprite(int suit, int pip)
+	{
+		int index = suit * 3 + pip - 11;
+		if (numberedSprites[index] != null)
+			return numberedSprites[index];
+
+		int width = Sprite.blankCard.getWidth();
+		int height = Sprite.blankCard.getHeight();
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, width, height, Sprite.blankCard.getPixels(), 0, width);
+
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setColor(suit == Card.DIAMONDS || suit == Card.HEARTS ? Color.RED : Color.BLACK);
+		g.setFont(new Font("SansSerif", Font.BOLD, 14));
+		g.drawString(pip + SUIT_SYMBOLS[suit], 6, 18);
+		g.setFont(new Font("SansSerif", Font.BOLD, 30));
+		g.drawString(pip + SUIT_SYMBOLS[suit], 14, height / 2 + 12);
+		g.dispose();
+
+		int[] pixels = new int[width * height];
+		image.getRGB(0, 0, width, height, pixels, 0, width);
+		numberedSprites[index] = new Sprite(pixels, width, height);
+		return numberedSprites[index];
+	}
+
 	// TODO : Adjust comments (Put card back into the deck ???)
 	/**
 	 * Put all the used cards back into the deck (if any), and
@@ -135,6 +251,30 @@ public class Deck
 		cardsUsed = 0;
 	}
 
+	/**
+	 * Put all the used cards back into the deck and shuffle it with the
+	 * specified random number generator. Unlike {@link #shuffle()}, the order
+	 * of the cards only depends on the state of the random number generator,
+	 * so the same seed always deals the same hand.
+	 * 
+	 * @param random
+	 *        The random number generator to shuffle with.
+	 * @throws IllegalStateException
+	 *         if this is a regular poker deck.
+	 */
+	public void shuffle(Random random)
+	{
+		if (spec == null)
+			throw new IllegalStateException("Only a Five-Hundred deck can be shuffled from a seed.");
+
+		spec.shuffle(shuffledIds, random);
+		for (int i = 0; i < deck.length; ++i)
+		{
+			deck[i] = cardsById[shuffledIds[i]];
+		}
+		cardsUsed = 0;
+	}
+
 	/**
 	 * As cards are dealt from the deck, the number of cards left
 	 * decreases. This function returns the number of cards that
@@ -169,6 +309,22 @@ public class Deck
 		// have been used.
 	}
 
+	/**
+	 * Returns the card with the specified id, whether it was dealt or not.
+	 * 
+	 * @param id
+	 *        The id of the card in the deck specification.
+	 * @return the card with that id.
+	 * @throws IllegalStateException
+	 *         if this is a regular poker deck.
+	 */
+	public Card getCard(int id)
+	{
+		if (cardsById == null)
+			throw new IllegalStateException("The cards of a regular poker deck have no id.");
+		return cardsById[id];
+	}
+
 	/**
 	 * Test whether the deck contains Jokers.
 	 * 
@@ -180,4 +336,15 @@ public class Deck
 	{
 		return (deck.length == 54);
 	}
+
+	/**
+	 * Returns the specification of this deck.
+	 * 
+	 * @return the specification of this deck, or {@code null} if this is a
+	 *         regular poker deck.
+	 */
+	public DeckSpec getSpec()
+	{
+		return spec;
+	}
 }
@@ -0,0 +1,290 @@
+package fiveHundred.cards;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This enumeration contains the different decks used to play Five-Hundred,
+ * one for each number of players. Every player receives 10 cards and 3 cards
+ * go to the widow, so each deck holds 10 cards per player plus 3 and one
+ * Joker.
+ *
+ * <p>
+ * The cards of a deck are numbered from 0 to {@code getDeckSize() - 1}. They are sorted by suit
+ * and, inside a suit, by their natural rank, the Joker being the last card. This number is the id
+ * of the card and is what we use whenever a card needs to be stored compactly.
+ */
+public enum DeckSpec
+{
+	/** 33 cards: 7 to Ace in every suit. */
+	THREE_PLAYERS(3, 7, 7, 10, 10),
+	/** 43 cards: 5 to Ace in every suit and the red 4s. */
+	FOUR_PLAYERS(4, 5, 4, 10, 10),
+	/** 53 cards: 2 to Ace in every suit. */
+	FIVE_PLAYERS(5, 2, 2, 10, 10),
+	/** 63 cards: 2 to Ace with the 11s and 12s in every suit and the red 13s. */
+	SIX_PLAYERS(6, 2, 2, 12, 13);
+
+	/** The number of cards dealt to each player. */
+	public static final int HAND_SIZE = 10;
+
+	/** The number of cards dealt to the widow. */
+	public static final int WIDOW_SIZE = 3;
+
+	/**
+	 * The number of cards dealt to each player in each round of the deal. The
+	 * widow receives its cards after the first round.
+	 */
+	private static final int[] DEAL_PATTERN = { 3, 4, 3 };
+
+	static
+	{
+		// The deal pattern can't be used from the constructor, since the
+		// constants are created before the static fields are initialized.
+		for (DeckSpec spec : values())
+		{
+			spec.dealTargets = new int[spec.suits.length];
+			int position = 0;
+			for (int round = 0; round < DEAL_PATTERN.length; ++round)
+			{
+				for (int player = 0; player < spec.numberOfPlayers; ++player)
+				{
+					for (int j = 0; j < DEAL_PATTERN[round]; ++j)
+					{
+						spec.dealTargets[position++] = player;
+					}
+				}
+				if (round == 0)
+				{
+					for (int j = 0; j < WIDOW_SIZE; ++j)
+					{
+						spec.dealTargets[position++] = spec.numberOfPlayers;
+					}
+				}
+			}
+		}
+	}
+
+	/** The number of players at the table. */
+	private final int numberOfPlayers;
+
+	/** The suit of each card, indexed by card id. */
+	private final int[] suits;
+
+	/** The value of each card, indexed by card id. */
+	private final int[] values;
+
+	/**
+	 * Who receives each card of a shuffled deck, indexed by its position in the
+	 * deck. The widow is represented by {@code numberOfPlayers}.
+	 */
+	private int[] dealTargets;
+
+	/**
+	 * Creates a deck specification.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param lowestBlackPip
+	 *        The lowest numbered card in clubs and spades.
+	 * @param lowestRedPip
+	 *        The lowest numbered card in diamonds and hearts.
+	 * @param highestBlackPip
+	 *        The highest numbered card in clubs and spades, from 10 to 13.
+	 * @param highestRedPip
+	 *        The highest numbered card in diamonds and hearts, from 10 to 13.
+	 */
+	private DeckSpec(int numberOfPlayers, int lowestBlackPip, int lowestRedPip, int highestBlackPip,
+			int highestRedPip)
+	{
+		this.numberOfPlayers = numberOfPlayers;
+
+		List<int[]> cards = new ArrayList<>();
+		for (int suit = Card.CLUBS; suit <= Card.HEARTS; ++suit)
+		{
+			boolean isRed = suit == Card.DIAMONDS || suit == Card.HEARTS;
+			int lowest = isRed ? lowestRedPip : lowestBlackPip;
+			int highest = isRed ? highestRedPip : highestBlackPip;
+			for (int pip = lowest; pip <= highest; ++pip)
+			{
+				cards.add(new int[] { suit, pip <= 10 ? pip : Card.pipValue(pip) });
+			}
+			cards.add(new int[] { suit, Card.JACK });
+			cards.add(new int[] { suit, Card.QUEEN });
+			cards.add(new int[] { suit, Card.KING });
+			cards.add(new int[] { suit, Card.ACE_HIGH });
+		}
+		cards.add(new int[] { Card.JOKER, Card.JOKER_VALUE });
+
+		suits = new int[cards.size()];
+		values = new int[cards.size()];
+		for (int id = 0; id < cards.size(); ++id)
+		{
+			suits[id] = cards.get(id)[0];
+			values[id] = cards.get(id)[1];
+		}
+	}
+
+	/**
+	 * Returns the specification of the deck used for a number of players.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table, from 3 to 6.
+	 * @return the deck used for that number of players.
+	 * @throws IllegalArgumentException
+	 *         if there is no deck for that number of players.
+	 */
+	public static DeckSpec forPlayers(int numberOfPlayers)
+	{
+		for (DeckSpec spec : values())
+		{
+			if (spec.numberOfPlayers == numberOfPlayers)
+				return spec;
+		}
+		throw new IllegalArgumentException("Unsupported number of players: " + numberOfPlayers);
+	}
+
+	/**
+	 * Returns the id of a card in this deck.
+	 *
+	 * @param suit
+	 *        The suit of the card.
+	 * @param value
+	 *        The value of the card.
+	 * @return the id of the card or -1 if this deck doesn't contain it.
+	 */
+	public int getId(int suit, int value)
+	{
+		for (int id = 0; id < suits.length; ++id)
+		{
+			if (suits[id] == suit && (values[id] == value || suit == Card.JOKER))
+				return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Shuffles the ids of this deck. The ids are first put back in order, so
+	 * the result only depends on the state of the random number generator.
+	 * This is the shuffle used to deal every hand, which lets us deal the same
+	 * hand again from its seed.
+	 *
+	 * @param order
+	 *        Receives the shuffled ids. Its length must be the size of the
+	 *        deck.
+	 * @param random
+	 *        The random number generator to shuffle with.
+	 */
+	public void shuffle(int[] order, Random random)
+	{
+		for (int i = 0; i < order.length; ++i)
+		{
+			order[i] = i;
+		}
+		for (int i = order.length - 1; i > 0; --i)
+		{
+			int j = random.nextInt(i + 1);
+			int temp = order[i];
+			order[i] = order[j];
+			order[j] = temp;
+		}
+	}
+
+	/**
+	 * Returns the seed used to shuffle the deck for one hand. Every hand of a
+	 * game is dealt from the same base seed and its own deal index, so a hand
+	 * can be dealt again from these two numbers alone.
+	 *
+	 * @param baseSeed
+	 *        The seed of the game.
+	 * @param dealIndex
+	 *        The index of the hand in the game, starting at 0.
+	 * @return the seed to shuffle the deck with.
+	 */
+	public static long dealSeed(long baseSeed, long dealIndex)
+	{
+		// SplitMix64 finalizer, so consecutive hands get unrelated seeds.
+		long z = baseSeed + (dealIndex + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getNumberOfPlayers()
+	{
+		return numberOfPlayers;
+	}
+
+	/**
+	 * Returns the number of cards in this deck.
+	 *
+	 * @return the number of cards in this deck.
+	 */
+	public int getDeckSize()
+	{
+		return suits.length;
+	}
+
+	/**
+	 * Returns the number of cards played in a round, that is, every card but
+	 * the widow.
+	 *
+	 * @return the number of cards played in a round.
+	 */
+	public int getPlayableCards()
+	{
+		return numberOfPlayers * HAND_SIZE;
+	}
+
+	/**
+	 * Returns the suit of a card.
+	 *
+	 * @param id
+	 *        The id of the card.
+	 * @return the suit of the card.
+	 */
+	public int getSuit(int id)
+	{
+		return suits[id];
+	}
+
+	/**
+	 * Returns the value of a card.
+	 *
+	 * @param id
+	 *        The id of the card.
+	 * @return the value of the card.
+	 */
+	public int getValue(int id)
+	{
+		return values[id];
+	}
+
+	/**
+	 * Returns the number of cards dealt to each player in each round of the
+	 * deal. The widow receives its cards after the first round.
+	 *
+	 * @return the number of cards dealt in each round of the deal.
+	 */
+	public int[] getDealPattern()
+	{
+		return DEAL_PATTERN.clone();
+	}
+
+	/**
+	 * Returns who receives the card at a position of a shuffled deck. Cards
+	 * are dealt from the first position, in rounds, starting with player 0.
+	 *
+	 * @param position
+	 *        The position of the card in the deck.
+	 * @return the index of the player receiving the card, or
+	 *         {@code getNumberOfPlayers()} if it goes to the widow.
+	 */
+	public int getDealTarget(int position)
+	{
+		return dealTargets[position];
+	}
+}
@@ -23,6 +23,18 @@ public class Hand
 		hand = new ArrayList<Card>();
 	}
 
+	/**
+	 * Create a hand holding the same cards as another hand. The cards
+	 * themselves are shared, only the list holding them is copied.
+	 * 
+	 * @param other
+	 *        the hand to copy.
+	 */
+	public Hand(Hand other)
+	{
+		hand = new ArrayList<Card>(other.hand);
+	}
+
 	/**
 	 * Remove all cards from the hand, leaving it empty.
 	 */
@@ -85,6 +97,18 @@ public class Hand
 		return hand.size();
 	}
 
+	/**
+	 * Returns the position of a card in the hand.
+	 * 
+	 * @param c
+	 *        the card to look for.
+	 * @return the position of the card, or -1 if the card is not in the hand.
+	 */
+	public int indexOf(Card c)
+	{
+		return hand.indexOf(c);
+	}
+
 	/**
 	 * Gets the card in a specified position in the hand. (Note that this card
 	 * is not removed from the hand!)
@@ -163,19 +187,32 @@ public class Hand
 	 * since his cards are displayed vertically.
 	 */
 	public void updateXPosition(Game game)
+	{
+		updateXPosition(game.getScreenWidth() / 2, Card.cardSpacing);
+	}
+
+	/**
+	 * Updates the X position of all the cards in a player's hand. This method
+	 * keeps the cards horizontally centered around the specified position.
+	 * 
+	 * @param centerX
+	 *        The x position of the center of the hand.
+	 * @param cardSpacing
+	 *        The amount of space in pixels between two cards.
+	 */
+	public void updateXPosition(int centerX, int cardSpacing)
 	{
 		if (hand.isEmpty())
 			return;
 
-		int totalWidth = hand.get(0).getSprite().getWidth() + Card.cardSpacing * (hand.size() - 1);
-		int x = game.getScreenWidth() / 2 - totalWidth / 2;
+		int totalWidth = hand.get(0).getSprite().getWidth() + cardSpacing * (hand.size() - 1);
+		int x = centerX - totalWidth / 2;
 
 		for (int i = 0; i < hand.size(); i++)
 		{
 			hand.get(i).setX(x);
-			x += Card.cardSpacing;
+			x += cardSpacing;
 		}
-
 	}
 
 	/**
@@ -184,17 +221,31 @@ public class Hand
 	 * Right player since their cards are displayed horizontally.
 	 */
 	public void updateYPosition(Game game)
+	{
+		updateYPosition(game.getScreenHeight() / 2, Card.cardSpacing);
+	}
+
+	/**
+	 * Updates the Y position of all the cards in a player's hand. This method
+	 * keeps the cards vertically centered around the specified position.
+	 * 
+	 * @param centerY
+	 *        The y position of the center of the hand.
+	 * @param cardSpacing
+	 *        The amount of space in pixels between two cards.
+	 */
+	public void updateYPosition(int centerY, int cardSpacing)
 	{
 		if (hand.isEmpty())
 			return;
 
-		int totalHeight = hand.get(0).getSprite().getHeight() + Card.cardSpacing * (hand.size() - 1);
-		int y = game.getScreenHeight() / 2 - totalHeight / 2;
+		int totalHeight = hand.get(0).getSprite().getHeight() + cardSpacing * (hand.size() - 1);
+		int y = centerY - totalHeight / 2;
 
 		for (int i = 0; i < hand.size(); i++)
 		{
 			hand.get(i).setY(y);
-			y += Card.cardSpacing;
+			y += cardSpacing;
 		}
 	}
 }
@@ -0,0 +1,565 @@
+package fiveHundred.engine;
+
+import fiveHundred.cards.Card;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+import java.util.Arrays;
+
+/**
+ * The state of a round being played, in a form a search can modify in place.
+ *
+ * <p>
+ * Cards are known by their id in the deck specification and sets of cards are stored as bit sets
+ * in a {@code long}, so a hand is a single number. A move is made with {@link #makeMove(int)},
+ * which refuses illegal moves, and taken back with {@link #unmakeMove()}: the information needed to
+ * take a move back is pushed on a stack allocated once with the state, so a search can walk
+ * millions of positions without creating any garbage.
+ *
+ * <p>
+ * Besides the hands and the trick being played, the state keeps what every player learned during
+ * the play: the cards each player can't hold because he didn't follow suit when he had to.
+ *
+ * <p>
+ * The rules are the ones of {@link FiveHundredRules}, precomputed for every card when the bid is
+ * set. An instance of this class must only be used by one thread at a time.
+ */
+public class PlayState
+{
+	/** The number of ints pushed on the undo stack by each move. */
+	private static final int UNDO_FRAME_SIZE = 3;
+
+	/** The specification of the deck the round is played with. */
+	private final DeckSpec deckSpec;
+
+	/** The number of players at the table. */
+	private final int numberOfPlayers;
+
+	/** The highest bid of the round. */
+	private Bid bid;
+
+	/** The index of the highest bidder. */
+	private int contractor;
+
+	/** The suit of each card for the current bid, indexed by card id. */
+	private final int[] suits;
+
+	/** The rank of each card for the current bid, indexed by card id. */
+	private final int[] ranks;
+
+	/** The cards belonging to each suit for the current bid, indexed by suit. */
+	private final long[] suitMasks;
+
+	/** The cards that can be played even when a player can follow suit. */
+	private long alwaysPlayable;
+
+	/** The cards in each player's hand, indexed by player. */
+	private final long[] hands;
+
+	/** The cards each player is known not to hold, indexed by player. */
+	private final long[] cannotHold;
+
+	/** The cards played since the state was set, including the ones on the table. */
+	private long playedCards;
+
+	/** The cards of the trick being played, indexed by player, or -1. */
+	private final int[] cardsOnTable;
+
+	/** The number of cards of the trick being played. */
+	private int cardsInTrick;
+
+	/** The player who led the trick being played, or -1 if no card was played yet. */
+	private int leader;
+
+	/** The player who has to play. */
+	private int seatToPlay;
+
+	/** The tricks won by each player since the state was set, indexed by player. */
+	private final int[] tricksWon;
+
+	/** The number of tricks completed since the state was set. */
+	private int tricksPlayed;
+
+	/** The cards of each trick completed since the state was set, indexed by trick then player. */
+	private final int[] trickCards;
+
+	/** The leader of each trick completed since the state was set. */
+	private final int[] trickLeaders;
+
+	/** The winner of each trick completed since the state was set. */
+	private final int[] trickWinners;
+
+	/** The card, the player and the previous leader of every move made, in order. */
+	private final int[] undoStack;
+
+	/** What the player of every move made knew before it, in order. */
+	private final long[] undoKnowledge;
+
+	/** The number of moves made since the state was set. */
+	private int moveCount;
+
+	/**
+	 * Creates an empty state for rounds played with the specified deck. Use
+	 * {@link #set(Bid, int, long[], int[], int, int)} to set a position.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the rounds are played with.
+	 */
+	public PlayState(DeckSpec deckSpec)
+	{
+		this.deckSpec = deckSpec;
+		numberOfPlayers = deckSpec.getNumberOfPlayers();
+		suits = new int[deckSpec.getDeckSize()];
+		ranks = new int[deckSpec.getDeckSize()];
+		suitMasks = new long[Card.JOKER + 1];
+		hands = new long[numberOfPlayers];
+		cannotHold = new long[numberOfPlayers];
+		cardsOnTable = new int[numberOfPlayers];
+		tricksWon = new int[numberOfPlayers];
+		int tricks = DeckSpec.HAND_SIZE;
+		trickCards = new int[tricks * numberOfPlayers];
+		trickLeaders = new int[tricks];
+		trickWinners = new int[tricks];
+		undoStack = new int[deckSpec.getPlayableCards() * UNDO_FRAME_SIZE];
+		undoKnowledge = new long[deckSpec.getPlayableCards()];
+	}
+
+	/**
+	 * Sets the position to search from. Nothing is known about the players'
+	 * hands and no trick is counted yet.
+	 *
+	 * @param bid
+	 *        The highest bid of the round.
+	 * @param contractor
+	 *        The index of the highest bidder.
+	 * @param hands
+	 *        The cards in each player's hand as bit sets, indexed by player.
+	 * @param cardsOnTable
+	 *        The cards of the trick being played, indexed by player, or -1 for
+	 *        the players who haven't played yet.
+	 * @param leader
+	 *        The player who led the trick being played, or -1 if no card was
+	 *        played yet.
+	 * @param seatToPlay
+	 *        The player who has to play.
+	 */
+	public void set(Bid bid, int contractor, long[] hands, int[] cardsOnTable, int leader, int seatToPlay)
+	{
+		if (bid != this.bid)
+			setBid(bid);
+		this.contractor = contractor;
+		System.arraycopy(hands, 0, this.hands, 0, numberOfPlayers);
+		System.arraycopy(cardsOnTable, 0, this.cardsOnTable, 0, numberOfPlayers);
+		Arrays.fill(cannotHold, 0);
+		Arrays.fill(tricksWon, 0);
+
+		playedCards = 0;
+		cardsInTrick = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (cardsOnTable[i] != -1)
+			{
+				playedCards |= 1L << cardsOnTable[i];
+				++cardsInTrick;
+			}
+		}
+		this.leader = leader;
+		this.seatToPlay = seatToPlay;
+		tricksPlayed = 0;
+		moveCount = 0;
+	}
+
+	/**
+	 * Sets the position of the trick being played at a table. Nothing is
+	 * known about the players' hands and no trick is counted yet, as with
+	 * {@link #set(Bid, int, long[], int[], int, int)}.
+	 *
+	 * @param table
+	 *        The table, which must be playing with the deck of this state.
+	 */
+	public void set(TableState table)
+	{
+		if (table.getHighestBid() != bid)
+			setBid(table.getHighestBid());
+		contractor = table.getContractor();
+		Arrays.fill(cannotHold, 0);
+		Arrays.fill(tricksWon, 0);
+
+		playedCards = 0;
+		cardsInTrick = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			hands[i] = table.getHand(i);
+			cardsOnTable[i] = table.getCardOnTable(i);
+			if (cardsOnTable[i] != -1)
+			{
+				playedCards |= 1L << cardsOnTable[i];
+				++cardsInTrick;
+			}
+		}
+		leader = table.getLeader();
+		seatToPlay = table.getSeatToAct();
+		tricksPlayed = 0;
+		moveCount = 0;
+	}
+
+	/**
+	 * Replaces the hand of a player, typically to deal the cards a player
+	 * can't see at random. Can only be used before any move is made.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @param cards
+	 *        The cards of the player as a bit set.
+	 * @throws IllegalStateException
+	 *         if moves were made since the state was set.
+	 */
+	public void setHand(int player, long cards)
+	{
+		if (moveCount != 0)
+			throw new IllegalStateException("Hands can only be replaced before any move is made.");
+		hands[player] = cards;
+	}
+
+	/**
+	 * Precomputes the suit and rank of every card for a bid.
+	 *
+	 * @param bid
+	 *        The highest bid of the round.
+	 */
+	private void setBid(Bid bid)
+	{
+		this.bid = bid;
+		Arrays.fill(suitMasks, 0);
+		for (int id = 0; id < suits.length; ++id)
+		{
+			suits[id] = FiveHundredRules.getCardSuit(deckSpec.getSuit(id), deckSpec.getValue(id), bid);
+			ranks[id] = FiveHundredRules.getCardValue(deckSpec.getSuit(id), deckSpec.getValue(id), bid);
+			suitMasks[suits[id]] |= 1L << id;
+		}
+		alwaysPlayable = suitMasks[Card.JOKER];
+	}
+
+	/**
+	 * Returns the cards the player who has to play can legally play.
+	 *
+	 * @return the legal cards as a bit set.
+	 */
+	public long getLegalMoves()
+	{
+		long hand = hands[seatToPlay];
+		if (leader == -1)
+			return hand;
+
+		long followers = hand & suitMasks[suits[cardsOnTable[leader]]];
+		if (followers == 0)
+			return hand;
+		return followers | (hand & alwaysPlayable);
+	}
+
+	/**
+	 * Plays a card for the player who has to play. Completes the trick if it
+	 * is the last card of the trick.
+	 *
+	 * @param card
+	 *        The id of the card to play.
+	 * @throws IllegalArgumentException
+	 *         if the card is not one of the {@link #getLegalMoves() legal
+	 *         moves}: it is not in the hand of the player who has to play, or
+	 *         it doesn't follow the suit led when the player can.
+	 */
+	public void makeMove(int card)
+	{
+		long cardBit = 1L << card;
+		if ((getLegalMoves() & cardBit) == 0)
+		{
+			if ((hands[seatToPlay] & cardBit) == 0)
+				throw new IllegalArgumentException("Card " + card + " is not in the hand of player " + seatToPlay
+						+ ".");
+			throw new IllegalArgumentException("Card " + card + " doesn't follow the suit led.");
+		}
+		play(card);
+	}
+
+	/**
+	 * Plays a card seen played by the player who has to play, in a state
+	 * where the hands of the other players are only guesses, such as every
+	 * card not seen yet. Unlike {@link #makeMove(int)}, the card may not
+	 * follow suit, since the player may have none left.
+	 *
+	 * @param card
+	 *        The id of the card played.
+	 * @throws IllegalArgumentException
+	 *         if the card is not in the hand of the player who has to play.
+	 */
+	public void makeObservedMove(int card)
+	{
+		if ((hands[seatToPlay] & 1L << card) == 0)
+			throw new IllegalArgumentException("Card " + card + " is not in the hand of player " + seatToPlay + ".");
+		play(card);
+	}
+
+	/**
+	 * Plays a card known to be in the hand of the player who has to play.
+	 */
+	private void play(int card)
+	{
+		int player = seatToPlay;
+		long cardBit = 1L << card;
+		int frame = moveCount * UNDO_FRAME_SIZE;
+		undoStack[frame] = card;
+		undoStack[frame + 1] = player;
+		undoStack[frame + 2] = leader;
+		undoKnowledge[moveCount] = cannotHold[player];
+		++moveCount;
+
+		hands[player] &= ~cardBit;
+		playedCards |= cardBit;
+		if (leader == -1)
+		{
+			leader = player;
+		}
+		else
+		{
+			// A player who doesn't follow suit shows he has none left.
+			int leadSuit = suits[cardsOnTable[leader]];
+			if (suits[card] != leadSuit && (cardBit & alwaysPlayable) == 0)
+				cannotHold[player] |= suitMasks[leadSuit];
+		}
+		cardsOnTable[player] = card;
+		++cardsInTrick;
+
+		if (cardsInTrick < numberOfPlayers)
+		{
+			seatToPlay = (player + 1) % numberOfPlayers;
+			return;
+		}
+
+		int winner = getTrickWinner();
+		System.arraycopy(cardsOnTable, 0, trickCards, tricksPlayed * numberOfPlayers, numberOfPlayers);
+		trickLeaders[tricksPlayed] = leader;
+		trickWinners[tricksPlayed] = winner;
+		++tricksPlayed;
+		++tricksWon[winner];
+
+		Arrays.fill(cardsOnTable, -1);
+		cardsInTrick = 0;
+		leader = -1;
+		seatToPlay = winner;
+	}
+
+	/**
+	 * Takes back the last move made.
+	 *
+	 * @throws IllegalStateException
+	 *         if no move was made since the state was set.
+	 */
+	public void unmakeMove()
+	{
+		if (moveCount == 0)
+			throw new IllegalStateException("No move to take back.");
+
+		--moveCount;
+		int frame = moveCount * UNDO_FRAME_SIZE;
+		int card = undoStack[frame];
+		int player = undoStack[frame + 1];
+
+		// The move completed a trick: put the trick back on the table.
+		if (cardsInTrick == 0)
+		{
+			--tricksPlayed;
+			--tricksWon[trickWinners[tricksPlayed]];
+			System.arraycopy(trickCards, tricksPlayed * numberOfPlayers, cardsOnTable, 0, numberOfPlayers);
+			cardsInTrick = numberOfPlayers;
+		}
+
+		cardsOnTable[player] = -1;
+		--cardsInTrick;
+		hands[player] |= 1L << card;
+		playedCards &= ~(1L << card);
+		cannotHold[player] = undoKnowledge[moveCount];
+		leader = undoStack[frame + 2];
+		seatToPlay = player;
+	}
+
+	/**
+	 * Returns the winner of the complete trick on the table, following
+	 * {@link FiveHundredRules#trickWinner(Card[], int, Bid)}.
+	 *
+	 * @return the index of the player who won the trick.
+	 */
+	private int getTrickWinner()
+	{
+		int winner = leader;
+		int leadSuit = suits[cardsOnTable[leader]];
+		for (int offset = 1; offset < numberOfPlayers; ++offset)
+		{
+			int player = (leader + offset) % numberOfPlayers;
+			int card = cardsOnTable[player];
+			if ((suits[card] == Card.JOKER || suits[card] == leadSuit) && ranks[card] > ranks[cardsOnTable[winner]])
+				winner = player;
+		}
+		return winner;
+	}
+
+	/**
+	 * Returns {@code true} once every card was played.
+	 *
+	 * @return {@code true} if the round is over.
+	 */
+	public boolean isRoundOver()
+	{
+		return hands[seatToPlay] == 0;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public DeckSpec getDeckSpec()
+	{
+		return deckSpec;
+	}
+
+	public int getNumberOfPlayers()
+	{
+		return numberOfPlayers;
+	}
+
+	public Bid getBid()
+	{
+		return bid;
+	}
+
+	public int getContractor()
+	{
+		return contractor;
+	}
+
+	/**
+	 * Returns the suit of a card for the current bid.
+	 *
+	 * @param card
+	 *        The id of the card.
+	 * @return the suit of the card.
+	 * @see FiveHundredRules#getCardSuit(Card, Bid)
+	 */
+	public int getSuit(int card)
+	{
+		return suits[card];
+	}
+
+	/**
+	 * Returns the rank of a card for the current bid.
+	 *
+	 * @param card
+	 *        The id of the card.
+	 * @return the rank of the card.
+	 * @see FiveHundredRules#getCardValue(Card, Bid)
+	 */
+	public int getRank(int card)
+	{
+		return ranks[card];
+	}
+
+	/**
+	 * Returns the cards of a suit for the current bid.
+	 *
+	 * @param suit
+	 *        The suit.
+	 * @return the cards of the suit as a bit set.
+	 */
+	public long getSuitMask(int suit)
+	{
+		return suitMasks[suit];
+	}
+
+	public long getHand(int player)
+	{
+		return hands[player];
+	}
+
+	/**
+	 * Returns the cards a player is known not to hold because he didn't follow
+	 * suit when he had to.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the cards the player can't hold as a bit set.
+	 */
+	public long getCannotHold(int player)
+	{
+		return cannotHold[player];
+	}
+
+	public long getPlayedCards()
+	{
+		return playedCards;
+	}
+
+	/**
+	 * Returns the card played by a player during the trick being played.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the id of the card or -1 if that player hasn't played yet.
+	 */
+	public int getCardOnTable(int player)
+	{
+		return cardsOnTable[player];
+	}
+
+	public int getCardsInTrick()
+	{
+		return cardsInTrick;
+	}
+
+	public int getLeader()
+	{
+		return leader;
+	}
+
+	public int getSeatToPlay()
+	{
+		return seatToPlay;
+	}
+
+	public int getTricksWon(int player)
+	{
+		return tricksWon[player];
+	}
+
+	public int getTricksPlayed()
+	{
+		return tricksPlayed;
+	}
+
+	/**
+	 * Returns the card played by a player during a trick completed since the
+	 * state was set.
+	 *
+	 * @param trick
+	 *        The index of the trick.
+	 * @param player
+	 *        The index of the player.
+	 * @return the id of the card.
+	 */
+	public int getTrickCard(int trick, int player)
+	{
+		return trickCards[trick * numberOfPlayers + player];
+	}
+
+	public int getTrickLeader(int trick)
+	{
+		return trickLeaders[trick];
+	}
+
+	public int getTrickWinner(int trick)
+	{
+		return trickWinners[trick];
+	}
+
+	public int getMoveCount()
+	{
+		return moveCount;
+	}
+}
@@ -0,0 +1,515 @@
+package fiveHundred.engine;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The whole state of a table packed in {@value #WORDS} {@code long}s: the
+ * hands, the widow, the cards played, the trick being played, the bids, the
+ * tricks won, the scores, the dealer and the phase of the round. A table takes
+ * {@value #BYTES} bytes and no object besides its array, so hundreds of
+ * thousands of tables fit in a small heap, and copying a table, for instance to
+ * search from it, is a single {@link System#arraycopy}.
+ *
+ * <p>
+ * The words of a table are at an offset of an array, which may hold many tables: an instance is
+ * only a view of them, and {@link #moveTo(long[], int)} points it at another table. The words are
+ * laid out as follows:
+ * <ul>
+ * <li>the hand of each of the {@value #MAX_PLAYERS} seats, then the widow and the cards played in
+ * the round, as bit sets;</li>
+ * <li>a header holding, on 4 bits each, the phase, the number of players, the dealer, the
+ * contractor, the seat to act, the leader of the trick, the number of cards in the trick, the
+ * number of tricks played and the number of bids called, then the ordinal of the highest bid on 8
+ * bits;</li>
+ * <li>the card on the table, the bid and the tricks won of each seat, on 8 bits each, in a word
+ * each;</li>
+ * <li>the score of each seat on 32 bits, two to a word, then the number of rounds started.</li>
+ * </ul>
+ *
+ * <p>
+ * The play of a card needs the rules of the bid: {@link #playCard(PlayState, int)} makes the move
+ * on a {@link PlayState} set from this table with {@link PlayState#set(TableState)}, which a thread
+ * can share between all of its tables.
+ */
+public final class TableState
+{
+	/** The largest number of players at a table. */
+	public static final int MAX_PLAYERS = 6;
+
+	/** The number of words of a table. */
+	public static final int WORDS = 16;
+
+	/** The number of bytes of a table. */
+	public static final int BYTES = WORDS * Long.BYTES;
+
+	/** No round started yet. */
+	public static final int WAITING = 0;
+
+	/** The players are bidding. */
+	public static final int BIDDING = 1;
+
+	/** The players are playing their cards. */
+	public static final int PLAYING = 2;
+
+	/** Every card was played and the round can be scored. */
+	public static final int ROUND_OVER = 3;
+
+	/** The bids, indexed by ordinal. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The word of the widow. */
+	private static final int WIDOW = MAX_PLAYERS;
+
+	/** The word of the cards played in the round. */
+	private static final int PLAYED = WIDOW + 1;
+
+	/** The word of the header. */
+	private static final int HEADER = PLAYED + 1;
+
+	/** The word of the cards on the table, 0xFF for the seats which haven't played. */
+	private static final int TABLE = HEADER + 1;
+
+	/** The word of the bids, 0 for the seats which haven't bid and the ordinal plus 1 otherwise. */
+	private static final int CALLS = TABLE + 1;
+
+	/** The word of the tricks won. */
+	private static final int TRICKS = CALLS + 1;
+
+	/** The first word of the scores. */
+	private static final int SCORES = TRICKS + 1;
+
+	/** The word of the number of rounds started. */
+	private static final int ROUND = SCORES + MAX_PLAYERS / 2;
+
+	/** The fields of the header, as the shift of their lowest bit. */
+	private static final int PHASE = 0, PLAYERS = 4, DEALER = 8, CONTRACTOR = 12, SEAT_TO_ACT = 16, LEADER = 20,
+			CARDS_IN_TRICK = 24, TRICKS_PLAYED = 28, BID_COUNT = 32, HIGHEST_BID = 40;
+
+	/** The mask of a field of the header on 4 bits. */
+	private static final long NIBBLE = 0xF;
+
+	/** The mask of a byte. */
+	private static final long BYTE = 0xFF;
+
+	/** The value of the leader before the first card of a trick. */
+	private static final int NO_LEADER = 0xF;
+
+	/** The words of the tables. */
+	private long[] words;
+
+	/** The first word of this table. */
+	private int offset;
+
+	/**
+	 * Creates a table with its own words, waiting for its first round.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players.
+	 */
+	public TableState(int numberOfPlayers)
+	{
+		this(new long[WORDS], 0);
+		clear(numberOfPlayers);
+	}
+
+	/**
+	 * Creates a view of a table stored in an array.
+	 *
+	 * @param words
+	 *        The array, which may hold many tables.
+	 * @param offset
+	 *        The first word of the table.
+	 */
+	public TableState(long[] words, int offset)
+	{
+		moveTo(words, offset);
+	}
+
+	/**
+	 * Points this view at another table.
+	 *
+	 * @param words
+	 *        The array, which may hold many tables.
+	 * @param offset
+	 *        The first word of the table.
+	 * @return this view.
+	 */
+	public TableState moveTo(long[] words, int offset)
+	{
+		if (offset < 0 || offset + WORDS > words.length)
+			throw new IndexOutOfBoundsException("No table at offset " + offset + ".");
+		this.words = words;
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * Resets the table to no round and no score.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players.
+	 */
+	public void clear(int numberOfPlayers)
+	{
+		if (numberOfPlayers < 1 || numberOfPlayers > MAX_PLAYERS)
+			throw new IllegalArgumentException("A table has between 1 and " + MAX_PLAYERS + " players.");
+		Arrays.fill(words, offset, offset + WORDS, 0);
+		words[offset + HEADER] = (long) numberOfPlayers << PLAYERS | (long) NO_LEADER << LEADER;
+		words[offset + TABLE] = -1;
+	}
+
+	/**
+	 * Copies another table into this one.
+	 *
+	 * @param other
+	 *        The table to copy.
+	 */
+	public void copyFrom(TableState other)
+	{
+		System.arraycopy(other.words, other.offset, words, offset, WORDS);
+	}
+
+	/**
+	 * Starts a round: deals the hands and the widow, and gives the first bid
+	 * to the player after the dealer. The scores are kept.
+	 *
+	 * @param round
+	 *        The number of rounds started, including this one.
+	 * @param dealer
+	 *        The dealer of the round.
+	 * @param dealtHands
+	 *        The cards of each player as bit sets, followed by the widow.
+	 */
+	public void startRound(int round, int dealer, long[] dealtHands)
+	{
+		int numberOfPlayers = getNumberOfPlayers();
+		System.arraycopy(dealtHands, 0, words, offset, numberOfPlayers);
+		Arrays.fill(words, offset + numberOfPlayers, offset + WIDOW, 0);
+		words[offset + WIDOW] = dealtHands[numberOfPlayers];
+		words[offset + PLAYED] = 0;
+		words[offset + TABLE] = -1;
+		words[offset + CALLS] = 0;
+		words[offset + TRICKS] = 0;
+		words[offset + ROUND] = round & 0xFFFFFFFFL;
+
+		int bidder = (dealer + 1) % numberOfPlayers;
+		words[offset + HEADER] = BIDDING | (long) numberOfPlayers << PLAYERS | (long) dealer << DEALER
+				| (long) bidder << CONTRACTOR | (long) bidder << SEAT_TO_ACT | (long) NO_LEADER << LEADER
+				| (long) Bid.PASS.ordinal() << HIGHEST_BID;
+	}
+
+	/**
+	 * Calls a bid for the player who has to bid. After the last bid, the
+	 * contractor leads the first trick; the contractor is the first bidder if
+	 * every player passed.
+	 *
+	 * @param bid
+	 *        The bid, which must beat the highest bid unless it is a pass.
+	 * @return {@code true} if it was the last bid.
+	 */
+	public boolean callBid(Bid bid)
+	{
+		int numberOfPlayers = getNumberOfPlayers();
+		int bidder = getSeatToAct();
+		words[offset + CALLS] |= (long) (bid.ordinal() + 1) << 8 * bidder;
+		if (bid.ordinal() > getHighestBid().ordinal())
+		{
+			setField(HIGHEST_BID, BYTE, bid.ordinal());
+			setField(CONTRACTOR, NIBBLE, bidder);
+		}
+		int bidCount = getBidCount() + 1;
+		setField(BID_COUNT, NIBBLE, bidCount);
+		if (bidCount < numberOfPlayers)
+		{
+			setField(SEAT_TO_ACT, NIBBLE, (bidder + 1) % numberOfPlayers);
+			return false;
+		}
+
+		setField(PHASE, NIBBLE, PLAYING);
+		setField(SEAT_TO_ACT, NIBBLE, getContractor());
+		return true;
+	}
+
+	/**
+	 * Plays a card for the player who has to play, and counts the trick it
+	 * completes, if any.
+	 *
+	 * @param play
+	 *        A state set from this table, with no move made since or only the
+	 *        moves made through this method. The card is played on it too, so
+	 *        it stays in step with the table.
+	 * @param card
+	 *        The id of the card, which must be legal.
+	 * @return the winner of the trick completed by the card, or -1.
+	 */
+	public int playCard(PlayState play, int card)
+	{
+		int seat = getSeatToAct();
+		int tricksPlayed = play.getTricksPlayed();
+		play.makeMove(card);
+
+		words[offset + seat] &= ~(1L << card);
+		words[offset + PLAYED] |= 1L << card;
+		int winner = -1;
+		if (play.getTricksPlayed() == tricksPlayed)
+		{
+			words[offset + TABLE] = words[offset + TABLE] & ~(BYTE << 8 * seat) | (long) card << 8 * seat;
+			if (getLeader() == -1)
+				setField(LEADER, NIBBLE, seat);
+			setField(CARDS_IN_TRICK, NIBBLE, getCardsInTrick() + 1);
+		}
+		else
+		{
+			winner = play.getTrickWinner(tricksPlayed);
+			words[offset + TABLE] = -1;
+			words[offset + TRICKS] += 1L << 8 * winner;
+			setField(LEADER, NIBBLE, NO_LEADER);
+			setField(CARDS_IN_TRICK, NIBBLE, 0);
+			int tricks = getTricksPlayed() + 1;
+			setField(TRICKS_PLAYED, NIBBLE, tricks);
+			if (tricks == DeckSpec.HAND_SIZE)
+				setField(PHASE, NIBBLE, ROUND_OVER);
+		}
+		setField(SEAT_TO_ACT, NIBBLE, play.getSeatToPlay());
+		return winner;
+	}
+
+	/**
+	 * Adds the points of a round to the scores.
+	 *
+	 * @param scoreDeltas
+	 *        The points of each player.
+	 */
+	public void addScores(int[] scoreDeltas)
+	{
+		for (int seat = 0; seat < getNumberOfPlayers(); ++seat)
+		{
+			setScore(seat, getScore(seat) + scoreDeltas[seat]);
+		}
+	}
+
+	/**
+	 * Writes the words of the table, so it can be saved or sent.
+	 *
+	 * @param output
+	 *        The buffer receiving the {@value #BYTES} bytes.
+	 */
+	public void write(ByteBuffer output)
+	{
+		for (int i = 0; i < WORDS; ++i)
+		{
+			output.putLong(words[offset + i]);
+		}
+	}
+
+	/**
+	 * Replaces the words of the table with those written by
+	 * {@link #write(ByteBuffer)}.
+	 *
+	 * @param input
+	 *        The buffer holding the {@value #BYTES} bytes.
+	 * @throws IllegalArgumentException
+	 *         if the words don't describe a valid table.
+	 */
+	public void read(ByteBuffer input)
+	{
+		for (int i = 0; i < WORDS; ++i)
+		{
+			words[offset + i] = input.getLong();
+		}
+		int numberOfPlayers = getNumberOfPlayers();
+		int leader = getField(LEADER, NIBBLE);
+		boolean isValid = numberOfPlayers >= 1 && numberOfPlayers <= MAX_PLAYERS && getPhase() <= ROUND_OVER
+				&& getDealer() < numberOfPlayers && getContractor() < numberOfPlayers && getSeatToAct()
+						< numberOfPlayers && (leader == NO_LEADER || leader < numberOfPlayers) && getField(
+								HIGHEST_BID, BYTE) < BIDS.length;
+		for (int seat = 0; seat < MAX_PLAYERS; ++seat)
+		{
+			isValid &= (words[offset + CALLS] >>> 8 * seat & BYTE) <= BIDS.length;
+		}
+		if (!isValid)
+			throw new IllegalArgumentException("The words don't describe a table.");
+	}
+
+	/**
+	 * Returns a field of the header.
+	 */
+	private int getField(int shift, long mask)
+	{
+		return (int) (words[offset + HEADER] >>> shift & mask);
+	}
+
+	/**
+	 * Replaces a field of the header.
+	 */
+	private void setField(int shift, long mask, int value)
+	{
+		words[offset + HEADER] = words[offset + HEADER] & ~(mask << shift) | (value & mask) << shift;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public long[] getWords()
+	{
+		return words;
+	}
+
+	public int getOffset()
+	{
+		return offset;
+	}
+
+	/**
+	 * Returns the phase of the round.
+	 *
+	 * @return {@link #WAITING}, {@link #BIDDING}, {@link #PLAYING} or
+	 *         {@link #ROUND_OVER}.
+	 */
+	public int getPhase()
+	{
+		return getField(PHASE, NIBBLE);
+	}
+
+	public int getNumberOfPlayers()
+	{
+		return getField(PLAYERS, NIBBLE);
+	}
+
+	public int getRound()
+	{
+		return (int) words[offset + ROUND];
+	}
+
+	public int getDealer()
+	{
+		return getField(DEALER, NIBBLE);
+	}
+
+	/**
+	 * Returns the player who called the highest bid, or the first bidder while
+	 * every player passed.
+	 *
+	 * @return the index of the contractor.
+	 */
+	public int getContractor()
+	{
+		return getField(CONTRACTOR, NIBBLE);
+	}
+
+	public Bid getHighestBid()
+	{
+		return BIDS[getField(HIGHEST_BID, BYTE)];
+	}
+
+	public int getBidCount()
+	{
+		return getField(BID_COUNT, NIBBLE);
+	}
+
+	/**
+	 * Returns the bid called by a player in the round.
+	 *
+	 * @param seat
+	 *        The index of the player.
+	 * @return the bid, or {@code null} if the player didn't bid yet.
+	 */
+	public Bid getBid(int seat)
+	{
+		int call = (int) (words[offset + CALLS] >>> 8 * seat & BYTE);
+		return call == 0 ? null : BIDS[call - 1];
+	}
+
+	/**
+	 * Returns the player who has to bid or to play.
+	 *
+	 * @return the index of the player.
+	 */
+	public int getSeatToAct()
+	{
+		return getField(SEAT_TO_ACT, NIBBLE);
+	}
+
+	public long getHand(int seat)
+	{
+		return words[offset + seat];
+	}
+
+	public long getWidow()
+	{
+		return words[offset + WIDOW];
+	}
+
+	public long getPlayedCards()
+	{
+		return words[offset + PLAYED];
+	}
+
+	/**
+	 * Returns the card played by a player during the trick being played.
+	 *
+	 * @param seat
+	 *        The index of the player.
+	 * @return the id of the card or -1 if that player hasn't played yet.
+	 */
+	public int getCardOnTable(int seat)
+	{
+		int card = (int) (words[offset + TABLE] >>> 8 * seat & BYTE);
+		return card == BYTE ? -1 : card;
+	}
+
+	public int getCardsInTrick()
+	{
+		return getField(CARDS_IN_TRICK, NIBBLE);
+	}
+
+	/**
+	 * Returns the player who led the trick being played.
+	 *
+	 * @return the index of the leader, or -1 if no card was played yet.
+	 */
+	public int getLeader()
+	{
+		int leader = getField(LEADER, NIBBLE);
+		return leader == NO_LEADER ? -1 : leader;
+	}
+
+	public int getTricksPlayed()
+	{
+		return getField(TRICKS_PLAYED, NIBBLE);
+	}
+
+	public int getTricksWon(int seat)
+	{
+		return (int) (words[offset + TRICKS] >>> 8 * seat & BYTE);
+	}
+
+	public int getScore(int seat)
+	{
+		return (int) (words[offset + SCORES + seat / 2] >>> 32 * (seat & 1));
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	/**
+	 * Sets the number of rounds started, typically to rebuild a table. The
+	 * next round started is the one after it.
+	 *
+	 * @param round
+	 *        The number of rounds started.
+	 */
+	public void setRound(int round)
+	{
+		words[offset + ROUND] = round & 0xFFFFFFFFL;
+	}
+
+	public void setScore(int seat, int score)
+	{
+		int shift = 32 * (seat & 1);
+		int word = offset + SCORES + seat / 2;
+		words[word] = words[word] & ~(0xFFFFFFFFL << shift) | (score & 0xFFFFFFFFL) << shift;
+	}
+}
@@ -1,19 +1,34 @@
 package fiveHundred.entity;
 
 import fiveHundred.Game;
+import fiveHundred.ai.PlayoutSearch;
+import fiveHundred.ai.SearchPosition;
+import fiveHundred.ai.SearchResult;
+import fiveHundred.ai.Strategy;
 import fiveHundred.cards.Card;
 import gameCore.graphics.SpriteBatch;
 import gameCore.graphics.SpriteBatch.BlendState;
 import gameCore.time.GameTime;
 
-import java.util.ArrayList;
-
 public class FiveHundredAIPlayer extends Player
 {
-	public FiveHundredAIPlayer(String name)
+	/** The search used to select the card to play. */
+	private PlayoutSearch search;
+
+	/**
+	 * Creates a player selecting his cards by searching the rest of the round.
+	 * 
+	 * @param name
+	 *        The name of the player.
+	 * @param playoutStrategy
+	 *        The strategy followed by every player during the playouts of the
+	 *        search.
+	 */
+	public FiveHundredAIPlayer(String name, Strategy playoutStrategy)
 	{
 		super(name);
 		yourTurn = false;
+		search = new PlayoutSearch(System.nanoTime() ^ name.hashCode(), playoutStrategy);
 	}
 
 	public void update(GameTime gameTime)
@@ -31,87 +46,32 @@ public class FiveHundredAIPlayer extends Player
 		if (yourTurn && hand.getCardCount() > 0)
 		{
 			yourTurn = false;
-			int cardToPlay = getValidCard(game);
-			c = hand.getCard(cardToPlay);
-			hand.removeCard(cardToPlay);
-			hand.updateYPosition(game);
+			c = selectCard(game);
+			hand.removeCard(c);
+			seatLayout.layoutHand(hand);
 		}
 		return c;
 	}
 
-	// TODO : Take care of the Joker in both situations (hasTrump and not)
-	// TODO : Test to see if works as expected.
-	private int getValidCard(Game game)
+	/**
+	 * Selects the card to play by searching the rest of the round. If the
+	 * game pondered this position while the human player was deciding, the
+	 * search continues from there so the full budget is rarely needed.
+	 * 
+	 * @param game
+	 *        The game this player is playing.
+	 * @return The card to play.
+	 */
+	private Card selectCard(Game game)
 	{
-		int cardToPlayIndex;
-		int lowestOverallCard = -1;
-
-		// Since the cards are sorted in the player's hand, they will be in
-		// ascending order in these ArrayList.
-		// TODO : Is ArrayList the best choice of DataStructure
-		ArrayList<Integer> sameSuitCards = new ArrayList<Integer>();
-		ArrayList<Integer> trumpSuitCards = new ArrayList<Integer>();
-
-		// If AI is the first to play
-		if (game.getGameTable().getCardsOnTable().isEmpty())
+		SearchPosition position = game.createSearchPosition();
+		SearchResult result = game.getPonderer().claim(position);
+		if (result == null)
 		{
-			// TODO : Logic to find which card to play
-			cardToPlayIndex = 0;
+			result = search.createResult(position);
 		}
-		// If there are cards already played, check to see which card the AI should play.
-		else
-		{
-			Card firstCardPlayed = game.getGameTable().getCardsOnTable().get(game.getFirstCardPlayed());
-			for (int i = 0; i < hand.getCardCount(); ++i)
-			{
-				if (game.getCardSuit(hand.getCard(i)) == game.getCardSuit(firstCardPlayed))
-				{
-					sameSuitCards.add(i);
-				}
-				else if (game.getCardSuit(hand.getCard(i)) == game.getHighestBid().getTrumpSuit())
-				{
-					trumpSuitCards.add(i);
-				}
-				else
-				{
-					if (lowestOverallCard == -1)
-					{
-						lowestOverallCard = i;
-					}
-					else if (game.getCardValue(hand.getCard(i)) < game.getCardValue(hand.getCard(lowestOverallCard)))
-					{
-						lowestOverallCard = i;
-					}
-				}
-			}
-
-			// Select which card to play
-			if (!sameSuitCards.isEmpty())
-			{
-				if (game.getCardValue(hand.getCard(sameSuitCards.get(sameSuitCards.size() - 1))) > game.getCardValue(firstCardPlayed))
-				{
-					cardToPlayIndex = sameSuitCards.get(sameSuitCards.size() - 1);
-				}
-				else
-				{
-					cardToPlayIndex = sameSuitCards.get(0);
-				}
-			}
-			else
-			{
-				if (!trumpSuitCards.isEmpty())
-				{
-					// TODO : Choose whether playing the highest or lowest trump.
-					cardToPlayIndex = trumpSuitCards.get(trumpSuitCards.size() - 1);
-				}
-				else
-				{
-					cardToPlayIndex = lowestOverallCard;
-				}
-			}
-		}
-
-		return cardToPlayIndex;
+		search.run(result, PlayoutSearch.DEFAULT_BUDGET - result.getPlayouts());
+		return result.getBestCard();
 	}
 
 	public void draw(SpriteBatch spriteBatch)
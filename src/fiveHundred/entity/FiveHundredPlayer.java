@@ -2,6 +2,7 @@ package fiveHundred.entity;
 
 import fiveHundred.Game;
 import fiveHundred.cards.Card;
+import fiveHundred.rules.FiveHundredRules;
 import gameCore.graphics.Sprite;
 import gameCore.graphics.SpriteBatch;
 import gameCore.graphics.SpriteBatch.BlendState;
@@ -95,48 +96,15 @@ public class FiveHundredPlayer extends Player
 			}
 			yourTurn = false;
 			hand.removeCard(selectedCardIndex);
-			hand.updateXPosition(game);
+			seatLayout.layoutHand(hand);
 		}
 		return c;
 	}
 
 	private boolean validCard(Game game, Card card)
 	{
-		boolean cardIsValid = false;
-
-		if (!game.getGameTable().getCardsOnTable().isEmpty())
-		{
-			Card firstCardPlayed = game.getGameTable().getCardsOnTable().get(game.getFirstCardPlayed());
-
-			boolean hasSameSuitCards = false;
-
-			for (int i = 0; i < hand.getCardCount(); ++i)
-			{
-				if (game.getCardSuit(hand.getCard(i)) == game.getCardSuit(firstCardPlayed))
-				{
-					hasSameSuitCards = true;
-					break;
-				}
-			}
-
-			if (!hasSameSuitCards)
-			{
-				cardIsValid = true;
-			}
-			else
-			{
-				if ((game.getCardSuit(card) == Card.JOKER) || (game.getCardSuit(card) == game.getCardSuit(firstCardPlayed)))
-				{
-					cardIsValid = true;
-				}
-			}
-		}
-		else
-		{
-			cardIsValid = true;
-		}
-
-		return cardIsValid;
+		Card firstCardPlayed = game.getGameTable().getCardOnTable(game.getFirstCardPlayed());
+		return FiveHundredRules.isValidCard(hand, card, firstCardPlayed, game.getHighestBid());
 	}
 
 	public void draw(SpriteBatch spriteBatch)
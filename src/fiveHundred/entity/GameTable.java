@@ -9,7 +9,7 @@ import gameCore.math.Vector2i;
 import gameCore.time.GameTime;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 
 public class GameTable
@@ -27,10 +27,13 @@ public class GameTable
 	private double speed;
 
 	/**
-	 * The Hand object holding the cards currently on the table.
+	 * The cards currently on the table, indexed by player. An entry is
+	 * {@code null} if that player hasn't played yet.
 	 */
-	// private Hand cardsOnTable;
-	private HashMap<Integer, Card> cardsOnTable;
+	private Card[] cardsOnTable;
+
+	/** The number of cards currently on the table. */
+	private int numberOfCardsOnTable;
 
 	/**
 	 * The time in milliseconds we wait before removing the cards from the table.
@@ -40,20 +43,18 @@ public class GameTable
 	/** The time in milliseconds since we last updated our cardsOnTable. */
 	private int elapsedTime;
 
-	// TODO : Calculate from card's size and screen size
 	/**
 	 * Each player's played card destination on the table. Used for the animation.
 	 */
-	private Vector2i[] playedCardDest = { new Vector2i(360, 207), new Vector2i(280, 101), new Vector2i(440, 101) };
+	private Vector2i[] playedCardDest;
 
 	/**
 	 * The destination of each player's tricks won. Used for the animation.
 	 */
-	private Vector2i[] tricksDestination = { new Vector2i(), new Vector2i(), new Vector2i() };
+	private Vector2i[] tricksDestination;
 
 	/** The number of players playing the game. */
-	// TODO: Get this from the constructor
-	private int numberOfPlayers = 3;
+	private int numberOfPlayers;
 
 	// TODO: Make private with setter
 	public int trickWinner = 0;
@@ -66,7 +67,13 @@ public class GameTable
 
 	private AnimationType currentAnimation = AnimationType.NONE;
 
-	public GameTable()
+	/**
+	 * Creates a table for the specified seats.
+	 * 
+	 * @param seatLayouts
+	 *        The layout of each seat around the table, indexed by player.
+	 */
+	public GameTable(SeatLayout[] seatLayouts)
 	{
 		tableMatList = new ArrayList<>();
 		tableMatList.add(new Sprite(800, 520, new SpriteSheet("/images/UI/tableRed.png", 800, 520)));
@@ -78,21 +85,23 @@ public class GameTable
 		elapsedTime = 0;
 		speed = 1.4;
 
-		// cardsOnTable = new Hand();
-		cardsOnTable = new HashMap<>(3);
+		numberOfPlayers = seatLayouts.length;
+		cardsOnTable = new Card[numberOfPlayers];
+		numberOfCardsOnTable = 0;
 
-		// Index 0 = Human, 1 = Left, 2 = Right
-		// TODO: Create constructor with Game parameter for game.width and
-		// height or push back in Game ?
-		tricksDestination[0].set((800 - Sprite.club2.getWidth()) / 2, 520);
-		tricksDestination[1].set(0, (520 - Sprite.club2.getHeight()) / 2);
-		tricksDestination[2].set(800, (520 - Sprite.club2.getHeight()) / 2);
+		playedCardDest = new Vector2i[numberOfPlayers];
+		tricksDestination = new Vector2i[numberOfPlayers];
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			playedCardDest[i] = seatLayouts[i].getPlayedCardDestination();
+			tricksDestination[i] = seatLayouts[i].getTricksDestination();
+		}
 	}
 
 	// TODO : Re-factor if for AnimationType and make a switch on it after ?
 	public void update(GameTime gameTime)
 	{
-		if (cardsOnTable.size() == 1)
+		if (numberOfCardsOnTable == 1)
 			currentAnimation = AnimationType.PLAY_ANIMATION;
 
 		/*
@@ -103,7 +112,7 @@ public class GameTable
 		{
 			for (int i = 0; i < numberOfPlayers; ++i)
 			{
-				Card card = cardsOnTable.get(i);
+				Card card = cardsOnTable[i];
 				if (card == null)
 					continue;
 				if (card.getX() != playedCardDest[i].getX() || card.getY() != playedCardDest[i].getY())
@@ -120,22 +129,22 @@ public class GameTable
 		 * opponents.
 		 */
 		// TODO: Use TimeSpan instead
-		if (cardsOnTable.size() == 3)
+		if (isFull())
 		{
 			// Update the elapsed time
 			elapsedTime += (int) gameTime.getElapsedGameTime().getTotalMilliseconds();
 			if (elapsedTime >= playedCardWaitTime)
 			{
 				currentAnimation = AnimationType.TRICK_ANIMATION;
-				if (cardsOnTable.get(trickWinner).getX() != tricksDestination[trickWinner].getX()
-						|| cardsOnTable.get(trickWinner).getY() != tricksDestination[trickWinner].getY())
+				if (cardsOnTable[trickWinner].getX() != tricksDestination[trickWinner].getX()
+						|| cardsOnTable[trickWinner].getY() != tricksDestination[trickWinner].getY())
 				{
 					moveTrick(tricksDestination[trickWinner], gameTime);
 				}
 				else
 				{
 					currentAnimation = AnimationType.NONE;
-					cardsOnTable.clear();
+					clear();
 					elapsedTime = 0;
 				}
 			}
@@ -157,30 +166,30 @@ public class GameTable
 	{
 
 		// Calculate the delta separating us from our destination
-		double delatX = destination.getX() - cardsOnTable.get(index).getX();
-		double deltaY = destination.getY() - cardsOnTable.get(index).getY();
+		double delatX = destination.getX() - cardsOnTable[index].getX();
+		double deltaY = destination.getY() - cardsOnTable[index].getY();
 		double angle = Math.atan2(deltaY, delatX);
 
 		// Calculate the new position based on the elapsedTime
 		int newX = (int) (Math.cos(angle) * speed * gameTime.getElapsedGameTime().getTotalMilliseconds());
 		int newY = (int) (Math.sin(angle) * speed * gameTime.getElapsedGameTime().getTotalMilliseconds());
-		if (newX < 0 && cardsOnTable.get(index).getX() + newX < destination.getX() || newX > 0
-				&& cardsOnTable.get(index).getX() + newX > destination.getX())
+		if (newX < 0 && cardsOnTable[index].getX() + newX < destination.getX() || newX > 0
+				&& cardsOnTable[index].getX() + newX > destination.getX())
 		{
-			cardsOnTable.get(index).setX(destination.getX());
+			cardsOnTable[index].setX(destination.getX());
 		}
 		else
 		{
-			cardsOnTable.get(index).setX(cardsOnTable.get(index).getX() + newX);
+			cardsOnTable[index].setX(cardsOnTable[index].getX() + newX);
 		}
-		if (newY < 0 && cardsOnTable.get(index).getY() + newY < destination.getY() || newY > 0
-				&& cardsOnTable.get(index).getY() + newY > destination.getY())
+		if (newY < 0 && cardsOnTable[index].getY() + newY < destination.getY() || newY > 0
+				&& cardsOnTable[index].getY() + newY > destination.getY())
 		{
-			cardsOnTable.get(index).setY(destination.getY());
+			cardsOnTable[index].setY(destination.getY());
 		}
 		else
 		{
-			cardsOnTable.get(index).setY(cardsOnTable.get(index).getY() + newY);
+			cardsOnTable[index].setY(cardsOnTable[index].getY() + newY);
 		}
 	}
 
@@ -195,7 +204,7 @@ public class GameTable
 	 */
 	private void moveTrick(Vector2i destination, GameTime gameTime)
 	{
-		for (int i = 0; i < cardsOnTable.size(); ++i)
+		for (int i = 0; i < numberOfPlayers; ++i)
 		{
 			moveCard(i, destination, gameTime);
 		}
@@ -206,11 +215,11 @@ public class GameTable
 		spriteBatch.draw(tableMat, 0, 0, BlendState.OPAQUE);
 
 		// Render the cardsOnTable if any
-		if (!cardsOnTable.isEmpty())
+		if (!isEmpty())
 		{
 			for (int i = 0; i < numberOfPlayers; ++i)
 			{
-				Card card = cardsOnTable.get(i);
+				Card card = cardsOnTable[i];
 				if (card == null)
 					continue;
 				spriteBatch.draw(card.getSprite(), card.getX(), card.getY(), BlendState.ALPHA_BLEND);
@@ -218,15 +227,83 @@ public class GameTable
 		}
 	}
 
+	/**
+	 * Puts the card played by a player on the table.
+	 * 
+	 * @param player
+	 *        The index of the player who played the card.
+	 * @param card
+	 *        The card played.
+	 */
+	public void playCard(int player, Card card)
+	{
+		if (cardsOnTable[player] == null)
+			++numberOfCardsOnTable;
+		cardsOnTable[player] = card;
+	}
+
+	/**
+	 * Removes all the cards from the table.
+	 */
+	public void clear()
+	{
+		Arrays.fill(cardsOnTable, null);
+		numberOfCardsOnTable = 0;
+	}
+
 	// ++++++++++ GETTERS ++++++++++ //
 
 	/**
-	 * Return this table's object containing the cards currently on the table.
+	 * Return the cards currently on the table, indexed by player. The returned
+	 * array must not be modified.
 	 * 
-	 * @return this table's cardsOnTable object.
+	 * @return the cards currently on the table.
 	 * */
-	public HashMap<Integer, Card> getCardsOnTable()
+	public Card[] getCardsOnTable()
 	{
 		return cardsOnTable;
 	}
+
+	/**
+	 * Return the card played by a player.
+	 * 
+	 * @param player
+	 *        The index of the player.
+	 * @return the card played by that player or {@code null} if he hasn't
+	 *         played yet or if the index is -1.
+	 */
+	public Card getCardOnTable(int player)
+	{
+		return player < 0 ? null : cardsOnTable[player];
+	}
+
+	/**
+	 * Return the number of cards currently on the table.
+	 * 
+	 * @return the number of cards currently on the table.
+	 */
+	public int getNumberOfCardsOnTable()
+	{
+		return numberOfCardsOnTable;
+	}
+
+	/**
+	 * Return {@code true} if there are no cards on the table.
+	 * 
+	 * @return {@code true} if there are no cards on the table.
+	 */
+	public boolean isEmpty()
+	{
+		return numberOfCardsOnTable == 0;
+	}
+
+	/**
+	 * Return {@code true} if every player has a card on the table.
+	 * 
+	 * @return {@code true} if every player has a card on the table.
+	 */
+	public boolean isFull()
+	{
+		return numberOfCardsOnTable == numberOfPlayers;
+	}
 }
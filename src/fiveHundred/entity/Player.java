@@ -33,6 +33,9 @@ public abstract class Player
 	// TODO : Not sure if i'm going to use it this way
 	protected Bid bid;
 
+	/** Where this player's hand and text are rendered on the screen. */
+	protected SeatLayout seatLayout;
+
 	public Player(String name)
 	{
 		hand = new Hand();
@@ -81,6 +84,18 @@ public abstract class Player
 		++tricksWon;
 	}
 
+	/**
+	 * Adds points to this player's score. The points can be negative when the
+	 * player's side didn't make its bid.
+	 * 
+	 * @param points
+	 *        The points to add.
+	 */
+	public void addScore(int points)
+	{
+		score += points;
+	}
+
 	/**
 	 * Reset this player's number of tricks won to 0.
 	 */
@@ -151,6 +166,16 @@ public abstract class Player
 		return bid == null ? false : true;
 	}
 
+	/**
+	 * Return this player's seat layout.
+	 * 
+	 * @return this player's seat layout.
+	 */
+	public SeatLayout getSeatLayout()
+	{
+		return seatLayout;
+	}
+
 	/**
 	 * Return true if it's this player's turn.
 	 * 
@@ -175,6 +200,29 @@ public abstract class Player
 		bid = value;
 	}
 
+	/**
+	 * Set the score to the specified value, typically when a saved game is
+	 * loaded.
+	 * 
+	 * @param value
+	 *        the new value to be assigned to this variable.
+	 */
+	public void setScore(int value)
+	{
+		score = value;
+	}
+
+	/**
+	 * Set the seat layout to the specified value.
+	 * 
+	 * @param value
+	 *        the new value to be assigned to this variable.
+	 */
+	public void setSeatLayout(SeatLayout value)
+	{
+		seatLayout = value;
+	}
+
 	// TODO : Check if needed after testing.
 	/**
 	 * Set yourTurn to the specified value.
@@ -0,0 +1,236 @@
+package fiveHundred.entity;
+
+import fiveHundred.cards.Hand;
+import gameCore.math.Vector2i;
+
+/**
+ * An object of type SeatLayout holds where everything belonging to one player
+ * is rendered on the screen: his hand, his name and score, the card he plays
+ * and where the tricks he wins go.
+ *
+ * <p>
+ * The human player always sits at the bottom of the screen. The next player in clockwise order sits
+ * on the left, the last one sits on the right and, with more than three players, the others sit at
+ * the top of the screen from left to right.
+ */
+public class SeatLayout
+{
+	/** The enumeration for the different ways a hand can be spread. */
+	public enum Orientation
+	{
+		/** The cards are spread from left to right. */
+		HORIZONTAL,
+		/** The cards are spread from top to bottom. */
+		VERTICAL
+	}
+
+	/** The way the hand of this player is spread. */
+	private final Orientation orientation;
+
+	/**
+	 * The center of the hand along its orientation. For a horizontal hand, this
+	 * is the x position of the center of the hand, otherwise the y position.
+	 */
+	private final int handCenter;
+
+	/**
+	 * The position of the hand across its orientation. For a horizontal hand,
+	 * this is the y position of the cards, otherwise the x position.
+	 */
+	private final int handPosition;
+
+	/** The amount of space in pixels between two cards of the hand. */
+	private final int cardSpacing;
+
+	/** The position at which the player's text should be rendered. */
+	private final Vector2i textPosition;
+
+	/** The destination of the card played by this player on the table. */
+	private final Vector2i playedCardDestination;
+
+	/** The destination of the tricks won by this player. */
+	private final Vector2i tricksDestination;
+
+	/** The default name of an AI player sitting at this seat. */
+	private final String seatName;
+
+	private SeatLayout(Orientation orientation, int handCenter, int handPosition, int cardSpacing,
+			Vector2i textPosition, Vector2i playedCardDestination, Vector2i tricksDestination, String seatName)
+	{
+		this.orientation = orientation;
+		this.handCenter = handCenter;
+		this.handPosition = handPosition;
+		this.cardSpacing = cardSpacing;
+		this.textPosition = textPosition;
+		this.playedCardDestination = playedCardDestination;
+		this.tricksDestination = tricksDestination;
+		this.seatName = seatName;
+	}
+
+	/**
+	 * Creates the layout of every seat at a table.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table, from 3 to 6.
+	 * @param screenWidth
+	 *        The width of the screen in pixels.
+	 * @param screenHeight
+	 *        The height of the screen in pixels.
+	 * @param cardWidth
+	 *        The width of a card in pixels.
+	 * @param cardHeight
+	 *        The height of a card in pixels.
+	 * @param handSize
+	 *        The number of cards dealt to each player.
+	 * @param cardSpacing
+	 *        The largest amount of space in pixels between two cards of a hand.
+	 * @return the layout of each seat, indexed by player.
+	 */
+	public static SeatLayout[] create(int numberOfPlayers, int screenWidth, int screenHeight, int cardWidth,
+			int cardHeight, int handSize, int cardSpacing)
+	{
+		SeatLayout[] layouts = new SeatLayout[numberOfPlayers];
+		int topSeats = numberOfPlayers - 3;
+		int sideHandHeight = cardHeight + cardSpacing * (handSize - 1);
+		int sideTextY = (screenHeight - sideHandHeight) / 2 - 25;
+		int bottomHandY = screenHeight - cardHeight - cardSpacing;
+
+		// The cards played on the table are placed on an ellipse around the
+		// center of the table, each one in the direction of its player. With
+		// players at the top, the ellipse is moved down to leave them room.
+		double tableCenterX = screenWidth / 2.0;
+		double tableCenterY, radiusX, radiusY;
+		if (topSeats == 0)
+		{
+			tableCenterY = 189;
+			radiusX = 92;
+			radiusY = 70;
+		}
+		else
+		{
+			int topLimit = cardHeight / 2 + 65;
+			tableCenterY = (topLimit + bottomHandY) / 2.0;
+			radiusX = 150;
+			radiusY = (bottomHandY - topLimit) / 2.0 - cardHeight / 2.0 - 1;
+		}
+
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			double angle = Math.toRadians(90 + seat * 360.0 / numberOfPlayers);
+			Vector2i playedCard = new Vector2i(
+					(int) Math.round(tableCenterX + Math.cos(angle) * radiusX - cardWidth / 2.0),
+					(int) Math.round(tableCenterY + Math.sin(angle) * radiusY - cardHeight / 2.0));
+
+			if (seat == 0)
+			{
+				layouts[seat] = new SeatLayout(Orientation.HORIZONTAL, screenWidth / 2, bottomHandY, cardSpacing,
+						new Vector2i((int) (screenWidth / 3.5), screenHeight - 161), playedCard,
+						new Vector2i((screenWidth - cardWidth) / 2, screenHeight), "You");
+			}
+			else if (seat == 1)
+			{
+				layouts[seat] = new SeatLayout(Orientation.VERTICAL, screenHeight / 2, 50, cardSpacing,
+						new Vector2i(50, sideTextY), playedCard, new Vector2i(0, (screenHeight - cardHeight) / 2),
+						"Left");
+			}
+			else if (seat == numberOfPlayers - 1)
+			{
+				layouts[seat] = new SeatLayout(Orientation.VERTICAL, screenHeight / 2, screenWidth - cardWidth - 50,
+						cardSpacing, new Vector2i(screenWidth - cardWidth - 50, sideTextY), playedCard,
+						new Vector2i(screenWidth, (screenHeight - cardHeight) / 2), "Right");
+			}
+			else
+			{
+				// The top seats share the space between the two side hands.
+				// Only the bottom half of their cards is visible.
+				int regionLeft = 50 + cardWidth + 10;
+				int regionWidth = screenWidth - 2 * regionLeft;
+				int index = seat - 2;
+				int centerX = regionLeft + regionWidth * (2 * index + 1) / (2 * topSeats);
+				int spacing = Math.min(cardSpacing, (regionWidth / topSeats - 10 - cardWidth) / (handSize - 1));
+				int handWidth = cardWidth + spacing * (handSize - 1);
+				int handY = -cardHeight / 2;
+				layouts[seat] = new SeatLayout(Orientation.HORIZONTAL, centerX, handY, spacing,
+						new Vector2i(centerX - handWidth / 2, handY + cardHeight + 40), playedCard,
+						new Vector2i(centerX - cardWidth / 2, -cardHeight), getTopSeatName(index, topSeats));
+			}
+		}
+
+		return layouts;
+	}
+
+	/**
+	 * Returns the name of a seat at the top of the screen.
+	 *
+	 * @param index
+	 *        The index of the seat, from left to right.
+	 * @param topSeats
+	 *        The number of seats at the top of the screen.
+	 * @return the name of the seat.
+	 */
+	private static String getTopSeatName(int index, int topSeats)
+	{
+		if (topSeats == 1 || (topSeats == 3 && index == 1))
+			return "Top";
+		return index == 0 ? "Top Left" : "Top Right";
+	}
+
+	/**
+	 * Sets the position of every card in a hand so they are spread around the
+	 * center of this seat's hand.
+	 *
+	 * @param hand
+	 *        The hand to lay out.
+	 */
+	public void layoutHand(Hand hand)
+	{
+		if (orientation == Orientation.HORIZONTAL)
+		{
+			for (int i = 0; i < hand.getCardCount(); ++i)
+			{
+				hand.getCard(i).setY(handPosition);
+			}
+			hand.updateXPosition(handCenter, cardSpacing);
+		}
+		else
+		{
+			for (int i = 0; i < hand.getCardCount(); ++i)
+			{
+				hand.getCard(i).setX(handPosition);
+			}
+			hand.updateYPosition(handCenter, cardSpacing);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public Orientation getOrientation()
+	{
+		return orientation;
+	}
+
+	public int getCardSpacing()
+	{
+		return cardSpacing;
+	}
+
+	public Vector2i getTextPosition()
+	{
+		return textPosition;
+	}
+
+	public Vector2i getPlayedCardDestination()
+	{
+		return playedCardDestination;
+	}
+
+	public Vector2i getTricksDestination()
+	{
+		return tricksDestination;
+	}
+
+	public String getSeatName()
+	{
+		return seatName;
+	}
+}
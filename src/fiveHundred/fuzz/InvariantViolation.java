@@ -0,0 +1,69 @@
+package fiveHundred.fuzz;
+
+/**
+ * Thrown by the {@link RulesFuzzer} when a random game breaks an invariant.
+ * The seed, the step and the options are enough to play the game again up to
+ * the failure.
+ */
+public class InvariantViolation extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The invariant broken, without the details of the failure. */
+	private final String invariant;
+
+	/** The seed of the game. */
+	private final long seed;
+
+	/** The step at which the invariant was broken, 0 being the deal. */
+	private final int step;
+
+	/** The options the game was played with. */
+	private final int options;
+
+	/**
+	 * Creates an exception.
+	 *
+	 * @param invariant
+	 *        The invariant broken, the same for every failure of it.
+	 * @param details
+	 *        What broke it, or {@code null}.
+	 * @param seed
+	 *        The seed of the game.
+	 * @param step
+	 *        The step at which the invariant was broken, 0 being the deal.
+	 * @param options
+	 *        The options the game was played with.
+	 */
+	public InvariantViolation(String invariant, String details, long seed, int step, int options)
+	{
+		super(invariant + (details == null ? "" : ": " + details) + " (seed " + seed + ", step " + step
+				+ ", options " + options + ")");
+		this.invariant = invariant;
+		this.seed = seed;
+		this.step = step;
+		this.options = options;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public String getInvariant()
+	{
+		return invariant;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public int getStep()
+	{
+		return step;
+	}
+
+	public int getOptions()
+	{
+		return options;
+	}
+}
@@ -0,0 +1,208 @@
+package fiveHundred.fuzz;
+
+import fiveHundred.cards.Card;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+/**
+ * A deliberately naive implementation of the rules, written from their
+ * description rather than from {@link FiveHundredRules}, which the fuzzer
+ * compares with the rules and with the bit set fast paths of the engine. It
+ * favours obviousness over speed: no tables, no bit sets, and the trick
+ * winner is found by looking at every card instead of comparing them in turn.
+ */
+public class ReferenceRules
+{
+	/** The values of the plain cards of a suit, from the lowest to the highest. */
+	private static final int[] VALUE_ORDER = { Card.ACE_LOW, 2, 3, 4, 5, 6, 7, 8, 9, 10, Card.ELEVEN,
+			Card.TWELVE, Card.THIRTEEN, Card.JACK, Card.QUEEN, Card.KING, Card.ACE_HIGH };
+
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private ReferenceRules() {}
+
+	/**
+	 * Returns the suit a card belongs to for a contract: the Joker and the
+	 * Jack of the same color as the trump belong to the trump suit. Without
+	 * trump, the Joker is a suit of its own.
+	 *
+	 * @param suit
+	 *        The suit printed on the card.
+	 * @param value
+	 *        The value printed on the card.
+	 * @param bid
+	 *        The contract.
+	 * @return the suit of the card for the contract.
+	 */
+	public static int suit(int suit, int value, Bid bid)
+	{
+		if (!bid.hasTrump())
+			return suit;
+		if (suit == Card.JOKER)
+			return bid.getTrumpSuit();
+		if (value == Card.JACK && suit == sameColor(bid.getTrumpSuit()))
+			return bid.getTrumpSuit();
+		return suit;
+	}
+
+	/**
+	 * Returns the strength of a card among the cards of its suit for a
+	 * contract. The Joker beats everything, then with a trump come the Jack of
+	 * trump and the Jack of the same color, then the plain cards from the Ace
+	 * down.
+	 *
+	 * @param suit
+	 *        The suit printed on the card.
+	 * @param value
+	 *        The value printed on the card.
+	 * @param bid
+	 *        The contract.
+	 * @return the strength of the card. Only its order matters.
+	 */
+	public static int strength(int suit, int value, Bid bid)
+	{
+		if (suit == Card.JOKER)
+			return 100;
+		if (bid.hasTrump() && value == Card.JACK)
+		{
+			if (suit == bid.getTrumpSuit())
+				return 99;
+			if (suit == sameColor(bid.getTrumpSuit()))
+				return 98;
+		}
+		for (int i = 0; i < VALUE_ORDER.length; ++i)
+		{
+			if (VALUE_ORDER[i] == value)
+				return i;
+		}
+		throw new IllegalArgumentException("Unknown card value: " + value);
+	}
+
+	/**
+	 * Returns the winner of a complete trick: of the cards of the suit led and
+	 * the Joker, the strongest one wins.
+	 *
+	 * @param suits
+	 *        The suit printed on each card on the table, indexed by player.
+	 * @param values
+	 *        The value printed on each card on the table, indexed by player.
+	 * @param leader
+	 *        The player who led the trick.
+	 * @param bid
+	 *        The contract.
+	 * @return the index of the player who won the trick.
+	 */
+	public static int trickWinner(int[] suits, int[] values, int leader, Bid bid)
+	{
+		int leadSuit = suit(suits[leader], values[leader], bid);
+		int winner = -1, bestStrength = -1;
+		for (int player = 0; player < suits.length; ++player)
+		{
+			int cardSuit = suit(suits[player], values[player], bid);
+			if (cardSuit != leadSuit && cardSuit != Card.JOKER)
+				continue;
+			int cardStrength = strength(suits[player], values[player], bid);
+			if (cardStrength > bestStrength)
+			{
+				winner = player;
+				bestStrength = cardStrength;
+			}
+		}
+		return winner;
+	}
+
+	/**
+	 * Returns whether a player may play a card: always when leading, when the
+	 * card follows the suit led or is the Joker, and otherwise only if no card
+	 * in his hand follows the suit led.
+	 *
+	 * @param handSuits
+	 *        The suit printed on each card of the hand, including the card.
+	 * @param handValues
+	 *        The value printed on each card of the hand.
+	 * @param handSize
+	 *        The number of cards in the hand.
+	 * @param suit
+	 *        The suit printed on the card.
+	 * @param value
+	 *        The value printed on the card.
+	 * @param leadSuit
+	 *        The suit printed on the card led, -1 if the player leads.
+	 * @param leadValue
+	 *        The value printed on the card led.
+	 * @param bid
+	 *        The contract.
+	 * @return {@code true} if the card may be played.
+	 */
+	public static boolean isLegal(int[] handSuits, int[] handValues, int handSize, int suit, int value,
+			int leadSuit, int leadValue, Bid bid)
+	{
+		if (leadSuit == -1)
+			return true;
+		int suitLed = suit(leadSuit, leadValue, bid);
+		int cardSuit = suit(suit, value, bid);
+		if (cardSuit == suitLed || cardSuit == Card.JOKER)
+			return true;
+		for (int i = 0; i < handSize; ++i)
+		{
+			if (suit(handSuits[i], handValues[i], bid) == suitLed)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the points a player scores at the end of a round.
+	 *
+	 * @param bid
+	 *        The contract, {@link Bid#PASS} if everyone passed.
+	 * @param contractor
+	 *        The index of the contractor.
+	 * @param tricksWon
+	 *        The number of tricks won by each player, indexed by player.
+	 * @param seat
+	 *        The index of the player.
+	 * @return the points scored by the player.
+	 */
+	public static int score(Bid bid, int contractor, int[] tricksWon, int seat)
+	{
+		int numberOfPlayers = tricksWon.length;
+		boolean hasPartners = numberOfPlayers == 4 || numberOfPlayers == 6;
+		int sideTricks = 0;
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			if (player == seat || (hasPartners && (player - seat) % 2 == 0))
+				sideTricks += tricksWon[player];
+		}
+
+		boolean isContracting = seat == contractor || (hasPartners && (seat - contractor) % 2 == 0);
+		if (bid == Bid.PASS || !isContracting)
+			return 10 * sideTricks;
+		if (sideTricks < bid.getTricksToWin())
+			return -bid.getScoreValue();
+		if (sideTricks == 10 && bid.getScoreValue() < 250)
+			return 250;
+		return bid.getScoreValue();
+	}
+
+	/**
+	 * Returns the suit of the same color as a plain suit.
+	 */
+	private static int sameColor(int suit)
+	{
+		switch (suit)
+		{
+			case Card.CLUBS:
+				return Card.SPADES;
+			case Card.SPADES:
+				return Card.CLUBS;
+			case Card.DIAMONDS:
+				return Card.HEARTS;
+			case Card.HEARTS:
+				return Card.DIAMONDS;
+			default:
+				throw new IllegalArgumentException("Not a plain suit: " + suit);
+		}
+	}
+}
@@ -0,0 +1,769 @@
+package fiveHundred.fuzz;
+
+import fiveHundred.cards.Card;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.cards.Hand;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+import gameCore.util.UnsynchronizedRandom;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays random rounds on the {@link PlayState} engine and checks the rules
+ * after every step. Each round is drawn from its seed alone: the deck, the
+ * deal, the contract, the contractor and every card played. Each option draws
+ * from its own generator seeded from the same seed, so the same seed plays
+ * the same cards with any options, and an option makes the same draws with or
+ * without the other. The engine is
+ * compared at each step with {@link FiveHundredRules}, which works on
+ * {@link Card} and {@link Hand} objects, and with the naive
+ * {@link ReferenceRules}:
+ * <ul>
+ * <li>every card is in exactly one hand, the widow or the cards played;</li>
+ * <li>the legal moves of the engine are the cards the rules let the player play;</li>
+ * <li>the winner of each trick is the same for the engine, the rules and the reference;</li>
+ * <li>the scores of the rules are the scores of the reference.</li>
+ * </ul>
+ * Optionally, it also tries illegal moves, cards not held and cards which don't follow suit, which
+ * must be refused without changing the state, and takes moves back, which must restore the state
+ * exactly.
+ *
+ * <p>
+ * A failing round is shrunk while it still breaks the same invariant: first to the fewest options,
+ * then to the earliest step, looking among the lower seeds for a deal failing sooner. An instance
+ * of this class must only be used by one thread at a time.
+ */
+public class RulesFuzzer
+{
+	/** Option to try moves which must be refused at some steps. */
+	public static final int PROBE_ILLEGAL_MOVES = 1;
+
+	/** Option to take moves back and play them again at some steps. */
+	public static final int TAKE_BACK_MOVES = 2;
+
+	/** Every option. */
+	public static final int ALL_OPTIONS = PROBE_ILLEGAL_MOVES | TAKE_BACK_MOVES;
+
+	/** The number of seeds a thread takes at once. */
+	private static final int SEEDS_PER_BATCH = 4096;
+
+	/** The number of lowest seeds tried when shrinking a failure. */
+	private static final int SHRINK_SEEDS = 4096;
+
+	/** Mixed into the seed of a round to seed the illegal moves. */
+	private static final long PROBE_SEED = 0x9E3779B97F4A7C15L;
+
+	/** Mixed into the seed of a round to seed the moves taken back. */
+	private static final long TAKE_BACK_SEED = 0xD1B54A32D192ED03L;
+
+	/** Every bid, including {@link Bid#PASS}, which plays a round without contract. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** Every deck, one for each number of players. */
+	private static final DeckSpec[] DECKS = DeckSpec.values();
+
+	/** The largest number of players at a table. */
+	private static final int MAX_PLAYERS = 6;
+
+	/** Draws the deal and the cards played in a round from its seed. */
+	private final UnsynchronizedRandom random;
+
+	/** Draws the illegal moves from the seed. */
+	private final UnsynchronizedRandom probeRandom;
+
+	/** Draws the moves taken back from the seed. */
+	private final UnsynchronizedRandom takeBackRandom;
+
+	/** The engine for each deck, indexed by the ordinal of the deck. */
+	private final PlayState[] states;
+
+	/** The cards of each deck, indexed by the ordinal of the deck, then by id. */
+	private final Card[][] decks;
+
+	/** The hand of each player in the reference state. */
+	private final Hand[] hands;
+
+	/** The cards on the table in the reference state, indexed by player. */
+	private final Card[] table;
+
+	/** The tricks won by each player in the reference state, for each number of players. */
+	private final int[][] tricksWon;
+
+	/** The points scored by each player, for each number of players. */
+	private final int[][] scoreDeltas;
+
+	/** Scratch arrays holding the suits and values of cards. */
+	private final int[] suits, values, tableSuits, tableValues;
+
+	/** The deck of the current round. */
+	private DeckSpec deckSpec;
+
+	/** The engine of the current round. */
+	private PlayState state;
+
+	/** The cards of the current round, indexed by id. */
+	private Card[] cards;
+
+	/** The contract of the current round. */
+	private Bid bid;
+
+	/** The widow of the current round as a bit set of card ids. */
+	private long widow;
+
+	/** The player who led the trick on the table in the reference state, -1 if none. */
+	private int leader;
+
+	/** The player who has to play in the reference state. */
+	private int seatToPlay;
+
+	/** The seed, step and options of the current round, for the reports. */
+	private long seed;
+	private int step;
+	private int options;
+
+	/**
+	 * Creates a fuzzer.
+	 */
+	public RulesFuzzer()
+	{
+		random = new UnsynchronizedRandom();
+		probeRandom = new UnsynchronizedRandom();
+		takeBackRandom = new UnsynchronizedRandom();
+		states = new PlayState[DECKS.length];
+		decks = new Card[DECKS.length][];
+		for (DeckSpec spec : DECKS)
+		{
+			states[spec.ordinal()] = new PlayState(spec);
+			decks[spec.ordinal()] = new Card[spec.getDeckSize()];
+			for (int id = 0; id < spec.getDeckSize(); ++id)
+			{
+				decks[spec.ordinal()][id] = new Card(spec.getValue(id), spec.getSuit(id), null, id);
+			}
+		}
+		hands = new Hand[MAX_PLAYERS];
+		for (int i = 0; i < MAX_PLAYERS; ++i)
+		{
+			hands[i] = new Hand();
+		}
+		table = new Card[MAX_PLAYERS];
+		tricksWon = new int[MAX_PLAYERS + 1][];
+		scoreDeltas = new int[MAX_PLAYERS + 1][];
+		for (int players = 0; players <= MAX_PLAYERS; ++players)
+		{
+			tricksWon[players] = new int[players];
+			scoreDeltas[players] = new int[players];
+		}
+		suits = new int[Long.SIZE];
+		values = new int[Long.SIZE];
+		tableSuits = new int[MAX_PLAYERS];
+		tableValues = new int[MAX_PLAYERS];
+	}
+
+	/**
+	 * Plays a random round and checks it.
+	 *
+	 * @param seed
+	 *        The seed the round is drawn from.
+	 * @param maxSteps
+	 *        The largest number of cards to play.
+	 * @param options
+	 *        The options, from {@link #PROBE_ILLEGAL_MOVES} and
+	 *        {@link #TAKE_BACK_MOVES}.
+	 * @return the number of cards played.
+	 * @throws InvariantViolation
+	 *         if the round breaks an invariant.
+	 */
+	public int play(long seed, int maxSteps, int options)
+	{
+		this.seed = seed;
+		this.options = options;
+		step = 0;
+		// Consecutive seeds would start the generators alike.
+		random.setSeed(mix(seed));
+		probeRandom.setSeed(mix(seed ^ PROBE_SEED));
+		takeBackRandom.setSeed(mix(seed ^ TAKE_BACK_SEED));
+
+		deal();
+		checkState();
+		while (!state.isRoundOver() && step < maxSteps)
+		{
+			++step;
+			if ((options & PROBE_ILLEGAL_MOVES) != 0 && probeRandom.nextInt(4) == 0)
+				probeIllegalMove();
+			if ((options & TAKE_BACK_MOVES) != 0 && state.getMoveCount() > 0 && takeBackRandom.nextInt(8) == 0)
+				takeBackMove();
+
+			long legalMoves = checkLegalMoves();
+			int choice = random.nextInt(Long.bitCount(legalMoves));
+			for (int i = 0; i < choice; ++i)
+			{
+				legalMoves &= legalMoves - 1;
+			}
+			playCard(Long.numberOfTrailingZeros(legalMoves));
+			checkState();
+		}
+		if (state.isRoundOver())
+			checkScores();
+		return step;
+	}
+
+	/**
+	 * Shrinks a failing round while it still breaks the same invariant. Since
+	 * the options don't change the cards played, the round is first played
+	 * again with each subset of its options, up to the step of the failure.
+	 * Then the lower seeds are played with the fewest options found, up to
+	 * that step, for a deal which fails sooner.
+	 *
+	 * @param failure
+	 *        The failure of the round.
+	 * @return the failure of the smallest round which still fails, comparing
+	 *         the number of options, then the step, then the seed.
+	 */
+	public InvariantViolation shrink(InvariantViolation failure)
+	{
+		InvariantViolation smallest = failure;
+		for (int candidate = 0; candidate < failure.getOptions(); ++candidate)
+		{
+			// Only the subsets of the options the round failed with.
+			if ((candidate & ~failure.getOptions()) != 0)
+				continue;
+			smallest = smaller(smallest, replay(failure.getSeed(), failure.getStep(), candidate, failure));
+		}
+		for (long candidate = 0; candidate < SHRINK_SEEDS && candidate < smallest.getSeed(); ++candidate)
+		{
+			smallest = smaller(smallest, replay(candidate, smallest.getStep(), smallest.getOptions(), failure));
+		}
+		return smallest;
+	}
+
+	/**
+	 * Plays a round again and returns its failure if it breaks the same
+	 * invariant as another failure, {@code null} otherwise.
+	 */
+	private InvariantViolation replay(long seed, int maxSteps, int options, InvariantViolation failure)
+	{
+		try
+		{
+			play(seed, maxSteps, options);
+		}
+		catch (InvariantViolation e)
+		{
+			if (e.getInvariant().equals(failure.getInvariant()))
+				return e;
+		}
+		return null;
+	}
+
+	/**
+	 * Draws the deck, the deal, the contract and the contractor, and sets the
+	 * engine and the reference state.
+	 */
+	private void deal()
+	{
+		deckSpec = DECKS[random.nextInt(DECKS.length)];
+		state = states[deckSpec.ordinal()];
+		cards = decks[deckSpec.ordinal()];
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+
+		int[] order = new int[deckSpec.getDeckSize()];
+		deckSpec.shuffle(order, random);
+		long[] dealt = new long[numberOfPlayers + 1];
+		for (int position = 0; position < order.length; ++position)
+		{
+			dealt[deckSpec.getDealTarget(position)] |= 1L << order[position];
+		}
+		widow = dealt[numberOfPlayers];
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			hands[i].clear();
+			for (long bits = dealt[i]; bits != 0; bits &= bits - 1)
+			{
+				hands[i].addCard(cards[Long.numberOfTrailingZeros(bits)]);
+			}
+		}
+
+		bid = BIDS[random.nextInt(BIDS.length)];
+		int contractor = random.nextInt(numberOfPlayers);
+		int[] emptyTable = new int[numberOfPlayers];
+		Arrays.fill(emptyTable, -1);
+		state.set(bid, contractor, dealt, emptyTable, -1, contractor);
+
+		Arrays.fill(table, null);
+		Arrays.fill(tricksWon[numberOfPlayers], 0);
+		leader = -1;
+		seatToPlay = contractor;
+	}
+
+	/**
+	 * Plays a card on the engine and in the reference state, and checks the
+	 * winner of the trick if the card completes it.
+	 */
+	private void playCard(int card)
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		int tricksPlayed = state.getTricksPlayed();
+		state.makeMove(card);
+
+		hands[seatToPlay].removeCard(cards[card]);
+		table[seatToPlay] = cards[card];
+		if (leader == -1)
+			leader = seatToPlay;
+		seatToPlay = (seatToPlay + 1) % numberOfPlayers;
+		if (seatToPlay != leader)
+			return;
+
+		// The trick is complete.
+		Card[] trick = Arrays.copyOf(table, numberOfPlayers);
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			tableSuits[player] = trick[player].getSuit();
+			tableValues[player] = trick[player].getValue();
+		}
+		int rulesWinner = FiveHundredRules.trickWinner(trick, leader, bid);
+		int referenceWinner = ReferenceRules.trickWinner(Arrays.copyOf(tableSuits, numberOfPlayers), Arrays
+				.copyOf(tableValues, numberOfPlayers), leader, bid);
+		int engineWinner = state.getTrickWinner(tricksPlayed);
+		if (state.getTricksPlayed() != tricksPlayed + 1)
+			fail("The trick was not completed");
+		if (rulesWinner != referenceWinner)
+			fail("The rules and the reference disagree on the winner of the trick", rulesWinner + " and "
+					+ referenceWinner);
+		if (engineWinner != referenceWinner)
+			fail("The engine and the reference disagree on the winner of the trick", engineWinner + " and "
+					+ referenceWinner);
+
+		++tricksWon[numberOfPlayers][referenceWinner];
+		Arrays.fill(table, null);
+		leader = -1;
+		seatToPlay = referenceWinner;
+	}
+
+	/**
+	 * Checks that the legal moves of the engine are the cards the rules and
+	 * the reference let the player play.
+	 *
+	 * @return the legal moves of the engine.
+	 */
+	private long checkLegalMoves()
+	{
+		long legalMoves = state.getLegalMoves();
+		Hand hand = hands[seatToPlay];
+		Card lead = leader == -1 ? null : table[leader];
+		int handSize = hand.getCardCount();
+		for (int i = 0; i < handSize; ++i)
+		{
+			suits[i] = hand.getCard(i).getSuit();
+			values[i] = hand.getCard(i).getValue();
+		}
+
+		long rulesMoves = 0, referenceMoves = 0;
+		for (int i = 0; i < handSize; ++i)
+		{
+			Card card = hand.getCard(i);
+			if (FiveHundredRules.isValidCard(hand, card, lead, bid))
+				rulesMoves |= 1L << card.getId();
+			if (ReferenceRules.isLegal(suits, values, handSize, suits[i], values[i], lead == null ? -1 : lead
+					.getSuit(), lead == null ? 0 : lead.getValue(), bid))
+				referenceMoves |= 1L << card.getId();
+		}
+		if (rulesMoves != referenceMoves)
+			fail("The rules and the reference disagree on the legal moves", Long.toHexString(rulesMoves)
+					+ " and " + Long.toHexString(referenceMoves));
+		if (legalMoves != referenceMoves)
+			fail("The engine and the reference disagree on the legal moves", Long.toHexString(legalMoves)
+					+ " and " + Long.toHexString(referenceMoves));
+		if (legalMoves == 0)
+			fail("The player to play has no legal move");
+		return legalMoves;
+	}
+
+	/**
+	 * Checks that the engine matches the reference state and that every card
+	 * is in exactly one place.
+	 */
+	private void checkState()
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		long allCards = -1L >>> (Long.SIZE - deckSpec.getDeckSize());
+		long union = widow | state.getPlayedCards();
+		int count = Long.bitCount(widow) + Long.bitCount(state.getPlayedCards());
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			long engineHand = state.getHand(player);
+			long referenceHand = 0;
+			for (int i = 0; i < hands[player].getCardCount(); ++i)
+			{
+				referenceHand |= 1L << hands[player].getCard(i).getId();
+			}
+			if (engineHand != referenceHand)
+				fail("A hand is wrong", "player " + player);
+			union |= engineHand;
+			count += Long.bitCount(engineHand);
+		}
+		if (union != allCards || count != deckSpec.getDeckSize())
+			fail("The cards are not conserved", count + " of " + deckSpec.getDeckSize() + " cards in play");
+
+		int cardsInTrick = 0, tricks = 0;
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			if ((state.getCardOnTable(player) == -1) != (table[player] == null))
+				fail("The table is wrong", "seat " + player);
+			if (table[player] != null)
+			{
+				if (state.getCardOnTable(player) != table[player].getId())
+					fail("The table is wrong", "seat " + player);
+				++cardsInTrick;
+			}
+			if (state.getTricksWon(player) != tricksWon[numberOfPlayers][player])
+				fail("The tricks won are wrong", "player " + player);
+			tricks += state.getTricksWon(player);
+		}
+		if (state.getCardsInTrick() != cardsInTrick)
+			fail("The number of cards in the trick is wrong");
+		if (state.getTricksPlayed() != tricks)
+			fail("The tricks won don't add up to the tricks played");
+		if (state.getMoveCount() != tricks * numberOfPlayers + cardsInTrick)
+			fail("The number of moves is wrong");
+		if (state.getLeader() != leader)
+			fail("The leader is wrong");
+		if (state.getSeatToPlay() != seatToPlay)
+			fail("The player to play is wrong");
+	}
+
+	/**
+	 * Checks the scores of a complete round against the reference.
+	 */
+	private void checkScores()
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		int[] won = tricksWon[numberOfPlayers];
+		int[] deltas = scoreDeltas[numberOfPlayers];
+		if (state.getTricksPlayed() != DeckSpec.HAND_SIZE)
+			fail("The round ended early", state.getTricksPlayed() + " tricks");
+		FiveHundredRules.scoreRound(bid, state.getContractor(), won, deltas);
+		int defenderPoints = 0, defenderTricks = 0;
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			int expected = ReferenceRules.score(bid, state.getContractor(), won, seat);
+			if (deltas[seat] != expected)
+				fail("The rules and the reference disagree on the scores", "player " + seat + " scored " + deltas[seat]
+						+ " instead of " + expected);
+			if (bid == Bid.PASS || !FiveHundredRules.arePartners(seat, state.getContractor(), numberOfPlayers))
+			{
+				defenderPoints += deltas[seat];
+				for (int other = 0; other < numberOfPlayers; ++other)
+				{
+					if (FiveHundredRules.arePartners(seat, other, numberOfPlayers))
+						defenderTricks += won[other];
+				}
+			}
+		}
+		if (defenderPoints != defenderTricks * FiveHundredRules.DEFENDER_TRICK_SCORE)
+			fail("The defenders' points don't add up to their tricks");
+	}
+
+	/**
+	 * Tries to play a card the player doesn't hold, a card which doesn't
+	 * follow the suit led while the player can, or to take back a move before
+	 * the first one, and checks that the engine refuses it without changing
+	 * its state.
+	 */
+	private void probeIllegalMove()
+	{
+		long before = fingerprint();
+		long held = state.getHand(seatToPlay);
+		long revokes = held & ~state.getLegalMoves();
+		int probe = probeRandom.nextInt(3);
+		if (probe == 0 && state.getMoveCount() == 0)
+		{
+			try
+			{
+				state.unmakeMove();
+				fail("A move was taken back before the first move");
+			}
+			catch (IllegalStateException e)
+			{
+				// Expected.
+			}
+		}
+		else if (probe == 1 && revokes != 0)
+		{
+			int card = pickCard(revokes);
+			try
+			{
+				state.makeMove(card);
+				fail("A card which doesn't follow suit was played", "card " + card);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// Expected.
+			}
+		}
+		else
+		{
+			int card = pickCard(~held & (-1L >>> (Long.SIZE - deckSpec.getDeckSize())));
+			try
+			{
+				state.makeMove(card);
+				fail("A card was played by a player who doesn't hold it", "card " + card);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// Expected.
+			}
+		}
+		if (fingerprint() != before)
+			fail("A refused move changed the state");
+	}
+
+	/**
+	 * Draws one of a set of cards for an illegal move.
+	 */
+	private int pickCard(long cards)
+	{
+		int choice = probeRandom.nextInt(Long.bitCount(cards));
+		for (int i = 0; i < choice; ++i)
+		{
+			cards &= cards - 1;
+		}
+		return Long.numberOfTrailingZeros(cards);
+	}
+
+	/**
+	 * Takes the last move back, checks the engine went back one move, then
+	 * plays the move again and checks the state is restored exactly.
+	 */
+	private void takeBackMove()
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		long before = fingerprint();
+		int moveCount = state.getMoveCount();
+		int cardsInTrick = state.getCardsInTrick();
+
+		// The last card played is on the table, or in the last trick if it
+		// completed it.
+		int player, card;
+		if (cardsInTrick > 0)
+		{
+			player = (seatToPlay + numberOfPlayers - 1) % numberOfPlayers;
+			card = state.getCardOnTable(player);
+		}
+		else
+		{
+			int trick = state.getTricksPlayed() - 1;
+			player = (state.getTrickLeader(trick) + numberOfPlayers - 1) % numberOfPlayers;
+			card = state.getTrickCard(trick, player);
+		}
+
+		state.unmakeMove();
+		if (state.getMoveCount() != moveCount - 1)
+			fail("Taking a move back didn't remove one move");
+		if (state.getSeatToPlay() != player)
+			fail("Taking a move back didn't give the turn back", "player " + player);
+		if ((state.getHand(player) & 1L << card) == 0 || state.getCardOnTable(player) != -1)
+			fail("The card taken back didn't return to its player");
+		if (state.getCardsInTrick() != (cardsInTrick == 0 ? numberOfPlayers : cardsInTrick) - 1)
+			fail("Taking a move back left the wrong trick on the table");
+
+		state.makeMove(card);
+		if (fingerprint() != before)
+			fail("Playing a move taken back didn't restore the state");
+	}
+
+	/**
+	 * Returns a hash of everything the engine exposes about the round.
+	 */
+	private long fingerprint()
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		long hash = state.getPlayedCards();
+		hash = hash * 31 + state.getLeader();
+		hash = hash * 31 + state.getSeatToPlay();
+		hash = hash * 31 + state.getCardsInTrick();
+		hash = hash * 31 + state.getTricksPlayed();
+		hash = hash * 31 + state.getMoveCount();
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			hash = hash * 31 + state.getHand(player);
+			hash = hash * 31 + state.getCannotHold(player);
+			hash = hash * 31 + state.getCardOnTable(player);
+			hash = hash * 31 + state.getTricksWon(player);
+		}
+		for (int trick = 0; trick < state.getTricksPlayed(); ++trick)
+		{
+			hash = hash * 31 + state.getTrickWinner(trick);
+		}
+		return hash;
+	}
+
+	/**
+	 * Throws an {@link InvariantViolation}.
+	 */
+	private void fail(String invariant)
+	{
+		fail(invariant, null);
+	}
+
+	/**
+	 * Throws an {@link InvariantViolation}. The details are only built when an
+	 * invariant is broken, since building them at every check would cost more
+	 * than the checks.
+	 */
+	private void fail(String invariant, String details)
+	{
+		throw new InvariantViolation(invariant, details, seed, step, options);
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Scrambles the bits of a seed, so that close seeds give unrelated
+	 * generators.
+	 */
+	private static long mix(long seed)
+	{
+		seed = (seed ^ seed >>> 30) * 0xBF58476D1CE4E5B9L;
+		seed = (seed ^ seed >>> 27) * 0x94D049BB133111EBL;
+		return seed ^ seed >>> 31;
+	}
+
+	/**
+	 * Returns the smaller of two failures of the same invariant, comparing the
+	 * number of options, then the step, then the seed.
+	 *
+	 * @param smallest
+	 *        The smallest failure so far.
+	 * @param candidate
+	 *        Another failure, or {@code null}.
+	 * @return the smaller failure.
+	 */
+	private static InvariantViolation smaller(InvariantViolation smallest, InvariantViolation candidate)
+	{
+		if (candidate == null)
+			return smallest;
+		int order = Integer.compare(Integer.bitCount(candidate.getOptions()), Integer.bitCount(smallest
+				.getOptions()));
+		if (order == 0)
+			order = Integer.compare(candidate.getStep(), smallest.getStep());
+		if (order == 0)
+			order = Long.compare(candidate.getSeed(), smallest.getSeed());
+		return order < 0 ? candidate : smallest;
+	}
+
+	/**
+	 * Plays a range of seeds on several threads until every seed is played or
+	 * a round fails.
+	 *
+	 * @param firstSeed
+	 *        The first seed to play.
+	 * @param seedCount
+	 *        The number of seeds to play.
+	 * @param options
+	 *        The options every round is played with.
+	 * @param threadCount
+	 *        The number of threads playing the rounds.
+	 * @return the shrunk failure of the lowest failing seed found, or
+	 *         {@code null} if every round passed.
+	 * @throws InterruptedException
+	 *         if the current thread is interrupted while waiting.
+	 */
+	public static InvariantViolation run(long firstSeed, long seedCount, int options, int threadCount)
+			throws InterruptedException
+	{
+		long endSeed = firstSeed + seedCount;
+		AtomicLong nextSeed = new AtomicLong(firstSeed);
+		InvariantViolation[] failures = new InvariantViolation[threadCount];
+
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; ++i)
+		{
+			int index = i;
+			threads[i] = new Thread(() ->
+			{
+				RulesFuzzer fuzzer = new RulesFuzzer();
+				long start;
+				while ((start = nextSeed.getAndAdd(SEEDS_PER_BATCH)) < endSeed)
+				{
+					long end = Math.min(endSeed, start + SEEDS_PER_BATCH);
+					for (long seed = start; seed < end; ++seed)
+					{
+						try
+						{
+							fuzzer.play(seed, Integer.MAX_VALUE, options);
+						}
+						catch (InvariantViolation e)
+						{
+							failures[index] = fuzzer.shrink(e);
+							// Stop the other threads once their batch is done.
+							nextSeed.set(endSeed);
+							return;
+						}
+					}
+				}
+			}, "Fuzzer " + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		InvariantViolation lowest = null;
+		for (InvariantViolation failure : failures)
+		{
+			if (failure != null && (lowest == null || failure.getSeed() < lowest.getSeed()))
+				lowest = failure;
+		}
+		return lowest;
+	}
+
+	/**
+	 * Fuzzes the rules from the command line.
+	 *
+	 * <p>
+	 * Arguments: the number of rounds, then optionally the number of threads and the first seed.
+	 * With {@code --replay <seed> [steps] [options]}, plays a single round again, such as one
+	 * reported as a failure.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		if (args.length > 1 && args[0].equals("--replay"))
+		{
+			long seed = Long.parseLong(args[1]);
+			int steps = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+			int options = args.length > 3 ? Integer.parseInt(args[3]) : ALL_OPTIONS;
+			int played = new RulesFuzzer().play(seed, steps, options);
+			System.out.println("Seed " + seed + " passed after " + played + " steps.");
+			return;
+		}
+		if (args.length < 1)
+		{
+			System.err.println("Usage: RulesFuzzer <rounds> [threads] [first seed]");
+			System.err.println("       RulesFuzzer --replay <seed> [steps] [options]");
+			System.exit(1);
+		}
+
+		long rounds = Long.parseLong(args[0]);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long firstSeed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+		long start = System.nanoTime();
+		InvariantViolation failure = run(firstSeed, rounds, ALL_OPTIONS, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (failure != null)
+		{
+			System.out.println("FAILED: " + failure.getMessage());
+			System.out.println("Replay with: --replay " + failure.getSeed() + " " + failure.getStep() + " "
+					+ failure.getOptions());
+			System.exit(2);
+		}
+		System.out.printf("%d rounds passed in %.2f s (%.0f rounds/min) on %d threads%n", rounds, seconds, rounds
+				* 60 / seconds, threads);
+	}
+}
@@ -0,0 +1,260 @@
+package fiveHundred.learn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A linear evaluation model with two heads: one estimates the tricks a hand
+ * wins for a contract, the other the tricks a player's side wins from the
+ * trick being played to the end of the round if he plays a card. Each head is
+ * a flat array of weights multiplied with a feature vector from
+ * {@link Features}, so an evaluation is a few dozen multiplications and
+ * allocates nothing.
+ *
+ * <p>
+ * A model is trained by stochastic gradient descent on the squared error. It can be read by any
+ * number of threads, but must not be trained while it is used.
+ */
+public class EvaluationModel
+{
+	/** The first 4 bytes of every model file: "FHEM". */
+	public static final int MAGIC = 0x4648454D;
+
+	/** The version of the format written by this code. */
+	public static final short VERSION = 1;
+
+	/** The name of the file holding the newest model in its directory. */
+	public static final String DEFAULT_FILE_NAME = "evaluation.fhm";
+
+	/** The name of the model, including its version, such as {@code model-3}. */
+	private final String name;
+
+	/** The weights of the bidding head, indexed by feature. */
+	private final float[] bidWeights;
+
+	/** The weights of the playing head, indexed by feature. */
+	private final float[] playWeights;
+
+	/**
+	 * Creates a model whose weights are all zero.
+	 *
+	 * @param name
+	 *        The name of the model, including its version.
+	 */
+	public EvaluationModel(String name)
+	{
+		this(name, new float[Features.BID_FEATURE_COUNT], new float[Features.PLAY_FEATURE_COUNT]);
+	}
+
+	/**
+	 * Creates a model from its weights.
+	 *
+	 * @param name
+	 *        The name of the model, including its version.
+	 * @param bidWeights
+	 *        The weights of the bidding head. The array is not copied.
+	 * @param playWeights
+	 *        The weights of the playing head. The array is not copied.
+	 */
+	private EvaluationModel(String name, float[] bidWeights, float[] playWeights)
+	{
+		this.name = name;
+		this.bidWeights = bidWeights;
+		this.playWeights = playWeights;
+	}
+
+	/**
+	 * Estimates the tricks a hand wins for a contract.
+	 *
+	 * @param features
+	 *        The features of the hand, from
+	 *        {@link Features#bidFeatures(fiveHundred.cards.DeckSpec, long, fiveHundred.rules.Bid, float[])}.
+	 * @return the estimated number of tricks won by the contractor's side.
+	 */
+	public float evaluateBid(float[] features)
+	{
+		return dot(bidWeights, features);
+	}
+
+	/**
+	 * Estimates the tricks a player's side wins from the trick being played to
+	 * the end of the round if he plays a card.
+	 *
+	 * @param features
+	 *        The features of the card, from
+	 *        {@link Features#playFeatures(fiveHundred.engine.PlayState, int, float[])}.
+	 * @return the estimated number of tricks.
+	 */
+	public float evaluatePlay(float[] features)
+	{
+		return dot(playWeights, features);
+	}
+
+	/**
+	 * Moves the bidding head toward the number of tricks a hand actually won.
+	 *
+	 * @param features
+	 *        The features of the hand.
+	 * @param tricks
+	 *        The number of tricks won by the contractor's side.
+	 * @param learningRate
+	 *        The size of the step.
+	 * @return the squared error before the step.
+	 */
+	public float trainBid(float[] features, float tricks, float learningRate)
+	{
+		return step(bidWeights, features, tricks, learningRate);
+	}
+
+	/**
+	 * Moves the playing head toward the number of tricks a side actually won
+	 * after a card was played.
+	 *
+	 * @param features
+	 *        The features of the card played.
+	 * @param tricks
+	 *        The number of tricks won by the player's side from the trick
+	 *        being played to the end of the round.
+	 * @param learningRate
+	 *        The size of the step.
+	 * @return the squared error before the step.
+	 */
+	public float trainPlay(float[] features, float tricks, float learningRate)
+	{
+		return step(playWeights, features, tricks, learningRate);
+	}
+
+	/**
+	 * Creates a copy of this model under another name, typically to train the
+	 * next version while this one is still in use.
+	 *
+	 * @param name
+	 *        The name of the copy.
+	 * @return the copy.
+	 */
+	public EvaluationModel copy(String name)
+	{
+		return new EvaluationModel(name, bidWeights.clone(), playWeights.clone());
+	}
+
+	/**
+	 * Writes this model to a file. The file is replaced at once, so a reader
+	 * never sees half a model.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @throws IOException
+	 *         if the file can't be written.
+	 */
+	public void save(Path path) throws IOException
+	{
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))
+		{
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeUTF(name);
+			writeWeights(out, bidWeights);
+			writeWeights(out, playWeights);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public String getName()
+	{
+		return name;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Reads a model from a file.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @return the model.
+	 * @throws IOException
+	 *         if the file can't be read or doesn't hold a model for the
+	 *         current features.
+	 */
+	public static EvaluationModel load(Path path) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not an evaluation model file.");
+			short version = in.readShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported evaluation model version: " + version);
+			String name = in.readUTF();
+			float[] bidWeights = readWeights(in, Features.BID_FEATURE_COUNT);
+			float[] playWeights = readWeights(in, Features.PLAY_FEATURE_COUNT);
+			return new EvaluationModel(name, bidWeights, playWeights);
+		}
+	}
+
+	/**
+	 * Returns the dot product of weights and features.
+	 */
+	private static float dot(float[] weights, float[] features)
+	{
+		float sum = 0;
+		for (int i = 0; i < weights.length; ++i)
+		{
+			sum += weights[i] * features[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Makes one step of gradient descent on the squared error of a head.
+	 *
+	 * @return the squared error before the step.
+	 */
+	private static float step(float[] weights, float[] features, float target, float learningRate)
+	{
+		float error = target - dot(weights, features);
+		float scale = learningRate * error;
+		for (int i = 0; i < weights.length; ++i)
+		{
+			weights[i] += scale * features[i];
+		}
+		return error * error;
+	}
+
+	/**
+	 * Writes the weights of a head, preceded by their number.
+	 */
+	private static void writeWeights(DataOutputStream out, float[] weights) throws IOException
+	{
+		out.writeShort(weights.length);
+		for (float weight : weights)
+		{
+			out.writeFloat(weight);
+		}
+	}
+
+	/**
+	 * Reads the weights of a head, checking that their number is the one
+	 * expected.
+	 */
+	private static float[] readWeights(DataInputStream in, int count) throws IOException
+	{
+		if (in.readShort() != count)
+			throw new IOException("The evaluation model was trained with other features.");
+		float[] weights = new float[count];
+		for (int i = 0; i < count; ++i)
+		{
+			weights[i] = in.readFloat();
+		}
+		return weights;
+	}
+}
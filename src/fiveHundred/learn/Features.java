@@ -0,0 +1,184 @@
+package fiveHundred.learn;
+
+import fiveHundred.cards.Card;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+/**
+ * Turns hands and positions into the feature vectors read by
+ * {@link EvaluationModel}. Every feature is computed from bit sets of card ids
+ * and written into an array supplied by the caller, so nothing is allocated.
+ * Features are scaled to lie roughly between 0 and 1.
+ */
+public class Features
+{
+	/** The number of features describing a hand for a bid. */
+	public static final int BID_FEATURE_COUNT = 12;
+
+	/** The number of features describing a card played in a position. */
+	public static final int PLAY_FEATURE_COUNT = 14;
+
+	/** The number of plain suits. */
+	private static final int SUIT_COUNT = 4;
+
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private Features() {}
+
+	/**
+	 * Describes a hand for a contract, to estimate the tricks it wins.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the round is played with.
+	 * @param hand
+	 *        The cards of the player as a bit set of card ids.
+	 * @param bid
+	 *        The contract.
+	 * @param features
+	 *        Receives the {@link #BID_FEATURE_COUNT} features.
+	 */
+	public static void bidFeatures(DeckSpec deckSpec, long hand, Bid bid, float[] features)
+	{
+		int trumpSuit = bid.hasTrump() ? bid.getTrumpSuit() : -1;
+		int trumps = 0, offSuitAces = 0, offSuitKings = 0;
+		float joker = 0, rightBower = 0, leftBower = 0, trumpAce = 0, trumpKing = 0;
+		// The length of each plain suit, one byte per suit.
+		long suitLengths = 0;
+
+		for (long cards = hand; cards != 0; cards &= cards - 1)
+		{
+			int id = Long.numberOfTrailingZeros(cards);
+			int value = deckSpec.getValue(id);
+			int suit = FiveHundredRules.getCardSuit(deckSpec.getSuit(id), value, bid);
+			int rank = FiveHundredRules.getCardValue(deckSpec.getSuit(id), value, bid);
+			if (suit == Card.JOKER || suit == trumpSuit)
+			{
+				++trumps;
+				if (rank == FiveHundredRules.JOKER_RANK)
+					joker = 1;
+				else if (rank == FiveHundredRules.LEFT_BOWER_RANK)
+					leftBower = 1;
+				else if (rank == FiveHundredRules.RIGHT_BOWER_RANK)
+					rightBower = 1;
+				else if (value == Card.ACE_HIGH)
+					trumpAce = 1;
+				else if (value == Card.KING)
+					trumpKing = 1;
+			}
+			else
+			{
+				suitLengths += 1L << (suit * 8);
+				if (value == Card.ACE_HIGH)
+					++offSuitAces;
+				else if (value == Card.KING)
+					++offSuitKings;
+			}
+		}
+
+		int voids = 0, singletons = 0;
+		for (int suit = 0; suit < SUIT_COUNT; ++suit)
+		{
+			if (suit == trumpSuit)
+				continue;
+			long length = (suitLengths >>> (suit * 8)) & 0xFF;
+			if (length == 0)
+				++voids;
+			else if (length == 1)
+				++singletons;
+		}
+
+		features[0] = 1;
+		features[1] = trumps / (float) DeckSpec.HAND_SIZE;
+		features[2] = joker;
+		features[3] = rightBower;
+		features[4] = leftBower;
+		features[5] = trumpAce;
+		features[6] = trumpKing;
+		features[7] = offSuitAces / (float) SUIT_COUNT;
+		features[8] = offSuitKings / (float) SUIT_COUNT;
+		features[9] = voids / (float) (SUIT_COUNT - 1);
+		features[10] = singletons / (float) (SUIT_COUNT - 1);
+		features[11] = bid.hasTrump() ? 0 : 1;
+	}
+
+	/**
+	 * Describes the card a player is about to play, to estimate the tricks
+	 * his side wins from the trick being played to the end of the round.
+	 *
+	 * @param state
+	 *        The state of the round, for the player who has to play.
+	 * @param card
+	 *        The id of the card the player is about to play.
+	 * @param features
+	 *        Receives the {@link #PLAY_FEATURE_COUNT} features.
+	 */
+	public static void playFeatures(PlayState state, int card, float[] features)
+	{
+		int numberOfPlayers = state.getNumberOfPlayers();
+		int seat = state.getSeatToPlay();
+		int leader = state.getLeader();
+		Bid bid = state.getBid();
+		int suit = state.getSuit(card);
+		int rank = state.getRank(card);
+		long hand = state.getHand(seat);
+
+		// The card is a master if no card left in play of its suit ranks higher.
+		boolean isMaster = true;
+		long unplayed = state.getSuitMask(suit) & ~state.getPlayedCards() & ~(1L << card);
+		for (long cards = unplayed; cards != 0; cards &= cards - 1)
+		{
+			if (state.getRank(Long.numberOfTrailingZeros(cards)) > rank)
+			{
+				isMaster = false;
+				break;
+			}
+		}
+
+		boolean isLeading = leader == -1;
+		boolean isFollowing = false, winsNow = isMaster, partnerWinning = false;
+		if (!isLeading)
+		{
+			int leadSuit = state.getSuit(state.getCardOnTable(leader));
+			isFollowing = suit == leadSuit;
+			int winner = leader;
+			for (int offset = 1; offset < state.getCardsInTrick(); ++offset)
+			{
+				int player = (leader + offset) % numberOfPlayers;
+				int other = state.getCardOnTable(player);
+				if ((state.getSuit(other) == Card.JOKER || state.getSuit(other) == leadSuit)
+						&& state.getRank(other) > state.getRank(state.getCardOnTable(winner)))
+					winner = player;
+			}
+			winsNow = (suit == Card.JOKER || isFollowing) && rank > state.getRank(state.getCardOnTable(winner));
+			partnerWinning = winner != seat && FiveHundredRules.arePartners(winner, seat, numberOfPlayers);
+		}
+
+		int contractor = state.getContractor();
+		boolean isContracting = bid != Bid.PASS && FiveHundredRules.arePartners(seat, contractor, numberOfPlayers);
+		int sideTricks = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (FiveHundredRules.arePartners(i, seat, numberOfPlayers))
+				sideTricks += state.getTricksWon(i);
+		}
+		int tricksNeeded = isContracting ? Math.max(0, bid.getTricksToWin() - sideTricks) : 0;
+
+		features[0] = 1;
+		features[1] = isLeading ? 1 : 0;
+		features[2] = bid.hasTrump() && suit == bid.getTrumpSuit() ? 1 : 0;
+		features[3] = (rank - 2) / (float) (FiveHundredRules.JOKER_RANK - 2);
+		features[4] = isMaster ? 1 : 0;
+		features[5] = winsNow ? 1 : 0;
+		features[6] = partnerWinning ? 1 : 0;
+		features[7] = (numberOfPlayers - 1 - state.getCardsInTrick()) / (float) (numberOfPlayers - 1);
+		features[8] = isFollowing ? 1 : 0;
+		features[9] = Long.bitCount(hand & state.getSuitMask(suit) & ~(1L << card)) / (float) DeckSpec.HAND_SIZE;
+		features[10] = (DeckSpec.HAND_SIZE - state.getTricksPlayed()) / (float) DeckSpec.HAND_SIZE;
+		features[11] = isContracting ? 1 : 0;
+		features[12] = tricksNeeded / (float) DeckSpec.HAND_SIZE;
+		features[13] = sideTricks / (float) DeckSpec.HAND_SIZE;
+	}
+}
@@ -0,0 +1,94 @@
+package fiveHundred.learn;
+
+import fiveHundred.ai.Strategy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+
+/**
+ * The strategy following an {@link EvaluationModel}. It bids the contract the
+ * model expects the hand to make and plays the legal card the model expects to
+ * win the most tricks for the player's side.
+ */
+public class ModelStrategy implements Strategy
+{
+	/** Every bid, in their natural ordering. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The number of bids for each number of tricks, one per trump and one without trump. */
+	private static final int BIDS_PER_LEVEL = 5;
+
+	/** The smallest number of tricks a player can bid. */
+	private static final int LOWEST_LEVEL = 6;
+
+	/** The array each thread computes features into. */
+	private static final ThreadLocal<float[]> FEATURES = ThreadLocal.withInitial(() -> new float[Math.max(
+			Features.BID_FEATURE_COUNT, Features.PLAY_FEATURE_COUNT)]);
+
+	/** The model to follow. */
+	private final EvaluationModel model;
+
+	/**
+	 * Creates a strategy following a model.
+	 *
+	 * @param model
+	 *        The model to follow.
+	 */
+	public ModelStrategy(EvaluationModel model)
+	{
+		this.model = model;
+	}
+
+	@Override
+	public String getName()
+	{
+		return model.getName();
+	}
+
+	@Override
+	public Bid chooseBid(DeckSpec deckSpec, long hand, Bid highestBid)
+	{
+		float[] features = FEATURES.get();
+		Bid bestBid = Bid.PASS;
+		for (int trump = 0; trump < BIDS_PER_LEVEL; ++trump)
+		{
+			Bid bid = BIDS[1 + trump];
+			Features.bidFeatures(deckSpec, hand, bid, features);
+			int tricks = Math.min(DeckSpec.HAND_SIZE, (int) model.evaluateBid(features));
+			if (tricks >= LOWEST_LEVEL)
+			{
+				Bid contract = BIDS[bid.ordinal() + (tricks - LOWEST_LEVEL) * BIDS_PER_LEVEL];
+				if (contract.ordinal() > bestBid.ordinal())
+					bestBid = contract;
+			}
+		}
+		return bestBid.ordinal() > highestBid.ordinal() ? bestBid : Bid.PASS;
+	}
+
+	@Override
+	public int chooseCard(PlayState state)
+	{
+		float[] features = FEATURES.get();
+		int bestCard = -1;
+		float bestValue = Float.NEGATIVE_INFINITY;
+		for (long cards = state.getLegalMoves(); cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			Features.playFeatures(state, card, features);
+			float value = model.evaluatePlay(features);
+			if (value > bestValue)
+			{
+				bestValue = value;
+				bestCard = card;
+			}
+		}
+		return bestCard;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public EvaluationModel getModel()
+	{
+		return model;
+	}
+}
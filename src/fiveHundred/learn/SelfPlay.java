@@ -0,0 +1,132 @@
+package fiveHundred.learn;
+
+import fiveHundred.ai.HeuristicStrategy;
+import fiveHundred.ai.Strategy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.record.GameRecordWriter;
+import fiveHundred.rules.Bid;
+import fiveHundred.sim.TournamentRunner;
+import fiveHundred.stats.GameStatistics;
+import fiveHundred.stats.StatisticsSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Trains the evaluation model by self-play. Each iteration plays hands with
+ * the newest model at every seat, records them, trains the next version of the
+ * model from the record and saves it. The first iteration, when there is no
+ * model yet, plays with the {@link HeuristicStrategy}.
+ */
+public class SelfPlay
+{
+	/** The size of each step of gradient descent. */
+	private static final float LEARNING_RATE = 0.01f;
+
+	/** The number of passes over the hands of an iteration. */
+	private static final int EPOCHS = 2;
+
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private SelfPlay() {}
+
+	/**
+	 * Runs self-play from the command line.
+	 *
+	 * <p>
+	 * Arguments: the number of players, the number of iterations, the number of hands per
+	 * iteration, then optionally the number of threads and the directory of the models, which
+	 * defaults to {@code models}. Training continues from
+	 * {@link EvaluationModel#DEFAULT_FILE_NAME} in that directory if it exists.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: SelfPlay <players> <iterations> <hands> [threads] [directory]");
+			System.exit(1);
+		}
+
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[0]));
+		int iterations = Integer.parseInt(args[1]);
+		long hands = Long.parseLong(args[2]);
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		Path directory = Paths.get(args.length > 4 ? args[4] : "models");
+		Files.createDirectories(directory);
+
+		Path modelPath = directory.resolve(EvaluationModel.DEFAULT_FILE_NAME);
+		EvaluationModel model = Files.exists(modelPath) ? EvaluationModel.load(modelPath) : null;
+		int version = model == null ? 0 : parseVersion(model.getName()) + 1;
+		Random random = new Random();
+
+		for (int i = 0; i < iterations; ++i, ++version)
+		{
+			Strategy strategy = model == null ? new HeuristicStrategy() : new ModelStrategy(model);
+			Strategy[] strategies = new Strategy[deckSpec.getNumberOfPlayers()];
+			Arrays.fill(strategies, strategy);
+
+			// Play and record the hands of this iteration.
+			long seed = random.nextLong();
+			Path recordPath = directory.resolve("selfplay-" + version + ".fhr");
+			GameStatistics statistics = new GameStatistics();
+			TournamentRunner runner = new TournamentRunner(deckSpec, seed, statistics);
+			runner.setStrategies(strategies);
+			try (GameRecordWriter writer = new GameRecordWriter(recordPath, deckSpec, seed))
+			{
+				runner.setRecordWriter(writer);
+				runner.run(0, hands, threads);
+			}
+			StatisticsSnapshot snapshot = statistics.snapshot();
+			long taken = 0, made = 0;
+			for (Bid bid : Bid.values())
+			{
+				if (bid == Bid.PASS)
+					continue;
+				taken += snapshot.getBidsTaken(bid);
+				made += snapshot.getBidsMade(bid);
+			}
+			System.out.printf("Iteration %d, %s: %d hands, %d contracts, %.1f%% made%n", version,
+					strategy.getName(), snapshot.getHands(), taken, taken == 0 ? 0 : 100.0 * made / taken);
+
+			// Train the next version from them.
+			EvaluationModel next = model == null ? new EvaluationModel("model-" + version) : model.copy("model-"
+					+ version);
+			Trainer trainer = new Trainer(next, LEARNING_RATE);
+			for (int epoch = 0; epoch < EPOCHS; ++epoch)
+			{
+				trainer.resetErrors();
+				trainer.train(recordPath);
+				System.out.printf("  epoch %d: bid error %.3f over %d hands, play error %.3f over %d cards%n", epoch,
+						trainer.getBidError(), trainer.getBidExamples(), trainer.getPlayError(),
+						trainer.getPlayExamples());
+			}
+			next.save(directory.resolve(next.getName() + ".fhm"));
+			next.save(modelPath);
+			model = next;
+		}
+	}
+
+	/**
+	 * Returns the version at the end of a model name such as {@code model-3},
+	 * or -1 if the name doesn't end with one.
+	 */
+	private static int parseVersion(String name)
+	{
+		try
+		{
+			return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package fiveHundred.learn;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.record.GameRecordReader;
+import fiveHundred.record.HandRecord;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Trains an {@link EvaluationModel} from recorded hands. Each hand gives one
+ * example to the bidding head, the contractor's hand with the tricks his side
+ * won, and one example to the playing head for every card played, with the
+ * tricks the player's side won from that trick on.
+ *
+ * <p>
+ * The hands are replayed in a {@link PlayState} reused from one hand to the next. An instance
+ * of this class must only be used by one thread at a time.
+ */
+public class Trainer
+{
+	/** The model being trained. */
+	private final EvaluationModel model;
+
+	/** The size of each step of gradient descent. */
+	private final float learningRate;
+
+	/** The array the features are computed into. */
+	private final float[] features;
+
+	/** The state the hands are replayed in, for the deck of the last hand. */
+	private PlayState state;
+
+	/** The cards played by each player in the current hand, indexed by player. */
+	private long[] hands;
+
+	/** An empty table, every entry being -1. */
+	private int[] emptyTable;
+
+	/** The sum of the squared errors of the bidding head since the last reset. */
+	private double bidError;
+
+	/** The number of examples given to the bidding head since the last reset. */
+	private long bidExamples;
+
+	/** The sum of the squared errors of the playing head since the last reset. */
+	private double playError;
+
+	/** The number of examples given to the playing head since the last reset. */
+	private long playExamples;
+
+	/**
+	 * Creates a trainer.
+	 *
+	 * @param model
+	 *        The model to train.
+	 * @param learningRate
+	 *        The size of each step of gradient descent.
+	 */
+	public Trainer(EvaluationModel model, float learningRate)
+	{
+		this.model = model;
+		this.learningRate = learningRate;
+		features = new float[Math.max(Features.BID_FEATURE_COUNT, Features.PLAY_FEATURE_COUNT)];
+	}
+
+	/**
+	 * Trains the model with every hand of a game record file.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @throws IOException
+	 *         if the file can't be read or is corrupted.
+	 */
+	public void train(Path path) throws IOException
+	{
+		try (GameRecordReader reader = new GameRecordReader(path))
+		{
+			HandRecord record = reader.createRecord();
+			while (reader.next(record))
+			{
+				train(record);
+			}
+		}
+	}
+
+	/**
+	 * Trains the model with a hand. Hands that weren't played to the end are
+	 * ignored.
+	 *
+	 * @param record
+	 *        The record of the hand, with its cards.
+	 */
+	public void train(HandRecord record)
+	{
+		if (!record.isComplete())
+			return;
+
+		DeckSpec deckSpec = record.getDeckSpec();
+		int numberOfPlayers = record.getNumberOfPlayers();
+		if (state == null || state.getDeckSpec() != deckSpec)
+		{
+			state = new PlayState(deckSpec);
+			hands = new long[numberOfPlayers];
+			emptyTable = new int[numberOfPlayers];
+			Arrays.fill(emptyTable, -1);
+		}
+
+		Bid bid = record.getHighestBid();
+		int contractor = record.getContractor();
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			hands[i] = record.getCardsPlayed(i);
+		}
+
+		if (bid != Bid.PASS)
+		{
+			Features.bidFeatures(deckSpec, hands[contractor], bid, features);
+			bidError += model.trainBid(features, sideTricks(record, contractor), learningRate);
+			++bidExamples;
+		}
+
+		state.set(bid, contractor, hands, emptyTable, -1, contractor);
+		for (int i = 0; i < record.getPlayCount(); ++i)
+		{
+			int card = record.getPlay(i);
+			int seat = state.getSeatToPlay();
+			int tricksBefore = 0;
+			for (int player = 0; player < numberOfPlayers; ++player)
+			{
+				if (FiveHundredRules.arePartners(player, seat, numberOfPlayers))
+					tricksBefore += state.getTricksWon(player);
+			}
+			Features.playFeatures(state, card, features);
+			playError += model.trainPlay(features, sideTricks(record, seat) - tricksBefore, learningRate);
+			++playExamples;
+			state.makeMove(card);
+		}
+	}
+
+	/**
+	 * Resets the errors reported by {@link #getBidError()} and
+	 * {@link #getPlayError()}.
+	 */
+	public void resetErrors()
+	{
+		bidError = 0;
+		bidExamples = 0;
+		playError = 0;
+		playExamples = 0;
+	}
+
+	/**
+	 * Returns the number of tricks won by a player's side during a hand.
+	 */
+	private static int sideTricks(HandRecord record, int seat)
+	{
+		int numberOfPlayers = record.getNumberOfPlayers();
+		int tricks = 0;
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			if (FiveHundredRules.arePartners(player, seat, numberOfPlayers))
+				tricks += record.getTricksWon(player);
+		}
+		return tricks;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public EvaluationModel getModel()
+	{
+		return model;
+	}
+
+	/**
+	 * Returns the mean squared error of the bidding head, measured before each
+	 * step since the last reset.
+	 *
+	 * @return the mean squared error, in tricks squared.
+	 */
+	public double getBidError()
+	{
+		return bidExamples == 0 ? 0 : bidError / bidExamples;
+	}
+
+	/**
+	 * Returns the mean squared error of the playing head, measured before each
+	 * step since the last reset.
+	 *
+	 * @return the mean squared error, in tricks squared.
+	 */
+	public double getPlayError()
+	{
+		return playExamples == 0 ? 0 : playError / playExamples;
+	}
+
+	public long getBidExamples()
+	{
+		return bidExamples;
+	}
+
+	public long getPlayExamples()
+	{
+		return playExamples;
+	}
+}
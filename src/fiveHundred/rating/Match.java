@@ -0,0 +1,356 @@
+package fiveHundred.rating;
+
+import fiveHundred.ai.HeuristicStrategy;
+import fiveHundred.ai.Strategy;
+import fiveHundred.bot.ExternalBot;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.learn.EvaluationModel;
+import fiveHundred.learn.ModelStrategy;
+import fiveHundred.sim.TournamentRunner;
+import fiveHundred.stats.GameStatistics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Compares two strategies by playing duplicate deals: every deal is played
+ * once with the first strategy at the even seats and the second at the odd
+ * seats, then again with the seats swapped, so the luck of the deal cancels
+ * out. A deal is won by the strategy whose seats scored more on average over
+ * both plays.
+ *
+ * <p>
+ * The deals are played in batches on a {@link TournamentRunner}. After each batch the ratings
+ * of both strategies are updated and saved, and the match stops as soon as its outcome is
+ * statistically decided.
+ */
+public class Match
+{
+	/** The number of deals played between two updates of the ratings. */
+	private static final int DEALS_PER_BATCH = 4096;
+
+	/** The number of deals played before the match can be stopped early. */
+	private static final int MIN_DEALS = 2 * DEALS_PER_BATCH;
+
+	/**
+	 * The number of standard errors the score must be away from an even score
+	 * for the outcome to be decided. It is high because the test is repeated
+	 * after every batch.
+	 */
+	private static final double DECISION_ERRORS = 3;
+
+	/** The time a bot process has for each decision, unless its description gives one. */
+	private static final long DEFAULT_BOT_MOVE_MILLIS = 100;
+
+	/** The specification of the deck the deals are played with. */
+	private final DeckSpec deckSpec;
+
+	/** The first strategy. */
+	private final Strategy first;
+
+	/** The second strategy. */
+	private final Strategy second;
+
+	/** The ratings updated after each batch. */
+	private final RatingTable ratings;
+
+	/** The file the ratings are saved to after each batch, or {@code null}. */
+	private final Path ratingsPath;
+
+	/** Plays the deals. */
+	private final TournamentRunner runner;
+
+	/** The seats of each strategy in the first play of a deal, the seats being swapped for the second play. */
+	private final Strategy[] firstSeating, secondSeating;
+
+	/**
+	 * The difference between the average scores of the first and the second
+	 * strategy for each deal of the current batch, multiplied by the number of
+	 * even and odd seats so it stays an integer.
+	 */
+	private final long[] differences;
+
+	/** The number of deals won, drawn and lost by the first strategy. */
+	private long wins, draws, losses;
+
+	/**
+	 * Creates a match.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the deals are played with.
+	 * @param baseSeed
+	 *        The seed every deal is dealt from.
+	 * @param first
+	 *        The first strategy.
+	 * @param second
+	 *        The second strategy.
+	 * @param ratings
+	 *        The ratings updated after each batch.
+	 * @param ratingsPath
+	 *        The file the ratings are saved to after each batch, or
+	 *        {@code null} not to save them.
+	 */
+	public Match(DeckSpec deckSpec, long baseSeed, Strategy first, Strategy second, RatingTable ratings,
+			Path ratingsPath)
+	{
+		this.deckSpec = deckSpec;
+		this.first = first;
+		this.second = second;
+		this.ratings = ratings;
+		this.ratingsPath = ratingsPath;
+		runner = new TournamentRunner(deckSpec, baseSeed, new GameStatistics());
+
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		firstSeating = new Strategy[numberOfPlayers];
+		secondSeating = new Strategy[numberOfPlayers];
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			firstSeating[seat] = seat % 2 == 0 ? first : second;
+			secondSeating[seat] = seat % 2 == 0 ? second : first;
+		}
+		differences = new long[DEALS_PER_BATCH];
+	}
+
+	/**
+	 * Plays deals until the outcome of the match is decided or a number of
+	 * deals have been played.
+	 *
+	 * @param maxDeals
+	 *        The largest number of deals to play.
+	 * @param threadCount
+	 *        The number of threads playing the deals.
+	 * @return {@code true} if the outcome was decided.
+	 * @throws InterruptedException
+	 *         if the current thread is interrupted while waiting for a batch.
+	 * @throws IOException
+	 *         if the ratings can't be saved.
+	 */
+	public boolean play(long maxDeals, int threadCount) throws InterruptedException, IOException
+	{
+		long dealIndex = getDeals();
+		long endDeal = dealIndex + maxDeals;
+		while (dealIndex < endDeal && !isDecided())
+		{
+			int dealCount = (int) Math.min(DEALS_PER_BATCH, endDeal - dealIndex);
+			playBatch(dealIndex, dealCount, threadCount);
+			dealIndex += dealCount;
+		}
+		return isDecided();
+	}
+
+	/**
+	 * Plays a batch of deals twice, updates the ratings with their outcome and
+	 * saves them.
+	 */
+	private void playBatch(long firstDeal, int dealCount, int threadCount) throws InterruptedException, IOException
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		long evenSeats = (numberOfPlayers + 1) / 2, oddSeats = numberOfPlayers / 2;
+		Arrays.fill(differences, 0);
+
+		// Each deal is reported by a single thread in each play, and the
+		// threads of a play are joined before the next one starts.
+		for (int play = 0; play < 2; ++play)
+		{
+			long sign = play == 0 ? 1 : -1;
+			runner.setStrategies(play == 0 ? firstSeating : secondSeating);
+			runner.setHandListener((record, simulator) ->
+			{
+				long even = 0, odd = 0;
+				for (int seat = 0; seat < numberOfPlayers; ++seat)
+				{
+					if (seat % 2 == 0)
+						even += record.getScoreDelta(seat);
+					else
+						odd += record.getScoreDelta(seat);
+				}
+				differences[(int) (record.getDealIndex() - firstDeal)] += sign * (even * oddSeats - odd * evenSeats);
+			});
+			runner.run(firstDeal, dealCount, threadCount);
+		}
+
+		long batchWins = 0, batchDraws = 0, batchLosses = 0;
+		for (int i = 0; i < dealCount; ++i)
+		{
+			if (differences[i] > 0)
+				++batchWins;
+			else if (differences[i] < 0)
+				++batchLosses;
+			else
+				++batchDraws;
+		}
+		wins += batchWins;
+		draws += batchDraws;
+		losses += batchLosses;
+
+		ratings.update(first.getName(), second.getName(), batchWins, batchDraws, batchLosses);
+		if (ratingsPath != null)
+			ratings.save(ratingsPath);
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public Strategy getFirst()
+	{
+		return first;
+	}
+
+	public Strategy getSecond()
+	{
+		return second;
+	}
+
+	public long getWins()
+	{
+		return wins;
+	}
+
+	public long getDraws()
+	{
+		return draws;
+	}
+
+	public long getLosses()
+	{
+		return losses;
+	}
+
+	public long getDeals()
+	{
+		return wins + draws + losses;
+	}
+
+	/**
+	 * Returns the average score of the first strategy per deal, 1 per win and
+	 * 0.5 per draw.
+	 *
+	 * @return the score, 0.5 if no deal was played.
+	 */
+	public double getScore()
+	{
+		long deals = getDeals();
+		return deals == 0 ? 0.5 : (wins + draws * 0.5) / deals;
+	}
+
+	/**
+	 * Returns the standard error of {@link #getScore()}.
+	 *
+	 * @return the standard error, infinite if no deal was played.
+	 */
+	public double getScoreError()
+	{
+		long deals = getDeals();
+		if (deals == 0)
+			return Double.POSITIVE_INFINITY;
+		double score = getScore();
+		double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses
+				* score * score) / deals;
+		return Math.sqrt(variance / deals);
+	}
+
+	/**
+	 * Returns the difference of strength between the two strategies on the
+	 * Elo scale implied by the score of the match.
+	 *
+	 * @return the difference, positive if the first strategy is stronger.
+	 */
+	public double getEloDifference()
+	{
+		double score = Math.min(Math.max(getScore(), 1e-6), 1 - 1e-6);
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * Returns a value indicating whether one strategy is stronger than the
+	 * other with enough confidence to stop the match.
+	 *
+	 * @return {@code true} if the outcome is decided.
+	 */
+	public boolean isDecided()
+	{
+		return getDeals() >= MIN_DEALS && Math.abs(getScore() - 0.5) > DECISION_ERRORS * getScoreError();
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Creates a strategy from its description on the command line:
+	 * {@code heuristic}, a bot process such as {@code bot:100:python3 bot.py}
+	 * as described in {@link ExternalBot#start(String, long)}, or the path of
+	 * an evaluation model file.
+	 *
+	 * @param description
+	 *        The description of the strategy.
+	 * @return the strategy.
+	 * @throws IOException
+	 *         if the model can't be read or the bot can't be started.
+	 */
+	public static Strategy parseStrategy(String description) throws IOException
+	{
+		if (description.equals("heuristic"))
+			return new HeuristicStrategy();
+		if (description.startsWith("bot:"))
+			return ExternalBot.start(description, DEFAULT_BOT_MOVE_MILLIS);
+		return new ModelStrategy(EvaluationModel.load(Paths.get(description)));
+	}
+
+	/**
+	 * Plays a match from the command line, printing its progress after each
+	 * batch and the ratings at the end.
+	 *
+	 * <p>
+	 * Arguments: the number of players, the two strategies, then optionally the largest number of
+	 * deals, the number of threads and the rating file, which defaults to {@code ratings.txt}. Each
+	 * thread waits for one decision of a bot process at a time, so a bot plays in batches as large
+	 * as the number of threads.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: Match <players> <heuristic|bot:[ms:]command|model file> "
+					+ "<heuristic|bot:[ms:]command|model file> [max deals] [threads] [ratings file]");
+			System.exit(1);
+		}
+
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[0]));
+		Strategy first = parseStrategy(args[1]);
+		Strategy second = parseStrategy(args[2]);
+		long maxDeals = args.length > 3 ? Long.parseLong(args[3]) : 1000000;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		Path ratingsPath = Paths.get(args.length > 5 ? args[5] : "ratings.txt");
+		if (first.getName().equals(second.getName()))
+		{
+			System.err.println("Both strategies are named " + first.getName() + ".");
+			System.exit(1);
+		}
+
+		RatingTable ratings = RatingTable.load(ratingsPath);
+		Match match = new Match(deckSpec, System.nanoTime(), first, second, ratings, ratingsPath);
+		long start = System.nanoTime();
+		while (match.getDeals() < maxDeals && !match.isDecided())
+		{
+			match.play(Math.min(DEALS_PER_BATCH, maxDeals - match.getDeals()), threads);
+			System.out.printf("%d deals: %s %d-%d-%d, score %.3f +/- %.3f (%+.0f Elo)%n", match.getDeals(), first
+					.getName(), match.getWins(), match.getDraws(), match.getLosses(), match.getScore(), 2 * match
+					.getScoreError(), match.getEloDifference());
+		}
+		System.out.printf("%s after %d deals in %.1f s%n", match.isDecided() ? "Decided" : "Undecided", match
+				.getDeals(), (System.nanoTime() - start) / 1e9);
+		for (Strategy strategy : new Strategy[] { first, second })
+		{
+			if (!(strategy instanceof ExternalBot))
+				continue;
+			ExternalBot bot = (ExternalBot) strategy;
+			bot.close();
+			System.out.printf("%s: %d decisions in %d batches, %d timeouts, %d illegal answers%n", bot.getName(), bot
+					.getRequestCount(), bot.getBatchCount(), bot.getTimeoutCount(), bot.getIllegalCount());
+		}
+		ratings.print(System.out);
+	}
+}
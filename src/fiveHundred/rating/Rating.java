@@ -0,0 +1,182 @@
+package fiveHundred.rating;
+
+/**
+ * The Glicko rating of a strategy: an estimate of its strength on the Elo
+ * scale and the deviation of that estimate. The deviation starts high and
+ * shrinks as the strategy plays, so the rating of a new strategy moves quickly
+ * and the rating of a well known one hardly moves.
+ */
+public class Rating
+{
+	/** The rating of a strategy which hasn't played yet. */
+	public static final double INITIAL_RATING = 1500;
+
+	/** The deviation of a strategy which hasn't played yet. */
+	public static final double INITIAL_DEVIATION = 350;
+
+	/** The deviation never goes below this, so a rating can still follow a strategy being tuned. */
+	public static final double MIN_DEVIATION = 15;
+
+	/**
+	 * The largest number of games in a rating period. Glicko linearizes the
+	 * expected score around the ratings at the start of a period, which
+	 * overshoots if a period holds too many games, so larger batches are split.
+	 */
+	public static final int MAX_PERIOD_GAMES = 64;
+
+	/** The factor between the Elo scale and natural logarithms. */
+	private static final double Q = Math.log(10) / 400;
+
+	/** The name of the strategy, including its version. */
+	private final String name;
+
+	/** The estimated strength of the strategy. */
+	private double rating;
+
+	/** The standard deviation of the estimate. */
+	private double deviation;
+
+	/** The number of games the strategy has played. */
+	private long games;
+
+	/**
+	 * Creates the rating of a strategy which hasn't played yet.
+	 *
+	 * @param name
+	 *        The name of the strategy, including its version.
+	 */
+	public Rating(String name)
+	{
+		this(name, INITIAL_RATING, INITIAL_DEVIATION, 0);
+	}
+
+	/**
+	 * Creates a rating.
+	 *
+	 * @param name
+	 *        The name of the strategy, including its version.
+	 * @param rating
+	 *        The estimated strength of the strategy.
+	 * @param deviation
+	 *        The standard deviation of the estimate.
+	 * @param games
+	 *        The number of games the strategy has played.
+	 */
+	public Rating(String name, double rating, double deviation, long games)
+	{
+		this.name = name;
+		this.rating = rating;
+		this.deviation = deviation;
+		this.games = games;
+	}
+
+	/**
+	 * Returns the score this strategy is expected to make against another one,
+	 * 1 for a certain win and 0 for a certain loss.
+	 *
+	 * @param opponent
+	 *        The rating of the other strategy.
+	 * @return the expected score.
+	 */
+	public double getExpectedScore(Rating opponent)
+	{
+		return expectedScore(rating, opponent.rating, attenuation(opponent.deviation));
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public double getRating()
+	{
+		return rating;
+	}
+
+	public double getDeviation()
+	{
+		return deviation;
+	}
+
+	public long getGames()
+	{
+		return games;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Updates two ratings with the games they played against each other, such
+	 * as a batch of a match. The games are split into rating periods of at
+	 * most {@link #MAX_PERIOD_GAMES} games with the same proportions of wins,
+	 * draws and losses. In each period, both ratings are updated from their
+	 * values before the period.
+	 *
+	 * @param first
+	 *        The rating of the first strategy.
+	 * @param second
+	 *        The rating of the second strategy.
+	 * @param wins
+	 *        The number of games won by the first strategy.
+	 * @param draws
+	 *        The number of games drawn.
+	 * @param losses
+	 *        The number of games lost by the first strategy.
+	 */
+	public static void update(Rating first, Rating second, long wins, long draws, long losses)
+	{
+		long games = wins + draws + losses;
+		double score = wins + draws * 0.5;
+		for (long played = 0; played < games; played += MAX_PERIOD_GAMES)
+		{
+			long periodGames = Math.min(MAX_PERIOD_GAMES, games - played);
+			double periodScore = score * periodGames / games;
+			double firstRating = first.rating, firstDeviation = first.deviation;
+			first.apply(second.rating, second.deviation, periodScore, periodGames);
+			second.apply(firstRating, firstDeviation, periodGames - periodScore, periodGames);
+		}
+	}
+
+	/**
+	 * Updates this rating with games played against a single opponent.
+	 *
+	 * @param opponentRating
+	 *        The rating of the opponent before the games.
+	 * @param opponentDeviation
+	 *        The deviation of the opponent before the games.
+	 * @param score
+	 *        The total score of this strategy, 1 per win and 0.5 per draw.
+	 * @param games
+	 *        The number of games.
+	 */
+	private void apply(double opponentRating, double opponentDeviation, double score, long games)
+	{
+		double g = attenuation(opponentDeviation);
+		double expected = expectedScore(rating, opponentRating, g);
+		double inverseVariance = Q * Q * games * g * g * expected * (1 - expected);
+		double precision = 1 / (deviation * deviation) + inverseVariance;
+
+		rating += Q / precision * g * (score - games * expected);
+		deviation = Math.max(MIN_DEVIATION, Math.sqrt(1 / precision));
+		this.games += games;
+	}
+
+	/**
+	 * Returns the factor by which the uncertainty of the opponent's rating
+	 * attenuates the expected score.
+	 */
+	private static double attenuation(double deviation)
+	{
+		return 1 / Math.sqrt(1 + 3 * Q * Q * deviation * deviation / (Math.PI * Math.PI));
+	}
+
+	/**
+	 * Returns the score expected against an opponent.
+	 */
+	private static double expectedScore(double rating, double opponentRating, double attenuation)
+	{
+		return 1 / (1 + Math.pow(10, -attenuation * (rating - opponentRating) / 400));
+	}
+}
@@ -0,0 +1,189 @@
+package fiveHundred.rating;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ratings of every strategy and version which has played, kept in a small
+ * text file with one line per strategy: its name, rating, deviation and number
+ * of games, separated by tabs.
+ *
+ * <p>
+ * A table can be shared by several threads. Every method is synchronized.
+ */
+public class RatingTable
+{
+	/** The first line of every rating file. */
+	private static final String HEADER = "# name\trating\tdeviation\tgames";
+
+	/** The rating of each strategy, indexed by name, in the order they were added. */
+	private final Map<String, Rating> ratings;
+
+	/**
+	 * Creates an empty table.
+	 */
+	public RatingTable()
+	{
+		ratings = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Returns a copy of the rating of a strategy, adding a new rating if the
+	 * strategy hasn't played yet.
+	 *
+	 * @param name
+	 *        The name of the strategy, including its version.
+	 * @return the rating of the strategy, which later updates don't change.
+	 */
+	public synchronized Rating get(String name)
+	{
+		return copy(getRating(name));
+	}
+
+	/**
+	 * Returns the rating of a strategy held by the table, adding a new rating
+	 * if the strategy hasn't played yet. Must be called with the lock held.
+	 */
+	private Rating getRating(String name)
+	{
+		return ratings.computeIfAbsent(name, Rating::new);
+	}
+
+	/**
+	 * Updates the ratings of two strategies with the games they played against
+	 * each other.
+	 *
+	 * @param first
+	 *        The name of the first strategy.
+	 * @param second
+	 *        The name of the second strategy.
+	 * @param wins
+	 *        The number of games won by the first strategy.
+	 * @param draws
+	 *        The number of games drawn.
+	 * @param losses
+	 *        The number of games lost by the first strategy.
+	 */
+	public synchronized void update(String first, String second, long wins, long draws, long losses)
+	{
+		Rating.update(getRating(first), getRating(second), wins, draws, losses);
+	}
+
+	/**
+	 * Returns a copy of every rating, from the highest to the lowest.
+	 *
+	 * @return the ratings.
+	 */
+	public synchronized List<Rating> getRanking()
+	{
+		List<Rating> ranking = new ArrayList<>();
+		for (Rating rating : ratings.values())
+		{
+			ranking.add(copy(rating));
+		}
+		ranking.sort(Comparator.comparingDouble(Rating::getRating).reversed());
+		return ranking;
+	}
+
+	/**
+	 * Prints every rating, from the highest to the lowest.
+	 *
+	 * @param out
+	 *        The stream to print to.
+	 */
+	public void print(PrintStream out)
+	{
+		out.printf("%-24s %7s %6s %10s%n", "Strategy", "Rating", "+/-", "Games");
+		for (Rating rating : getRanking())
+		{
+			out.printf("%-24s %7.0f %6.0f %10d%n", rating.getName(), rating.getRating(), 2 * rating.getDeviation(),
+					rating.getGames());
+		}
+	}
+
+	/**
+	 * Writes every rating to a file. The file is replaced at once, so a reader
+	 * never sees half a table.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @throws IOException
+	 *         if the file can't be written.
+	 */
+	public synchronized void save(Path path) throws IOException
+	{
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))
+		{
+			writer.write(HEADER);
+			writer.newLine();
+			for (Rating rating : ratings.values())
+			{
+				writer.write(rating.getName() + "\t" + rating.getRating() + "\t" + rating.getDeviation() + "\t"
+						+ rating.getGames());
+				writer.newLine();
+			}
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Returns a copy of a rating, for a caller which doesn't hold the lock.
+	 */
+	private static Rating copy(Rating rating)
+	{
+		return new Rating(rating.getName(), rating.getRating(), rating.getDeviation(), rating.getGames());
+	}
+
+	/**
+	 * Reads the ratings from a file.
+	 *
+	 * @param path
+	 *        The path of the file. If it doesn't exist, the table is empty.
+	 * @return the table.
+	 * @throws IOException
+	 *         if the file can't be read or is corrupted.
+	 */
+	public static RatingTable load(Path path) throws IOException
+	{
+		RatingTable table = new RatingTable();
+		if (!Files.exists(path))
+			return table;
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("\t");
+				if (fields.length != 4)
+					throw new IOException("Corrupted rating: " + line);
+				try
+				{
+					table.ratings.put(fields[0], new Rating(fields[0], Double.parseDouble(fields[1]), Double
+							.parseDouble(fields[2]), Long.parseLong(fields[3])));
+				}
+				catch (NumberFormatException e)
+				{
+					throw new IOException("Corrupted rating: " + line, e);
+				}
+			}
+		}
+		return table;
+	}
+}
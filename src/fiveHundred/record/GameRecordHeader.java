@@ -0,0 +1,130 @@
+package fiveHundred.record;
+
+import fiveHundred.cards.DeckSpec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The header at the beginning of every game record file. It tells which deck
+ * the hands are played with and the seed they are dealt from.
+ *
+ * <p>
+ * A game record file is made of this header followed by blocks. Each block starts with its length
+ * in bytes and the number of records it holds, both as 4 bytes integers, and is followed by its
+ * records. Each record is its length as a varint followed by a hand encoded by
+ * {@link HandRecordCodec}. The blocks let a reader skip or split a file without decoding it.
+ */
+public class GameRecordHeader
+{
+	/** The first 4 bytes of every game record file: "FHGR". */
+	public static final int MAGIC = 0x46484752;
+
+	/** The version of the format written by this code. */
+	public static final short VERSION = 1;
+
+	/** The size in bytes of the file header. */
+	public static final int SIZE = 16;
+
+	/** The size in bytes of the header of a block. */
+	public static final int BLOCK_HEADER_SIZE = 8;
+
+	/** The largest size in bytes of a block, header included. */
+	public static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+	/** The specification of the deck the hands are played with. */
+	private final DeckSpec deckSpec;
+
+	/** The seed every hand is dealt from. */
+	private final long baseSeed;
+
+	/**
+	 * Creates a header.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 */
+	public GameRecordHeader(DeckSpec deckSpec, long baseSeed)
+	{
+		this.deckSpec = deckSpec;
+		this.baseSeed = baseSeed;
+	}
+
+	/**
+	 * Reads the header at the beginning of a file.
+	 *
+	 * @param channel
+	 *        The channel of the file.
+	 * @return the header of the file.
+	 * @throws IOException
+	 *         if the file can't be read or isn't a game record file.
+	 */
+	public static GameRecordHeader read(FileChannel channel) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, buffer.position()) < 0)
+				throw new IOException("The file is too short to be a game record file.");
+		}
+		buffer.flip();
+
+		if (buffer.getInt() != MAGIC)
+			throw new IOException("Not a game record file.");
+		short version = buffer.getShort();
+		if (version != VERSION)
+			throw new IOException("Unsupported game record version: " + version);
+		int numberOfPlayers = buffer.get();
+		buffer.get();
+		long baseSeed = buffer.getLong();
+
+		try
+		{
+			return new GameRecordHeader(DeckSpec.forPlayers(numberOfPlayers), baseSeed);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Corrupted game record header.", e);
+		}
+	}
+
+	/**
+	 * Writes this header.
+	 *
+	 * @param buffer
+	 *        The buffer to write to.
+	 */
+	public void write(ByteBuffer buffer)
+	{
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.put((byte) deckSpec.getNumberOfPlayers());
+		buffer.put((byte) 0);
+		buffer.putLong(baseSeed);
+	}
+
+	/**
+	 * Creates a codec for the hands of the file.
+	 *
+	 * @return a new codec.
+	 */
+	public HandRecordCodec createCodec()
+	{
+		return new HandRecordCodec(deckSpec, baseSeed);
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public DeckSpec getDeckSpec()
+	{
+		return deckSpec;
+	}
+
+	public long getBaseSeed()
+	{
+		return baseSeed;
+	}
+}
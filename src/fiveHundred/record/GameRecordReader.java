@@ -0,0 +1,295 @@
+package fiveHundred.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the hands of a game record file one after the other.
+ *
+ * <p>
+ * The file is memory mapped one window at a time, so files much larger than the memory can be
+ * scanned, and every hand is decoded into the same record, so a scan doesn't create any garbage.
+ * A reader can also be restricted to a range of blocks, which lets several threads share the work
+ * of scanning one file. A block cut short at the end of the file, as left by a game that crashed
+ * while writing, is ignored.
+ *
+ * <p>
+ * An instance of this class must only be used by one thread at a time.
+ */
+public class GameRecordReader implements Closeable
+{
+	/** The size in bytes of the part of the file mapped at once. */
+	private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	/** The channel of the file. */
+	private final FileChannel channel;
+
+	/** The header of the file. */
+	private final GameRecordHeader header;
+
+	/** The codec used to decode the hands. */
+	private final HandRecordCodec codec;
+
+	/** The size of the file when it was opened. */
+	private final long fileSize;
+
+	/** Blocks starting at or after this offset are not read. */
+	private final long endOffset;
+
+	/** The part of the file currently mapped. */
+	private MappedByteBuffer window;
+
+	/** The offset in the file of the first byte of the window. */
+	private long windowOffset;
+
+	/** The offset in the file of the next block to read. */
+	private long nextBlockOffset;
+
+	/** The number of hands left to read in the current block. */
+	private int recordsLeftInBlock;
+
+	/** Value indicating whether the cards discarded and played are decoded. */
+	private boolean isDecodingCards = true;
+
+	/**
+	 * Opens a game record file to read every hand it holds.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @throws IOException
+	 *         if the file can't be read or isn't a game record file.
+	 */
+	public GameRecordReader(Path path) throws IOException
+	{
+		this(path, GameRecordHeader.SIZE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Opens a game record file to read the hands of the blocks starting in a
+	 * range of offsets.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @param startOffset
+	 *        The offset of the first block to read. It must be the offset of a
+	 *        block.
+	 * @param endOffset
+	 *        The blocks starting at or after this offset are not read.
+	 * @throws IOException
+	 *         if the file can't be read or isn't a game record file.
+	 */
+	public GameRecordReader(Path path, long startOffset, long endOffset) throws IOException
+	{
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try
+		{
+			header = GameRecordHeader.read(channel);
+			fileSize = channel.size();
+		}
+		catch (IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+		if (startOffset < GameRecordHeader.SIZE)
+			throw new IllegalArgumentException("The first block starts after the header.");
+
+		codec = header.createCodec();
+		this.endOffset = endOffset;
+		nextBlockOffset = startOffset;
+	}
+
+	/**
+	 * Lists the blocks of a game record file by reading only their headers. A
+	 * block cut short at the end of the file is not listed. The offsets can be
+	 * used to split the file between several readers.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @return the offset of each block, in order, followed by the offset right
+	 *         after the last block.
+	 * @throws IOException
+	 *         if the file can't be read or isn't a game record file.
+	 */
+	public static long[] findBlocks(Path path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			GameRecordHeader.read(channel);
+			long fileSize = channel.size();
+			ByteBuffer blockHeader = ByteBuffer.allocate(GameRecordHeader.BLOCK_HEADER_SIZE);
+			long[] offsets = new long[16];
+			int count = 0;
+			long offset = GameRecordHeader.SIZE;
+			while (offset + GameRecordHeader.BLOCK_HEADER_SIZE <= fileSize)
+			{
+				blockHeader.clear();
+				while (blockHeader.hasRemaining())
+				{
+					channel.read(blockHeader, offset + blockHeader.position());
+				}
+				int byteLength = blockHeader.getInt(0);
+				if (byteLength < 0 || byteLength > GameRecordHeader.MAX_BLOCK_SIZE - GameRecordHeader.BLOCK_HEADER_SIZE)
+					throw new IOException("Corrupted block header at offset " + offset + ".");
+				long nextOffset = offset + GameRecordHeader.BLOCK_HEADER_SIZE + byteLength;
+				if (nextOffset > fileSize)
+					break;
+
+				if (count + 1 == offsets.length)
+					offsets = Arrays.copyOf(offsets, offsets.length * 2);
+				offsets[count++] = offset;
+				offset = nextOffset;
+			}
+			offsets[count++] = offset;
+			return Arrays.copyOf(offsets, count);
+		}
+	}
+
+	/**
+	 * Reads the next hand.
+	 *
+	 * @param record
+	 *        Receives the hand. It must have been created for the deck of this
+	 *        file.
+	 * @return {@code true} if a hand was read, {@code false} if there are no
+	 *         more hands.
+	 * @throws IOException
+	 *         if the file can't be read or is corrupted.
+	 */
+	public boolean next(HandRecord record) throws IOException
+	{
+		while (recordsLeftInBlock == 0)
+		{
+			if (!nextBlock())
+				return false;
+		}
+
+		try
+		{
+			int length = (int) HandRecordCodec.readVarLong(window);
+			int start = window.position();
+			codec.decode(window, record, isDecodingCards);
+			if (window.position() - start != length)
+				throw new IOException("Corrupted game record at offset " + (windowOffset + start) + ".");
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Corrupted game record in the block before offset " + nextBlockOffset + ".", e);
+		}
+		--recordsLeftInBlock;
+		return true;
+	}
+
+	/**
+	 * Creates an empty record for the hands of this file.
+	 *
+	 * @return a new record.
+	 */
+	public HandRecord createRecord()
+	{
+		return new HandRecord(header.getDeckSpec());
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		window = null;
+		channel.close();
+	}
+
+	/**
+	 * Moves to the next block and maps it.
+	 *
+	 * @return {@code true} if there is another block to read.
+	 * @throws IOException
+	 *         if the file can't be read or is corrupted.
+	 */
+	private boolean nextBlock() throws IOException
+	{
+		long blockOffset = nextBlockOffset;
+		if (blockOffset >= endOffset || blockOffset + GameRecordHeader.BLOCK_HEADER_SIZE > fileSize)
+			return false;
+
+		map(blockOffset, GameRecordHeader.BLOCK_HEADER_SIZE);
+		int byteLength = window.getInt();
+		int recordCount = window.getInt();
+		if (byteLength < 0 || byteLength > GameRecordHeader.MAX_BLOCK_SIZE - GameRecordHeader.BLOCK_HEADER_SIZE
+				|| recordCount < 0)
+			throw new IOException("Corrupted block header at offset " + blockOffset + ".");
+
+		long blockSize = GameRecordHeader.BLOCK_HEADER_SIZE + byteLength;
+		if (blockOffset + blockSize > fileSize)
+			return false;
+
+		map(blockOffset, blockSize);
+		window.position(window.position() + GameRecordHeader.BLOCK_HEADER_SIZE);
+		nextBlockOffset = blockOffset + blockSize;
+		recordsLeftInBlock = recordCount;
+		return true;
+	}
+
+	/**
+	 * Makes sure a part of the file is mapped and moves the position of the
+	 * window to its beginning.
+	 *
+	 * @param offset
+	 *        The offset of the part in the file.
+	 * @param length
+	 *        The length of the part.
+	 * @throws IOException
+	 *         if the file can't be mapped.
+	 */
+	private void map(long offset, long length) throws IOException
+	{
+		if (window == null || offset < windowOffset || offset + length > windowOffset + window.capacity())
+		{
+			windowOffset = offset;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW_SIZE, fileSize - offset));
+		}
+		window.position((int) (offset - windowOffset));
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public boolean isDecodingCards()
+	{
+		return isDecodingCards;
+	}
+
+	public GameRecordHeader getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * Returns the offset in the file of the next block to read.
+	 *
+	 * @return the offset of the next block.
+	 */
+	public long getNextBlockOffset()
+	{
+		return nextBlockOffset;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	/**
+	 * Sets whether the cards discarded and played are decoded. Skipping them
+	 * makes a scan several times faster when only the bids, the tricks won and
+	 * the scores are needed. See
+	 * {@link HandRecordCodec#decode(java.nio.ByteBuffer, HandRecord, boolean)}.
+	 *
+	 * @param value
+	 *        {@code false} to skip the cards.
+	 */
+	public void setDecodingCards(boolean value)
+	{
+		isDecodingCards = value;
+	}
+}
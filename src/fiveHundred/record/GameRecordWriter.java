@@ -0,0 +1,343 @@
+package fiveHundred.record;
+
+import fiveHundred.cards.DeckSpec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends hands to a new game record file without making the game wait for
+ * the disk.
+ *
+ * <p>
+ * Hands are encoded on the calling thread into a block buffer, which takes a few microseconds.
+ * Full blocks are handed to a writer thread which writes every block waiting in one call. A block
+ * holding a few hands is also written once nothing happened for a second, so the hands of a live
+ * game reach the disk quickly. The block buffers come from a small pool: the calling thread only
+ * waits when the writer thread falls behind by the whole pool, which bounds the memory used by a
+ * fast simulation.
+ */
+public class GameRecordWriter implements Closeable
+{
+	/** The number of block buffers in the pool. */
+	private static final int BLOCK_COUNT = 4;
+
+	/** The time after which a block that isn't full is written anyway. */
+	private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+	/** Tells the writer thread that the file is closing. */
+	private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+	/** The channel of the file. */
+	private final FileChannel channel;
+
+	/** The codec used to encode the hands. */
+	private final HandRecordCodec codec;
+
+	/** The array a hand is encoded into before it is copied into a block. */
+	private final byte[] recordBytes;
+
+	/** Guards the current block and the closed state. */
+	private final ReentrantLock lock;
+
+	/** The blocks ready to receive hands. */
+	private final ArrayBlockingQueue<ByteBuffer> freeBlocks;
+
+	/** The blocks waiting to be written, in order. */
+	private final ArrayBlockingQueue<ByteBuffer> fullBlocks;
+
+	/** The block receiving the hands. */
+	private ByteBuffer currentBlock;
+
+	/** The number of hands in the current block. */
+	private int currentRecordCount;
+
+	/** The thread writing the blocks. */
+	private final Thread writerThread;
+
+	/** The error that stopped the writer thread from writing, if any. */
+	private volatile IOException failure;
+
+	/** Value indicating whether this writer was closed. */
+	private boolean isClosed;
+
+	/**
+	 * Creates a new game record file and writes its header.
+	 *
+	 * @param path
+	 *        The path of the file. It must not exist.
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 * @throws IOException
+	 *         if the file can't be created.
+	 */
+	public GameRecordWriter(Path path, DeckSpec deckSpec, long baseSeed) throws IOException
+	{
+		GameRecordHeader header = new GameRecordHeader(deckSpec, baseSeed);
+		channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		try
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(GameRecordHeader.SIZE);
+			header.write(buffer);
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+		}
+		catch (IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+
+		codec = header.createCodec();
+		recordBytes = new byte[HandRecordCodec.MAX_RECORD_SIZE];
+		lock = new ReentrantLock();
+		freeBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+		fullBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT + 1);
+		for (int i = 1; i < BLOCK_COUNT; ++i)
+		{
+			freeBlocks.add(ByteBuffer.allocateDirect(GameRecordHeader.MAX_BLOCK_SIZE));
+		}
+		currentBlock = ByteBuffer.allocateDirect(GameRecordHeader.MAX_BLOCK_SIZE);
+		currentBlock.position(GameRecordHeader.BLOCK_HEADER_SIZE);
+
+		writerThread = new Thread(this::writeBlocks, "Record writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Appends a hand to the file. The hand is encoded right away, so the
+	 * record can be reused as soon as this method returns.
+	 *
+	 * @param record
+	 *        The hand to append. It must be complete.
+	 * @throws IllegalArgumentException
+	 *         if the hand is incomplete or invalid.
+	 * @throws IllegalStateException
+	 *         if this writer is closed.
+	 * @throws UncheckedIOException
+	 *         if an earlier block couldn't be written.
+	 */
+	public void append(HandRecord record)
+	{
+		lock.lock();
+		try
+		{
+			if (isClosed)
+				throw new IllegalStateException("The game record writer is closed.");
+			if (failure != null)
+				throw new UncheckedIOException(failure);
+
+			int length = codec.encode(record, recordBytes);
+			// The length of a record always fits in 2 bytes.
+			if (currentBlock.remaining() < length + 2)
+				submitBlock();
+
+			int value = length;
+			while ((value & ~0x7F) != 0)
+			{
+				currentBlock.put((byte) (value & 0x7F | 0x80));
+				value >>>= 7;
+			}
+			currentBlock.put((byte) value);
+			currentBlock.put(recordBytes, 0, length);
+			++currentRecordCount;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Hands the block being filled to the writer thread, even if it isn't
+	 * full.
+	 */
+	public void flush()
+	{
+		lock.lock();
+		try
+		{
+			if (!isClosed && currentRecordCount > 0)
+				submitBlock();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes every hand appended so far, waits until they are on the disk and
+	 * closes the file.
+	 *
+	 * @throws IOException
+	 *         if a block couldn't be written.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		lock.lock();
+		try
+		{
+			if (isClosed)
+				return;
+			isClosed = true;
+			if (currentRecordCount > 0)
+				submitBlock();
+			fullBlocks.add(END_OF_STREAM);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		boolean interrupted = false;
+		while (writerThread.isAlive())
+		{
+			try
+			{
+				writerThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		try
+		{
+			if (failure == null)
+				channel.force(false);
+		}
+		finally
+		{
+			channel.close();
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Completes the header of the current block, hands it to the writer
+	 * thread and starts a new block. Must be called while holding the lock.
+	 * Waits for a free block if the writer thread fell behind.
+	 */
+	private void submitBlock()
+	{
+		currentBlock.putInt(0, currentBlock.position() - GameRecordHeader.BLOCK_HEADER_SIZE);
+		currentBlock.putInt(4, currentRecordCount);
+		currentBlock.flip();
+		fullBlocks.add(currentBlock);
+
+		boolean interrupted = false;
+		ByteBuffer block = null;
+		while (block == null)
+		{
+			try
+			{
+				block = freeBlocks.take();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		currentBlock = block;
+		currentBlock.clear();
+		currentBlock.position(GameRecordHeader.BLOCK_HEADER_SIZE);
+		currentRecordCount = 0;
+	}
+
+	/**
+	 * The loop of the writer thread. Writes every block waiting in one call
+	 * and gives them back to the pool, until the file is closed.
+	 */
+	private void writeBlocks()
+	{
+		ByteBuffer[] batch = new ByteBuffer[BLOCK_COUNT + 1];
+		boolean isEnding = false;
+		while (!isEnding)
+		{
+			ByteBuffer block;
+			try
+			{
+				block = fullBlocks.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				continue;
+			}
+
+			if (block == null)
+			{
+				// Nothing happened for a while, so write the hands waiting in
+				// the current block. If the lock is taken, hands are still
+				// coming and the block will be submitted once full. We must not
+				// wait for the lock: its owner may be waiting for us to free a
+				// block.
+				if (lock.tryLock())
+				{
+					try
+					{
+						if (currentRecordCount > 0 && !freeBlocks.isEmpty())
+							submitBlock();
+					}
+					finally
+					{
+						lock.unlock();
+					}
+				}
+				continue;
+			}
+
+			int count = 0;
+			while (block != null)
+			{
+				if (block == END_OF_STREAM)
+					isEnding = true;
+				else
+					batch[count++] = block;
+				block = fullBlocks.poll();
+			}
+
+			if (count > 0 && failure == null)
+			{
+				try
+				{
+					while (batch[count - 1].hasRemaining())
+					{
+						channel.write(batch, 0, count);
+					}
+				}
+				catch (IOException e)
+				{
+					failure = e;
+				}
+			}
+			for (int i = 0; i < count; ++i)
+			{
+				freeBlocks.add(batch[i]);
+				batch[i] = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package fiveHundred.record;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+
+/**
+ * An object of type HandRecord holds everything that happened during one hand:
+ * which deal it was, the bids, the widow discard, every card played, who won
+ * each trick and the points scored by each player. Cards are stored by their
+ * id in the deck.
+ *
+ * <p>
+ * A record is meant to be reused: the game fills it while the hand is played and the readers
+ * decode every hand of a file into the same record, so scanning a large file doesn't create any
+ * garbage.
+ */
+public class HandRecord
+{
+	/** The number of tricks played in a hand. */
+	public static final int TRICKS_PER_HAND = DeckSpec.HAND_SIZE;
+
+	/** The specification of the deck the hand is played with. */
+	private final DeckSpec deckSpec;
+
+	/** The index of the hand in the game, used to deal it again. */
+	private long dealIndex;
+
+	/** The index of the player who dealt the cards. */
+	private int dealer;
+
+	/** The index of the highest bidder. */
+	private int contractor;
+
+	/** The bid of each player, indexed by player. */
+	private final Bid[] bids;
+
+	/** The ids of the cards discarded by the contractor after taking the widow. */
+	private final int[] discard;
+
+	/** The ids of the cards played, in the order they were played. */
+	private final int[] plays;
+
+	/** The number of cards played so far. */
+	private int playCount;
+
+	/** The index of the player who won each trick, in order. */
+	private final int[] trickWinners;
+
+	/** The number of tricks won so far. */
+	private int trickCount;
+
+	/** The points scored by each player during the hand, indexed by player. */
+	private final int[] scoreDeltas;
+
+	/**
+	 * Creates an empty record for hands played with the specified deck.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 */
+	public HandRecord(DeckSpec deckSpec)
+	{
+		this.deckSpec = deckSpec;
+		bids = new Bid[deckSpec.getNumberOfPlayers()];
+		discard = new int[DeckSpec.WIDOW_SIZE];
+		plays = new int[deckSpec.getPlayableCards()];
+		trickWinners = new int[TRICKS_PER_HAND];
+		scoreDeltas = new int[deckSpec.getNumberOfPlayers()];
+	}
+
+	/**
+	 * Clears this record so it can hold a new hand.
+	 *
+	 * @param dealIndex
+	 *        The index of the new hand in the game.
+	 * @param dealer
+	 *        The index of the player who deals the new hand.
+	 */
+	public void reset(long dealIndex, int dealer)
+	{
+		this.dealIndex = dealIndex;
+		this.dealer = dealer;
+		contractor = 0;
+		playCount = 0;
+		trickCount = 0;
+		for (int i = 0; i < bids.length; ++i)
+		{
+			bids[i] = null;
+			scoreDeltas[i] = 0;
+		}
+	}
+
+	/**
+	 * Copies another record of a hand played with the same deck into this
+	 * one.
+	 *
+	 * @param other
+	 *        The record to copy.
+	 */
+	public void copyFrom(HandRecord other)
+	{
+		if (other.deckSpec != deckSpec)
+			throw new IllegalArgumentException("Can't copy a hand played with " + other.deckSpec + ".");
+		dealIndex = other.dealIndex;
+		dealer = other.dealer;
+		contractor = other.contractor;
+		playCount = other.playCount;
+		trickCount = other.trickCount;
+		System.arraycopy(other.bids, 0, bids, 0, bids.length);
+		System.arraycopy(other.discard, 0, discard, 0, discard.length);
+		System.arraycopy(other.plays, 0, plays, 0, playCount);
+		System.arraycopy(other.trickWinners, 0, trickWinners, 0, trickCount);
+		System.arraycopy(other.scoreDeltas, 0, scoreDeltas, 0, scoreDeltas.length);
+	}
+
+	/**
+	 * Adds a card to the cards played during this hand.
+	 *
+	 * @param cardId
+	 *        The id of the card played.
+	 * @throws IllegalStateException
+	 *         if every card of the hand was already played.
+	 */
+	public void addPlay(int cardId)
+	{
+		if (playCount == plays.length)
+			throw new IllegalStateException("Every card of this hand was already played.");
+		plays[playCount++] = cardId;
+	}
+
+	/**
+	 * Adds the winner of the last trick played.
+	 *
+	 * @param player
+	 *        The index of the player who won the trick.
+	 * @throws IllegalStateException
+	 *         if every trick of the hand was already won.
+	 */
+	public void addTrickWinner(int player)
+	{
+		if (trickCount == trickWinners.length)
+			throw new IllegalStateException("Every trick of this hand was already won.");
+		trickWinners[trickCount++] = player;
+	}
+
+	/**
+	 * Returns {@code true} if every card of the hand was played and every bid
+	 * was called, so this record can be written.
+	 *
+	 * @return {@code true} if this record holds a whole hand.
+	 */
+	public boolean isComplete()
+	{
+		for (int i = 0; i < bids.length; ++i)
+		{
+			if (bids[i] == null)
+				return false;
+		}
+		return playCount == plays.length && trickCount == trickWinners.length;
+	}
+
+	/**
+	 * Returns the number of tricks won by a player during this hand.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the number of tricks won by that player.
+	 */
+	public int getTricksWon(int player)
+	{
+		int tricks = 0;
+		for (int i = 0; i < trickCount; ++i)
+		{
+			if (trickWinners[i] == player)
+				++tricks;
+		}
+		return tricks;
+	}
+
+	/**
+	 * Returns the player who played a card. The contractor leads the first
+	 * trick and the winner of each trick leads the next one.
+	 *
+	 * @param index
+	 *        The index of the card in the order the cards were played.
+	 * @return the index of the player who played the card.
+	 */
+	public int getPlayer(int index)
+	{
+		int numberOfPlayers = bids.length;
+		int trick = index / numberOfPlayers;
+		int leader = trick == 0 ? contractor : trickWinners[trick - 1];
+		return (leader + index % numberOfPlayers) % numberOfPlayers;
+	}
+
+	/**
+	 * Returns the cards a player played during this hand.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the cards played by the player as a bit set of card ids.
+	 */
+	public long getCardsPlayed(int player)
+	{
+		long cards = 0;
+		for (int i = 0; i < playCount; ++i)
+		{
+			if (getPlayer(i) == player)
+				cards |= 1L << plays[i];
+		}
+		return cards;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public DeckSpec getDeckSpec()
+	{
+		return deckSpec;
+	}
+
+	public int getNumberOfPlayers()
+	{
+		return bids.length;
+	}
+
+	public long getDealIndex()
+	{
+		return dealIndex;
+	}
+
+	public int getDealer()
+	{
+		return dealer;
+	}
+
+	public int getContractor()
+	{
+		return contractor;
+	}
+
+	public Bid getBid(int player)
+	{
+		return bids[player];
+	}
+
+	/**
+	 * Returns the highest bid of this hand, that is, the contractor's bid.
+	 *
+	 * @return the highest bid of this hand.
+	 */
+	public Bid getHighestBid()
+	{
+		return bids[contractor];
+	}
+
+	public int getDiscard(int index)
+	{
+		return discard[index];
+	}
+
+	public int getPlayCount()
+	{
+		return playCount;
+	}
+
+	public int getPlay(int index)
+	{
+		return plays[index];
+	}
+
+	public int getTrickCount()
+	{
+		return trickCount;
+	}
+
+	public int getTrickWinner(int trick)
+	{
+		return trickWinners[trick];
+	}
+
+	public int getScoreDelta(int player)
+	{
+		return scoreDeltas[player];
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	public void setContractor(int value)
+	{
+		contractor = value;
+	}
+
+	public void setBid(int player, Bid value)
+	{
+		bids[player] = value;
+	}
+
+	public void setDiscard(int index, int cardId)
+	{
+		discard[index] = cardId;
+	}
+
+	public void setScoreDelta(int player, int value)
+	{
+		scoreDeltas[player] = value;
+	}
+}
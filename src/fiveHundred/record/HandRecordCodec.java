@@ -0,0 +1,481 @@
+package fiveHundred.record;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+import gameCore.util.UnsynchronizedRandom;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Encodes hands into the compact binary form stored in game record files and
+ * decodes them back. A hand takes 20 to 30 bytes with three players.
+ *
+ * <p>
+ * The deal itself is not stored: the hand is dealt again from the base seed of the file and the
+ * deal index of the hand. Every card played is stored as its index among the cards left in the
+ * player's hand sorted by id, using only as many bits as that number of cards needs. A record is
+ * laid out as follows:
+ * <ul>
+ * <li>the deal index as a varint;</li>
+ * <li>one byte holding the dealer in the high 4 bits and the contractor in the low 4 bits;</li>
+ * <li>a bit stream, least significant bit first, holding the bid of each player on 5 bits, the
+ * discard as 3 indices among the contractor's 13 cards on 4 bits, then for each trick the index of
+ * each card played, starting with the leader, followed by the winner of the trick;</li>
+ * <li>the score delta of each player as a zigzag varint.</li>
+ * </ul>
+ *
+ * <p>
+ * An instance of this class must only be used by one thread at a time.
+ */
+public class HandRecordCodec
+{
+	/** The largest number of bytes a record can take. */
+	public static final int MAX_RECORD_SIZE = 128;
+
+	/** The number of bits used to store a bid. */
+	private static final int BID_BITS = 5;
+
+	/** The number of bits used to store the index of a discarded card. */
+	private static final int DISCARD_BITS = bitsFor(DeckSpec.HAND_SIZE + DeckSpec.WIDOW_SIZE);
+
+	/** Every bid, indexed by ordinal. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The specification of the deck the hands are played with. */
+	private final DeckSpec deckSpec;
+
+	/** The seed every hand is dealt from, along with its deal index. */
+	private final long baseSeed;
+
+	/** The number of players at the table. */
+	private final int numberOfPlayers;
+
+	/** The number of bits used to store the index of a player. */
+	private final int playerBits;
+
+	/** The random number generator used to deal the hands again. */
+	private final Random random;
+
+	/** The ids of the shuffled deck. */
+	private final int[] order;
+
+	/**
+	 * The cards left in each hand as a bit set of card ids, indexed by player.
+	 * The last entry is the widow.
+	 */
+	private final long[] hands;
+
+	/** The bits waiting to be written or read. */
+	private long bitBuffer;
+
+	/** The number of bits in {@code bitBuffer}. */
+	private int bitCount;
+
+	/** The array records are encoded into. */
+	private byte[] out;
+
+	/** The position of the next byte to write in {@code out}. */
+	private int position;
+
+	/**
+	 * Creates a codec for the hands of one game record file.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 */
+	public HandRecordCodec(DeckSpec deckSpec, long baseSeed)
+	{
+		this.deckSpec = deckSpec;
+		this.baseSeed = baseSeed;
+		numberOfPlayers = deckSpec.getNumberOfPlayers();
+		playerBits = bitsFor(numberOfPlayers);
+		random = new UnsynchronizedRandom();
+		order = new int[deckSpec.getDeckSize()];
+		hands = new long[numberOfPlayers + 1];
+	}
+
+	/**
+	 * Encodes a hand.
+	 *
+	 * @param record
+	 *        The hand to encode. It must be complete.
+	 * @param out
+	 *        The array receiving the encoded hand. It must hold at least
+	 *        {@link #MAX_RECORD_SIZE} bytes.
+	 * @return the number of bytes written.
+	 * @throws IllegalArgumentException
+	 *         if the hand is incomplete or if a card played or discarded is
+	 *         not in the hand of its player.
+	 */
+	public int encode(HandRecord record, byte[] out)
+	{
+		if (!record.isComplete())
+			throw new IllegalArgumentException("Only a complete hand can be recorded.");
+
+		deal(record.getDealIndex());
+		this.out = out;
+		position = writeVarLong(out, 0, record.getDealIndex());
+		out[position++] = (byte) (record.getDealer() << 4 | record.getContractor());
+		bitBuffer = 0;
+		bitCount = 0;
+
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			writeBits(record.getBid(player).ordinal(), BID_BITS);
+		}
+
+		int contractor = record.getContractor();
+		long contractorCards = hands[contractor] | hands[numberOfPlayers];
+		for (int i = 0; i < DeckSpec.WIDOW_SIZE; ++i)
+		{
+			long card = 1L << record.getDiscard(i);
+			if ((contractorCards & card) == 0)
+				throw new IllegalArgumentException("Card " + record.getDiscard(i) + " can't be discarded.");
+			writeBits(Long.bitCount(contractorCards & (card - 1)), DISCARD_BITS);
+			contractorCards &= ~card;
+		}
+		hands[contractor] = contractorCards;
+
+		int leader = contractor;
+		int play = 0;
+		for (int trick = 0; trick < HandRecord.TRICKS_PER_HAND; ++trick)
+		{
+			for (int i = 0; i < numberOfPlayers; ++i)
+			{
+				int player = (leader + i) % numberOfPlayers;
+				long card = 1L << record.getPlay(play);
+				if ((hands[player] & card) == 0)
+					throw new IllegalArgumentException("Card " + record.getPlay(play) + " is not in the hand of player "
+							+ player + ".");
+				writeBits(Long.bitCount(hands[player] & (card - 1)), bitsFor(Long.bitCount(hands[player])));
+				hands[player] &= ~card;
+				++play;
+			}
+			leader = record.getTrickWinner(trick);
+			writeBits(leader, playerBits);
+		}
+		if (bitCount > 0)
+			out[position++] = (byte) bitBuffer;
+
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			position = writeVarLong(out, position, zigzag(record.getScoreDelta(player)));
+		}
+
+		this.out = null;
+		return position;
+	}
+
+	/**
+	 * Decodes a hand, starting at the position of a buffer. The position of the
+	 * buffer is moved after the hand.
+	 *
+	 * @param in
+	 *        The buffer holding the encoded hand.
+	 * @param record
+	 *        Receives the decoded hand.
+	 * @throws IllegalArgumentException
+	 *         if the buffer doesn't hold a valid hand.
+	 */
+	public void decode(ByteBuffer in, HandRecord record)
+	{
+		decode(in, record, true);
+	}
+
+	/**
+	 * Decodes a hand, starting at the position of a buffer, optionally without
+	 * its cards. The position of the buffer is moved after the hand.
+	 *
+	 * <p>
+	 * Dealing the hand again takes most of the time needed to decode it. Since every player holds
+	 * the same number of cards at each trick, the size of every index in the bit stream is known
+	 * without the deal, so the bids, the winner of each trick and the scores can be decoded without
+	 * it. The record then holds no discard and no card played.
+	 *
+	 * @param in
+	 *        The buffer holding the encoded hand.
+	 * @param record
+	 *        Receives the decoded hand.
+	 * @param withCards
+	 *        {@code false} to skip the cards discarded and played.
+	 * @throws IllegalArgumentException
+	 *         if the buffer doesn't hold a valid hand.
+	 */
+	public void decode(ByteBuffer in, HandRecord record, boolean withCards)
+	{
+		try
+		{
+			long dealIndex = readVarLong(in);
+			int players = in.get() & 0xFF;
+			int dealer = players >>> 4;
+			int contractor = players & 0x0F;
+			check(dealIndex >= 0 && dealer < numberOfPlayers && contractor < numberOfPlayers);
+
+			if (withCards)
+				deal(dealIndex);
+			record.reset(dealIndex, dealer);
+			record.setContractor(contractor);
+			bitBuffer = 0;
+			bitCount = 0;
+
+			for (int player = 0; player < numberOfPlayers; ++player)
+			{
+				int bid = readBits(in, BID_BITS);
+				check(bid < BIDS.length);
+				record.setBid(player, BIDS[bid]);
+			}
+
+			if (!withCards)
+			{
+				skipCards(in, record);
+				return;
+			}
+
+			long contractorCards = hands[contractor] | hands[numberOfPlayers];
+			for (int i = 0; i < DeckSpec.WIDOW_SIZE; ++i)
+			{
+				int card = selectCard(contractorCards, readBits(in, DISCARD_BITS));
+				record.setDiscard(i, card);
+				contractorCards &= ~(1L << card);
+			}
+			hands[contractor] = contractorCards;
+
+			int leader = contractor;
+			for (int trick = 0; trick < HandRecord.TRICKS_PER_HAND; ++trick)
+			{
+				for (int i = 0; i < numberOfPlayers; ++i)
+				{
+					int player = (leader + i) % numberOfPlayers;
+					int card = selectCard(hands[player], readBits(in, bitsFor(Long.bitCount(hands[player]))));
+					record.addPlay(card);
+					hands[player] &= ~(1L << card);
+				}
+				leader = readBits(in, playerBits);
+				check(leader < numberOfPlayers);
+				record.addTrickWinner(leader);
+			}
+
+			for (int player = 0; player < numberOfPlayers; ++player)
+			{
+				record.setScoreDelta(player, unzigzag(readVarLong(in)));
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IllegalArgumentException("Corrupted hand record.", e);
+		}
+	}
+
+	/**
+	 * Decodes the rest of a hand after the bids, skipping the cards discarded
+	 * and played.
+	 *
+	 * @param in
+	 *        The buffer holding the encoded hand.
+	 * @param record
+	 *        Receives the decoded hand.
+	 */
+	private void skipCards(ByteBuffer in, HandRecord record)
+	{
+		readBits(in, DeckSpec.WIDOW_SIZE * DISCARD_BITS);
+		for (int trick = 0; trick < HandRecord.TRICKS_PER_HAND; ++trick)
+		{
+			readBits(in, numberOfPlayers * bitsFor(DeckSpec.HAND_SIZE - trick));
+			int leader = readBits(in, playerBits);
+			check(leader < numberOfPlayers);
+			record.addTrickWinner(leader);
+		}
+
+		for (int player = 0; player < numberOfPlayers; ++player)
+		{
+			record.setScoreDelta(player, unzigzag(readVarLong(in)));
+		}
+	}
+
+	/**
+	 * Deals a hand again from its deal index.
+	 *
+	 * @param dealIndex
+	 *        The index of the hand in the game.
+	 * @param dealtHands
+	 *        Receives the cards dealt to each player as a bit set of card ids,
+	 *        indexed by player. The last entry receives the widow.
+	 */
+	public void dealHands(long dealIndex, long[] dealtHands)
+	{
+		deal(dealIndex);
+		System.arraycopy(hands, 0, dealtHands, 0, hands.length);
+	}
+
+	/**
+	 * Deals a hand again from its deal index.
+	 *
+	 * @param dealIndex
+	 *        The index of the hand in the game.
+	 */
+	private void deal(long dealIndex)
+	{
+		random.setSeed(DeckSpec.dealSeed(baseSeed, dealIndex));
+		deckSpec.shuffle(order, random);
+		for (int i = 0; i < hands.length; ++i)
+		{
+			hands[i] = 0;
+		}
+		for (int position = 0; position < order.length; ++position)
+		{
+			hands[deckSpec.getDealTarget(position)] |= 1L << order[position];
+		}
+	}
+
+	/**
+	 * Returns the id of the card at an index in a set of cards sorted by id.
+	 *
+	 * @param cards
+	 *        The set of cards.
+	 * @param index
+	 *        The index of the card in the set.
+	 * @return the id of the card.
+	 */
+	private static int selectCard(long cards, int index)
+	{
+		check(index < Long.bitCount(cards));
+		for (int i = 0; i < index; ++i)
+		{
+			cards &= cards - 1;
+		}
+		return Long.numberOfTrailingZeros(cards);
+	}
+
+	/**
+	 * Appends bits to the bit stream.
+	 *
+	 * @param value
+	 *        The value to write.
+	 * @param bits
+	 *        The number of bits of the value to write.
+	 */
+	private void writeBits(int value, int bits)
+	{
+		bitBuffer |= (long) value << bitCount;
+		bitCount += bits;
+		while (bitCount >= 8)
+		{
+			out[position++] = (byte) bitBuffer;
+			bitBuffer >>>= 8;
+			bitCount -= 8;
+		}
+	}
+
+	/**
+	 * Reads bits from the bit stream.
+	 *
+	 * @param in
+	 *        The buffer holding the bit stream.
+	 * @param bits
+	 *        The number of bits to read.
+	 * @return the value read.
+	 */
+	private int readBits(ByteBuffer in, int bits)
+	{
+		while (bitCount < bits)
+		{
+			bitBuffer |= (long) (in.get() & 0xFF) << bitCount;
+			bitCount += 8;
+		}
+		int value = (int) (bitBuffer & ((1L << bits) - 1));
+		bitBuffer >>>= bits;
+		bitCount -= bits;
+		return value;
+	}
+
+	/**
+	 * Throws an exception if a decoded value is invalid.
+	 *
+	 * @param isValid
+	 *        {@code true} if the value is valid.
+	 */
+	private static void check(boolean isValid)
+	{
+		if (!isValid)
+			throw new IllegalArgumentException("Corrupted hand record.");
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Returns the number of bits needed to store an index smaller than a
+	 * number of values. A single value needs no bit at all.
+	 *
+	 * @param values
+	 *        The number of values.
+	 * @return the number of bits needed.
+	 */
+	static int bitsFor(int values)
+	{
+		return values <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(values - 1);
+	}
+
+	/**
+	 * Writes an unsigned varint: 7 bits per byte, the high bit telling whether
+	 * another byte follows.
+	 *
+	 * @param out
+	 *        The array to write to.
+	 * @param position
+	 *        The position of the first byte to write.
+	 * @param value
+	 *        The value to write.
+	 * @return the position after the varint.
+	 */
+	static int writeVarLong(byte[] out, int position, long value)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out[position++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 *
+	 * @param in
+	 *        The buffer to read from.
+	 * @return the value read.
+	 * @throws IllegalArgumentException
+	 *         if the varint is longer than 10 bytes.
+	 */
+	static long readVarLong(ByteBuffer in)
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Corrupted varint.");
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one so small negative values stay
+	 * small: 0, -1, 1, -2, 2... become 0, 1, 2, 3, 4...
+	 */
+	private static long zigzag(int value)
+	{
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	/** Reverses {@link #zigzag(int)}. */
+	private static int unzigzag(long value)
+	{
+		return (int) (value >>> 1) ^ -(int) (value & 1);
+	}
+}
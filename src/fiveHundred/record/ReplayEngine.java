@@ -0,0 +1,490 @@
+package fiveHundred.record;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+
+import java.util.Arrays;
+
+/**
+ * Replays a recorded hand one step at a time, forward or back, and jumps to
+ * any step instantly.
+ *
+ * <p>
+ * A hand has one step per bid followed by one step per card played. Step 0 is the deal, before
+ * anyone bids, and the last step is the end of the hand. Once a hand is loaded, the engine keeps a
+ * compact snapshot of the hands and tricks won at the deal and at the beginning of every few
+ * tricks. Jumping to a step restores the closest snapshot before it and applies the cards played
+ * since, so it never replays more than a few tricks. Stepping forward applies a single card.
+ *
+ * <p>
+ * The engine doesn't depend on the user interface, so it can be used headlessly by the analysis
+ * tools. It is meant to be reused: loading another hand doesn't allocate anything. An instance of
+ * this class must only be used by one thread at a time.
+ */
+public class ReplayEngine
+{
+	/** The number of tricks between two snapshots by default. */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 1;
+
+	/** The codec used to deal the hands again. */
+	private final HandRecordCodec codec;
+
+	/** The number of players at the table. */
+	private final int numberOfPlayers;
+
+	/** The number of tricks between two snapshots. */
+	private final int snapshotInterval;
+
+	/** The hand being replayed. */
+	private HandRecord record;
+
+	/** The cards dealt to each player, indexed by player. The last entry is the widow. */
+	private final long[] dealtHands;
+
+	/**
+	 * The cards left in each hand at the beginning of every snapshot trick.
+	 * Holds {@code numberOfPlayers + 1} entries per snapshot, the last one
+	 * being the widow.
+	 */
+	private final long[] snapshotHands;
+
+	/** The tricks won by each player at the beginning of every snapshot trick. */
+	private final byte[] snapshotTricksWon;
+
+	/** The current step. */
+	private int step;
+
+	/** The cards left in each hand at the current step. The last entry is the widow. */
+	private final long[] hands;
+
+	/** The tricks won by each player at the current step. */
+	private final int[] tricksWon;
+
+	/** The cards of the trick being played, indexed by player. An entry is -1 if that player hasn't played yet. */
+	private final int[] cardsOnTable;
+
+	/** The cards of the last trick completed, indexed by player, or -1 if none was completed. */
+	private final int[] lastTrick;
+
+	/**
+	 * Creates an engine for the hands of a game record file, with a snapshot
+	 * at the beginning of every trick.
+	 *
+	 * @param header
+	 *        The header of the file.
+	 */
+	public ReplayEngine(GameRecordHeader header)
+	{
+		this(header, DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * Creates an engine for the hands of a game record file.
+	 *
+	 * @param header
+	 *        The header of the file.
+	 * @param snapshotInterval
+	 *        The number of tricks between two snapshots. Fewer snapshots take
+	 *        less memory but make jumping slower.
+	 */
+	public ReplayEngine(GameRecordHeader header, int snapshotInterval)
+	{
+		if (snapshotInterval < 1)
+			throw new IllegalArgumentException("The snapshot interval must be positive.");
+
+		codec = header.createCodec();
+		numberOfPlayers = header.getDeckSpec().getNumberOfPlayers();
+		this.snapshotInterval = snapshotInterval;
+
+		int snapshotCount = HandRecord.TRICKS_PER_HAND / snapshotInterval + 1;
+		dealtHands = new long[numberOfPlayers + 1];
+		snapshotHands = new long[snapshotCount * (numberOfPlayers + 1)];
+		snapshotTricksWon = new byte[snapshotCount * numberOfPlayers];
+		hands = new long[numberOfPlayers + 1];
+		tricksWon = new int[numberOfPlayers];
+		cardsOnTable = new int[numberOfPlayers];
+		lastTrick = new int[numberOfPlayers];
+	}
+
+	/**
+	 * Loads a hand and moves to its deal. The record must not be modified
+	 * while it is replayed.
+	 *
+	 * @param record
+	 *        The hand to replay. It must be complete.
+	 * @throws IllegalArgumentException
+	 *         if the hand is incomplete.
+	 */
+	public void load(HandRecord record)
+	{
+		if (!record.isComplete())
+			throw new IllegalArgumentException("Only a complete hand can be replayed.");
+
+		this.record = record;
+		codec.dealHands(record.getDealIndex(), dealtHands);
+
+		// Play the whole hand once to take the snapshots.
+		seekToBiddingStep(numberOfPlayers);
+		for (int trick = 0; trick < HandRecord.TRICKS_PER_HAND; ++trick)
+		{
+			if (trick % snapshotInterval == 0)
+				saveSnapshot(trick / snapshotInterval);
+			for (int i = 0; i < numberOfPlayers; ++i)
+			{
+				applyPlay(trick * numberOfPlayers + i);
+			}
+		}
+		if (HandRecord.TRICKS_PER_HAND % snapshotInterval == 0)
+			saveSnapshot(HandRecord.TRICKS_PER_HAND / snapshotInterval);
+
+		seekToBiddingStep(0);
+	}
+
+	/**
+	 * Moves to a step of the hand.
+	 *
+	 * @param target
+	 *        The step to move to, from 0 to {@link #getStepCount()}.
+	 * @throws IndexOutOfBoundsException
+	 *         if there is no such step.
+	 */
+	public void seek(int target)
+	{
+		if (target < 0 || target > getStepCount())
+			throw new IndexOutOfBoundsException("Step " + target + " out of " + getStepCount());
+
+		if (target <= numberOfPlayers)
+		{
+			seekToBiddingStep(target);
+			return;
+		}
+
+		int playsMade = target - numberOfPlayers;
+		int snapshot = Math.min(playsMade / numberOfPlayers / snapshotInterval,
+				(snapshotHands.length / (numberOfPlayers + 1)) - 1);
+		restoreSnapshot(snapshot);
+		for (int play = snapshot * snapshotInterval * numberOfPlayers; play < playsMade; ++play)
+		{
+			applyPlay(play);
+		}
+		step = target;
+	}
+
+	/**
+	 * Moves to the next step.
+	 *
+	 * @return {@code false} if we already are at the end of the hand.
+	 */
+	public boolean stepForward()
+	{
+		if (step == getStepCount())
+			return false;
+
+		if (step < numberOfPlayers)
+			seekToBiddingStep(step + 1);
+		else
+		{
+			applyPlay(step - numberOfPlayers);
+			++step;
+		}
+		return true;
+	}
+
+	/**
+	 * Moves to the previous step.
+	 *
+	 * @return {@code false} if we already are at the deal.
+	 */
+	public boolean stepBack()
+	{
+		if (step == 0)
+			return false;
+		seek(step - 1);
+		return true;
+	}
+
+	/**
+	 * Moves to the bidding or to the beginning of the play, where no card was
+	 * played yet.
+	 *
+	 * @param target
+	 *        The number of bids made, from 0 to the number of players.
+	 */
+	private void seekToBiddingStep(int target)
+	{
+		System.arraycopy(dealtHands, 0, hands, 0, hands.length);
+		if (target == numberOfPlayers)
+		{
+			// The contractor takes the widow and discards.
+			int contractor = record.getContractor();
+			hands[contractor] |= hands[numberOfPlayers];
+			hands[numberOfPlayers] = 0;
+			for (int i = 0; i < DeckSpec.WIDOW_SIZE; ++i)
+			{
+				long card = 1L << record.getDiscard(i);
+				hands[contractor] &= ~card;
+				hands[numberOfPlayers] |= card;
+			}
+		}
+		Arrays.fill(tricksWon, 0);
+		Arrays.fill(cardsOnTable, -1);
+		Arrays.fill(lastTrick, -1);
+		step = target;
+	}
+
+	/**
+	 * Plays a card of the hand. Completes the trick if it is the last card of
+	 * the trick.
+	 *
+	 * @param play
+	 *        The index of the card among the cards played during the hand.
+	 */
+	private void applyPlay(int play)
+	{
+		int trick = play / numberOfPlayers;
+		int player = (getTrickLeader(trick) + play % numberOfPlayers) % numberOfPlayers;
+		int card = record.getPlay(play);
+		hands[player] &= ~(1L << card);
+		cardsOnTable[player] = card;
+
+		if (play % numberOfPlayers == numberOfPlayers - 1)
+		{
+			++tricksWon[record.getTrickWinner(trick)];
+			System.arraycopy(cardsOnTable, 0, lastTrick, 0, numberOfPlayers);
+			Arrays.fill(cardsOnTable, -1);
+		}
+	}
+
+	/**
+	 * Saves the hands and tricks won at the beginning of a trick.
+	 *
+	 * @param snapshot
+	 *        The index of the snapshot.
+	 */
+	private void saveSnapshot(int snapshot)
+	{
+		System.arraycopy(hands, 0, snapshotHands, snapshot * (numberOfPlayers + 1), numberOfPlayers + 1);
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			snapshotTricksWon[snapshot * numberOfPlayers + i] = (byte) tricksWon[i];
+		}
+	}
+
+	/**
+	 * Restores the state at the beginning of a snapshot trick.
+	 *
+	 * @param snapshot
+	 *        The index of the snapshot.
+	 */
+	private void restoreSnapshot(int snapshot)
+	{
+		System.arraycopy(snapshotHands, snapshot * (numberOfPlayers + 1), hands, 0, numberOfPlayers + 1);
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			tricksWon[i] = snapshotTricksWon[snapshot * numberOfPlayers + i];
+		}
+		Arrays.fill(cardsOnTable, -1);
+		Arrays.fill(lastTrick, -1);
+
+		// The last trick before the snapshot is needed to show the table.
+		int trick = snapshot * snapshotInterval;
+		if (trick > 0)
+		{
+			int leader = getTrickLeader(trick - 1);
+			for (int i = 0; i < numberOfPlayers; ++i)
+			{
+				lastTrick[(leader + i) % numberOfPlayers] = record.getPlay((trick - 1) * numberOfPlayers + i);
+			}
+		}
+	}
+
+	/**
+	 * Returns the player who leads a trick.
+	 *
+	 * @param trick
+	 *        The index of the trick.
+	 * @return the index of the player who leads that trick.
+	 */
+	private int getTrickLeader(int trick)
+	{
+		return trick == 0 ? record.getContractor() : record.getTrickWinner(trick - 1);
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public HandRecord getRecord()
+	{
+		return record;
+	}
+
+	public int getNumberOfPlayers()
+	{
+		return numberOfPlayers;
+	}
+
+	/**
+	 * Returns the number of steps of a hand, that is, one per bid and one per
+	 * card played. The end of the hand is at this step.
+	 *
+	 * @return the number of steps of a hand.
+	 */
+	public int getStepCount()
+	{
+		return numberOfPlayers + numberOfPlayers * HandRecord.TRICKS_PER_HAND;
+	}
+
+	public int getStep()
+	{
+		return step;
+	}
+
+	/**
+	 * Returns {@code true} if the players are still bidding at the current
+	 * step.
+	 *
+	 * @return {@code true} during the bidding.
+	 */
+	public boolean isBidding()
+	{
+		return step < numberOfPlayers;
+	}
+
+	/**
+	 * Returns the number of cards played so far.
+	 *
+	 * @return the number of cards played.
+	 */
+	public int getPlaysMade()
+	{
+		return Math.max(0, step - numberOfPlayers);
+	}
+
+	/**
+	 * Returns the step at which a trick begins, that is, before its first card
+	 * is played.
+	 *
+	 * @param trick
+	 *        The index of the trick, from 0 to the number of tricks. The last
+	 *        value is the end of the hand.
+	 * @return the step at which the trick begins.
+	 */
+	public int getTrickStep(int trick)
+	{
+		return numberOfPlayers + trick * numberOfPlayers;
+	}
+
+	/**
+	 * Returns the index of the trick being played, or the number of tricks
+	 * once the hand is over.
+	 *
+	 * @return the index of the current trick.
+	 */
+	public int getCurrentTrick()
+	{
+		return getPlaysMade() / numberOfPlayers;
+	}
+
+	/**
+	 * Returns the player who has to bid or play at the current step.
+	 *
+	 * @return the index of the player who has to act, or -1 at the end of the
+	 *         hand.
+	 */
+	public int getPlayerToAct()
+	{
+		if (isBidding())
+			return (record.getDealer() + 1 + step) % numberOfPlayers;
+		if (step == getStepCount())
+			return -1;
+		int playsMade = getPlaysMade();
+		return (getTrickLeader(playsMade / numberOfPlayers) + playsMade % numberOfPlayers) % numberOfPlayers;
+	}
+
+	/**
+	 * Returns the bid called by a player, if he already called it at the
+	 * current step.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the bid of that player or {@code null} if he hasn't bid yet.
+	 */
+	public Bid getBid(int player)
+	{
+		int bidOrder = (player - record.getDealer() - 1 + 2 * numberOfPlayers) % numberOfPlayers;
+		return bidOrder < step ? record.getBid(player) : null;
+	}
+
+	/**
+	 * Returns the bid the hand is played with, once the bidding is over.
+	 *
+	 * @return the highest bid or {@code Bid.PASS} during the bidding.
+	 */
+	public Bid getHighestBid()
+	{
+		return isBidding() ? Bid.PASS : record.getHighestBid();
+	}
+
+	/**
+	 * Returns the cards in the hand of a player at the current step.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the cards of that player as a bit set of card ids.
+	 */
+	public long getHand(int player)
+	{
+		return hands[player];
+	}
+
+	/**
+	 * Returns the cards in the widow at the current step. Once the bidding is
+	 * over, these are the cards discarded by the contractor.
+	 *
+	 * @return the cards of the widow as a bit set of card ids.
+	 */
+	public long getWidow()
+	{
+		return hands[numberOfPlayers];
+	}
+
+	/**
+	 * Returns the card played by a player during the trick being played.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the id of the card or -1 if that player hasn't played yet.
+	 */
+	public int getCardOnTable(int player)
+	{
+		return cardsOnTable[player];
+	}
+
+	/**
+	 * Returns the card played by a player during the last trick completed.
+	 *
+	 * @param player
+	 *        The index of the player.
+	 * @return the id of the card or -1 if no trick was completed yet.
+	 */
+	public int getLastTrickCard(int player)
+	{
+		return lastTrick[player];
+	}
+
+	/**
+	 * Returns the winner of the last trick completed.
+	 *
+	 * @return the index of the player who won the last trick or -1 if no trick
+	 *         was completed yet.
+	 */
+	public int getLastTrickWinner()
+	{
+		int trick = getCurrentTrick();
+		return trick == 0 ? -1 : record.getTrickWinner(trick - 1);
+	}
+
+	public int getTricksWon(int player)
+	{
+		return tricksWon[player];
+	}
+}
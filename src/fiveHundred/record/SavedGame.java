@@ -0,0 +1,325 @@
+package fiveHundred.record;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.TableState;
+import fiveHundred.rules.Bid;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * A match saved to be resumed later, even after a restart: the
+ * {@link TableState} of the table, which holds the hands, the widow, the
+ * bids, the trick being played, the scores and the dealer, along with the
+ * seeds of the match and the order of the cards played in the hand, so the
+ * hand can still be recorded once it is over.
+ *
+ * <p>
+ * A saved game takes at most {@value #MAX_SIZE} bytes, laid out as follows:
+ * <ul>
+ * <li>{@link #MAGIC}, the version on 2 bytes, the number of players and a byte of padding;</li>
+ * <li>the base seed of the deals, the index of the next hand to deal and the state of the random
+ * number generator of the game, on 8 bytes each;</li>
+ * <li>the number of trumps of the contractor when the play started;</li>
+ * <li>the {@value TableState#BYTES} bytes of the table, as {@link TableState#write(ByteBuffer)}
+ * writes them for the server;</li>
+ * <li>the number of cards played in the hand and their ids, then the number of tricks won and
+ * their winners, a byte each.</li>
+ * </ul>
+ */
+public class SavedGame
+{
+	/** The first 4 bytes of every saved game: "FHSG". */
+	public static final int MAGIC = 0x46485347;
+
+	/** The version of the format written by this code. */
+	public static final short VERSION = 1;
+
+	/** The largest size in bytes of a saved game. */
+	public static final int MAX_SIZE = 8 + 3 * Long.BYTES + 1 + TableState.BYTES + 2 + DeckSpec.SIX_PLAYERS
+			.getPlayableCards() + HandRecord.TRICKS_PER_HAND;
+
+	/** The specification of the deck the match is played with. */
+	private final DeckSpec deckSpec;
+
+	/** The table. */
+	private final TableState state;
+
+	/** The hand being played, as far as it went. */
+	private final HandRecord record;
+
+	/** The seed every hand of the match is dealt from. */
+	private long baseSeed;
+
+	/** The index of the next hand to deal. */
+	private long dealIndex;
+
+	/** The state of the random number generator of the game. */
+	private long randomState;
+
+	/** The number of trumps in the contractor's hand when the play started. */
+	private int contractorTrumpLength;
+
+	/**
+	 * Creates an empty saved game, whose table waits for its first round.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the match is played with.
+	 */
+	public SavedGame(DeckSpec deckSpec)
+	{
+		this.deckSpec = deckSpec;
+		state = new TableState(deckSpec.getNumberOfPlayers());
+		record = new HandRecord(deckSpec);
+	}
+
+	/**
+	 * Writes this saved game.
+	 *
+	 * @param buffer
+	 *        The buffer to write to, with at least {@link #MAX_SIZE} bytes
+	 *        remaining.
+	 */
+	public void write(ByteBuffer buffer)
+	{
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.put((byte) deckSpec.getNumberOfPlayers());
+		buffer.put((byte) 0);
+		buffer.putLong(baseSeed);
+		buffer.putLong(dealIndex);
+		buffer.putLong(randomState);
+		buffer.put((byte) contractorTrumpLength);
+		state.write(buffer);
+
+		int playCount = state.getPhase() < TableState.PLAYING ? 0 : record.getPlayCount();
+		buffer.put((byte) playCount);
+		for (int i = 0; i < playCount; ++i)
+		{
+			buffer.put((byte) record.getPlay(i));
+		}
+		int trickCount = state.getPhase() < TableState.PLAYING ? 0 : record.getTrickCount();
+		buffer.put((byte) trickCount);
+		for (int i = 0; i < trickCount; ++i)
+		{
+			buffer.put((byte) record.getTrickWinner(i));
+		}
+	}
+
+	/**
+	 * Writes this saved game to a file. The file is replaced at once, so it
+	 * still holds the previous save if the program stops while writing.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @throws IOException
+	 *         if the file can't be written.
+	 */
+	public void save(Path path) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+		write(buffer);
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.write(temporary, Arrays.copyOf(buffer.array(), buffer.position()));
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Checks the table against the deck, then rebuilds the hand being played
+	 * from the table and the plays that follow it.
+	 */
+	private void readRecord(ByteBuffer buffer)
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		if (state.getNumberOfPlayers() != numberOfPlayers)
+			throw new IllegalArgumentException("The table doesn't have " + numberOfPlayers + " players.");
+		long deck = deckSpec.getDeckSize() == Long.SIZE ? -1 : (1L << deckSpec.getDeckSize()) - 1;
+		long cards = state.getWidow() | state.getPlayedCards();
+		if ((state.getWidow() & state.getPlayedCards()) != 0)
+			throw new IllegalArgumentException("A card is in two places.");
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			if ((cards & state.getHand(seat)) != 0)
+				throw new IllegalArgumentException("A card is in two places.");
+			cards |= state.getHand(seat);
+			int card = state.getCardOnTable(seat);
+			if (card != -1 && (state.getPlayedCards() & 1L << card) == 0)
+				throw new IllegalArgumentException("A card on the table wasn't played.");
+		}
+		if ((cards & ~deck) != 0)
+			throw new IllegalArgumentException("A card isn't in the deck.");
+
+		int playCount = buffer.get() & 0xFF;
+		if (playCount != Long.bitCount(state.getPlayedCards()))
+			throw new IllegalArgumentException("The plays don't match the table.");
+		int[] plays = new int[playCount];
+		for (int i = 0; i < playCount; ++i)
+		{
+			plays[i] = buffer.get() & 0xFF;
+		}
+		int trickCount = buffer.get() & 0xFF;
+		if (trickCount != state.getTricksPlayed())
+			throw new IllegalArgumentException("The tricks don't match the table.");
+
+		if (state.getPhase() == TableState.WAITING)
+			return;
+		record.reset(state.getRound() - 1, state.getDealer());
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			Bid bid = state.getBid(seat);
+			if (bid != null)
+				record.setBid(seat, bid);
+		}
+		if (state.getPhase() == TableState.BIDDING)
+			return;
+		record.setContractor(state.getContractor());
+		if (Long.bitCount(state.getWidow()) != DeckSpec.WIDOW_SIZE)
+			throw new IllegalArgumentException("The widow doesn't have " + DeckSpec.WIDOW_SIZE + " cards.");
+		int discard = 0;
+		for (long widow = state.getWidow(); widow != 0; widow &= widow - 1)
+		{
+			record.setDiscard(discard++, Long.numberOfTrailingZeros(widow));
+		}
+		for (int play : plays)
+		{
+			if ((state.getPlayedCards() & 1L << play) == 0)
+				throw new IllegalArgumentException("A card played isn't on the table.");
+			record.addPlay(play);
+		}
+		for (int i = 0; i < trickCount; ++i)
+		{
+			int winner = buffer.get();
+			if (winner < 0 || winner >= numberOfPlayers)
+				throw new IllegalArgumentException("No player " + winner + ".");
+			record.addTrickWinner(winner);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public DeckSpec getDeckSpec()
+	{
+		return deckSpec;
+	}
+
+	/**
+	 * Returns the table, to fill before saving or to read after loading.
+	 *
+	 * @return the table.
+	 */
+	public TableState getState()
+	{
+		return state;
+	}
+
+	/**
+	 * Returns the hand being played. Before saving, only its plays and trick
+	 * winners are kept; after loading, it also holds the bids, the contractor
+	 * and the discard, taken from the table, but no score.
+	 *
+	 * @return the hand.
+	 */
+	public HandRecord getRecord()
+	{
+		return record;
+	}
+
+	public long getBaseSeed()
+	{
+		return baseSeed;
+	}
+
+	public long getDealIndex()
+	{
+		return dealIndex;
+	}
+
+	public long getRandomState()
+	{
+		return randomState;
+	}
+
+	public int getContractorTrumpLength()
+	{
+		return contractorTrumpLength;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	public void setBaseSeed(long value)
+	{
+		baseSeed = value;
+	}
+
+	public void setDealIndex(long value)
+	{
+		dealIndex = value;
+	}
+
+	public void setRandomState(long value)
+	{
+		randomState = value;
+	}
+
+	public void setContractorTrumpLength(int value)
+	{
+		contractorTrumpLength = value;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Reads a saved game.
+	 *
+	 * @param buffer
+	 *        The buffer holding the saved game.
+	 * @return the saved game.
+	 * @throws IOException
+	 *         if the buffer doesn't hold a valid saved game.
+	 */
+	public static SavedGame read(ByteBuffer buffer) throws IOException
+	{
+		try
+		{
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a saved game.");
+			short version = buffer.getShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported saved game version: " + version);
+			SavedGame game = new SavedGame(DeckSpec.forPlayers(buffer.get()));
+			buffer.get();
+			game.baseSeed = buffer.getLong();
+			game.dealIndex = buffer.getLong();
+			game.randomState = buffer.getLong();
+			game.contractorTrumpLength = buffer.get();
+			game.state.read(buffer);
+			game.readRecord(buffer);
+			return game;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e)
+		{
+			throw new IOException("Corrupted saved game.", e);
+		}
+	}
+
+	/**
+	 * Reads a saved game from a file.
+	 *
+	 * @param path
+	 *        The path of the file.
+	 * @return the saved game.
+	 * @throws IOException
+	 *         if the file can't be read or doesn't hold a valid saved game.
+	 */
+	public static SavedGame load(Path path) throws IOException
+	{
+		if (Files.size(path) > MAX_SIZE)
+			throw new IOException("The file is too large to be a saved game.");
+		return read(ByteBuffer.wrap(Files.readAllBytes(path)));
+	}
+}
@@ -186,6 +186,19 @@ public enum Bid
 		return this.trump != Trump.NO_TRUMP;
 	}
 
+	/**
+	 * Return the number of tricks the contractor's side must win to make this
+	 * Bid, from 6 to 10. Passing doesn't require any trick.
+	 * 
+	 * @return the number of tricks needed to make this Bid.
+	 */
+	public int getTricksToWin()
+	{
+		if (this == PASS)
+			return 0;
+		return 6 + (ordinal() - 1) / 5;
+	}
+
 	/**
 	 * Return the scoreValue of this Bid.
 	 * 
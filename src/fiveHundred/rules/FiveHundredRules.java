@@ -1,12 +1,48 @@
 package fiveHundred.rules;
 
-import java.util.HashMap;
-
-import fiveHundred.Game;
 import fiveHundred.cards.Card;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.cards.Hand;
 
 public class FiveHundredRules
 {
+	/** The rank of the right bower (Jack of the same color as the trump). */
+	public static final int RIGHT_BOWER_RANK = 18;
+
+	/** The rank of the left bower (Jack of the same suit as the trump). */
+	public static final int LEFT_BOWER_RANK = 19;
+
+	/** The rank of the Joker, which is always the highest card. */
+	public static final int JOKER_RANK = 20;
+
+	/** The points a side scores for winning every trick, unless its bid is worth more. */
+	public static final int SLAM_SCORE = 250;
+
+	/** The points the defenders score for each trick they win. */
+	public static final int DEFENDER_TRICK_SCORE = 10;
+
+	/**
+	 * The rank of each card value when there is no trump, indexed by value.
+	 * The 11, 12 and 13 numbered cards of the six players deck rank between the
+	 * 10 and the Jack.
+	 */
+	private static final int[] VALUE_RANKS = new int[Card.THIRTEEN + 1];
+
+	static
+	{
+		for (int value = 1; value <= 10; ++value)
+		{
+			VALUE_RANKS[value] = value;
+		}
+		VALUE_RANKS[Card.ELEVEN] = 11;
+		VALUE_RANKS[Card.TWELVE] = 12;
+		VALUE_RANKS[Card.THIRTEEN] = 13;
+		VALUE_RANKS[Card.JACK] = 14;
+		VALUE_RANKS[Card.QUEEN] = 15;
+		VALUE_RANKS[Card.KING] = 16;
+		VALUE_RANKS[Card.ACE_HIGH] = 17;
+	}
+
 	/**
 	 * Private constructor since this class only contains static methods.
 	 */
@@ -15,23 +51,26 @@ public class FiveHundredRules
 	/**
 	 * This method returns the index of the player who played the highest card
 	 * during this trick.
-	 * 
+	 *
 	 * @param cardsOnTable
-	 *        The HashMap containing the cards currently played on the table.
+	 *        The cards played on the table, indexed by player.
 	 * @param firstCardPlayed
-	 *        An index into the map of cards that represents the first card played on the table.
+	 *        The index of the player who played the first card of the trick.
+	 * @param bid
+	 *        The highest bid of this round.
 	 * @return The index of the player who played the highest card during this
 	 *         trick.
 	 */
-	public static int trickWinner(HashMap<Integer, Card> cardsOnTable, int firstCardPlayed, Game game)
+	public static int trickWinner(Card[] cardsOnTable, int firstCardPlayed, Bid bid)
 	{
-		int numberOfPlayers = game.getNumblerOfPlayers();
-		
+		int numberOfPlayers = cardsOnTable.length;
+
 		// We start by assuming that the player who played first is the
 		// trickWinner. We compare him to the next player to his left and
 		// determine which is the winner between them. We than repeat this
 		// process between the current trickWinner and the other player.
 		int trickWinner = firstCardPlayed;
+		int leadSuit = getCardSuit(cardsOnTable[firstCardPlayed], bid);
 
 		// If the card is a Joker and it is higher than the other card (if we
 		// are using 2 Jokers) or if the card is the same suit as the other and
@@ -39,13 +78,12 @@ public class FiveHundredRules
 		// TODO: Add rules for trump (maybe adjust card values for trump higher)
 		for (int offset = 1; offset < numberOfPlayers; ++offset)
 		{
-			if ((game.getCardSuit(cardsOnTable.get((firstCardPlayed + offset) % numberOfPlayers)) == Card.JOKER &&
-					game.getCardValue(cardsOnTable.get((firstCardPlayed + offset) % numberOfPlayers)) >
-					game.getCardValue(cardsOnTable.get(trickWinner))) ||
-				(game.getCardSuit(cardsOnTable.get((firstCardPlayed + offset) % numberOfPlayers)) ==
-						game.getCardSuit(cardsOnTable.get(firstCardPlayed)) &&
-				 game.getCardValue(cardsOnTable.get((firstCardPlayed + offset) % numberOfPlayers)) >
-					game.getCardValue(cardsOnTable.get(trickWinner))))
+			Card card = cardsOnTable[(firstCardPlayed + offset) % numberOfPlayers];
+			int cardSuit = getCardSuit(card, bid);
+			int cardValue = getCardValue(card, bid);
+
+			if ((cardSuit == Card.JOKER && cardValue > getCardValue(cardsOnTable[trickWinner], bid)) ||
+				(cardSuit == leadSuit && cardValue > getCardValue(cardsOnTable[trickWinner], bid)))
 			{
 				trickWinner = (firstCardPlayed + offset) % numberOfPlayers;
 			}
@@ -53,4 +91,215 @@ public class FiveHundredRules
 
 		return trickWinner;
 	}
+
+	/**
+	 * Calculate the value of a FiveHundred card, that is, its rank among the
+	 * cards of its suit.
+	 *
+	 * <p>
+	 * Numbered cards rank at their face number, the 11, 12 and 13 of the six players deck rank 11
+	 * to 13, then Jack = 14, Queen = 15, King = 16 and Ace = 17. When there is a trump, the right
+	 * bower (Jack of the same color as the trump) is 18 and the left bower (Jack of the same suit as
+	 * the trump) is 19. The Joker is always the highest card, so we give him a value of 20.
+	 *
+	 * @param card
+	 *        The card to calculate the value for.
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @return The card's value.
+	 */
+	public static int getCardValue(Card card, Bid bid)
+	{
+		return getCardValue(card.getSuit(), card.getValue(), bid);
+	}
+
+	/**
+	 * Calculate the value of a FiveHundred card from its suit and value. Used
+	 * when cards are only known by their id.
+	 *
+	 * @param suit
+	 *        The suit of the card.
+	 * @param value
+	 *        The value of the card.
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @return The card's value.
+	 * @see #getCardValue(Card, Bid)
+	 */
+	public static int getCardValue(int suit, int value, Bid bid)
+	{
+		if (suit == Card.JOKER)
+			return JOKER_RANK;
+
+		if (value == Card.JACK && bid.hasTrump())
+		{
+			if (suit == bid.getLeftBower())
+				return LEFT_BOWER_RANK;
+			else if (suit == bid.getRightBower())
+				return RIGHT_BOWER_RANK;
+		}
+
+		return VALUE_RANKS[value];
+	}
+
+	/**
+	 * Returns the suit a card belongs to for this round. The right bower and
+	 * the Joker belong to the trump suit when there is one.
+	 *
+	 * @param card
+	 *        The card to get the suit for.
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @return The suit of the card for this round.
+	 * @throws IllegalArgumentException
+	 *         if the card's suit is not one of the constants in {@code Card}.
+	 */
+	public static int getCardSuit(Card card, Bid bid)
+	{
+		return getCardSuit(card.getSuit(), card.getValue(), bid);
+	}
+
+	/**
+	 * Returns the suit a card belongs to for this round from its suit and
+	 * value. Used when cards are only known by their id.
+	 *
+	 * @param suit
+	 *        The suit of the card.
+	 * @param value
+	 *        The value of the card.
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @return The suit of the card for this round.
+	 * @throws IllegalArgumentException
+	 *         if the suit is not one of the constants in {@code Card}.
+	 * @see #getCardSuit(Card, Bid)
+	 */
+	public static int getCardSuit(int suit, int value, Bid bid)
+	{
+		if (bid.hasTrump() &&
+			value == Card.JACK &&
+			suit == bid.getRightBower())
+		{
+			return bid.getLeftBower();
+		}
+		else if (bid.hasTrump() && suit == Card.JOKER)
+		{
+			return bid.getLeftBower();
+		}
+		else
+		{
+			switch (suit)
+			{
+				case Card.CLUBS:
+				case Card.DIAMONDS:
+				case Card.SPADES:
+				case Card.HEARTS:
+				case Card.JOKER:
+					return suit;
+				default:
+					throw new IllegalArgumentException("Ambigous card suit");
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a card can be played from a hand. A player must follow
+	 * the suit of the first card played if he can, but the Joker can always be
+	 * played.
+	 *
+	 * @param hand
+	 *        The hand of the player who wants to play the card.
+	 * @param card
+	 *        The card the player wants to play.
+	 * @param firstCardPlayed
+	 *        The first card played during this trick or {@code null} if the
+	 *        player is the first to play.
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @return {@code true} if the card can be played, {@code false} otherwise.
+	 */
+	public static boolean isValidCard(Hand hand, Card card, Card firstCardPlayed, Bid bid)
+	{
+		if (firstCardPlayed == null)
+			return true;
+
+		int leadSuit = getCardSuit(firstCardPlayed, bid);
+		int cardSuit = getCardSuit(card, bid);
+		if (cardSuit == Card.JOKER || cardSuit == leadSuit)
+			return true;
+
+		for (int i = 0; i < hand.getCardCount(); ++i)
+		{
+			if (getCardSuit(hand.getCard(i), bid) == leadSuit)
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Calculates the points each player scores at the end of a round according
+	 * to the Avondale schedule. The contractor's side scores the value of the
+	 * bid if it wins enough tricks and loses it otherwise. Winning every trick
+	 * is worth at least {@link #SLAM_SCORE}. The defenders score 10 points for
+	 * each trick won by their side. If every player passed, there is no
+	 * contract and everyone scores like a defender.
+	 *
+	 * @param bid
+	 *        The highest bid of this round.
+	 * @param contractor
+	 *        The index of the highest bidder.
+	 * @param tricksWon
+	 *        The number of tricks won by each player, indexed by player.
+	 * @param scoreDeltas
+	 *        Receives the points scored by each player, indexed by player.
+	 */
+	public static void scoreRound(Bid bid, int contractor, int[] tricksWon, int[] scoreDeltas)
+	{
+		int numberOfPlayers = tricksWon.length;
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			int sideTricks = 0;
+			for (int other = 0; other < numberOfPlayers; ++other)
+			{
+				if (arePartners(seat, other, numberOfPlayers))
+					sideTricks += tricksWon[other];
+			}
+
+			if (bid == Bid.PASS || !arePartners(seat, contractor, numberOfPlayers))
+			{
+				scoreDeltas[seat] = sideTricks * DEFENDER_TRICK_SCORE;
+			}
+			else if (sideTricks >= bid.getTricksToWin())
+			{
+				scoreDeltas[seat] = sideTricks == DeckSpec.HAND_SIZE ? Math.max(bid.getScoreValue(), SLAM_SCORE)
+						: bid.getScoreValue();
+			}
+			else
+			{
+				scoreDeltas[seat] = -bid.getScoreValue();
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if two players play on the same side. With four or
+	 * six players, players sitting across each other form partnerships, that is,
+	 * every other player plays on the same side. Otherwise, every player plays
+	 * for himself.
+	 *
+	 * @param seat
+	 *        The index of the first player.
+	 * @param otherSeat
+	 *        The index of the second player.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @return {@code true} if both players play on the same side.
+	 */
+	public static boolean arePartners(int seat, int otherSeat, int numberOfPlayers)
+	{
+		if (numberOfPlayers == 4 || numberOfPlayers == 6)
+			return seat % 2 == otherSeat % 2;
+		return seat == otherSeat;
+	}
 }
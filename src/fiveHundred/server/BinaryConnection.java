@@ -0,0 +1,110 @@
+package fiveHundred.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client connected to the {@link GameServer} through a socket, using the
+ * {@link BinaryProtocol}. The socket is read straight into a pooled direct
+ * buffer, which is only kept while it holds the beginning of a frame.
+ */
+class BinaryConnection extends BinarySession implements SocketClient
+{
+	/** The socket of the client. */
+	private final SocketChannel channel;
+
+	/** The key of the socket in the selector of the server. */
+	private SelectionKey key;
+
+	/** The bytes received and not yet decoded, in write mode, or {@code null}. */
+	private ByteBuffer input;
+
+	/**
+	 * Creates a connection.
+	 *
+	 * @param server
+	 *        The server the client is connected to.
+	 * @param channel
+	 *        The socket of the client, in non-blocking mode.
+	 */
+	BinaryConnection(GameServer server, SocketChannel channel)
+	{
+		super(server);
+		this.channel = channel;
+	}
+
+	@Override
+	public boolean read() throws IOException
+	{
+		if (input == null)
+			input = pool.acquire();
+		if (channel.read(input) == -1)
+		{
+			pool.release(input);
+			input = null;
+			return false;
+		}
+
+		input.flip();
+		while (BinaryProtocol.decodeRequest(input, this, server))
+		{
+			// Every complete request is handed to the server.
+		}
+		if (input.hasRemaining())
+			input.compact();
+		else
+		{
+			pool.release(input);
+			input = null;
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean transmit(ByteBuffer bytes) throws IOException
+	{
+		channel.write(bytes);
+		if (!bytes.hasRemaining())
+			return true;
+		// The socket is full: let the I/O thread write the rest.
+		server.requestWrite(this);
+		return false;
+	}
+
+	@Override
+	protected void disconnect()
+	{
+		server.close(this);
+	}
+
+	@Override
+	public boolean writePending() throws IOException
+	{
+		// If the socket is full again, transmit asks for another write.
+		return writePendingOutput();
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	@Override
+	public SocketChannel getChannel()
+	{
+		return channel;
+	}
+
+	@Override
+	public SelectionKey getKey()
+	{
+		return key;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	@Override
+	public void setKey(SelectionKey value)
+	{
+		key = value;
+	}
+}
@@ -0,0 +1,457 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol of the {@link GameServer}, a compact alternative to its
+ * line protocol for remote players. Every message is a frame: one byte giving
+ * the length of the rest of the frame, one byte for the type of the message,
+ * then its fields in big-endian order. A frame is at most
+ * {@value #MAX_FRAME_SIZE} bytes, so a buffer of that size always holds a
+ * whole frame.
+ *
+ * <p>
+ * A client may send several requests without waiting for the answers; its actions at a table are
+ * handled in order. Bids are sent as the ordinal of the {@link Bid}, cards as their id and sets of cards as bit sets
+ * of card ids. A frame of an unknown type is always skipped whole, thanks to its length, so it
+ * never breaks the stream: the server answers an unknown or malformed request with an
+ * {@link #ERROR} and goes on with the next one, so a client can tell that the server doesn't
+ * support it, while the client ignores an unknown event, so a server can add events without
+ * breaking the older clients.
+ *
+ * <p>
+ * The requests of a client are {@link #NEW}, {@link #JOIN}, {@link #BID}, {@link #PLAY},
+ * {@link #QUIT}, {@link #WATCH} and {@link #QUEUE}, with the same meaning as in the line protocol. The server sends the events of
+ * {@link TableListener}, from {@link #SEATED} to {@link #ERROR}. The encoding methods write a
+ * whole frame into a buffer which must have {@value #MAX_FRAME_SIZE} bytes remaining, and never
+ * allocate.
+ */
+public class BinaryProtocol
+{
+	/** The longest frame, length included. */
+	public static final int MAX_FRAME_SIZE = 256;
+
+	/** Request: creates a table and sits at it. Fields: players (byte), client seats (byte). */
+	public static final int NEW = 0x01;
+
+	/** Request: sits at a table waiting for clients. Field: table id (int). */
+	public static final int JOIN = 0x02;
+
+	/** Request: calls a bid. Field: bid (byte). */
+	public static final int BID = 0x03;
+
+	/** Request: plays a card. Field: card (byte). */
+	public static final int PLAY = 0x04;
+
+	/** Request: leaves the table. No field. */
+	public static final int QUIT = 0x05;
+
+	/** Request: watches a table as a spectator. Field: table id (int). */
+	public static final int WATCH = 0x06;
+
+	/** Request: asks the matchmaker for a seat. Fields: players (byte), rating (unsigned short). */
+	public static final int QUEUE = 0x07;
+
+	/** Event: the client sat at a table. Fields: table id (int), seat (byte), players (byte). */
+	public static final int SEATED = 0x41;
+
+	/** Event: a round is dealt. Fields: round (int), dealer (byte), hand (long). */
+	public static final int DEALT = 0x42;
+
+	/** Event: a player called a bid. Fields: seat (byte), bid (byte). */
+	public static final int BID_CALLED = 0x43;
+
+	/** Event: the bidding is over. Fields: contractor (byte), bid (byte). */
+	public static final int CONTRACT = 0x44;
+
+	/** Event: a player played a card. Fields: seat (byte), card (byte). */
+	public static final int CARD_PLAYED = 0x45;
+
+	/** Event: a trick is over. Field: winner (byte). */
+	public static final int TRICK_WON = 0x46;
+
+	/** Event: a round is over. Fields: the points of each player (int each). */
+	public static final int SCORED = 0x47;
+
+	/** Event: the client has to bid. Field: highest bid (byte). */
+	public static final int TURN_TO_BID = 0x48;
+
+	/** Event: the client has to play. Field: legal cards (long). */
+	public static final int TURN_TO_PLAY = 0x49;
+
+	/** Event: another client left the table. Field: seat (byte). */
+	public static final int LEFT = 0x4A;
+
+	/** Event: an action was refused. Field: the reason in ASCII, up to the end of the frame. */
+	public static final int ERROR = 0x4B;
+
+	/**
+	 * Event: the state of a table, for a spectator. Fields: table id (int), round (int), dealer
+	 * (byte), highest bid (byte), contractor (byte), bidding (byte, 1 or 0), seat to act (byte),
+	 * played cards (long), then for each player the card on the table (byte, -1 for none), the
+	 * tricks won (byte) and the score (int).
+	 */
+	public static final int SNAPSHOT = 0x4C;
+
+	/** The length of the fields of a snapshot before the fields of the players. */
+	private static final int SNAPSHOT_LENGTH = 2 * Integer.BYTES + 5 + Long.BYTES;
+
+	/** The length of the fields of each player in a snapshot. */
+	private static final int SNAPSHOT_PLAYER_LENGTH = 2 + Integer.BYTES;
+
+	/** The length of each request after the length byte, indexed by type, 0 for unknown types. */
+	private static final int[] REQUEST_LENGTHS = { 0, 3, 5, 2, 2, 1, 5, 4 };
+
+	/** The bids, indexed by ordinal. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private BinaryProtocol() {}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Decodes the request at the position of a buffer and hands it to the
+	 * server, unless the buffer only holds the beginning of the frame. An
+	 * invalid request is refused and skipped.
+	 *
+	 * @param input
+	 *        The bytes received, in read mode. Its position moves past the
+	 *        frame decoded.
+	 * @param session
+	 *        The client who sent the request.
+	 * @param server
+	 *        The server handling the request.
+	 * @return {@code false} if the buffer doesn't hold a whole frame.
+	 */
+	public static boolean decodeRequest(ByteBuffer input, ClientSession session, GameServer server)
+	{
+		int end = frameEnd(input);
+		if (end == -1)
+			return false;
+
+		int length = end - input.position() - 1;
+		input.get();
+		int type = length == 0 ? 0 : input.get() & 0xFF;
+		if (type >= REQUEST_LENGTHS.length || REQUEST_LENGTHS[type] == 0)
+			server.refuse(session, "Unknown request " + type);
+		else if (length != REQUEST_LENGTHS[type])
+			server.refuse(session, "Invalid request " + type);
+		else
+		{
+			switch (type)
+			{
+				case NEW:
+					int numberOfPlayers = input.get();
+					server.newTable(session, numberOfPlayers, input.get());
+					break;
+				case JOIN:
+					server.join(session, input.getInt());
+					break;
+				case BID:
+					int bid = input.get() & 0xFF;
+					if (bid < BIDS.length)
+						server.bid(session, BIDS[bid]);
+					else
+						server.refuse(session, "No bid " + bid);
+					break;
+				case PLAY:
+					server.play(session, input.get() & 0xFF);
+					break;
+				case QUIT:
+					server.quit(session);
+					break;
+				case QUEUE:
+					numberOfPlayers = input.get();
+					server.queue(session, numberOfPlayers, input.getShort() & 0xFFFF);
+					break;
+				default:
+					server.watch(session, input.getInt());
+					break;
+			}
+		}
+		input.position(end);
+		return true;
+	}
+
+	/**
+	 * Decodes the event at the position of a buffer and hands it to a
+	 * listener, unless the buffer only holds the beginning of the frame.
+	 *
+	 * @param input
+	 *        The bytes received, in read mode. Its position moves past the
+	 *        frame decoded.
+	 * @param listener
+	 *        The listener receiving the event.
+	 * @param scoreDeltas
+	 *        The array receiving the points of a {@link #SCORED} event, with
+	 *        an entry for every player.
+	 * @return {@code false} if the buffer doesn't hold a whole frame.
+	 */
+	public static boolean decodeEvent(ByteBuffer input, TableListener listener, int[] scoreDeltas)
+	{
+		int end = frameEnd(input);
+		if (end == -1)
+			return false;
+
+		int length = end - input.position() - 1;
+		input.get();
+		int type = length == 0 ? 0 : input.get() & 0xFF;
+		switch (type)
+		{
+			case SEATED:
+				int tableId = input.getInt();
+				int seat = input.get();
+				listener.seated(tableId, seat, input.get());
+				break;
+			case DEALT:
+				int round = input.getInt();
+				int dealer = input.get();
+				listener.dealt(round, dealer, input.getLong());
+				break;
+			case BID_CALLED:
+				seat = input.get();
+				listener.bidCalled(seat, BIDS[input.get()]);
+				break;
+			case CONTRACT:
+				seat = input.get();
+				listener.contract(seat, BIDS[input.get()]);
+				break;
+			case CARD_PLAYED:
+				seat = input.get();
+				listener.cardPlayed(seat, input.get());
+				break;
+			case TRICK_WON:
+				listener.trickWon(input.get());
+				break;
+			case SCORED:
+				int numberOfPlayers = (length - 1) / Integer.BYTES;
+				for (int i = 0; i < numberOfPlayers; ++i)
+				{
+					scoreDeltas[i] = input.getInt();
+				}
+				listener.scored(scoreDeltas, numberOfPlayers);
+				break;
+			case TURN_TO_BID:
+				listener.turnToBid(BIDS[input.get()]);
+				break;
+			case TURN_TO_PLAY:
+				listener.turnToPlay(input.getLong());
+				break;
+			case LEFT:
+				listener.left(input.get());
+				break;
+			case SNAPSHOT:
+				int players = (length - 1 - SNAPSHOT_LENGTH) / SNAPSHOT_PLAYER_LENGTH;
+				TableSnapshot snapshot = new TableSnapshot(players);
+				tableId = input.getInt();
+				round = input.getInt();
+				dealer = input.get();
+				Bid highestBid = BIDS[input.get()];
+				int contractor = input.get();
+				boolean isBidding = input.get() != 0;
+				seat = input.get();
+				snapshot.set(tableId, round, dealer, highestBid, contractor, isBidding, seat, input.getLong());
+				for (int player = 0; player < players; ++player)
+				{
+					int card = input.get();
+					int tricks = input.get();
+					snapshot.setPlayer(player, card, tricks, input.getInt());
+				}
+				listener.snapshot(snapshot);
+				break;
+			case ERROR:
+				char[] chars = new char[length - 1];
+				for (int i = 0; i < chars.length; ++i)
+				{
+					chars[i] = (char) input.get();
+				}
+				listener.error(new String(chars));
+				break;
+			default:
+				break;
+		}
+		input.position(end);
+		return true;
+	}
+
+	/**
+	 * Returns the end of the frame at the position of a buffer.
+	 *
+	 * @return the index after the frame, or -1 if the buffer doesn't hold
+	 *         the whole frame.
+	 */
+	private static int frameEnd(ByteBuffer input)
+	{
+		if (!input.hasRemaining())
+			return -1;
+		int end = input.position() + 1 + (input.get(input.position()) & 0xFF);
+		return end <= input.limit() ? end : -1;
+	}
+
+	/**
+	 * Writes the length and type of a frame.
+	 */
+	private static void putHeader(ByteBuffer output, int type, int fieldsLength)
+	{
+		output.put((byte) (1 + fieldsLength));
+		output.put((byte) type);
+	}
+
+	public static void putNew(ByteBuffer output, int numberOfPlayers, int clientSeats)
+	{
+		putHeader(output, NEW, 2);
+		output.put((byte) numberOfPlayers);
+		output.put((byte) clientSeats);
+	}
+
+	public static void putJoin(ByteBuffer output, int tableId)
+	{
+		putHeader(output, JOIN, Integer.BYTES);
+		output.putInt(tableId);
+	}
+
+	public static void putBid(ByteBuffer output, Bid bid)
+	{
+		putHeader(output, BID, 1);
+		output.put((byte) bid.ordinal());
+	}
+
+	public static void putPlay(ByteBuffer output, int card)
+	{
+		putHeader(output, PLAY, 1);
+		output.put((byte) card);
+	}
+
+	public static void putQuit(ByteBuffer output)
+	{
+		putHeader(output, QUIT, 0);
+	}
+
+	public static void putWatch(ByteBuffer output, int tableId)
+	{
+		putHeader(output, WATCH, Integer.BYTES);
+		output.putInt(tableId);
+	}
+
+	public static void putQueue(ByteBuffer output, int numberOfPlayers, int rating)
+	{
+		putHeader(output, QUEUE, 1 + Short.BYTES);
+		output.put((byte) numberOfPlayers);
+		output.putShort((short) rating);
+	}
+
+	public static void putSeated(ByteBuffer output, int tableId, int seat, int numberOfPlayers)
+	{
+		putHeader(output, SEATED, Integer.BYTES + 2);
+		output.putInt(tableId);
+		output.put((byte) seat);
+		output.put((byte) numberOfPlayers);
+	}
+
+	public static void putDealt(ByteBuffer output, int round, int dealer, long hand)
+	{
+		putHeader(output, DEALT, Integer.BYTES + 1 + Long.BYTES);
+		output.putInt(round);
+		output.put((byte) dealer);
+		output.putLong(hand);
+	}
+
+	public static void putBidCalled(ByteBuffer output, int seat, Bid bid)
+	{
+		putHeader(output, BID_CALLED, 2);
+		output.put((byte) seat);
+		output.put((byte) bid.ordinal());
+	}
+
+	public static void putContract(ByteBuffer output, int contractor, Bid bid)
+	{
+		putHeader(output, CONTRACT, 2);
+		output.put((byte) contractor);
+		output.put((byte) bid.ordinal());
+	}
+
+	public static void putCardPlayed(ByteBuffer output, int seat, int card)
+	{
+		putHeader(output, CARD_PLAYED, 2);
+		output.put((byte) seat);
+		output.put((byte) card);
+	}
+
+	public static void putTrickWon(ByteBuffer output, int winner)
+	{
+		putHeader(output, TRICK_WON, 1);
+		output.put((byte) winner);
+	}
+
+	public static void putScored(ByteBuffer output, int[] scoreDeltas, int numberOfPlayers)
+	{
+		putHeader(output, SCORED, numberOfPlayers * Integer.BYTES);
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			output.putInt(scoreDeltas[seat]);
+		}
+	}
+
+	public static void putTurnToBid(ByteBuffer output, Bid highestBid)
+	{
+		putHeader(output, TURN_TO_BID, 1);
+		output.put((byte) highestBid.ordinal());
+	}
+
+	public static void putTurnToPlay(ByteBuffer output, long legalMoves)
+	{
+		putHeader(output, TURN_TO_PLAY, Long.BYTES);
+		output.putLong(legalMoves);
+	}
+
+	public static void putLeft(ByteBuffer output, int seat)
+	{
+		putHeader(output, LEFT, 1);
+		output.put((byte) seat);
+	}
+
+	public static void putSnapshot(ByteBuffer output, TableSnapshot snapshot)
+	{
+		int numberOfPlayers = snapshot.getNumberOfPlayers();
+		putHeader(output, SNAPSHOT, SNAPSHOT_LENGTH + numberOfPlayers * SNAPSHOT_PLAYER_LENGTH);
+		output.putInt(snapshot.getTableId());
+		output.putInt(snapshot.getRound());
+		output.put((byte) snapshot.getDealer());
+		output.put((byte) snapshot.getHighestBid().ordinal());
+		output.put((byte) snapshot.getContractor());
+		output.put((byte) (snapshot.isBidding() ? 1 : 0));
+		output.put((byte) snapshot.getSeatToAct());
+		output.putLong(snapshot.getPlayedCards());
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			output.put((byte) snapshot.getCardOnTable(seat));
+			output.put((byte) snapshot.getTricksWon(seat));
+			output.putInt(snapshot.getScore(seat));
+		}
+	}
+
+	/**
+	 * Writes an error. The characters outside of ASCII are replaced by
+	 * {@code ?} and a message too long for a frame is cut.
+	 *
+	 * @param output
+	 *        The buffer.
+	 * @param message
+	 *        The reason of the error.
+	 */
+	public static void putError(ByteBuffer output, String message)
+	{
+		int length = Math.min(message.length(), MAX_FRAME_SIZE - 2);
+		putHeader(output, ERROR, length);
+		for (int i = 0; i < length; ++i)
+		{
+			char c = message.charAt(i);
+			output.put((byte) (c < 0x80 ? c : '?'));
+		}
+	}
+}
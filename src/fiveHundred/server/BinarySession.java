@@ -0,0 +1,264 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A client of the {@link GameServer} using the {@link BinaryProtocol}. The
+ * events of the table are encoded into a buffer borrowed from the
+ * {@link BufferPool} of the server, and the buffer is handed back once
+ * everything is sent.
+ *
+ * <p>
+ * Flushing from the loop of the table only marks the session: its output is sent once the loop
+ * ran every action waiting, so the events of several pipelined actions leave in one write. The
+ * subclasses decide where the bytes go.
+ */
+abstract class BinarySession implements ClientSession
+{
+	/** The server this client is connected to. */
+	protected final GameServer server;
+
+	/** The pool the buffers are borrowed from. */
+	protected final BufferPool pool;
+
+	/** Sends the output at the end of a batch of the loop, created once. */
+	private final Runnable writeTask;
+
+	/** The bytes queued for the client, in write mode, or {@code null} when there are none. */
+	private ByteBuffer output;
+
+	/** Value indicating whether the output waits for the client to take the bytes already sent. */
+	private boolean isWritePending;
+
+	/** Value indicating whether the output will be sent at the end of the batch of the loop. */
+	private boolean isWriteScheduled;
+
+	/** The table the client is seated at, or {@code null}. */
+	private volatile Table table;
+
+	/** The seat of the client, or -1. */
+	private volatile int seat;
+
+	/**
+	 * Creates a session.
+	 *
+	 * @param server
+	 *        The server the client is connected to.
+	 */
+	protected BinarySession(GameServer server)
+	{
+		this.server = server;
+		pool = server.getBufferPool();
+		writeTask = this::writeOutput;
+		seat = -1;
+	}
+
+	/**
+	 * Sends bytes to the client.
+	 *
+	 * @param bytes
+	 *        The bytes, in read mode. Its position moves past the bytes sent.
+	 * @return {@code true} if every byte was sent. Otherwise, the subclass must
+	 *         call {@link #writePendingOutput()} once the client can take more.
+	 * @throws IOException
+	 *         if the client can't be reached.
+	 */
+	protected abstract boolean transmit(ByteBuffer bytes) throws IOException;
+
+	/**
+	 * Called when the client can't be reached any more.
+	 */
+	protected abstract void disconnect();
+
+	@Override
+	public synchronized void seated(int tableId, int seat, int numberOfPlayers)
+	{
+		BinaryProtocol.putSeated(reserve(), tableId, seat, numberOfPlayers);
+	}
+
+	@Override
+	public synchronized void dealt(int round, int dealer, long hand)
+	{
+		BinaryProtocol.putDealt(reserve(), round, dealer, hand);
+	}
+
+	@Override
+	public synchronized void bidCalled(int seat, Bid bid)
+	{
+		BinaryProtocol.putBidCalled(reserve(), seat, bid);
+	}
+
+	@Override
+	public synchronized void contract(int contractor, Bid bid)
+	{
+		BinaryProtocol.putContract(reserve(), contractor, bid);
+	}
+
+	@Override
+	public synchronized void cardPlayed(int seat, int card)
+	{
+		BinaryProtocol.putCardPlayed(reserve(), seat, card);
+	}
+
+	@Override
+	public synchronized void trickWon(int winner)
+	{
+		BinaryProtocol.putTrickWon(reserve(), winner);
+	}
+
+	@Override
+	public synchronized void scored(int[] scoreDeltas, int numberOfPlayers)
+	{
+		BinaryProtocol.putScored(reserve(), scoreDeltas, numberOfPlayers);
+	}
+
+	@Override
+	public synchronized void turnToBid(Bid highestBid)
+	{
+		BinaryProtocol.putTurnToBid(reserve(), highestBid);
+	}
+
+	@Override
+	public synchronized void turnToPlay(long legalMoves)
+	{
+		BinaryProtocol.putTurnToPlay(reserve(), legalMoves);
+	}
+
+	@Override
+	public synchronized void left(int seat)
+	{
+		BinaryProtocol.putLeft(reserve(), seat);
+	}
+
+	@Override
+	public synchronized void snapshot(TableSnapshot snapshot)
+	{
+		BinaryProtocol.putSnapshot(reserve(), snapshot);
+	}
+
+	@Override
+	public synchronized void error(String message)
+	{
+		BinaryProtocol.putError(reserve(), message);
+	}
+
+	/**
+	 * Returns the output with room for a frame, borrowing a buffer if there
+	 * is none. When the buffer is full, its bytes are sent first, or the
+	 * buffer grows if the client is still taking the previous ones.
+	 */
+	private ByteBuffer reserve()
+	{
+		if (output == null)
+			output = pool.acquire();
+		else if (output.remaining() < BinaryProtocol.MAX_FRAME_SIZE)
+		{
+			if (!isWritePending)
+				writeOutput();
+			if (output == null)
+				output = pool.acquire();
+			else if (output.remaining() < BinaryProtocol.MAX_FRAME_SIZE)
+			{
+				ByteBuffer larger = ByteBuffer.allocateDirect(output.capacity() * 2);
+				output.flip();
+				larger.put(output);
+				pool.release(output);
+				output = larger;
+			}
+		}
+		return output;
+	}
+
+	@Override
+	public void flush()
+	{
+		Table current = table;
+		if (current != null && current.getLoop().isInLoop())
+		{
+			synchronized (this)
+			{
+				if (isWriteScheduled || output == null)
+					return;
+				isWriteScheduled = true;
+			}
+			current.getLoop().runAfterBatch(writeTask);
+		}
+		else
+			writeOutput();
+	}
+
+	/**
+	 * Sends the output, unless the client is still taking the previous bytes.
+	 */
+	private synchronized void writeOutput()
+	{
+		isWriteScheduled = false;
+		if (output == null || isWritePending)
+			return;
+		writePendingOutput();
+	}
+
+	/**
+	 * Sends what is left of the output, and gives the buffer back to the pool
+	 * once it is empty.
+	 *
+	 * @return {@code true} once everything is sent.
+	 */
+	protected synchronized boolean writePendingOutput()
+	{
+		if (output == null)
+			return true;
+
+		boolean isComplete;
+		output.flip();
+		try
+		{
+			isComplete = transmit(output);
+		}
+		catch (IOException e)
+		{
+			isComplete = true;
+			output.clear();
+			disconnect();
+		}
+
+		isWritePending = !isComplete;
+		if (isComplete)
+		{
+			pool.release(output);
+			output = null;
+		}
+		else
+			output.compact();
+		return isComplete;
+	}
+
+	@Override
+	public synchronized boolean isWritePending()
+	{
+		return isWritePending;
+	}
+
+	@Override
+	public void setTable(Table table, int seat)
+	{
+		this.table = table;
+		this.seat = seat;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	@Override
+	public Table getTable()
+	{
+		return table;
+	}
+
+	int getSeat()
+	{
+		return seat;
+	}
+}
@@ -0,0 +1,129 @@
+package fiveHundred.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A queue of a fixed capacity that many threads fill and a single thread
+ * empties, without locks. An element offered while the queue is full is
+ * refused rather than waited for, so a burst of producers can never grow the
+ * heap or block the thread offering.
+ *
+ * <p>
+ * Each slot of the ring has a sequence number telling whose turn it is. A producer takes the slot
+ * at the tail by moving the tail forward with a compare-and-set, writes its element, then releases
+ * the sequence of the slot to the consumer; the consumer takes the element once the sequence says
+ * it was written, then releases the slot for the next turn of the ring. Producers racing for the
+ * same slot only retry the compare-and-set, and the consumer never writes the tail.
+ *
+ * @param <E>
+ *        The type of the elements.
+ */
+final class BoundedQueue<E>
+{
+	/** The elements, indexed by position modulo the capacity. */
+	private final Object[] elements;
+
+	/**
+	 * The sequence of each slot: its position when the slot is free for the
+	 * producer of that position, the position plus 1 once the element is
+	 * written.
+	 */
+	private final AtomicLongArray sequences;
+
+	/** The mask giving the slot of a position. */
+	private final int mask;
+
+	/** The position of the next element offered. */
+	private final AtomicLong tail;
+
+	/** The position of the next element taken. Only written by the consumer. */
+	private final AtomicLong head;
+
+	/**
+	 * Creates an empty queue.
+	 *
+	 * @param capacity
+	 *        The number of elements the queue holds, a power of 2.
+	 */
+	BoundedQueue(int capacity)
+	{
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("The capacity must be a power of 2: " + capacity);
+		elements = new Object[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; ++i)
+		{
+			sequences.set(i, i);
+		}
+		mask = capacity - 1;
+		tail = new AtomicLong();
+		head = new AtomicLong();
+	}
+
+	/**
+	 * Adds an element at the tail. Can be called from any thread.
+	 *
+	 * @param element
+	 *        The element, not {@code null}.
+	 * @return {@code false} if the queue is full.
+	 */
+	boolean offer(E element)
+	{
+		while (true)
+		{
+			long position = tail.get();
+			int slot = (int) position & mask;
+			long distance = sequences.get(slot) - position;
+			if (distance < 0)
+				// The consumer hasn't taken the element of the previous turn.
+				return false;
+			if (distance == 0 && tail.compareAndSet(position, position + 1))
+			{
+				elements[slot] = element;
+				sequences.lazySet(slot, position + 1);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Takes the element at the head. Must only be called from the consumer
+	 * thread.
+	 *
+	 * @return the element, or {@code null} if the queue is empty or its head
+	 *         is still being written.
+	 */
+	@SuppressWarnings("unchecked")
+	E poll()
+	{
+		long position = head.get();
+		int slot = (int) position & mask;
+		if (sequences.get(slot) != position + 1)
+			return null;
+		E element = (E) elements[slot];
+		elements[slot] = null;
+		sequences.lazySet(slot, position + elements.length);
+		head.lazySet(position + 1);
+		return element;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the number of elements in the queue. Only meant for
+	 * monitoring, since the producers and the consumer may be moving.
+	 *
+	 * @return the number of elements.
+	 */
+	int size()
+	{
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, elements.length));
+	}
+
+	int getCapacity()
+	{
+		return elements.length;
+	}
+}
@@ -0,0 +1,113 @@
+package fiveHundred.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A pool of direct buffers of one size. The sockets read into and write from
+ * direct buffers without copying them, but direct buffers are slow to
+ * allocate and free, so the connections borrow them while they have bytes to
+ * keep and give them back as soon as they are empty. An idle connection holds
+ * no buffer.
+ *
+ * <p>
+ * The pool is a stack under a lock rather than a concurrent queue, so returning a buffer never
+ * allocates.
+ */
+public class BufferPool
+{
+	/** The size of the buffers of the pool. */
+	private final int bufferSize;
+
+	/** The buffers available, the last one being returned first. */
+	private final ByteBuffer[] available;
+
+	/** The number of buffers available. */
+	private int availableCount;
+
+	/** The number of buffers allocated by the pool. */
+	private long allocatedCount;
+
+	/**
+	 * Creates an empty pool.
+	 *
+	 * @param bufferSize
+	 *        The size of the buffers.
+	 * @param maxAvailable
+	 *        The number of buffers the pool keeps at most. The buffers given
+	 *        back beyond it are left to the garbage collector.
+	 */
+	public BufferPool(int bufferSize, int maxAvailable)
+	{
+		this.bufferSize = bufferSize;
+		available = new ByteBuffer[maxAvailable];
+	}
+
+	/**
+	 * Borrows a buffer, allocating it if the pool is empty.
+	 *
+	 * @return an empty buffer, in write mode.
+	 */
+	public ByteBuffer acquire()
+	{
+		synchronized (this)
+		{
+			if (availableCount > 0)
+			{
+				ByteBuffer buffer = available[--availableCount];
+				available[availableCount] = null;
+				return buffer;
+			}
+			++allocatedCount;
+		}
+		return ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Gives back a buffer borrowed from the pool. The buffer must not be used
+	 * afterwards.
+	 *
+	 * @param buffer
+	 *        The buffer. A buffer of another size is dropped, so a connection
+	 *        can grow its buffer past the size of the pool.
+	 */
+	public void release(ByteBuffer buffer)
+	{
+		if (buffer.capacity() != bufferSize || !buffer.isDirect())
+			return;
+		buffer.clear();
+		synchronized (this)
+		{
+			if (availableCount < available.length)
+				available[availableCount++] = buffer;
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * Returns the number of buffers allocated by the pool since it was
+	 * created, which stops growing once the pool holds enough buffers for the
+	 * busiest moment.
+	 *
+	 * @return the number of buffers.
+	 */
+	public synchronized long getAllocatedCount()
+	{
+		return allocatedCount;
+	}
+
+	/**
+	 * Returns the number of buffers waiting in the pool.
+	 *
+	 * @return the number of buffers.
+	 */
+	public synchronized int getAvailableCount()
+	{
+		return availableCount;
+	}
+}
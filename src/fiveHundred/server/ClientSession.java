@@ -0,0 +1,46 @@
+package fiveHundred.server;
+
+/**
+ * A human or remote bot seated at a {@link Table}. The table reports every
+ * event of the game to it, and the session encodes them in its protocol: the
+ * lines described in {@link GameServer} or the frames of
+ * {@link BinaryProtocol}.
+ *
+ * <p>
+ * The methods are called from the event loop of the table, except {@link #getTable()} and the
+ * errors sent by the server before the client is seated.
+ */
+public interface ClientSession extends TableListener
+{
+	/**
+	 * Sends the events queued. The table calls it once it is done with an
+	 * action, so the events of an action leave together.
+	 */
+	void flush();
+
+	/**
+	 * Returns a value indicating whether the client is still taking the
+	 * events already sent. Can be called from any thread.
+	 *
+	 * @return {@code true} if the output waits for the client.
+	 */
+	boolean isWritePending();
+
+	/**
+	 * Called when the client was seated at a table, or left it.
+	 *
+	 * @param table
+	 *        The table, or {@code null} if the client left it.
+	 * @param seat
+	 *        The seat of the client, or -1.
+	 */
+	void setTable(Table table, int seat);
+
+	/**
+	 * Returns the table the client is seated at. Can be called from any
+	 * thread.
+	 *
+	 * @return the table, or {@code null}.
+	 */
+	Table getTable();
+}
@@ -0,0 +1,287 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client connected to the {@link GameServer} through a socket, using the
+ * line protocol. The lines received are cut from the input and handed to the
+ * server; the events of the table are written as lines, queued and sent when
+ * the table flushes them.
+ *
+ * <p>
+ * Reading happens on the I/O thread of the server and writing on the loop of the table, so the
+ * output buffer is guarded by this connection's lock.
+ */
+class Connection implements SocketClient
+{
+	/** The longest line accepted from a client. */
+	private static final int MAX_LINE_LENGTH = 256;
+
+	/** The initial size of the output buffer. */
+	private static final int OUTPUT_SIZE = 1024;
+
+	/** The server this client is connected to. */
+	private final GameServer server;
+
+	/** The socket of the client. */
+	private final SocketChannel channel;
+
+	/** The key of the socket in the selector of the server. */
+	private SelectionKey key;
+
+	/** The bytes received and not yet cut into lines. */
+	private final ByteBuffer input;
+
+	/** The bytes queued for the client, in write mode. */
+	private ByteBuffer output;
+
+	/** Value indicating whether the server was asked to write the rest of the output. */
+	private boolean isWritePending;
+
+	/** The table the client is seated at, or {@code null}. */
+	private volatile Table table;
+
+	/** The seat of the client, or -1. */
+	private volatile int seat;
+
+	/**
+	 * Creates a connection.
+	 *
+	 * @param server
+	 *        The server the client is connected to.
+	 * @param channel
+	 *        The socket of the client, in non-blocking mode.
+	 */
+	Connection(GameServer server, SocketChannel channel)
+	{
+		this.server = server;
+		this.channel = channel;
+		input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+		output = ByteBuffer.allocate(OUTPUT_SIZE);
+		seat = -1;
+	}
+
+	@Override
+	public boolean read() throws IOException
+	{
+		if (channel.read(input) == -1)
+			return false;
+
+		input.flip();
+		int lineStart = 0;
+		for (int i = 0; i < input.limit(); ++i)
+		{
+			if (input.get(i) != '\n')
+				continue;
+			int lineEnd = i > lineStart && input.get(i - 1) == '\r' ? i - 1 : i;
+			char[] chars = new char[lineEnd - lineStart];
+			for (int j = 0; j < chars.length; ++j)
+			{
+				chars[j] = (char) (input.get(lineStart + j) & 0xFF);
+			}
+			server.handleLine(this, new String(chars));
+			lineStart = i + 1;
+		}
+		input.position(lineStart);
+		input.compact();
+		return input.hasRemaining();
+	}
+
+	@Override
+	public void seated(int tableId, int seat, int numberOfPlayers)
+	{
+		send("TABLE " + tableId + " " + seat + " " + numberOfPlayers);
+	}
+
+	@Override
+	public void dealt(int round, int dealer, long hand)
+	{
+		send("DEAL " + round + " " + dealer + " " + Long.toHexString(hand));
+	}
+
+	@Override
+	public void bidCalled(int seat, Bid bid)
+	{
+		send("BID " + seat + " " + Protocol.bidName(bid));
+	}
+
+	@Override
+	public void contract(int contractor, Bid bid)
+	{
+		send("CONTRACT " + contractor + " " + Protocol.bidName(bid));
+	}
+
+	@Override
+	public void cardPlayed(int seat, int card)
+	{
+		send("PLAY " + seat + " " + card);
+	}
+
+	@Override
+	public void trickWon(int winner)
+	{
+		send("TRICK " + winner);
+	}
+
+	@Override
+	public void scored(int[] scoreDeltas, int numberOfPlayers)
+	{
+		StringBuilder line = new StringBuilder("SCORE");
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			line.append(' ').append(scoreDeltas[seat]);
+		}
+		send(line.toString());
+	}
+
+	@Override
+	public void turnToBid(Bid highestBid)
+	{
+		send("TURN BID " + Protocol.bidName(highestBid));
+	}
+
+	@Override
+	public void turnToPlay(long legalMoves)
+	{
+		send("TURN PLAY " + Long.toHexString(legalMoves));
+	}
+
+	@Override
+	public void left(int seat)
+	{
+		send("LEFT " + seat);
+	}
+
+	@Override
+	public void snapshot(TableSnapshot snapshot)
+	{
+		StringBuilder line = new StringBuilder("SNAPSHOT ");
+		line.append(snapshot.getTableId()).append(' ').append(snapshot.getRound()).append(' ');
+		line.append(snapshot.getDealer()).append(' ').append(Protocol.bidName(snapshot.getHighestBid())).append(' ');
+		line.append(snapshot.getContractor()).append(' ').append(snapshot.isBidding() ? "BIDDING" : "PLAYING");
+		line.append(' ').append(snapshot.getSeatToAct()).append(' ').append(Long.toHexString(snapshot
+				.getPlayedCards()));
+		for (int seat = 0; seat < snapshot.getNumberOfPlayers(); ++seat)
+		{
+			line.append(' ').append(snapshot.getCardOnTable(seat)).append(',').append(snapshot.getTricksWon(seat));
+			line.append(',').append(snapshot.getScore(seat));
+		}
+		send(line.toString());
+	}
+
+	@Override
+	public void error(String message)
+	{
+		send("ERROR " + message);
+	}
+
+	/**
+	 * Queues a line to send to the client.
+	 *
+	 * @param line
+	 *        The line, without its line break.
+	 */
+	private synchronized void send(String line)
+	{
+		int length = line.length() + 1;
+		if (output.remaining() < length)
+		{
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + length));
+			output.flip();
+			larger.put(output);
+			output = larger;
+		}
+		for (int i = 0; i < line.length(); ++i)
+		{
+			output.put((byte) line.charAt(i));
+		}
+		output.put((byte) '\n');
+	}
+
+	@Override
+	public synchronized void flush()
+	{
+		if (isWritePending || output.position() == 0)
+			return;
+		try
+		{
+			output.flip();
+			channel.write(output);
+			output.compact();
+		}
+		catch (IOException e)
+		{
+			output.clear();
+			server.close(this);
+			return;
+		}
+
+		// The socket is full: let the I/O thread write the rest.
+		if (output.position() > 0)
+		{
+			isWritePending = true;
+			server.requestWrite(this);
+		}
+	}
+
+	@Override
+	public synchronized boolean writePending() throws IOException
+	{
+		output.flip();
+		channel.write(output);
+		output.compact();
+		isWritePending = output.position() > 0;
+		return !isWritePending;
+	}
+
+	@Override
+	public synchronized boolean isWritePending()
+	{
+		return isWritePending;
+	}
+
+	@Override
+	public void setTable(Table table, int seat)
+	{
+		this.table = table;
+		this.seat = seat;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	@Override
+	public SocketChannel getChannel()
+	{
+		return channel;
+	}
+
+	@Override
+	public SelectionKey getKey()
+	{
+		return key;
+	}
+
+	@Override
+	public Table getTable()
+	{
+		return table;
+	}
+
+	int getSeat()
+	{
+		return seat;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	@Override
+	public void setKey(SelectionKey value)
+	{
+		key = value;
+	}
+}
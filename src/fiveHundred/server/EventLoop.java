@@ -0,0 +1,230 @@
+package fiveHundred.server;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.record.HandRecordCodec;
+
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A thread running the tasks of the tables pinned to it one at a time, in the
+ * order they were submitted. Since a table only ever runs on its loop, its
+ * state needs no locks.
+ *
+ * <p>
+ * The loop runs the tasks in batches: every task waiting when the batch starts, up to
+ * {@value #MAX_BATCH_SIZE}. The work registered with {@link #runAfterBatch(Runnable)}, such as
+ * sending the output of the clients, runs once at the end of the batch.
+ */
+public class EventLoop
+{
+	/** The largest number of tasks run before the end of a batch. */
+	private static final int MAX_BATCH_SIZE = 256;
+
+	/** The tasks waiting to run. */
+	private final BlockingQueue<Runnable> tasks;
+
+	/** The work to run at the end of the batch. */
+	private final ArrayList<Runnable> afterBatch;
+
+	/** The thread running the tasks. */
+	private final Thread thread;
+
+	/** The seed every hand dealt on this loop is dealt from. */
+	private final long baseSeed;
+
+	/** Deals the hands of each deck, indexed by the ordinal of the deck. Created when first needed. */
+	private final HandRecordCodec[] codecs;
+
+	/** The working memory of the tables of each deck, indexed by the ordinal of the deck. Created when first needed. */
+	private final TableScratch[] scratches;
+
+	/** The tables of this loop suspended off the heap. */
+	private final TableStore store;
+
+	/** The segment of the journal written by the tables of this loop, or {@code null}. */
+	private volatile JournalSegment journal;
+
+	/** Value indicating whether the loop keeps running. */
+	private volatile boolean isRunning;
+
+	/**
+	 * Creates and starts a loop.
+	 *
+	 * @param name
+	 *        The name of the thread.
+	 * @param baseSeed
+	 *        The seed every hand dealt on this loop is dealt from.
+	 */
+	public EventLoop(String name, long baseSeed)
+	{
+		this.baseSeed = baseSeed;
+		tasks = new LinkedBlockingQueue<>();
+		afterBatch = new ArrayList<>();
+		codecs = new HandRecordCodec[DeckSpec.values().length];
+		scratches = new TableScratch[DeckSpec.values().length];
+		store = new TableStore();
+		isRunning = true;
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Submits a task to run on this loop. Can be called from any thread.
+	 *
+	 * @param task
+	 *        The task.
+	 */
+	public void execute(Runnable task)
+	{
+		tasks.add(task);
+	}
+
+	/**
+	 * Runs some work once the batch of tasks running is done. Must only be
+	 * called from the loop.
+	 *
+	 * @param task
+	 *        The work. It runs as many times as it was registered, so the
+	 *        caller should only register it once per batch.
+	 */
+	public void runAfterBatch(Runnable task)
+	{
+		afterBatch.add(task);
+	}
+
+	/**
+	 * Stops the loop once the task running, if any, is done. The tasks still
+	 * waiting are dropped.
+	 */
+	public void shutdown()
+	{
+		isRunning = false;
+		thread.interrupt();
+	}
+
+	/**
+	 * Returns the codec dealing the hands of a deck. Must only be called from
+	 * the loop.
+	 *
+	 * @param deckSpec
+	 *        The deck.
+	 * @return the codec, shared by every table of the loop using that deck.
+	 */
+	HandRecordCodec getCodec(DeckSpec deckSpec)
+	{
+		HandRecordCodec codec = codecs[deckSpec.ordinal()];
+		if (codec == null)
+		{
+			codec = new HandRecordCodec(deckSpec, baseSeed);
+			codecs[deckSpec.ordinal()] = codec;
+		}
+		return codec;
+	}
+
+	/**
+	 * Returns the working memory of the tables playing with a deck. Must only
+	 * be called from the loop.
+	 *
+	 * @param deckSpec
+	 *        The deck.
+	 * @return the working memory, shared by every table of the loop using
+	 *         that deck.
+	 */
+	TableScratch getScratch(DeckSpec deckSpec)
+	{
+		TableScratch scratch = scratches[deckSpec.ordinal()];
+		if (scratch == null)
+		{
+			scratch = new TableScratch(deckSpec);
+			scratches[deckSpec.ordinal()] = scratch;
+		}
+		return scratch;
+	}
+
+	/**
+	 * The loop of the thread.
+	 */
+	private void run()
+	{
+		while (isRunning)
+		{
+			Runnable task;
+			try
+			{
+				task = tasks.take();
+			}
+			catch (InterruptedException e)
+			{
+				continue;
+			}
+
+			int batchSize = 0;
+			do
+			{
+				runSafely(task);
+			}
+			while (++batchSize < MAX_BATCH_SIZE && (task = tasks.poll()) != null);
+
+			for (int i = 0; i < afterBatch.size(); ++i)
+			{
+				runSafely(afterBatch.get(i));
+			}
+			afterBatch.clear();
+		}
+	}
+
+	/**
+	 * Runs a task, reporting its failure.
+	 */
+	private static void runSafely(Runnable task)
+	{
+		// A failing table must not stop the other tables of the loop.
+		try
+		{
+			task.run();
+		}
+		catch (RuntimeException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns a value indicating whether the current thread is the thread of
+	 * this loop.
+	 *
+	 * @return {@code true} if called from this loop.
+	 */
+	public boolean isInLoop()
+	{
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Returns the tables of this loop suspended off the heap. Must only be
+	 * used from the loop.
+	 *
+	 * @return the store of the tables.
+	 */
+	TableStore getStore()
+	{
+		return store;
+	}
+
+	JournalSegment getJournal()
+	{
+		return journal;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	void setJournal(JournalSegment journal)
+	{
+		this.journal = journal;
+	}
+}
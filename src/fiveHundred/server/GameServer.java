@@ -0,0 +1,978 @@
+package fiveHundred.server;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+import fiveHundred.stats.GameStatistics;
+import gameCore.time.TimingWheel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many headless {@link Table}s in one process. The tables are spread
+ * over a small pool of {@link EventLoop}s, one per core, and each table
+ * always runs on the same loop. A single I/O thread accepts the clients,
+ * decodes what they send and hands each action to the loop of its table.
+ * Clients may use the line protocol below or the {@link BinaryProtocol}, each
+ * on its own port, and a {@link LocalClient} talks to the server from the
+ * same process.
+ *
+ * <p>
+ * The protocol is made of text lines. A client sends:
+ * <ul>
+ * <li>{@code NEW <players> <clients>}: creates a table and sits at it. The seats beyond the
+ * number of clients are played by bots.</li>
+ * <li>{@code JOIN <table>}: sits at a table waiting for clients.</li>
+ * <li>{@code QUEUE <players> <rating>}: asks the {@link Matchmaker} for a seat at a new table of
+ * that number of players, with clients of a close rating.</li>
+ * <li>{@code BID <bid>}: calls a bid, such as {@code 7_COEUR} or {@code PASS}.</li>
+ * <li>{@code PLAY <card>}: plays the card with this id.</li>
+ * <li>{@code WATCH <table>}: watches a table as a spectator.</li>
+ * <li>{@code QUIT}: leaves the table and closes the connection.</li>
+ * </ul>
+ * The server sends {@code TABLE <table> <seat> <players>}, then for each round
+ * {@code DEAL <round> <dealer> <hand>}, {@code BID <seat> <bid>}, {@code CONTRACT <seat> <bid>},
+ * {@code PLAY <seat> <card>}, {@code TRICK <winner>} and {@code SCORE <points>...}. It sends
+ * {@code TURN BID <highest bid>} or {@code TURN PLAY <legal cards>} when the client has to act,
+ * {@code LEFT <seat>} when another client leaves and {@code ERROR <message>} when an action is
+ * refused. Sets of cards are bit sets of card ids in hexadecimal.
+ *
+ * <p>
+ * A spectator receives the same events, with empty hands, from the {@link SpectatorHub}. It
+ * first receives {@code SNAPSHOT <table> <round> <dealer> <bid> <contractor> <BIDDING|PLAYING>
+ * <seat to act> <played cards>} followed by {@code <card on table>,<tricks>,<score>} for each
+ * seat, and receives a snapshot again instead of the events it missed when it falls behind.
+ *
+ * <p>
+ * The server gives each client {@link #DEFAULT_MOVE_MILLIS} ms to act before a bot acts for it.
+ * The clocks and the pauses of every table are timeouts of a single {@link TimingWheel}.
+ *
+ * <p>
+ * With a {@link Journal}, the tables are rebuilt when the server starts again after a crash, and
+ * their clients get their seats back by joining them again.
+ */
+public class GameServer implements Closeable
+{
+	/** The loops the tables run on. */
+	private final EventLoop[] loops;
+
+	/** Every open table, indexed by id. */
+	private final Map<Integer, Table> tables;
+
+	/** The id of the next table. */
+	private final AtomicInteger nextTableId;
+
+	/** The statistics every round of every table is reported to. */
+	private final GameStatistics statistics;
+
+	/** The seed every hand is dealt from. */
+	private final long baseSeed;
+
+	/** The journal of the tables, or {@code null}. */
+	private Journal journal;
+
+	/** The size of the buffers of the binary clients. */
+	private static final int BUFFER_SIZE = 4096;
+
+	/** The number of buffers of the binary clients kept for later. */
+	private static final int MAX_POOLED_BUFFERS = 4096;
+
+	/** The connections waiting for the I/O thread to write the rest of their output. */
+	private final Queue<SocketClient> pendingWrites;
+
+	/** The sockets waiting for the I/O thread to accept their clients. */
+	private final Queue<ServerSocketChannel> pendingListens;
+
+	/** The buffers of the binary clients. */
+	private final BufferPool bufferPool;
+
+	/** The time a client has to act by default, in milliseconds. */
+	public static final long DEFAULT_MOVE_MILLIS = 30000;
+
+	/** The precision of the clocks and of the pauses, in milliseconds. */
+	private static final long TIMER_TICK_MILLIS = 10;
+
+	/** The number of buckets of the timing wheel, so the clocks of a move fit in one turn. */
+	private static final int TIMER_BUCKETS = 4096;
+
+	/** The time between two commits of the journal, in milliseconds. */
+	public static final long DEFAULT_COMMIT_MILLIS = 5;
+
+	/** The time between two turns of the spectators, in milliseconds. */
+	private static final long SPECTATOR_TICK_MILLIS = 10;
+
+	/** Sends the events of the tables to their spectators. */
+	private final SpectatorHub spectatorHub;
+
+	/** The time between two turns of the matchmaker, in milliseconds. */
+	private static final long MATCHMAKER_TICK_MILLIS = 5;
+
+	/** The number of requests for a table the matchmaker queues. */
+	private static final int MATCHMAKER_CAPACITY = 1 << 16;
+
+	/** Groups the clients asking for a table. */
+	private final Matchmaker matchmaker;
+
+	/** Runs the clocks of the clients and the pauses of the tables. */
+	private final TimingWheel timers;
+
+	/** The time a client has to act, in milliseconds, or 0 for no limit. */
+	private volatile long moveMillis;
+
+	/** The pause after each trick and after each round, in milliseconds. */
+	private volatile long trickPauseMillis, roundPauseMillis;
+
+	/** The selector of the I/O thread, or {@code null} before the server listens. */
+	private Selector selector;
+
+	/** The socket accepting the clients of the line protocol, or {@code null}. */
+	private ServerSocketChannel serverChannel;
+
+	/** The socket accepting the clients of the binary protocol, or {@code null}. */
+	private ServerSocketChannel binaryServerChannel;
+
+	/** The I/O thread. */
+	private Thread ioThread;
+
+	/** Value indicating whether the server is running. */
+	private volatile boolean isRunning;
+
+	/**
+	 * Creates a server and starts its loops.
+	 *
+	 * @param loopCount
+	 *        The number of loops, typically the number of cores.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from. A hand only depends on it, the
+	 *        id of its table and its round.
+	 */
+	public GameServer(int loopCount, long baseSeed)
+	{
+		this.baseSeed = baseSeed;
+		loops = new EventLoop[loopCount];
+		for (int i = 0; i < loopCount; ++i)
+		{
+			loops[i] = new EventLoop("Table loop " + i, baseSeed);
+		}
+		tables = new ConcurrentHashMap<>();
+		nextTableId = new AtomicInteger(1);
+		statistics = new GameStatistics();
+		pendingWrites = new ConcurrentLinkedQueue<>();
+		pendingListens = new ConcurrentLinkedQueue<>();
+		bufferPool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+		spectatorHub = new SpectatorHub(this, SPECTATOR_TICK_MILLIS);
+		matchmaker = new Matchmaker(this, MATCHMAKER_TICK_MILLIS, MATCHMAKER_CAPACITY);
+		timers = new TimingWheel("Timers", TIMER_TICK_MILLIS, TIMER_BUCKETS);
+		moveMillis = DEFAULT_MOVE_MILLIS;
+		isRunning = true;
+	}
+
+	/**
+	 * Creates a table.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param clientSeats
+	 *        The number of seats for clients. The other seats are played by
+	 *        bots.
+	 * @return the table.
+	 * @throws IllegalArgumentException
+	 *         if there is no deck for that number of players or the number of
+	 *         seats for clients is invalid.
+	 */
+	public Table createTable(int numberOfPlayers, int clientSeats)
+	{
+		return addTable(nextTableId.getAndIncrement(), numberOfPlayers, clientSeats);
+	}
+
+	/**
+	 * Creates a table read from the journal, replacing the table with the
+	 * same id.
+	 *
+	 * @param id
+	 *        The id of the table.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param clientSeats
+	 *        The number of seats for clients.
+	 * @return the table.
+	 */
+	Table restoreTable(int id, int numberOfPlayers, int clientSeats)
+	{
+		nextTableId.accumulateAndGet(id + 1, Math::max);
+		return addTable(id, numberOfPlayers, clientSeats);
+	}
+
+	/**
+	 * Creates a table on the loop of its id.
+	 */
+	private Table addTable(int id, int numberOfPlayers, int clientSeats)
+	{
+		EventLoop loop = loopOf(id);
+		Table table = new Table(id, DeckSpec.forPlayers(numberOfPlayers), clientSeats, loop, this, statistics);
+		tables.put(id, table);
+		return table;
+	}
+
+	/**
+	 * Rebuilds the tables journaled in a directory, then journals the tables
+	 * there. Must be called before the server serves any client.
+	 *
+	 * @param directory
+	 *        The directory of the journal.
+	 * @param commitMillis
+	 *        The time between two commits of the journal, in milliseconds.
+	 * @param checkpointBytes
+	 *        The size of a file of the journal before a new one starts with a
+	 *        checkpoint of the tables.
+	 * @throws IOException
+	 *         if the journal can't be read or written, or was written with
+	 *         another seed.
+	 */
+	public void startJournal(Path directory, long commitMillis, long checkpointBytes) throws IOException
+	{
+		journal = new Journal(directory, baseSeed, commitMillis, checkpointBytes);
+		journal.recover(this);
+		journal.start(loops, tables.values());
+		for (Table table : tables.values())
+		{
+			table.getLoop().execute(table::suspendIfIdle);
+		}
+	}
+
+	/**
+	 * Returns an open table.
+	 *
+	 * @param id
+	 *        The id of the table.
+	 * @return the table, or {@code null} if there is no open table with that
+	 *         id.
+	 */
+	public Table getTable(int id)
+	{
+		return tables.get(id);
+	}
+
+	/**
+	 * Forgets a table once its last client left. Called from the loop of the
+	 * table.
+	 *
+	 * @param table
+	 *        The table.
+	 */
+	void removeTable(Table table)
+	{
+		tables.remove(table.getId(), table);
+	}
+
+	/**
+	 * Brings a suspended table back into the heap. Called from the loop of the
+	 * table.
+	 *
+	 * @param id
+	 *        The id of the table.
+	 * @return the table, which may already have been in the heap, or
+	 *         {@code null} if there is no table with that id.
+	 */
+	Table resumeTable(int id)
+	{
+		Table table = tables.get(id);
+		if (table != null)
+			return table;
+		TableStore store = loopOf(id).getStore();
+		int slot = store.find(id);
+		if (slot == -1)
+			return null;
+		ByteBuffer slab = store.getSlab(slot);
+		int position = store.getPosition(slot);
+		table = addTable(id, slab.get(position + TableStore.PLAYERS), slab.get(position + TableStore.CLIENT_SEATS));
+		table.readSlot(slab, position);
+		store.remove(id);
+		return table;
+	}
+
+	/**
+	 * Seats a client at a table which wasn't in the heap when the client
+	 * asked, bringing it back if it is suspended. Called from the loop of the
+	 * table.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param tableId
+	 *        The id of the table.
+	 * @return {@code true} if the client was seated.
+	 */
+	boolean joinSuspended(ClientSession session, int tableId)
+	{
+		Table table = resumeTable(tableId);
+		if (table == null)
+			refuse(session, "No table " + tableId);
+		else if (!isSeated(session))
+		{
+			session.setTable(table, -1);
+			return table.join(session);
+		}
+		return false;
+	}
+
+	/**
+	 * Makes a client a spectator of a table which wasn't in the heap when the
+	 * client asked, bringing it back if it is suspended. Called from the loop
+	 * of the table.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param tableId
+	 *        The id of the table.
+	 */
+	void watchSuspended(ClientSession session, int tableId)
+	{
+		Table table = resumeTable(tableId);
+		if (table == null)
+			refuse(session, "No table " + tableId);
+		else
+			table.watch(session, spectatorHub);
+	}
+
+	/**
+	 * Starts accepting the clients of the line protocol on a local socket.
+	 *
+	 * @param address
+	 *        The address to listen on. Port 0 picks a free port.
+	 * @throws IOException
+	 *         if the socket can't be opened.
+	 */
+	public void listen(InetSocketAddress address) throws IOException
+	{
+		open(address, false);
+	}
+
+	/**
+	 * Starts accepting the clients of the {@link BinaryProtocol} on a local
+	 * socket.
+	 *
+	 * @param address
+	 *        The address to listen on. Port 0 picks a free port.
+	 * @throws IOException
+	 *         if the socket can't be opened.
+	 */
+	public void listenBinary(InetSocketAddress address) throws IOException
+	{
+		open(address, true);
+	}
+
+	/**
+	 * Opens a socket accepting clients and hands it to the I/O thread,
+	 * starting the thread the first time.
+	 */
+	private synchronized void open(InetSocketAddress address, boolean isBinary) throws IOException
+	{
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		channel.bind(address);
+		channel.configureBlocking(false);
+		if (isBinary)
+			binaryServerChannel = channel;
+		else
+			serverChannel = channel;
+		if (selector == null)
+		{
+			selector = Selector.open();
+			ioThread = new Thread(this::runIO, "Server I/O");
+			ioThread.start();
+		}
+		pendingListens.add(channel);
+		selector.wakeup();
+	}
+
+	/**
+	 * Handles a line sent by a client. Called from the I/O thread.
+	 *
+	 * @param connection
+	 *        The client.
+	 * @param line
+	 *        The line.
+	 */
+	void handleLine(Connection connection, String line)
+	{
+		String[] words = line.trim().split(" +");
+		try
+		{
+			switch (words[0])
+			{
+				case "NEW":
+					newTable(connection, Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+					break;
+				case "JOIN":
+					join(connection, Integer.parseInt(words[1]));
+					break;
+				case "QUEUE":
+					queue(connection, Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+					break;
+				case "BID":
+					bid(connection, Protocol.parseBid(words[1]));
+					break;
+				case "PLAY":
+					play(connection, Integer.parseInt(words[1]));
+					break;
+				case "WATCH":
+					watch(connection, Integer.parseInt(words[1]));
+					break;
+				case "QUIT":
+					quit(connection);
+					break;
+				default:
+					refuse(connection, "Unknown command " + words[0]);
+					break;
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e)
+		{
+			refuse(connection, "Invalid command: " + line);
+		}
+	}
+
+	/**
+	 * Creates a table and seats a client at it.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param clientSeats
+	 *        The number of seats for clients.
+	 */
+	void newTable(ClientSession session, int numberOfPlayers, int clientSeats)
+	{
+		if (isSeated(session))
+			return;
+		Table table;
+		try
+		{
+			table = createTable(numberOfPlayers, clientSeats);
+		}
+		catch (IllegalArgumentException e)
+		{
+			refuse(session, e.getMessage());
+			return;
+		}
+		seat(session, table);
+	}
+
+	/**
+	 * Seats a client at a table waiting for clients.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param tableId
+	 *        The id of the table.
+	 */
+	void join(ClientSession session, int tableId)
+	{
+		if (isSeated(session))
+			return;
+		Table table = getTable(tableId);
+		if (table == null)
+			loopOf(tableId).execute(() -> joinSuspended(session, tableId));
+		else
+			seat(session, table);
+	}
+
+	/**
+	 * Asks the matchmaker for a seat for a client.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param rating
+	 *        The rating of the client.
+	 */
+	void queue(ClientSession session, int numberOfPlayers, int rating)
+	{
+		if (isSeated(session))
+			return;
+		try
+		{
+			if (!matchmaker.offer(session, numberOfPlayers, rating))
+				refuse(session, "Too many clients waiting");
+		}
+		catch (IllegalArgumentException e)
+		{
+			refuse(session, e.getMessage());
+		}
+	}
+
+	/**
+	 * Calls a bid for a client.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param bid
+	 *        The bid.
+	 */
+	void bid(ClientSession session, Bid bid)
+	{
+		Table table = session.getTable();
+		if (table == null)
+			refuse(session, "Not at a table");
+		else
+			table.getLoop().execute(() -> table.bid(session, bid));
+	}
+
+	/**
+	 * Plays a card for a client.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param card
+	 *        The id of the card.
+	 */
+	void play(ClientSession session, int card)
+	{
+		Table table = session.getTable();
+		if (table == null)
+			refuse(session, "Not at a table");
+		else
+			table.getLoop().execute(() -> table.play(session, card));
+	}
+
+	/**
+	 * Makes a client a spectator of a table.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param tableId
+	 *        The id of the table.
+	 */
+	void watch(ClientSession session, int tableId)
+	{
+		if (isSeated(session))
+			return;
+		Table table = getTable(tableId);
+		if (table == null)
+			loopOf(tableId).execute(() -> watchSuspended(session, tableId));
+		else
+			table.getLoop().execute(() -> table.watch(session, spectatorHub));
+	}
+
+	/**
+	 * Removes a client from its table and closes its connection, if it has
+	 * one.
+	 *
+	 * @param session
+	 *        The client.
+	 */
+	void quit(ClientSession session)
+	{
+		if (session instanceof SocketClient)
+			close((SocketClient) session);
+		else
+		{
+			spectatorHub.remove(session);
+			matchmaker.cancel(session);
+			leave(session);
+		}
+	}
+
+	/**
+	 * Sends an error to a client right away.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param message
+	 *        The reason of the error.
+	 */
+	void refuse(ClientSession session, String message)
+	{
+		session.error(message);
+		session.flush();
+	}
+
+	/**
+	 * Refuses to seat a client already seated, watching a table or waiting
+	 * for the matchmaker.
+	 */
+	private boolean isSeated(ClientSession session)
+	{
+		Table table = session.getTable();
+		if (table != null)
+			refuse(session, "Already at table " + table.getId());
+		else if (spectatorHub.isWatching(session))
+			refuse(session, "Already watching a table");
+		else if (matchmaker.isQueued(session))
+			refuse(session, "Already waiting for a table");
+		else
+			return false;
+		return true;
+	}
+
+	/**
+	 * Seats a client at a table.
+	 *
+	 * @param session
+	 *        The client.
+	 * @param table
+	 *        The table.
+	 */
+	void seat(ClientSession session, Table table)
+	{
+		// Every later action of the client goes to the same loop, so it runs
+		// after the join.
+		session.setTable(table, -1);
+		table.getLoop().execute(() -> table.join(session));
+	}
+
+	/**
+	 * Returns the loop of the tables with an id.
+	 */
+	private EventLoop loopOf(int tableId)
+	{
+		return loops[Math.floorMod(tableId, loops.length)];
+	}
+
+	/**
+	 * Removes a client from its table, if any.
+	 *
+	 * @param session
+	 *        The client.
+	 */
+	void leave(ClientSession session)
+	{
+		Table table = session.getTable();
+		if (table != null)
+			table.getLoop().execute(() -> table.leave(session));
+	}
+
+	/**
+	 * Asks the I/O thread to write the rest of the output of a client.
+	 *
+	 * @param connection
+	 *        The client.
+	 */
+	void requestWrite(SocketClient connection)
+	{
+		pendingWrites.add(connection);
+		selector.wakeup();
+	}
+
+	/**
+	 * Removes a client from its table and closes its connection. Can be called
+	 * from any thread.
+	 *
+	 * @param connection
+	 *        The client.
+	 */
+	void close(SocketClient connection)
+	{
+		spectatorHub.remove(connection);
+		matchmaker.cancel(connection);
+		leave(connection);
+		try
+		{
+			connection.getChannel().close();
+		}
+		catch (IOException e)
+		{
+			// Nothing left to do with the connection.
+		}
+	}
+
+	/**
+	 * Stops accepting clients and stops the loops.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		isRunning = false;
+		spectatorHub.shutdown();
+		matchmaker.shutdown();
+		timers.shutdown();
+		if (selector != null)
+		{
+			selector.wakeup();
+			try
+			{
+				ioThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			if (serverChannel != null)
+				serverChannel.close();
+			if (binaryServerChannel != null)
+				binaryServerChannel.close();
+			selector.close();
+		}
+		for (EventLoop loop : loops)
+		{
+			loop.shutdown();
+		}
+		if (journal != null)
+			journal.close();
+	}
+
+	/**
+	 * The loop of the I/O thread.
+	 */
+	private void runIO()
+	{
+		while (isRunning)
+		{
+			try
+			{
+				selector.select();
+				ServerSocketChannel listening;
+				while ((listening = pendingListens.poll()) != null)
+				{
+					listening.register(selector, SelectionKey.OP_ACCEPT, listening);
+				}
+				SocketClient pending;
+				while ((pending = pendingWrites.poll()) != null)
+				{
+					SelectionKey key = pending.getKey();
+					if (key.isValid())
+						key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept((ServerSocketChannel) key.attachment());
+					else
+						handleReady(key);
+				}
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Accepts a new client.
+	 */
+	private void accept(ServerSocketChannel listening) throws IOException
+	{
+		SocketChannel channel = listening.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		SocketClient connection = listening == binaryServerChannel ? new BinaryConnection(this, channel)
+				: new Connection(this, channel);
+		connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+	}
+
+	/**
+	 * Reads from or writes to a client whose socket is ready.
+	 */
+	private void handleReady(SelectionKey key)
+	{
+		SocketClient connection = (SocketClient) key.attachment();
+		try
+		{
+			if (key.isWritable() && connection.writePending())
+			{
+				key.interestOps(SelectionKey.OP_READ);
+				// Events queued while the socket was full.
+				connection.flush();
+			}
+			if (key.isValid() && key.isReadable() && !connection.read())
+				close(connection);
+		}
+		catch (IOException e)
+		{
+			close(connection);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the port the server listens on for the line protocol.
+	 *
+	 * @return the port, or -1 if the server doesn't listen.
+	 */
+	public int getPort()
+	{
+		return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the port the server listens on for the binary protocol.
+	 *
+	 * @return the port, or -1 if the server doesn't listen.
+	 */
+	public int getBinaryPort()
+	{
+		return binaryServerChannel == null ? -1 : binaryServerChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the number of open tables in the heap, without the suspended
+	 * ones.
+	 *
+	 * @return the number of tables.
+	 */
+	public int getTableCount()
+	{
+		return tables.size();
+	}
+
+	/**
+	 * Returns the number of tables suspended off the heap. Only meant for
+	 * monitoring, since it is read without synchronization.
+	 *
+	 * @return the number of suspended tables.
+	 */
+	public int getSuspendedTableCount()
+	{
+		int count = 0;
+		for (EventLoop loop : loops)
+		{
+			count += loop.getStore().getCount();
+		}
+		return count;
+	}
+
+	public GameStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	public SpectatorHub getSpectatorHub()
+	{
+		return spectatorHub;
+	}
+
+	public Matchmaker getMatchmaker()
+	{
+		return matchmaker;
+	}
+
+	TimingWheel getTimers()
+	{
+		return timers;
+	}
+
+	public long getMoveMillis()
+	{
+		return moveMillis;
+	}
+
+	public long getTrickPauseMillis()
+	{
+		return trickPauseMillis;
+	}
+
+	public long getRoundPauseMillis()
+	{
+		return roundPauseMillis;
+	}
+
+	/**
+	 * Returns the journal of the tables.
+	 *
+	 * @return the journal, or {@code null} if the tables aren't journaled.
+	 */
+	public Journal getJournal()
+	{
+		return journal;
+	}
+
+	BufferPool getBufferPool()
+	{
+		return bufferPool;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	/**
+	 * Sets the time a client has to act before a bot acts for it. Applies to
+	 * the turns given from now on.
+	 *
+	 * @param moveMillis
+	 *        The time, in milliseconds, or 0 for no limit.
+	 */
+	public void setMoveMillis(long moveMillis)
+	{
+		this.moveMillis = moveMillis;
+	}
+
+	/**
+	 * Sets the pause after each trick, so the clients can show it.
+	 *
+	 * @param trickPauseMillis
+	 *        The pause, in milliseconds, or 0 for none.
+	 */
+	public void setTrickPauseMillis(long trickPauseMillis)
+	{
+		this.trickPauseMillis = trickPauseMillis;
+	}
+
+	/**
+	 * Sets the pause after each round, so the clients can show the score.
+	 *
+	 * @param roundPauseMillis
+	 *        The pause, in milliseconds, or 0 for none.
+	 */
+	public void setRoundPauseMillis(long roundPauseMillis)
+	{
+		this.roundPauseMillis = roundPauseMillis;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Runs a server from the command line until the process is stopped.
+	 *
+	 * <p>
+	 * Arguments: optionally the port, which defaults to 5000, the number of loops, which defaults
+	 * to the number of cores, the base seed and the directory of the journal. The binary protocol
+	 * is served on the next port. The tables of an existing journal are rebuilt, with its seed.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int loops = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		Path journalDirectory = args.length > 3 ? Paths.get(args[3]) : null;
+		if (journalDirectory != null)
+			seed = Journal.readSeed(journalDirectory, seed);
+
+		GameServer server = new GameServer(loops, seed);
+		if (journalDirectory != null)
+		{
+			server.startJournal(journalDirectory, DEFAULT_COMMIT_MILLIS, Journal.DEFAULT_CHECKPOINT_BYTES);
+			System.out.println("Rebuilt " + server.getTableCount() + " tables from " + journalDirectory);
+		}
+		server.listen(new InetSocketAddress("localhost", port));
+		server.listenBinary(new InetSocketAddress("localhost", port + 1));
+		System.out.println("Listening on ports " + server.getPort() + " (lines) and " + server.getBinaryPort()
+				+ " (binary) with " + loops + " loops");
+	}
+}
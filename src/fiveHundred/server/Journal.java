@@ -0,0 +1,559 @@
+package fiveHundred.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the actions of the tables of a {@link GameServer},
+ * from which the tables are rebuilt after a crash. Since the bots and the deals
+ * are deterministic, only the actions of the clients are journaled, and
+ * replaying them plays the same rounds again.
+ *
+ * <p>
+ * Each loop appends the records of its tables to its own {@link JournalSegment} in memory. Every
+ * few milliseconds, the thread of the journal writes the records of every loop and syncs the
+ * file once for all of them, so the actions of that interval are committed as a group; an action
+ * is durable at most one interval after it was made, and the tables never wait for the disk.
+ *
+ * <p>
+ * Once a file grows beyond a limit, the journal starts a new generation: each loop seals its
+ * records for the old file and starts the new one with a compact checkpoint of its tables, namely
+ * the scores and the actions of the clients in the round being played. Once every loop did, the
+ * old files are deleted. Recovery reads the files in order, a checkpoint replacing the table it
+ * is about, and stops reading a file at the first batch which was not completely written.
+ *
+ * <p>
+ * The seats of the clients of a rebuilt table are held by {@link ReservedSeat}s, and the table
+ * waits for them until the clients join it again.
+ */
+public class Journal implements Closeable
+{
+	/** Record: a table was created. Seat: the number of players. Value: the number of seats for clients. */
+	static final int CREATE = 1;
+
+	/** Record: a client joined the table. */
+	static final int JOIN = 2;
+
+	/** Record: a client left the table. */
+	static final int LEAVE = 3;
+
+	/** Record: a client called a bid. Value: the ordinal of the bid. */
+	static final int BID = 4;
+
+	/** Record: a client played a card. Value: the card. */
+	static final int PLAY = 5;
+
+	/** Record: the checkpoint of a table, written by {@link Table#writeCheckpoint}. */
+	static final int CHECKPOINT = 6;
+
+	/** The size of every record but the checkpoints: type, table id, seat and value. */
+	static final int RECORD_SIZE = 7;
+
+	/** Identifies the journal files. */
+	private static final int MAGIC = 0x46484A31;
+
+	/** The size of the header of a file: magic and seed. */
+	private static final int FILE_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+	/** The size of the header of a batch: length and checksum. */
+	private static final int BATCH_HEADER_SIZE = 2 * Integer.BYTES;
+
+	/** The prefix of the name of the files, followed by the generation. */
+	private static final String FILE_PREFIX = "journal-";
+
+	/** The suffix of the name of the files. */
+	private static final String FILE_SUFFIX = ".log";
+
+	/** The number of bytes written to a file before the journal starts a new generation. */
+	public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+	/** The directory of the files. */
+	private final Path directory;
+
+	/** The seed the hands are dealt from, which the files must have been written with. */
+	private final long baseSeed;
+
+	/** The time between two commits. */
+	private final long commitMillis;
+
+	/** The number of bytes written to a file before a new generation starts. */
+	private final long checkpointBytes;
+
+	/** Computes the checksums of the batches. */
+	private final CRC32 checksum;
+
+	/** The header of the batch being written. */
+	private final ByteBuffer batchHeader;
+
+	/** The segment of each loop. */
+	private JournalSegment[] segments;
+
+	/** The empty buffer given to each segment at the next commit. */
+	private ByteBuffer[] spares;
+
+	/** Value indicating whether each segment sealed its records for the previous file. */
+	private boolean[] isSealed;
+
+	/** The file of the current generation. */
+	private FileChannel current;
+
+	/** The file of the previous generation until every segment moved on, or {@code null}. */
+	private FileChannel previous;
+
+	/** The current generation. */
+	private int generation;
+
+	/** The number of bytes written to the current file. */
+	private long currentBytes;
+
+	/** The number of commits and of bytes written. */
+	private volatile long commitCount, byteCount;
+
+	/** The thread committing the records. */
+	private Thread thread;
+
+	/** Value indicating whether the journal is running. */
+	private volatile boolean isRunning;
+
+	/**
+	 * Creates a journal.
+	 *
+	 * @param directory
+	 *        The directory of the files, created if needed.
+	 * @param baseSeed
+	 *        The seed the hands of the server are dealt from.
+	 * @param commitMillis
+	 *        The time between two commits, in milliseconds.
+	 * @param checkpointBytes
+	 *        The number of bytes written to a file before a new generation
+	 *        starts with a checkpoint.
+	 */
+	public Journal(Path directory, long baseSeed, long commitMillis, long checkpointBytes)
+	{
+		this.directory = directory;
+		this.baseSeed = baseSeed;
+		this.commitMillis = commitMillis;
+		this.checkpointBytes = checkpointBytes;
+		checksum = new CRC32();
+		batchHeader = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+	}
+
+	/**
+	 * Rebuilds the tables of the files in the directory. Must be called before
+	 * the server serves any client; the tables are rebuilt on the calling
+	 * thread.
+	 *
+	 * @param server
+	 *        The server receiving the tables.
+	 * @throws IOException
+	 *         if a file can't be read, or was written with another seed.
+	 */
+	public void recover(GameServer server) throws IOException
+	{
+		for (Path path : listFiles(directory))
+		{
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+			{
+				ByteBuffer input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (input.remaining() < FILE_HEADER_SIZE || input.getInt() != MAGIC)
+					continue;
+				long seed = input.getLong();
+				if (seed != baseSeed)
+					throw new IOException(path + " was written with the seed " + seed);
+				replayBatches(input, server);
+			}
+		}
+	}
+
+	/**
+	 * Replays the complete batches of a file.
+	 */
+	private void replayBatches(ByteBuffer input, GameServer server) throws IOException
+	{
+		while (input.remaining() >= BATCH_HEADER_SIZE)
+		{
+			int length = input.getInt();
+			int expected = input.getInt();
+			if (length < 0 || length > input.remaining())
+				return;
+			ByteBuffer batch = input.slice();
+			batch.limit(length);
+			checksum.reset();
+			checksum.update(batch.duplicate());
+			if ((int) checksum.getValue() != expected)
+				return;
+			input.position(input.position() + length);
+			while (batch.hasRemaining())
+			{
+				replay(batch, server);
+			}
+		}
+	}
+
+	/**
+	 * Replays one record.
+	 */
+	private static void replay(ByteBuffer batch, GameServer server) throws IOException
+	{
+		int type = batch.get();
+		int tableId = batch.getInt();
+		if (type == CHECKPOINT)
+		{
+			int numberOfPlayers = batch.get();
+			int clientSeats = batch.get();
+			server.restoreTable(tableId, numberOfPlayers, clientSeats).restore(batch);
+			return;
+		}
+
+		int seat = batch.get();
+		int value = batch.get() & 0xFF;
+		if (type == CREATE)
+			server.restoreTable(tableId, seat, value);
+		else if (type >= JOIN && type <= PLAY)
+		{
+			Table table = server.getTable(tableId);
+			if (table != null)
+				table.replay(type, seat, value);
+		}
+		else
+			throw new IOException("Unknown record " + type);
+	}
+
+	/**
+	 * Starts journaling the tables of a server: a new generation starts with a
+	 * checkpoint of every table, the files of the previous generations are
+	 * deleted once it is synced, and the thread of the journal starts. Must be
+	 * called before the server serves any client.
+	 *
+	 * @param loops
+	 *        The loops of the server.
+	 * @param tables
+	 *        The open tables, typically rebuilt by {@link #recover}.
+	 * @throws IOException
+	 *         if the file can't be written.
+	 */
+	public void start(EventLoop[] loops, Collection<Table> tables) throws IOException
+	{
+		List<Path> oldFiles = listFiles(directory);
+		generation = oldFiles.isEmpty() ? 1 : parseGeneration(oldFiles.get(oldFiles.size() - 1)) + 1;
+		current = openFile(generation);
+
+		segments = new JournalSegment[loops.length];
+		spares = new ByteBuffer[loops.length];
+		isSealed = new boolean[loops.length];
+		for (int i = 0; i < loops.length; ++i)
+		{
+			segments[i] = new JournalSegment(loops[i]);
+			spares[i] = ByteBuffer.allocate(JournalSegment.INITIAL_CAPACITY);
+			isSealed[i] = true;
+		}
+		for (Table table : tables)
+		{
+			for (JournalSegment segment : segments)
+			{
+				if (segment.getLoop() == table.getLoop())
+					segment.register(table);
+			}
+		}
+		for (JournalSegment segment : segments)
+		{
+			segment.checkpoint();
+			segment.takeSealed();
+		}
+		commit(false);
+		for (Path path : oldFiles)
+		{
+			Files.delete(path);
+		}
+
+		for (int i = 0; i < loops.length; ++i)
+		{
+			loops[i].setJournal(segments[i]);
+		}
+		isRunning = true;
+		thread = new Thread(this::run, "Journal");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * The loop of the thread.
+	 */
+	private void run()
+	{
+		while (isRunning)
+		{
+			try
+			{
+				Thread.sleep(commitMillis);
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			try
+			{
+				commit(false);
+				if (previous == null && currentBytes > checkpointBytes)
+					startGeneration();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Writes the records of every segment and syncs the files.
+	 *
+	 * @param isClosing
+	 *        {@code true} if the loops are stopped, so the segments which
+	 *        didn't seal their records will never do it.
+	 */
+	private synchronized void commit(boolean isClosing) throws IOException
+	{
+		for (int i = 0; i < segments.length; ++i)
+		{
+			ByteBuffer sealed = segments[i].takeSealed();
+			if (sealed != null)
+			{
+				writeBatch(previous, sealed);
+				isSealed[i] = true;
+			}
+			// The records of a segment which didn't checkpoint its tables yet
+			// follow its older records in the previous file: the checkpoint
+			// seals them there.
+			if (!isSealed[i] && !isClosing)
+				continue;
+			ByteBuffer records = segments[i].swap(spares[i]);
+			if (isSealed[i])
+				currentBytes += writeBatch(current, records);
+			else
+				writeBatch(previous, records);
+			records.clear();
+			spares[i] = records;
+		}
+		if (previous != null)
+			previous.force(false);
+		current.force(false);
+		++commitCount;
+
+		if (previous != null && allSealed())
+		{
+			previous.close();
+			previous = null;
+			deleteFilesBefore(generation);
+		}
+	}
+
+	/**
+	 * Writes a batch of records.
+	 *
+	 * @return the number of bytes written.
+	 */
+	private long writeBatch(FileChannel channel, ByteBuffer records) throws IOException
+	{
+		if (records.position() == 0)
+			return 0;
+		records.flip();
+		checksum.reset();
+		checksum.update(records.duplicate());
+		batchHeader.clear();
+		batchHeader.putInt(records.remaining());
+		batchHeader.putInt((int) checksum.getValue());
+		batchHeader.flip();
+		long length = records.remaining() + BATCH_HEADER_SIZE;
+		ByteBuffer[] buffers = { batchHeader, records };
+		while (records.hasRemaining())
+		{
+			channel.write(buffers);
+		}
+		byteCount += length;
+		return length;
+	}
+
+	/**
+	 * Opens the file of a new generation, and asks each loop to seal its
+	 * records and checkpoint its tables.
+	 */
+	private synchronized void startGeneration() throws IOException
+	{
+		previous = current;
+		current = openFile(++generation);
+		currentBytes = 0;
+		for (int i = 0; i < segments.length; ++i)
+		{
+			JournalSegment segment = segments[i];
+			isSealed[i] = false;
+			segment.getLoop().execute(segment::checkpoint);
+		}
+	}
+
+	/**
+	 * Returns a value indicating whether every segment sealed its records for
+	 * the previous file.
+	 */
+	private boolean allSealed()
+	{
+		for (boolean sealed : isSealed)
+		{
+			if (!sealed)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the file of a generation and writes its header.
+	 */
+	private FileChannel openFile(int fileGeneration) throws IOException
+	{
+		Files.createDirectories(directory);
+		FileChannel channel = FileChannel.open(directory.resolve(FILE_PREFIX + fileGeneration + FILE_SUFFIX),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putLong(baseSeed);
+		header.flip();
+		while (header.hasRemaining())
+		{
+			channel.write(header);
+		}
+		return channel;
+	}
+
+	/**
+	 * Deletes the files of the generations before a generation.
+	 */
+	private void deleteFilesBefore(int lastGeneration) throws IOException
+	{
+		for (Path path : listFiles(directory))
+		{
+			if (parseGeneration(path) < lastGeneration)
+				Files.delete(path);
+		}
+	}
+
+	/**
+	 * Commits the records still in memory and closes the files.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (thread == null)
+			return;
+		// Interrupting the thread would close the files.
+		isRunning = false;
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		commit(true);
+		if (previous != null)
+			previous.close();
+		current.close();
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public long getCommitCount()
+	{
+		return commitCount;
+	}
+
+	public long getByteCount()
+	{
+		return byteCount;
+	}
+
+	public synchronized int getGeneration()
+	{
+		return generation;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Returns the seed the journal in a directory was written with, which the
+	 * server must use to rebuild its tables.
+	 *
+	 * @param directory
+	 *        The directory of the files.
+	 * @param defaultSeed
+	 *        The seed to use when there is no journal yet.
+	 * @return the seed of the journal, or {@code defaultSeed}.
+	 * @throws IOException
+	 *         if a file can't be read.
+	 */
+	public static long readSeed(Path directory, long defaultSeed) throws IOException
+	{
+		for (Path path : listFiles(directory))
+		{
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+			{
+				ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+				while (header.hasRemaining() && channel.read(header) >= 0)
+				{
+					// Reads the whole header.
+				}
+				header.flip();
+				if (header.remaining() == FILE_HEADER_SIZE && header.getInt() == MAGIC)
+					return header.getLong();
+			}
+		}
+		return defaultSeed;
+	}
+
+	/**
+	 * Returns the files of a journal, by generation.
+	 */
+	private static List<Path> listFiles(Path directory) throws IOException
+	{
+		List<Path> files = new ArrayList<>();
+		if (!Files.isDirectory(directory))
+			return files;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX))
+		{
+			for (Path path : stream)
+			{
+				if (parseGeneration(path) > 0)
+					files.add(path);
+			}
+		}
+		Collections.sort(files, (a, b) -> Integer.compare(parseGeneration(a), parseGeneration(b)));
+		return files;
+	}
+
+	/**
+	 * Returns the generation of a file, or -1 if its name isn't the name of a
+	 * journal file.
+	 */
+	private static int parseGeneration(Path path)
+	{
+		String name = path.getFileName().toString();
+		try
+		{
+			return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+		}
+		catch (NumberFormatException | IndexOutOfBoundsException e)
+		{
+			return -1;
+		}
+	}
+}
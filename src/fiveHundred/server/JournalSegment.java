@@ -0,0 +1,187 @@
+package fiveHundred.server;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The part of the {@link Journal} written by one {@link EventLoop}. The tables
+ * of the loop append their records to a buffer in memory, which the thread of
+ * the journal swaps for an empty one at each commit, so an action only pays
+ * for an uncontended lock and a few bytes.
+ *
+ * <p>
+ * The records of a table always go to the segment of its loop, so they stay in order even
+ * though the segments of the loops are written in any order.
+ */
+final class JournalSegment
+{
+	/** The initial size of the buffers. */
+	static final int INITIAL_CAPACITY = 64 * 1024;
+
+	/** The largest size of a checkpoint of a table. */
+	private static final int MAX_CHECKPOINT_SIZE = 1024;
+
+	/** The loop writing to this segment. */
+	private final EventLoop loop;
+
+	/** The tables of the loop which are journaled. Only used by the loop. */
+	private final Set<Table> tables;
+
+	/** The records not yet written, in write mode. */
+	private ByteBuffer active;
+
+	/** The records of the previous generation not yet written, or {@code null}. */
+	private ByteBuffer sealed;
+
+	/**
+	 * Creates an empty segment.
+	 *
+	 * @param loop
+	 *        The loop writing to this segment.
+	 */
+	JournalSegment(EventLoop loop)
+	{
+		this.loop = loop;
+		tables = new HashSet<>();
+		active = ByteBuffer.allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Starts journaling a new table, which is then part of every checkpoint.
+	 *
+	 * @param table
+	 *        The table.
+	 * @param clientSeats
+	 *        The number of seats for clients.
+	 */
+	void created(Table table, int clientSeats)
+	{
+		register(table);
+		append(Journal.CREATE, table.getId(), table.getDeckSpec().getNumberOfPlayers(), clientSeats);
+	}
+
+	/**
+	 * Starts journaling a table without a record, because the checkpoint which
+	 * follows contains it.
+	 *
+	 * @param table
+	 *        The table.
+	 */
+	void register(Table table)
+	{
+		tables.add(table);
+		table.setJournal(this);
+	}
+
+	/**
+	 * Stops journaling a closed table.
+	 *
+	 * @param table
+	 *        The table.
+	 */
+	void unregister(Table table)
+	{
+		tables.remove(table);
+	}
+
+	/**
+	 * Appends a record.
+	 *
+	 * @param type
+	 *        The type of the record.
+	 * @param tableId
+	 *        The id of the table.
+	 * @param seat
+	 *        The seat the record is about.
+	 * @param value
+	 *        The value of the record, between 0 and 255.
+	 */
+	synchronized void append(int type, int tableId, int seat, int value)
+	{
+		reserve(Journal.RECORD_SIZE);
+		active.put((byte) type);
+		active.putInt(tableId);
+		active.put((byte) seat);
+		active.put((byte) value);
+	}
+
+	/**
+	 * Moves to a new generation: the records appended so far are sealed for
+	 * the previous file, and the new one starts with a checkpoint of every
+	 * table, including the tables suspended in the {@link TableStore} of the
+	 * loop. Must be called from the loop, or before the server serves any
+	 * client.
+	 */
+	synchronized void checkpoint()
+	{
+		sealed = active;
+		active = ByteBuffer.allocate(sealed.capacity());
+		for (Table table : tables)
+		{
+			reserve(MAX_CHECKPOINT_SIZE);
+			active.put((byte) Journal.CHECKPOINT);
+			active.putInt(table.getId());
+			table.writeCheckpoint(active);
+		}
+		TableStore store = loop.getStore();
+		for (int slot = 0; slot < store.getSlotCount(); ++slot)
+		{
+			if (!store.isUsed(slot))
+				continue;
+			reserve(MAX_CHECKPOINT_SIZE);
+			active.put((byte) Journal.CHECKPOINT);
+			active.putInt(store.getTableId(slot));
+			store.writeCheckpoint(slot, active);
+		}
+	}
+
+	/**
+	 * Makes room for some bytes, growing the buffer if needed.
+	 */
+	private void reserve(int bytes)
+	{
+		if (active.remaining() >= bytes)
+			return;
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + bytes));
+		active.flip();
+		larger.put(active);
+		active = larger;
+	}
+
+	/**
+	 * Takes the records appended since the last swap, giving an empty buffer
+	 * in exchange. Called by the thread of the journal.
+	 *
+	 * @param empty
+	 *        An empty buffer, in write mode.
+	 * @return the records, in write mode.
+	 */
+	synchronized ByteBuffer swap(ByteBuffer empty)
+	{
+		ByteBuffer full = active;
+		active = empty;
+		return full;
+	}
+
+	/**
+	 * Takes the records of the previous generation. Called by the thread of
+	 * the journal.
+	 *
+	 * @return the records, in write mode, or {@code null} if they were already
+	 *         taken.
+	 */
+	synchronized ByteBuffer takeSealed()
+	{
+		ByteBuffer records = sealed;
+		sealed = null;
+		return records;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	EventLoop getLoop()
+	{
+		return loop;
+	}
+}
@@ -0,0 +1,817 @@
+package fiveHundred.server;
+
+import fiveHundred.ai.HeuristicPolicy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+import fiveHundred.stats.Histogram;
+import gameCore.util.UnsynchronizedRandom;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A closed-loop load generator: bots speaking the {@link BinaryProtocol} like
+ * human clients create tables, join them, bid and play, each sending its next
+ * request only after the server answered the previous one and a think time
+ * went by. The bots talk to a server in the same process through
+ * {@link LocalClient}s, or to a server on this machine through sockets.
+ *
+ * <p>
+ * The bots sit in groups, one group per table: the first bot of a group creates the table with a
+ * seat for each bot of the group, and the others join it once it exists. Every bot plays a number
+ * of rounds and leaves. The latency of a request is the time from sending it to receiving the event
+ * answering it: {@code SEATED} for a new table or a join, and the bid or card of the bot for a bid
+ * or a play. It is measured for each type of request.
+ *
+ * <p>
+ * A run is reproducible from its seed: the think times and the cards of each bot come from a
+ * random generator of its own, seeded from the seed and its index, and the bids from the
+ * {@link HeuristicPolicy}. The tables are created one after the other, spread over a ramp, so the
+ * server numbers them in the order of their groups and deals them the same cards at each run.
+ * Given a fresh server with the same seed, two runs send the same requests, which
+ * {@link #getWorkloadHash()} tells; only the timing differs, which is what two builds of the
+ * server are compared on.
+ */
+public class LoadGenerator
+{
+	/** The number of buckets of {@link #LATENCIES}. */
+	private static final int LATENCY_BUCKETS = 100000;
+
+	/** The latencies, in microseconds, measured up to 1 s. */
+	private static final Histogram LATENCIES = new Histogram(0, 10, LATENCY_BUCKETS);
+
+	/** The types of requests measured, indexed by their {@link BinaryProtocol} type. */
+	private static final String[] REQUEST_NAMES = { null, "NEW", "JOIN", "BID", "PLAY" };
+
+	/** The spread of the think times, the standard deviation of their logarithm. */
+	private static final double THINK_SIGMA = 0.5;
+
+	/** The longest think time, as a multiple of the median, well below the move clock of the server. */
+	private static final double MAX_THINK_FACTOR = 10;
+
+	/** The bids, indexed by ordinal. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The size of the buffers of a bot talking through a socket. */
+	private static final int BUFFER_SIZE = 4096;
+
+	/** The largest number of players at a table. */
+	private static final int MAX_PLAYERS = DeckSpec.SIX_PLAYERS.getNumberOfPlayers();
+
+	/** The deck of the tables. */
+	private final DeckSpec deckSpec;
+
+	/** The number of bots at each table, the other seats being played by the server. */
+	private final int clientSeats;
+
+	/** The median think time, in nanoseconds. */
+	private final long thinkTime;
+
+	/** The seed of the run. */
+	private final long seed;
+
+	/** The bots waiting to send their next request, the earliest first. */
+	private final PriorityQueue<Bot> thinking;
+
+	/** The number of latencies in each bucket, for each type of request. */
+	private final long[][] latencyCounts;
+
+	/** The number of requests answered, for each type. */
+	private final long[] answered;
+
+	/** The longest latency, in nanoseconds, for each type. */
+	private final long[] maxLatency;
+
+	/** The number of events received. */
+	private long events;
+
+	/** The number of errors the server sent. */
+	private long errors;
+
+	/** The number of rounds the bots played, counted once per table. */
+	private long rounds;
+
+	/** The number of bots still playing. */
+	private int activeBots;
+
+	/** The bots creating the tables, in the order they create them. */
+	private final List<Bot> leaders;
+
+	/** The index in {@link #leaders} of the next bot to create its table. */
+	private int nextLeader;
+
+	/** The time the first table is created. */
+	private long rampStart;
+
+	/** The time between the creation of two tables, in nanoseconds. */
+	private long rampStep;
+
+	/** The duration of the last run, in nanoseconds. */
+	private long elapsed;
+
+	/** The sum of the hashes of the requests of every bot. */
+	private long workloadHash;
+
+	/**
+	 * A client played by the generator.
+	 */
+	private class Bot implements TableListener
+	{
+		/** The index of the bot, which orders the bots due at the same time. */
+		private final int index;
+
+		/** Chooses the think times and cards of the bot. */
+		private final UnsynchronizedRandom random;
+
+		/** The other bots of the group, joining the table this bot creates, or {@code null}. */
+		private Bot[] followers;
+
+		/** The client of the bot in the same process, or {@code null}. */
+		private LocalClient client;
+
+		/** The socket of the bot, or {@code null}. */
+		private SocketChannel channel;
+
+		/** The bytes received and not yet decoded, in write mode. */
+		private ByteBuffer input;
+
+		/** The requests to send, in write mode. */
+		private ByteBuffer output;
+
+		/** The points of the last {@code SCORED} event. */
+		private int[] scoreDeltas;
+
+		/** The seat of the bot, or -1. */
+		private int seat;
+
+		/** The cards in the hand of the bot. */
+		private long hand;
+
+		/** The number of rounds left to play. */
+		private int roundsLeft;
+
+		/** The type of the next request, 0 if none. */
+		private int nextType;
+
+		/** The argument of the next request: a table id, a bid ordinal or a card. */
+		private int nextArgument;
+
+		/** The time the next request is due. */
+		private long due;
+
+		/** The type of the request waiting for its answer, 0 if none. */
+		private int pendingType;
+
+		/** The time the request waiting for its answer was sent. */
+		private long sentTime;
+
+		/** The hash of the requests of the bot. */
+		private long hash;
+
+		private Bot(int index, int roundsLeft)
+		{
+			this.index = index;
+			this.roundsLeft = roundsLeft;
+			random = new UnsynchronizedRandom(seed * 0x9E3779B97F4A7C15L + index);
+			seat = -1;
+		}
+
+		/**
+		 * Prepares a request to send after a think time.
+		 */
+		private void think(int type, int argument, long now)
+		{
+			double factor = Math.min(MAX_THINK_FACTOR, Math.exp(THINK_SIGMA * random.nextGaussian()));
+			schedule(type, argument, now + (long) (thinkTime * factor));
+		}
+
+		/**
+		 * Prepares a request to send at a given time.
+		 */
+		private void schedule(int type, int argument, long due)
+		{
+			nextType = type;
+			nextArgument = argument;
+			this.due = due;
+			thinking.add(this);
+		}
+
+		/**
+		 * Sends the request prepared.
+		 */
+		private void transmit() throws IOException
+		{
+			int type = nextType;
+			int argument = nextArgument;
+			nextType = 0;
+			hash = hash * 31 + (type << 8 | argument);
+			switch (type)
+			{
+				case BinaryProtocol.NEW:
+					if (client != null)
+						client.newTable(deckSpec.getNumberOfPlayers(), clientSeats);
+					else
+						BinaryProtocol.putNew(output, deckSpec.getNumberOfPlayers(), clientSeats);
+					break;
+				case BinaryProtocol.JOIN:
+					if (client != null)
+						client.join(argument);
+					else
+						BinaryProtocol.putJoin(output, argument);
+					break;
+				case BinaryProtocol.BID:
+					if (client != null)
+						client.bid(BIDS[argument]);
+					else
+						BinaryProtocol.putBid(output, BIDS[argument]);
+					break;
+				case BinaryProtocol.PLAY:
+					if (client != null)
+						client.play(argument);
+					else
+						BinaryProtocol.putPlay(output, argument);
+					break;
+				default:
+					if (client != null)
+						client.quit();
+					else
+						BinaryProtocol.putQuit(output);
+					break;
+			}
+			pendingType = type == BinaryProtocol.QUIT ? 0 : type;
+			sentTime = System.nanoTime();
+			if (client != null)
+				client.send();
+			else
+			{
+				// The frames are short, so waiting for the socket to take them is rare.
+				output.flip();
+				while (output.hasRemaining())
+				{
+					channel.write(output);
+				}
+				output.clear();
+			}
+		}
+
+		/**
+		 * Records the latency of the request waiting for an answer, if the
+		 * event answers it.
+		 */
+		private void answer(int type)
+		{
+			if (pendingType != type)
+				return;
+			record(type, System.nanoTime() - sentTime);
+			pendingType = 0;
+		}
+
+		/**
+		 * Reads what the server sent through the socket and handles every
+		 * event.
+		 *
+		 * @return {@code false} if the server closed the connection.
+		 */
+		private boolean read() throws IOException
+		{
+			if (channel.read(input) == -1)
+				return false;
+			input.flip();
+			while (BinaryProtocol.decodeEvent(input, this, scoreDeltas))
+			{
+				++events;
+			}
+			input.compact();
+			return true;
+		}
+
+		private boolean isDone()
+		{
+			return roundsLeft == 0;
+		}
+
+		@Override
+		public void seated(int tableId, int seat, int numberOfPlayers)
+		{
+			this.seat = seat;
+			if (pendingType != BinaryProtocol.NEW)
+			{
+				answer(BinaryProtocol.JOIN);
+				return;
+			}
+			answer(BinaryProtocol.NEW);
+			long now = System.nanoTime();
+			scheduleNextTable(now);
+			for (Bot follower : followers)
+			{
+				follower.think(BinaryProtocol.JOIN, tableId, now);
+			}
+		}
+
+		@Override
+		public void dealt(int round, int dealer, long hand)
+		{
+			this.hand = hand;
+		}
+
+		@Override
+		public void bidCalled(int seat, Bid bid)
+		{
+			if (seat == this.seat)
+				answer(BinaryProtocol.BID);
+		}
+
+		@Override
+		public void contract(int contractor, Bid bid)
+		{
+			// Nothing to remember.
+		}
+
+		@Override
+		public void cardPlayed(int seat, int card)
+		{
+			if (seat == this.seat)
+				answer(BinaryProtocol.PLAY);
+		}
+
+		@Override
+		public void trickWon(int winner)
+		{
+			// Nothing to remember.
+		}
+
+		@Override
+		public void scored(int[] scoreDeltas, int numberOfPlayers)
+		{
+			if (isDone())
+				return;
+			if (followers != null)
+				++rounds;
+			if (--roundsLeft > 0)
+				return;
+
+			// Leaves right away, so the next round, which may already be
+			// dealt, is ignored.
+			--activeBots;
+			workloadHash += hash;
+			schedule(BinaryProtocol.QUIT, 0, System.nanoTime());
+		}
+
+		@Override
+		public void turnToBid(Bid highestBid)
+		{
+			if (!isDone())
+				think(BinaryProtocol.BID, HeuristicPolicy.chooseBid(deckSpec, hand, highestBid).ordinal(), System
+						.nanoTime());
+		}
+
+		@Override
+		public void turnToPlay(long legalMoves)
+		{
+			if (isDone())
+				return;
+			int choice = random.nextInt(Long.bitCount(legalMoves));
+			for (int i = 0; i < choice; ++i)
+			{
+				legalMoves &= legalMoves - 1;
+			}
+			int card = Long.numberOfTrailingZeros(legalMoves);
+			hand &= ~(1L << card);
+			think(BinaryProtocol.PLAY, card, System.nanoTime());
+		}
+
+		@Override
+		public void left(int seat)
+		{
+			// Nothing to remember.
+		}
+
+		@Override
+		public void snapshot(TableSnapshot snapshot)
+		{
+			// Nothing to remember.
+		}
+
+		@Override
+		public void error(String message)
+		{
+			++errors;
+			pendingType = 0;
+			System.err.println("ERROR " + message);
+		}
+	}
+
+	/**
+	 * Creates a load generator.
+	 *
+	 * @param deckSpec
+	 *        The deck of the tables, which also determines their number of
+	 *        players.
+	 * @param clientSeats
+	 *        The number of bots at each table, the other seats being played
+	 *        by the server.
+	 * @param thinkMillis
+	 *        The median time a bot thinks before a request, in milliseconds.
+	 * @param seed
+	 *        The seed of the run.
+	 */
+	public LoadGenerator(DeckSpec deckSpec, int clientSeats, double thinkMillis, long seed)
+	{
+		if (clientSeats < 1 || clientSeats > deckSpec.getNumberOfPlayers())
+			throw new IllegalArgumentException("A table of " + deckSpec.getNumberOfPlayers() + " can't have "
+					+ clientSeats + " clients.");
+		this.deckSpec = deckSpec;
+		this.clientSeats = clientSeats;
+		this.seed = seed;
+		thinkTime = (long) (thinkMillis * 1e6);
+		thinking = new PriorityQueue<>(Comparator.<Bot> comparingLong(bot -> bot.due).thenComparingInt(
+				bot -> bot.index));
+		leaders = new ArrayList<>();
+		latencyCounts = new long[REQUEST_NAMES.length][LATENCY_BUCKETS];
+		answered = new long[REQUEST_NAMES.length];
+		maxLatency = new long[REQUEST_NAMES.length];
+	}
+
+	/**
+	 * Plays with {@link LocalClient}s at a server in the same process until
+	 * every bot has played its rounds.
+	 *
+	 * @param server
+	 *        The server.
+	 * @param tableCount
+	 *        The number of tables.
+	 * @param roundsPerTable
+	 *        The number of rounds each bot plays.
+	 * @param rampSeconds
+	 *        The time over which the tables are created.
+	 * @throws InterruptedException
+	 *         if the thread was interrupted.
+	 */
+	public void run(GameServer server, int tableCount, int roundsPerTable, double rampSeconds)
+			throws InterruptedException
+	{
+		List<Bot> bots = createBots(tableCount, roundsPerTable);
+		BlockingQueue<Bot> ready = new ArrayBlockingQueue<>(bots.size());
+		for (Bot bot : bots)
+		{
+			bot.client = new LocalClient(server, bot, () -> ready.add(bot));
+		}
+
+		long start = System.nanoTime();
+		startRamp(start, rampSeconds);
+		try
+		{
+			while (activeBots > 0)
+			{
+				long wait = transmitDue();
+				Bot bot = ready.poll(wait, TimeUnit.NANOSECONDS);
+				while (bot != null)
+				{
+					events += bot.client.poll();
+					bot = ready.poll();
+				}
+			}
+			transmitDue();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		elapsed = System.nanoTime() - start;
+	}
+
+	/**
+	 * Plays through sockets at a server on this machine until every bot has
+	 * played its rounds. Each bot has a socket of its own.
+	 *
+	 * @param address
+	 *        The address the server accepts the clients of the
+	 *        {@link BinaryProtocol} on.
+	 * @param tableCount
+	 *        The number of tables.
+	 * @param roundsPerTable
+	 *        The number of rounds each bot plays.
+	 * @param rampSeconds
+	 *        The time over which the tables are created.
+	 * @throws IOException
+	 *         if a bot can't talk to the server.
+	 */
+	public void run(InetSocketAddress address, int tableCount, int roundsPerTable, double rampSeconds)
+			throws IOException
+	{
+		List<Bot> bots = createBots(tableCount, roundsPerTable);
+		try (Selector selector = Selector.open())
+		{
+			for (Bot bot : bots)
+			{
+				bot.channel = SocketChannel.open(address);
+				bot.channel.socket().setTcpNoDelay(true);
+				bot.channel.configureBlocking(false);
+				bot.channel.register(selector, SelectionKey.OP_READ, bot);
+				bot.input = ByteBuffer.allocate(BUFFER_SIZE);
+				bot.output = ByteBuffer.allocate(BUFFER_SIZE);
+				bot.scoreDeltas = new int[MAX_PLAYERS];
+			}
+
+			long start = System.nanoTime();
+			startRamp(start, rampSeconds);
+			while (activeBots > 0)
+			{
+				long wait = transmitDue();
+				if (wait < TimeUnit.MILLISECONDS.toNanos(1))
+					selector.selectNow();
+				else
+					selector.select(TimeUnit.NANOSECONDS.toMillis(wait));
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					Bot bot = (Bot) key.attachment();
+					if (!bot.read())
+					{
+						if (!bot.isDone())
+							throw new IOException("The server closed a connection.");
+						key.cancel();
+					}
+				}
+			}
+			transmitDue();
+			elapsed = System.nanoTime() - start;
+		}
+		finally
+		{
+			for (Bot bot : bots)
+			{
+				if (bot.channel != null)
+					bot.channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Creates the bots of the tables, in groups.
+	 */
+	private List<Bot> createBots(int tableCount, int roundsPerTable)
+	{
+		List<Bot> bots = new ArrayList<>(tableCount * clientSeats);
+		leaders.clear();
+		for (int table = 0; table < tableCount; ++table)
+		{
+			Bot leader = new Bot(bots.size(), roundsPerTable);
+			bots.add(leader);
+			leaders.add(leader);
+			leader.followers = new Bot[clientSeats - 1];
+			for (int i = 0; i < leader.followers.length; ++i)
+			{
+				leader.followers[i] = new Bot(bots.size(), roundsPerTable);
+				bots.add(leader.followers[i]);
+			}
+		}
+		activeBots = bots.size();
+		return bots;
+	}
+
+	/**
+	 * Starts creating the tables, evenly over the ramp.
+	 */
+	private void startRamp(long start, double rampSeconds)
+	{
+		nextLeader = 0;
+		rampStart = start;
+		rampStep = leaders.isEmpty() ? 0 : (long) (rampSeconds * 1e9 / leaders.size());
+		scheduleNextTable(start);
+	}
+
+	/**
+	 * Schedules the creation of the next table, once the previous one exists,
+	 * so the server numbers the tables in the order of their groups, whatever
+	 * the transport.
+	 */
+	private void scheduleNextTable(long now)
+	{
+		if (nextLeader == leaders.size())
+			return;
+		Bot leader = leaders.get(nextLeader);
+		leader.schedule(BinaryProtocol.NEW, 0, Math.max(now, rampStart + nextLeader * rampStep));
+		++nextLeader;
+	}
+
+	/**
+	 * Sends the requests which are due.
+	 *
+	 * @return the time until the next request is due, in nanoseconds.
+	 */
+	private long transmitDue() throws IOException
+	{
+		long now = System.nanoTime();
+		while (!thinking.isEmpty() && thinking.peek().due <= now)
+		{
+			thinking.poll().transmit();
+		}
+		return thinking.isEmpty() ? TimeUnit.MILLISECONDS.toNanos(100) : thinking.peek().due - now;
+	}
+
+	/**
+	 * Records the latency of a request.
+	 */
+	private void record(int type, long latency)
+	{
+		++answered[type];
+		++latencyCounts[type][LATENCIES.getBucket((int) Math.min(Integer.MAX_VALUE, latency / 1000))];
+		maxLatency[type] = Math.max(maxLatency[type], latency);
+	}
+
+	/**
+	 * Returns the approximate latency below which a fraction of the requests
+	 * of a type were answered.
+	 *
+	 * @param type
+	 *        The type of the requests, {@link BinaryProtocol#NEW},
+	 *        {@link BinaryProtocol#JOIN}, {@link BinaryProtocol#BID} or
+	 *        {@link BinaryProtocol#PLAY}.
+	 * @param fraction
+	 *        The fraction of the requests, between 0 and 1.
+	 * @return the latency in microseconds.
+	 */
+	public int getLatencyPercentile(int type, double fraction)
+	{
+		return LATENCIES.getPercentile(latencyCounts[type], 0, fraction);
+	}
+
+	/**
+	 * Prints the throughput and the latencies of each type of request.
+	 */
+	public void printReport()
+	{
+		double seconds = elapsed / 1e9;
+		long requests = 0;
+		for (long count : answered)
+		{
+			requests += count;
+		}
+		System.out.printf("%d requests in %.1f s (%.0f requests/s, %.0f events/s), %d rounds, %d errors%n",
+				requests, seconds, requests / seconds, events / seconds, rounds, errors);
+		System.out.printf("%-5s %9s %10s %9s %9s %9s %9s%n", "", "count", "per s", "p50 us", "p99 us", "p999 us",
+				"max us");
+		for (int type = BinaryProtocol.NEW; type <= BinaryProtocol.PLAY; ++type)
+		{
+			System.out.printf("%-5s %9d %10.0f %9d %9d %9d %9d%n", REQUEST_NAMES[type], answered[type],
+					answered[type] / seconds, getLatencyPercentile(type, 0.5), getLatencyPercentile(type, 0.99),
+					getLatencyPercentile(type, 0.999), getMaxLatency(type));
+		}
+		System.out.printf("Workload hash %016x%n", getWorkloadHash());
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the number of requests of a type answered.
+	 *
+	 * @param type
+	 *        The type of the requests.
+	 * @return the number of requests.
+	 */
+	public long getAnswered(int type)
+	{
+		return answered[type];
+	}
+
+	/**
+	 * Returns the longest latency of the requests of a type.
+	 *
+	 * @param type
+	 *        The type of the requests.
+	 * @return the latency in microseconds.
+	 */
+	public long getMaxLatency(int type)
+	{
+		return maxLatency[type] / 1000;
+	}
+
+	public long getEvents()
+	{
+		return events;
+	}
+
+	public long getErrors()
+	{
+		return errors;
+	}
+
+	public long getRounds()
+	{
+		return rounds;
+	}
+
+	/**
+	 * Returns a hash of the requests every bot sent, the same for two runs
+	 * which sent the same requests.
+	 *
+	 * @return the hash.
+	 */
+	public long getWorkloadHash()
+	{
+		return workloadHash;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Runs a load from the command line and prints the throughput and the
+	 * latencies.
+	 *
+	 * <p>
+	 * Arguments: the number of tables, the number of players at each table, the number of bots at
+	 * each table, the number of rounds, then {@code --local} to play with {@link LocalClient}s at a
+	 * server in this process, {@code --socket} to play through sockets at a server in this process,
+	 * or the port of the binary protocol of a server on this machine, then optionally the median
+	 * think time in milliseconds, 100 by default, the seed, 1 by default, and a directory to journal
+	 * the tables to. A server started here deals from the same seed, or from the seed of the journal
+	 * if there is one already, and reports its rounds, buffers and journal. A think time of 0
+	 * measures the most the server sustains.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 5)
+		{
+			System.err.println("Usage: LoadGenerator <tables> <players> <bots per table> <rounds> "
+					+ "<--local|--socket|port> [think ms] [seed] [journal directory]");
+			System.exit(1);
+		}
+
+		int tables = Integer.parseInt(args[0]);
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[1]));
+		int clientSeats = Integer.parseInt(args[2]);
+		int rounds = Integer.parseInt(args[3]);
+		double thinkMillis = args.length > 5 ? Double.parseDouble(args[5]) : 100;
+		long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+		Path journalDirectory = args.length > 7 ? Paths.get(args[7]) : null;
+		int cores = Runtime.getRuntime().availableProcessors();
+		double rampSeconds = 10 * thinkMillis / 1000;
+		if (journalDirectory != null)
+			seed = Journal.readSeed(journalDirectory, seed);
+
+		LoadGenerator generator = new LoadGenerator(deckSpec, clientSeats, thinkMillis, seed);
+		if (!args[4].startsWith("--"))
+		{
+			generator.run(new InetSocketAddress("localhost", Integer.parseInt(args[4])), tables, rounds, rampSeconds);
+			printHeader(tables, deckSpec, clientSeats, cores);
+			generator.printReport();
+			return;
+		}
+
+		try (GameServer server = new GameServer(cores, seed))
+		{
+			if (journalDirectory != null)
+			{
+				server.startJournal(journalDirectory, GameServer.DEFAULT_COMMIT_MILLIS,
+						Journal.DEFAULT_CHECKPOINT_BYTES);
+				System.out.println("Rebuilt " + server.getTableCount() + " tables from " + journalDirectory);
+			}
+			if (args[4].equals("--local"))
+				generator.run(server, tables, rounds, rampSeconds);
+			else
+			{
+				server.listenBinary(new InetSocketAddress("localhost", 0));
+				generator.run(new InetSocketAddress("localhost", server.getBinaryPort()), tables, rounds,
+						rampSeconds);
+			}
+
+			printHeader(tables, deckSpec, clientSeats, cores);
+			generator.printReport();
+			System.out.printf("%d rounds played by the server, %d buffers allocated%n", server.getStatistics()
+					.snapshot().getHands(), server.getBufferPool().getAllocatedCount());
+			if (server.getJournal() != null)
+				System.out.printf("%d journal commits, %d bytes%n", server.getJournal().getCommitCount(), server
+						.getJournal().getByteCount());
+		}
+	}
+
+	/**
+	 * Prints the size of the load.
+	 */
+	private static void printHeader(int tables, DeckSpec deckSpec, int clientSeats, int cores)
+	{
+		System.out.printf("%d tables of %d players with %d bots each, on %d cores (%.0f tables/core)%n", tables,
+				deckSpec.getNumberOfPlayers(), clientSeats, cores, tables / (double) cores);
+	}
+}
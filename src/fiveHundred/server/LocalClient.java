@@ -0,0 +1,290 @@
+package fiveHundred.server;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.rules.Bid;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A client of the {@link GameServer} living in the same process, with no
+ * socket in between. It still speaks the {@link BinaryProtocol}: its requests
+ * are encoded into frames and decoded by the server, and the events of its
+ * table are encoded by the server and decoded here, so the protocol can be
+ * tested and measured without a network.
+ *
+ * <p>
+ * The requests are queued by {@link #newTable(int, int)}, {@link #join(int)}, {@link #queue(int, int)},
+ * {@link #watch(int)}, {@link #bid(Bid)}, {@link #play(int)} and {@link #quit()}, and handed to the
+ * server together by {@link #send()}. The events received are handed to the listener by
+ * {@link #poll()} or {@link #await(long)}, on the thread calling them. A client is used by one
+ * thread at a time.
+ */
+public class LocalClient
+{
+	/** The initial size of the buffers. */
+	private static final int BUFFER_SIZE = 4096;
+
+	/** The largest number of players at a table. */
+	private static final int MAX_PLAYERS = DeckSpec.SIX_PLAYERS.getNumberOfPlayers();
+
+	/** The server. */
+	private final GameServer server;
+
+	/** The listener receiving the events of the table. */
+	private final TableListener listener;
+
+	/** Called from the server when events arrive while none were waiting, or {@code null}. */
+	private final Runnable onReceive;
+
+	/** The session of this client on the server. */
+	private final Session session;
+
+	/** The requests queued, in write mode. */
+	private final ByteBuffer requests;
+
+	/** The events received and not yet handed to the listener, in write mode. Guarded by this client. */
+	private ByteBuffer received;
+
+	/** The events being handed to the listener, swapped with {@link #received}. */
+	private ByteBuffer decoding;
+
+	/** The points of the last {@link BinaryProtocol#SCORED} event. */
+	private final int[] scoreDeltas;
+
+	/**
+	 * The session of the client on the server, delivering the bytes of the
+	 * events to the client.
+	 */
+	private class Session extends BinarySession
+	{
+		private Session(GameServer server)
+		{
+			super(server);
+		}
+
+		@Override
+		protected boolean transmit(ByteBuffer bytes)
+		{
+			deliver(bytes);
+			return true;
+		}
+
+		@Override
+		protected void disconnect()
+		{
+			// Delivering never fails.
+		}
+	}
+
+	/**
+	 * Creates a client.
+	 *
+	 * @param server
+	 *        The server.
+	 * @param listener
+	 *        The listener receiving the events of the table.
+	 * @param onReceive
+	 *        Called from the loop of the table when events arrive while none
+	 *        were waiting, typically to wake the thread polling this client.
+	 *        It must be quick. May be {@code null}.
+	 */
+	public LocalClient(GameServer server, TableListener listener, Runnable onReceive)
+	{
+		this.server = server;
+		this.listener = listener;
+		this.onReceive = onReceive;
+		session = new Session(server);
+		requests = ByteBuffer.allocate(BUFFER_SIZE);
+		received = ByteBuffer.allocate(BUFFER_SIZE);
+		decoding = ByteBuffer.allocate(BUFFER_SIZE);
+		scoreDeltas = new int[MAX_PLAYERS];
+	}
+
+	/**
+	 * Queues a request creating a table and sitting at it.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param clientSeats
+	 *        The number of seats for clients, the others being played by bots.
+	 */
+	public void newTable(int numberOfPlayers, int clientSeats)
+	{
+		BinaryProtocol.putNew(reserve(), numberOfPlayers, clientSeats);
+	}
+
+	/**
+	 * Queues a request sitting at a table waiting for clients.
+	 *
+	 * @param tableId
+	 *        The id of the table.
+	 */
+	public void join(int tableId)
+	{
+		BinaryProtocol.putJoin(reserve(), tableId);
+	}
+
+	/**
+	 * Queues a request asking the matchmaker for a seat.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param rating
+	 *        The rating of the client.
+	 */
+	public void queue(int numberOfPlayers, int rating)
+	{
+		BinaryProtocol.putQueue(reserve(), numberOfPlayers, rating);
+	}
+
+	/**
+	 * Queues a request watching a table as a spectator.
+	 *
+	 * @param tableId
+	 *        The id of the table.
+	 */
+	public void watch(int tableId)
+	{
+		BinaryProtocol.putWatch(reserve(), tableId);
+	}
+
+	/**
+	 * Queues a bid.
+	 *
+	 * @param bid
+	 *        The bid.
+	 */
+	public void bid(Bid bid)
+	{
+		BinaryProtocol.putBid(reserve(), bid);
+	}
+
+	/**
+	 * Queues a card to play.
+	 *
+	 * @param card
+	 *        The id of the card.
+	 */
+	public void play(int card)
+	{
+		BinaryProtocol.putPlay(reserve(), card);
+	}
+
+	/**
+	 * Queues a request leaving the table.
+	 */
+	public void quit()
+	{
+		BinaryProtocol.putQuit(reserve());
+	}
+
+	/**
+	 * Hands the requests queued to the server.
+	 */
+	public void send()
+	{
+		requests.flip();
+		while (BinaryProtocol.decodeRequest(requests, session, server))
+		{
+			// Every request is handed to the server.
+		}
+		requests.clear();
+	}
+
+	/**
+	 * Hands the events received to the listener, without waiting.
+	 *
+	 * @return the number of events.
+	 */
+	public int poll()
+	{
+		synchronized (this)
+		{
+			if (received.position() == 0)
+				return 0;
+			ByteBuffer swap = received;
+			received = decoding;
+			decoding = swap;
+		}
+
+		int count = 0;
+		decoding.flip();
+		while (BinaryProtocol.decodeEvent(decoding, listener, scoreDeltas))
+		{
+			++count;
+		}
+		decoding.clear();
+		return count;
+	}
+
+	/**
+	 * Waits for events, then hands them to the listener.
+	 *
+	 * @param timeoutMillis
+	 *        The longest time to wait, in milliseconds.
+	 * @return the number of events, 0 if none arrived in time.
+	 * @throws InterruptedException
+	 *         if the thread was interrupted while waiting.
+	 */
+	public int await(long timeoutMillis) throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + timeoutMillis;
+		synchronized (this)
+		{
+			long wait;
+			while (received.position() == 0 && (wait = end - System.currentTimeMillis()) > 0)
+			{
+				wait(wait);
+			}
+		}
+		return poll();
+	}
+
+	/**
+	 * Returns the requests with room for a frame, handing the requests queued
+	 * to the server when they fill the buffer.
+	 */
+	private ByteBuffer reserve()
+	{
+		if (requests.remaining() < BinaryProtocol.MAX_FRAME_SIZE)
+			send();
+		return requests;
+	}
+
+	/**
+	 * Stores bytes sent by the server. Called from the loop of the table.
+	 */
+	private void deliver(ByteBuffer bytes)
+	{
+		boolean wasEmpty;
+		synchronized (this)
+		{
+			if (received.remaining() < bytes.remaining())
+			{
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(received.capacity() * 2, received.position() + bytes
+						.remaining()));
+				received.flip();
+				larger.put(received);
+				received = larger;
+			}
+			wasEmpty = received.position() == 0;
+			received.put(bytes);
+			if (wasEmpty)
+				notifyAll();
+		}
+		if (wasEmpty && onReceive != null)
+			onReceive.run();
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the table the client is seated at, as the server sees it.
+	 *
+	 * @return the table, or {@code null}.
+	 */
+	public Table getTable()
+	{
+		return session.getTable();
+	}
+}
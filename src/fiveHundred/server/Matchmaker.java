@@ -0,0 +1,469 @@
+package fiveHundred.server;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.stats.Histogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Groups the clients asking for a table into tables of the number of players
+ * they asked for, by rating, from a thread of its own. The requests are
+ * handed over through a {@link BoundedQueue}, so the I/O thread and the local
+ * clients never wait for the matchmaker, and a request arriving while the
+ * queue is full is refused.
+ *
+ * <p>
+ * Every few milliseconds, the matchmaker takes the requests queued, sorts the clients waiting for
+ * each number of players by rating, and seats together the clients next to each other whose
+ * ratings are at most {@value #BASE_SPREAD} points apart. The spread allowed grows by
+ * {@value #SPREAD_PER_SECOND} points for each second the oldest of them has waited, so a client
+ * far from the others is still seated in the end. Each group gets a new table whose seats are all
+ * for clients, created straight from the matchmaker.
+ *
+ * <p>
+ * The matchmaker reports the number of clients waiting and a histogram of the time from the
+ * request to the seat, in milliseconds, in buckets of {@link #TIME_TO_SEAT}.
+ */
+public class Matchmaker
+{
+	/** The buckets of the time from the request to the seat, in milliseconds. */
+	public static final Histogram TIME_TO_SEAT = new Histogram(0, 2, 5000);
+
+	/** The largest spread of the ratings of a table, before waiting. */
+	public static final int BASE_SPREAD = 100;
+
+	/** The growth of the spread allowed for each second waited. */
+	public static final int SPREAD_PER_SECOND = 200;
+
+	/** The largest rating. */
+	public static final int MAX_RATING = 0xFFFF;
+
+	/** The largest number of players at a table. */
+	private static final int MAX_PLAYERS = DeckSpec.SIX_PLAYERS.getNumberOfPlayers();
+
+	/** The request waiting for a table. */
+	private static final int WAITING = 0;
+
+	/** The request was matched and its client is about to be seated. */
+	private static final int MATCHED = 1;
+
+	/** The client was seated. */
+	private static final int SEATED = 2;
+
+	/** The client left before being seated. */
+	private static final int CANCELLED = 3;
+
+	/** Orders the requests by rating. */
+	private static final Comparator<Ticket> BY_RATING = Comparator.comparingInt(ticket -> ticket.rating);
+
+	/** The server creating the tables. */
+	private final GameServer server;
+
+	/** The time between two turns of the matchmaker. */
+	private final long tickMillis;
+
+	/** The requests not yet taken by the matchmaker. */
+	private final BoundedQueue<Ticket> queue;
+
+	/** The request of every client waiting, indexed by session. */
+	private final Map<ClientSession, Ticket> tickets;
+
+	/** The requests taken, indexed by number of players. Only used by the thread. */
+	private final List<List<Ticket>> waiting;
+
+	/** The thread matching the clients. */
+	private final Thread thread;
+
+	/** The count of each bucket of {@link #TIME_TO_SEAT}. */
+	private final AtomicLongArray timeToSeatCounts;
+
+	/** The number of clients seated, of tables created and of requests refused and cancelled. */
+	private final AtomicLong seatedCount, tableCount, refusedCount, cancelledCount;
+
+	/** The number of requests taken by the matchmaker and still waiting. */
+	private volatile int waitingCount;
+
+	/** The largest number of clients ever waiting at the end of a turn. */
+	private volatile int peakWaitingCount;
+
+	/** Value indicating whether the matchmaker is running. */
+	private volatile boolean isRunning;
+
+	/**
+	 * The request of a client.
+	 */
+	private static final class Ticket
+	{
+		/** The client. */
+		private final ClientSession session;
+
+		/** The number of players at the table the client asked for. */
+		private final int numberOfPlayers;
+
+		/** The rating of the client. */
+		private final int rating;
+
+		/** The time of the request, from {@link System#nanoTime()}. */
+		private final long requestNanos;
+
+		/** {@link #WAITING}, {@link #MATCHED}, {@link #SEATED} or {@link #CANCELLED}. */
+		private final AtomicInteger state;
+
+		private Ticket(ClientSession session, int numberOfPlayers, int rating, long requestNanos)
+		{
+			this.session = session;
+			this.numberOfPlayers = numberOfPlayers;
+			this.rating = rating;
+			this.requestNanos = requestNanos;
+			state = new AtomicInteger(WAITING);
+		}
+	}
+
+	/**
+	 * Creates and starts a matchmaker.
+	 *
+	 * @param server
+	 *        The server creating the tables.
+	 * @param tickMillis
+	 *        The time between two turns of the matchmaker, in milliseconds.
+	 * @param capacity
+	 *        The number of requests the queue holds, a power of 2.
+	 */
+	public Matchmaker(GameServer server, long tickMillis, int capacity)
+	{
+		this.server = server;
+		this.tickMillis = tickMillis;
+		queue = new BoundedQueue<>(capacity);
+		tickets = new ConcurrentHashMap<>();
+		waiting = new ArrayList<>();
+		for (int numberOfPlayers = 0; numberOfPlayers <= MAX_PLAYERS; ++numberOfPlayers)
+		{
+			waiting.add(new ArrayList<>());
+		}
+		timeToSeatCounts = new AtomicLongArray(TIME_TO_SEAT.getBucketCount());
+		seatedCount = new AtomicLong();
+		tableCount = new AtomicLong();
+		refusedCount = new AtomicLong();
+		cancelledCount = new AtomicLong();
+		isRunning = true;
+		thread = new Thread(this::run, "Matchmaker");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues the request of a client for a table. Can be called from any
+	 * thread.
+	 *
+	 * @param session
+	 *        The client, neither seated nor waiting.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @param rating
+	 *        The rating of the client, from 0 to {@value #MAX_RATING}.
+	 * @return {@code false} if the queue is full.
+	 * @throws IllegalArgumentException
+	 *         if there is no deck for that number of players or the rating is
+	 *         invalid.
+	 */
+	boolean offer(ClientSession session, int numberOfPlayers, int rating)
+	{
+		DeckSpec.forPlayers(numberOfPlayers);
+		if (rating < 0 || rating > MAX_RATING)
+			throw new IllegalArgumentException("Invalid rating: " + rating);
+		Ticket ticket = new Ticket(session, numberOfPlayers, rating, System.nanoTime());
+		tickets.put(session, ticket);
+		if (queue.offer(ticket))
+			return true;
+		tickets.remove(session, ticket);
+		refusedCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Withdraws the request of a client, typically because it left. A client
+	 * matched but not yet seated isn't seated, and the others matched with it
+	 * wait again.
+	 *
+	 * @param session
+	 *        The client.
+	 */
+	void cancel(ClientSession session)
+	{
+		Ticket ticket = tickets.remove(session);
+		if (ticket != null && ticket.state.getAndSet(CANCELLED) != SEATED)
+			cancelledCount.incrementAndGet();
+	}
+
+	/**
+	 * Stops the matchmaker. The clients still waiting are never seated.
+	 */
+	public void shutdown()
+	{
+		isRunning = false;
+		thread.interrupt();
+	}
+
+	/**
+	 * The loop of the thread.
+	 */
+	private void run()
+	{
+		while (isRunning)
+		{
+			Ticket ticket;
+			while ((ticket = queue.poll()) != null)
+			{
+				waiting.get(ticket.numberOfPlayers).add(ticket);
+			}
+
+			long now = System.nanoTime();
+			int count = 0;
+			for (int numberOfPlayers = 1; numberOfPlayers <= MAX_PLAYERS; ++numberOfPlayers)
+			{
+				List<Ticket> group = waiting.get(numberOfPlayers);
+				if (!group.isEmpty())
+				{
+					// A failing table must not stop the matchmaker.
+					try
+					{
+						match(group, numberOfPlayers, now);
+					}
+					catch (RuntimeException e)
+					{
+						e.printStackTrace();
+					}
+					count += group.size();
+				}
+			}
+			waitingCount = count;
+			if (count > peakWaitingCount)
+				peakWaitingCount = count;
+
+			try
+			{
+				Thread.sleep(tickMillis);
+			}
+			catch (InterruptedException e)
+			{
+				// Checks whether the matchmaker is still running.
+			}
+		}
+	}
+
+	/**
+	 * Seats the clients waiting for a number of players whose ratings are
+	 * close enough, and keeps the others waiting.
+	 */
+	private void match(List<Ticket> candidates, int numberOfPlayers, long now)
+	{
+		candidates.removeIf(ticket -> ticket.state.get() == CANCELLED);
+		if (candidates.size() < numberOfPlayers)
+			return;
+		candidates.sort(BY_RATING);
+
+		int kept = 0;
+		int i = 0;
+		while (i < candidates.size())
+		{
+			if (i + numberOfPlayers <= candidates.size() && isClose(candidates, i, numberOfPlayers, now)
+					&& claim(candidates, i, numberOfPlayers) && seat(candidates, i, numberOfPlayers))
+				i += numberOfPlayers;
+			else
+				candidates.set(kept++, candidates.get(i++));
+		}
+		candidates.subList(kept, candidates.size()).clear();
+	}
+
+	/**
+	 * Returns a value indicating whether the ratings of consecutive requests,
+	 * sorted by rating, are within the spread allowed to the oldest of them.
+	 */
+	private static boolean isClose(List<Ticket> candidates, int first, int count, long now)
+	{
+		long oldest = now;
+		for (int i = first; i < first + count; ++i)
+		{
+			oldest = Math.min(oldest, candidates.get(i).requestNanos);
+		}
+		long spread = BASE_SPREAD + TimeUnit.NANOSECONDS.toMillis(now - oldest) * SPREAD_PER_SECOND / 1000;
+		return candidates.get(first + count - 1).rating - candidates.get(first).rating <= spread;
+	}
+
+	/**
+	 * Marks consecutive requests as matched, unless one of them was
+	 * cancelled, in which case none is.
+	 */
+	private static boolean claim(List<Ticket> candidates, int first, int count)
+	{
+		for (int i = first; i < first + count; ++i)
+		{
+			if (!candidates.get(i).state.compareAndSet(WAITING, MATCHED))
+			{
+				release(candidates, first, i);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Puts back the requests matched among consecutive requests, the others
+	 * being cancelled.
+	 */
+	private static void release(List<Ticket> candidates, int first, int end)
+	{
+		for (int i = first; i < end; ++i)
+		{
+			candidates.get(i).state.compareAndSet(MATCHED, WAITING);
+		}
+	}
+
+	/**
+	 * Creates a table for consecutive requests and seats their clients, in
+	 * order of rating, unless one of them was cancelled since being matched,
+	 * in which case the others wait again.
+	 *
+	 * @return {@code false} if a request was cancelled.
+	 */
+	private boolean seat(List<Ticket> candidates, int first, int count)
+	{
+		for (int i = first; i < first + count; ++i)
+		{
+			if (candidates.get(i).state.get() == CANCELLED)
+			{
+				release(candidates, first, first + count);
+				return false;
+			}
+		}
+
+		Table table = server.createTable(count, count);
+		tableCount.incrementAndGet();
+		int seated = 0;
+		for (int i = first; i < first + count; ++i)
+		{
+			Ticket ticket = candidates.get(i);
+			// The client stays known as waiting until it has a table, so it
+			// can't ask for another one in between.
+			server.seat(ticket.session, table);
+			if (!ticket.state.compareAndSet(MATCHED, SEATED))
+			{
+				// The client left while being seated, maybe before it had a
+				// table to leave: it leaves after its join instead.
+				server.leave(ticket.session);
+				continue;
+			}
+			++seated;
+			tickets.remove(ticket.session, ticket);
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ticket.requestNanos);
+			timeToSeatCounts.incrementAndGet(TIME_TO_SEAT.getBucket((int) Math.min(millis, Integer.MAX_VALUE)));
+		}
+		seatedCount.addAndGet(seated);
+		return true;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns a value indicating whether a client is waiting for a table.
+	 *
+	 * @param session
+	 *        The client.
+	 * @return {@code true} if the client asked for a table and isn't seated
+	 *         yet.
+	 */
+	public boolean isQueued(ClientSession session)
+	{
+		return tickets.containsKey(session);
+	}
+
+	/**
+	 * Returns the number of requests queued and not yet taken by the
+	 * matchmaker.
+	 *
+	 * @return the depth of the queue.
+	 */
+	public int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Returns the number of clients waiting for a table, queued or taken by
+	 * the matchmaker. Only meant for monitoring, since the requests taken are
+	 * only counted at the end of each turn.
+	 *
+	 * @return the number of clients waiting.
+	 */
+	public int getWaitingCount()
+	{
+		return queue.size() + waitingCount;
+	}
+
+	public int getPeakWaitingCount()
+	{
+		return peakWaitingCount;
+	}
+
+	public int getCapacity()
+	{
+		return queue.getCapacity();
+	}
+
+	/**
+	 * Copies the histogram of the time from the request to the seat.
+	 *
+	 * @param counts
+	 *        Receives the count of each bucket of {@link #TIME_TO_SEAT}.
+	 */
+	public void getTimeToSeatCounts(long[] counts)
+	{
+		for (int bucket = 0; bucket < counts.length; ++bucket)
+		{
+			counts[bucket] = timeToSeatCounts.get(bucket);
+		}
+	}
+
+	/**
+	 * Returns the approximate time under which a fraction of the clients were
+	 * seated.
+	 *
+	 * @param fraction
+	 *        The fraction of the clients, between 0 and 1.
+	 * @return the time, in milliseconds, or 0 if no client was seated.
+	 */
+	public int getTimeToSeatPercentile(double fraction)
+	{
+		long[] counts = new long[TIME_TO_SEAT.getBucketCount()];
+		getTimeToSeatCounts(counts);
+		return TIME_TO_SEAT.getPercentile(counts, 0, fraction);
+	}
+
+	public long getSeatedCount()
+	{
+		return seatedCount.get();
+	}
+
+	public long getTableCount()
+	{
+		return tableCount.get();
+	}
+
+	public long getRefusedCount()
+	{
+		return refusedCount.get();
+	}
+
+	public long getCancelledCount()
+	{
+		return cancelledCount.get();
+	}
+}
@@ -0,0 +1,43 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+/**
+ * Names of the bids in the line protocol of the {@link GameServer}: the name
+ * of the constant without its leading underscore, such as {@code 6_SANS} or
+ * {@code PASS}.
+ */
+public class Protocol
+{
+	/**
+	 * Private constructor since this class only contains static methods.
+	 */
+	private Protocol() {}
+
+	/**
+	 * Returns the name of a bid in the protocol.
+	 *
+	 * @param bid
+	 *        The bid.
+	 * @return the name of the bid.
+	 */
+	public static String bidName(Bid bid)
+	{
+		String name = bid.name();
+		return name.charAt(0) == '_' ? name.substring(1) : name;
+	}
+
+	/**
+	 * Returns the bid named in the protocol.
+	 *
+	 * @param name
+	 *        The name of the bid.
+	 * @return the bid.
+	 * @throws IllegalArgumentException
+	 *         if no bid has that name.
+	 */
+	public static Bid parseBid(String name)
+	{
+		return Bid.valueOf(Character.isDigit(name.charAt(0)) ? "_" + name : name);
+	}
+}
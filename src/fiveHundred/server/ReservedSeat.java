@@ -0,0 +1,112 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+/**
+ * Holds the seat of a client at a table rebuilt by the {@link Journal}, until
+ * the client joins the table again. The table waits for the seat as it would
+ * wait for a client, and ignores what it sends it.
+ */
+final class ReservedSeat implements ClientSession
+{
+	/** The table of the seat. */
+	private Table table;
+
+	@Override
+	public void seated(int tableId, int seat, int numberOfPlayers)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void dealt(int round, int dealer, long hand)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void bidCalled(int seat, Bid bid)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void contract(int contractor, Bid bid)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void cardPlayed(int seat, int card)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void trickWon(int winner)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void scored(int[] scoreDeltas, int numberOfPlayers)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void turnToBid(Bid highestBid)
+	{
+		// Waits for the client.
+	}
+
+	@Override
+	public void turnToPlay(long legalMoves)
+	{
+		// Waits for the client.
+	}
+
+	@Override
+	public void left(int seat)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void snapshot(TableSnapshot snapshot)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void error(String message)
+	{
+		// Nobody to tell.
+	}
+
+	@Override
+	public void flush()
+	{
+		// Nothing is queued.
+	}
+
+	@Override
+	public boolean isWritePending()
+	{
+		return false;
+	}
+
+	@Override
+	public void setTable(Table table, int seat)
+	{
+		this.table = table;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	@Override
+	public Table getTable()
+	{
+		return table;
+	}
+}
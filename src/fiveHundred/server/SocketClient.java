@@ -0,0 +1,40 @@
+package fiveHundred.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client connected to the {@link GameServer} through a socket, whatever its
+ * protocol. The I/O thread of the server reads from it and writes what the
+ * table could not write right away.
+ */
+interface SocketClient extends ClientSession
+{
+	/**
+	 * Reads what the client sent and hands every complete request to the
+	 * server. Called from the I/O thread when the socket is readable.
+	 *
+	 * @return {@code false} if the client closed the connection or broke the
+	 *         protocol.
+	 * @throws IOException
+	 *         if the socket can't be read.
+	 */
+	boolean read() throws IOException;
+
+	/**
+	 * Writes what is left of the output. Called from the I/O thread when the
+	 * socket is writable.
+	 *
+	 * @return {@code true} once everything is written.
+	 * @throws IOException
+	 *         if the socket can't be written.
+	 */
+	boolean writePending() throws IOException;
+
+	SocketChannel getChannel();
+
+	SelectionKey getKey();
+
+	void setKey(SelectionKey value);
+}
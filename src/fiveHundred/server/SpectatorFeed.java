@@ -0,0 +1,249 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The events of a {@link Table} for its spectators. The table publishes each
+ * event once, into a ring of {@value #CAPACITY} events, whatever the number of
+ * spectators; each spectator reads the ring at its own pace through its own
+ * cursor, so the ring is the bounded buffer of every spectator at once. The
+ * table also keeps a {@link TableSnapshot} up to date after each action, for
+ * the spectators who fell too far behind.
+ *
+ * <p>
+ * The table is the only writer, so publishing needs no lock: the event is written, then the
+ * number of events published is released. A reader reads the event, then checks the number of
+ * events published to know whether the event was overwritten meanwhile; fences keep the writes
+ * of the table and the reads of the spectator in that order. The snapshot is written under a {@link StampedLock}
+ * and read optimistically, so the readers never slow the table down.
+ *
+ * <p>
+ * An event is a {@code long}: its type in the top byte, a seat in the next one and a value in
+ * the low 48 bits.
+ */
+public class SpectatorFeed
+{
+	/** The number of events the ring holds, a power of 2. */
+	public static final int CAPACITY = 1024;
+
+	/** A round was dealt: the seat is the dealer, the value the round. */
+	public static final int DEALT = 1;
+
+	/** A bid was called: the value is the ordinal of the bid. */
+	public static final int BID_CALLED = 2;
+
+	/** The bidding is over: the seat is the contractor, the value the ordinal of the bid. */
+	public static final int CONTRACT = 3;
+
+	/** A card was played: the value is the card. */
+	public static final int CARD_PLAYED = 4;
+
+	/** A trick is over: the seat is the winner. */
+	public static final int TRICK_WON = 5;
+
+	/** A round is over: the value is the points of the seat, one event per seat in order. */
+	public static final int SCORED = 6;
+
+	/** The number of bits of the value of an event. */
+	private static final int VALUE_BITS = 48;
+
+	/** The bids, indexed by ordinal. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The events, indexed by sequence number modulo the capacity. */
+	private final long[] events;
+
+	/** The number of events published. */
+	private final AtomicLong published;
+
+	/** The snapshot written by the table. */
+	private final TableSnapshot snapshot;
+
+	/** Guards the snapshot. */
+	private final StampedLock snapshotLock;
+
+	/** The stamp of the write of the snapshot in progress. Only used by the table. */
+	private long writeStamp;
+
+	/** Value indicating whether the table was closed. */
+	private volatile boolean isClosed;
+
+	/**
+	 * Creates an empty feed.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 */
+	public SpectatorFeed(int numberOfPlayers)
+	{
+		events = new long[CAPACITY];
+		published = new AtomicLong();
+		snapshot = new TableSnapshot(numberOfPlayers);
+		snapshotLock = new StampedLock();
+	}
+
+	/**
+	 * Publishes an event. Must only be called by the table.
+	 *
+	 * @param type
+	 *        The type of the event.
+	 * @param seat
+	 *        The seat of the event.
+	 * @param value
+	 *        The value of the event.
+	 */
+	public void publish(int type, int seat, long value)
+	{
+		long sequence = published.get();
+		// The event overwritten must not be seen changed before the previous
+		// event is seen published, or isAvailable would miss the overwrite.
+		VarHandle.storeStoreFence();
+		events[(int) sequence & (CAPACITY - 1)] = (long) type << 56 | (long) (seat & 0xFF) << VALUE_BITS | value
+				& (1L << VALUE_BITS) - 1;
+		published.lazySet(sequence + 1);
+	}
+
+	/**
+	 * Starts writing the snapshot. Must only be called by the table, followed
+	 * by {@link #endSnapshot()}.
+	 *
+	 * @return the snapshot to fill.
+	 */
+	public TableSnapshot beginSnapshot()
+	{
+		writeStamp = snapshotLock.writeLock();
+		return snapshot;
+	}
+
+	/**
+	 * Ends the write of the snapshot. The snapshot reflects every event
+	 * published so far.
+	 */
+	public void endSnapshot()
+	{
+		snapshot.setSequence(published.get());
+		snapshotLock.unlockWrite(writeStamp);
+	}
+
+	/**
+	 * Copies the snapshot. Can be called from any thread.
+	 *
+	 * @param copy
+	 *        The snapshot receiving the copy.
+	 */
+	public void readSnapshot(TableSnapshot copy)
+	{
+		long stamp = snapshotLock.tryOptimisticRead();
+		copy.copyFrom(snapshot);
+		if (snapshotLock.validate(stamp))
+			return;
+
+		stamp = snapshotLock.readLock();
+		try
+		{
+			copy.copyFrom(snapshot);
+		}
+		finally
+		{
+			snapshotLock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a published event. The event is only valid if it is still in
+	 * the ring once read, which {@link #isAvailable(long)} tells.
+	 *
+	 * @param sequence
+	 *        The sequence number of the event.
+	 * @return the event.
+	 */
+	public long get(long sequence)
+	{
+		long event = events[(int) sequence & (CAPACITY - 1)];
+		// The event must be read before the number of events published is
+		// checked by isAvailable.
+		VarHandle.acquireFence();
+		return event;
+	}
+
+	/**
+	 * Returns a value indicating whether an event is still in the ring.
+	 *
+	 * @param sequence
+	 *        The sequence number of a published event.
+	 * @return {@code false} if the event was overwritten.
+	 */
+	public boolean isAvailable(long sequence)
+	{
+		// The slot of the event after the last one published may be being
+		// overwritten.
+		return published.get() - CAPACITY < sequence;
+	}
+
+	/**
+	 * Marks the feed as closed, once the table is closed. Must only be called
+	 * by the table.
+	 */
+	public void close()
+	{
+		isClosed = true;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the number of events published, which is the sequence number of
+	 * the next event.
+	 *
+	 * @return the number of events.
+	 */
+	public long getPublished()
+	{
+		return published.get();
+	}
+
+	public boolean isClosed()
+	{
+		return isClosed;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	public static int getType(long event)
+	{
+		return (int) (event >>> 56);
+	}
+
+	public static int getSeat(long event)
+	{
+		return (int) (event >>> VALUE_BITS) & 0xFF;
+	}
+
+	/**
+	 * Returns the value of an event, with its sign.
+	 *
+	 * @param event
+	 *        The event.
+	 * @return the value.
+	 */
+	public static long getValue(long event)
+	{
+		return event << Long.SIZE - VALUE_BITS >> Long.SIZE - VALUE_BITS;
+	}
+
+	/**
+	 * Returns the bid of a {@link #BID_CALLED} or {@link #CONTRACT} event.
+	 *
+	 * @param event
+	 *        The event.
+	 * @return the bid.
+	 */
+	public static Bid getBid(long event)
+	{
+		return BIDS[(int) getValue(event)];
+	}
+}
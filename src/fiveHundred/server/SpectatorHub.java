@@ -0,0 +1,300 @@
+package fiveHundred.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the events of the tables to their spectators, from a thread of its
+ * own so the tables never wait for them. Every few milliseconds, each
+ * spectator receives the events published since its last turn, read from the
+ * {@link SpectatorFeed} of its table.
+ *
+ * <p>
+ * A spectator still taking the events already sent receives nothing new, and falls behind. Once
+ * it is more than {@value #COALESCE_LAG} events behind, or the events it missed were overwritten,
+ * it receives the {@link TableSnapshot} of the table instead of the events it missed. A spectator
+ * which took nothing for {@value #MAX_STALL_MILLIS} ms is dropped.
+ */
+public class SpectatorHub
+{
+	/** The number of events a spectator may be behind before receiving a snapshot instead. */
+	private static final int COALESCE_LAG = SpectatorFeed.CAPACITY / 2;
+
+	/** The longest time a spectator may take nothing before it is dropped. */
+	private static final long MAX_STALL_MILLIS = 5000;
+
+	/** The time between two turns of the spectators. */
+	private final long tickMillis;
+
+	/** The server of the tables. */
+	private final GameServer server;
+
+	/** Every spectator, indexed by session. */
+	private final Map<ClientSession, Spectator> spectators;
+
+	/** The thread sending the events. */
+	private final Thread thread;
+
+	/** The number of events and of snapshots sent, and of spectators dropped. */
+	private final AtomicLong eventCount, snapshotCount, dropCount;
+
+	/** Value indicating whether the hub is running. */
+	private volatile boolean isRunning;
+
+	/**
+	 * A spectator of a table.
+	 */
+	private static final class Spectator
+	{
+		/** The session receiving the events. */
+		private final ClientSession session;
+
+		/** The feed of the table. */
+		private final SpectatorFeed feed;
+
+		/** The id of the table. */
+		private final int tableId;
+
+		/** The sequence number of the next event to send, or -1 before the first snapshot. */
+		private long cursor;
+
+		/** The snapshot read from the feed. */
+		private final TableSnapshot snapshot;
+
+		/** The points of the round being scored. */
+		private final int[] scoreDeltas;
+
+		/** The time the spectator started to take nothing, or 0. */
+		private long stallStart;
+
+		private Spectator(ClientSession session, SpectatorFeed feed, int tableId, int numberOfPlayers)
+		{
+			this.session = session;
+			this.feed = feed;
+			this.tableId = tableId;
+			cursor = -1;
+			snapshot = new TableSnapshot(numberOfPlayers);
+			scoreDeltas = new int[numberOfPlayers];
+		}
+	}
+
+	/**
+	 * Creates and starts a hub.
+	 *
+	 * @param server
+	 *        The server of the tables.
+	 * @param tickMillis
+	 *        The time between two turns of the spectators, in milliseconds.
+	 */
+	public SpectatorHub(GameServer server, long tickMillis)
+	{
+		this.server = server;
+		this.tickMillis = tickMillis;
+		spectators = new ConcurrentHashMap<>();
+		eventCount = new AtomicLong();
+		snapshotCount = new AtomicLong();
+		dropCount = new AtomicLong();
+		isRunning = true;
+		thread = new Thread(this::run, "Spectators");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Adds a spectator. Called from the loop of the table, which created the
+	 * feed. The spectator first receives a snapshot.
+	 *
+	 * @param session
+	 *        The session of the spectator.
+	 * @param feed
+	 *        The feed of the table.
+	 * @param table
+	 *        The table.
+	 */
+	void add(ClientSession session, SpectatorFeed feed, Table table)
+	{
+		spectators.put(session, new Spectator(session, feed, table.getId(), table.getDeckSpec().getNumberOfPlayers()));
+	}
+
+	/**
+	 * Removes a spectator, typically because its client left.
+	 *
+	 * @param session
+	 *        The session of the spectator.
+	 */
+	void remove(ClientSession session)
+	{
+		spectators.remove(session);
+	}
+
+	/**
+	 * Stops the hub.
+	 */
+	public void shutdown()
+	{
+		isRunning = false;
+		thread.interrupt();
+	}
+
+	/**
+	 * The loop of the thread.
+	 */
+	private void run()
+	{
+		while (isRunning)
+		{
+			long now = System.nanoTime();
+			for (Spectator spectator : spectators.values())
+			{
+				// A failing spectator must not stop the others.
+				try
+				{
+					serve(spectator, now);
+				}
+				catch (RuntimeException e)
+				{
+					e.printStackTrace();
+					spectators.remove(spectator.session);
+				}
+			}
+
+			try
+			{
+				Thread.sleep(tickMillis);
+			}
+			catch (InterruptedException e)
+			{
+				// Checks whether the hub is still running.
+			}
+		}
+	}
+
+	/**
+	 * Sends what a spectator missed since its last turn.
+	 */
+	private void serve(Spectator spectator, long now)
+	{
+		ClientSession session = spectator.session;
+		SpectatorFeed feed = spectator.feed;
+		if (feed.isClosed())
+		{
+			session.error("Table " + spectator.tableId + " is closed");
+			session.flush();
+			spectators.remove(session);
+			return;
+		}
+		if (session.isWritePending())
+		{
+			if (spectator.stallStart == 0)
+				spectator.stallStart = now;
+			else if (now - spectator.stallStart > TimeUnit.MILLISECONDS.toNanos(MAX_STALL_MILLIS))
+			{
+				dropCount.incrementAndGet();
+				spectators.remove(session);
+				server.quit(session);
+			}
+			return;
+		}
+		spectator.stallStart = 0;
+
+		long published = feed.getPublished();
+		if (spectator.cursor == -1 || published - spectator.cursor > COALESCE_LAG)
+			sendSnapshot(spectator);
+		while (spectator.cursor < published)
+		{
+			long event = feed.get(spectator.cursor);
+			if (!feed.isAvailable(spectator.cursor))
+			{
+				// The table went round the ring while the event was read.
+				sendSnapshot(spectator);
+				continue;
+			}
+			send(spectator, event);
+			++spectator.cursor;
+		}
+		session.flush();
+	}
+
+	/**
+	 * Sends the snapshot of the table and moves the cursor of a spectator past
+	 * the events it reflects.
+	 */
+	private void sendSnapshot(Spectator spectator)
+	{
+		spectator.feed.readSnapshot(spectator.snapshot);
+		spectator.session.snapshot(spectator.snapshot);
+		spectator.cursor = spectator.snapshot.getSequence();
+		snapshotCount.incrementAndGet();
+	}
+
+	/**
+	 * Sends an event to a spectator.
+	 */
+	private void send(Spectator spectator, long event)
+	{
+		ClientSession session = spectator.session;
+		int seat = SpectatorFeed.getSeat(event);
+		switch (SpectatorFeed.getType(event))
+		{
+			case SpectatorFeed.DEALT:
+				session.dealt((int) SpectatorFeed.getValue(event), seat, 0);
+				break;
+			case SpectatorFeed.BID_CALLED:
+				session.bidCalled(seat, SpectatorFeed.getBid(event));
+				break;
+			case SpectatorFeed.CONTRACT:
+				session.contract(seat, SpectatorFeed.getBid(event));
+				break;
+			case SpectatorFeed.CARD_PLAYED:
+				session.cardPlayed(seat, (int) SpectatorFeed.getValue(event));
+				break;
+			case SpectatorFeed.TRICK_WON:
+				session.trickWon(seat);
+				break;
+			case SpectatorFeed.SCORED:
+				spectator.scoreDeltas[seat] = (int) SpectatorFeed.getValue(event);
+				if (seat == spectator.scoreDeltas.length - 1)
+					session.scored(spectator.scoreDeltas, spectator.scoreDeltas.length);
+				break;
+			default:
+				break;
+		}
+		eventCount.incrementAndGet();
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns a value indicating whether a client is watching a table.
+	 *
+	 * @param session
+	 *        The client.
+	 * @return {@code true} if the client is a spectator.
+	 */
+	public boolean isWatching(ClientSession session)
+	{
+		return spectators.containsKey(session);
+	}
+
+	public int getSpectatorCount()
+	{
+		return spectators.size();
+	}
+
+	public long getEventCount()
+	{
+		return eventCount.get();
+	}
+
+	public long getSnapshotCount()
+	{
+		return snapshotCount.get();
+	}
+
+	public long getDropCount()
+	{
+		return dropCount.get();
+	}
+}
@@ -0,0 +1,1003 @@
+package fiveHundred.server;
+
+import fiveHundred.ai.HeuristicStrategy;
+import fiveHundred.ai.Strategy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.engine.TableState;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+import fiveHundred.stats.GameStatistics;
+import gameCore.time.TimingWheel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless table of the game server. A table has no thread of its own: it
+ * advances when an action arrives, on the {@link EventLoop} it is pinned to,
+ * and plays the turns of its bots right away until a client has to act.
+ * Rounds follow each other as long as a client is seated.
+ *
+ * <p>
+ * Every method must be called from the loop of the table. The game is kept packed in a
+ * {@link TableState}, and the table plays its cards on a {@link PlayState} it shares with the other
+ * tables of its loop, so a table with no spectator takes well under a kilobyte and hundreds of
+ * thousands of tables fit in a modest heap.
+ *
+ * <p>
+ * Once a spectator watches the table, the table also publishes its events to a
+ * {@link SpectatorFeed}, once whatever the number of spectators, and the {@link SpectatorHub}
+ * sends them from its own thread.
+ *
+ * <p>
+ * When the server keeps a {@link Journal}, the table journals the actions of its clients, and
+ * remembers those of the round being played so a checkpoint only needs them and the scores.
+ *
+ * <p>
+ * The clocks of the clients and the pauses after a trick or a round are timeouts of the
+ * {@link TimingWheel} of the server, which hands them back to the loop of the table: a client
+ * who runs out of time has a bot play for it, and is removed after {@value #MAX_MISSED_TURNS}
+ * missed turns in a row. The clock of a turn is only a deadline: the table keeps a single
+ * timeout, which checks the deadline of the current turn when it expires and waits again if it
+ * isn't due, so the turns which end in time neither schedule nor cancel anything.
+ *
+ * <p>
+ * A table rebuilt from the journal whose clients don't come back only waits for them: it is then
+ * suspended to the {@link TableStore} of its loop, and brought back into the heap when one of its
+ * clients joins it or a spectator watches it.
+ */
+public class Table
+{
+	/** The strategy of the seats without a client. */
+	private static final Strategy BOT = new HeuristicStrategy();
+
+	/** The number of bits of a deal index used by the round, the table id filling the others. */
+	private static final int ROUND_BITS = 32;
+
+	/** The id of this table. */
+	private final int id;
+
+	/** The specification of the deck, which also determines the number of players. */
+	private final DeckSpec deckSpec;
+
+	/** The loop this table runs on. */
+	private final EventLoop loop;
+
+	/** The server hosting this table. */
+	private final GameServer server;
+
+	/** The statistics every round is reported to. */
+	private final GameStatistics statistics;
+
+	/** The bids, indexed by ordinal. */
+	private static final Bid[] BIDS = Bid.values();
+
+	/** The number of turns in a row a client may miss before it is removed. */
+	public static final int MAX_MISSED_TURNS = 3;
+
+	/** The table isn't paused. */
+	private static final int NO_PAUSE = 0;
+
+	/** The table shows the last trick before the next one. */
+	private static final int TRICK_PAUSE = 1;
+
+	/** The table shows the score before the next round. */
+	private static final int ROUND_PAUSE = 2;
+
+	/** The client of each seat, {@code null} for a bot. */
+	private final ClientSession[] clients;
+
+	/** The number of seats for clients. */
+	private final int clientSeats;
+
+	/** The number of seats still waiting for a client before the first round. */
+	private int seatsToFill;
+
+	/** The seats of the clients when the round started, as a bit set. */
+	private int roundClients;
+
+	/** The actions of the clients in the round, each made of its type, seat and value. */
+	private final int[] roundActions;
+
+	/** The number of actions of the clients in the round. */
+	private int roundActionCount;
+
+	/** The segment of the journal of the table, or {@code null} if it isn't journaled. */
+	private JournalSegment journal;
+
+	/** Value indicating whether the table is replaying the journal, which it does without pauses. */
+	private boolean isReplaying;
+
+	/** The time the client who has to act runs out of time, from {@link System#nanoTime()}, or 0. */
+	private long turnDeadline;
+
+	/** Value indicating whether a timeout of the wheel will check the clock. */
+	private boolean isClockArmed;
+
+	/** Hands the check of the clock to the loop, created once. */
+	private final Runnable clockTask;
+
+	/** The number of turns each client missed in a row. */
+	private final int[] missedTurns;
+
+	/** The pause of the table: {@link #NO_PAUSE}, {@link #TRICK_PAUSE} or {@link #ROUND_PAUSE}. */
+	private int pause;
+
+	/** Hands the end of a pause to the loop, created once. */
+	private final Runnable resumeTask;
+
+	/** The state of the game: the round being played and the scores. */
+	private final TableState state;
+
+	/** The number of trumps the contractor held when the play started, for the statistics. */
+	private int trumpLength;
+
+	/** Value indicating whether the table was closed. */
+	private boolean isClosed;
+
+	/** Value indicating whether the table was suspended, in which case it is also closed. */
+	private boolean isSuspended;
+
+	/** The events for the spectators, or {@code null} before the first spectator. */
+	private SpectatorFeed feed;
+
+	/**
+	 * Creates a table. The seats from {@code clientSeats} on are played by
+	 * bots; the others wait for clients to join.
+	 *
+	 * @param id
+	 *        The id of the table.
+	 * @param deckSpec
+	 *        The specification of the deck, which also determines the number
+	 *        of players.
+	 * @param clientSeats
+	 *        The number of seats for clients, at least 1.
+	 * @param loop
+	 *        The loop this table runs on.
+	 * @param server
+	 *        The server hosting this table.
+	 * @param statistics
+	 *        The statistics every round is reported to.
+	 */
+	Table(int id, DeckSpec deckSpec, int clientSeats, EventLoop loop, GameServer server, GameStatistics statistics)
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		if (clientSeats < 1 || clientSeats > numberOfPlayers)
+			throw new IllegalArgumentException("A table needs between 1 and " + numberOfPlayers + " clients.");
+
+		this.id = id;
+		this.deckSpec = deckSpec;
+		this.loop = loop;
+		this.server = server;
+		this.statistics = statistics;
+		clients = new ClientSession[numberOfPlayers];
+		this.clientSeats = clientSeats;
+		seatsToFill = clientSeats;
+		// Each client bids once, plays its cards and leaves at most once in a round.
+		roundActions = new int[2 * numberOfPlayers + deckSpec.getDeckSize()];
+		missedTurns = new int[numberOfPlayers];
+		resumeTask = () -> loop.execute(this::resume);
+		clockTask = () -> loop.execute(this::checkClock);
+		state = new TableState(numberOfPlayers);
+	}
+
+	/**
+	 * Seats a client in the first free seat. The first round starts once every
+	 * seat for clients is taken.
+	 *
+	 * @param client
+	 *        The client.
+	 * @return {@code true} if the client was seated.
+	 */
+	public boolean join(ClientSession client)
+	{
+		if (isSuspended)
+		{
+			client.setTable(null, -1);
+			return server.joinSuspended(client, id);
+		}
+		int reserved = seatOfReserved();
+		if (reserved != -1 && !isClosed)
+		{
+			rejoin(client, reserved);
+			return true;
+		}
+		return sit(client);
+	}
+
+	/**
+	 * Seats a client in the first free seat, if any.
+	 */
+	private boolean sit(ClientSession client)
+	{
+		if (isClosed || seatsToFill == 0)
+		{
+			client.setTable(null, -1);
+			client.error("Table " + id + " is full");
+			client.flush();
+			return false;
+		}
+
+		if (journal == null && (journal = loop.getJournal()) != null)
+			journal.created(this, clientSeats);
+		int seat = 0;
+		while (clients[seat] != null)
+		{
+			++seat;
+		}
+		clients[seat] = client;
+		client.setTable(this, seat);
+		client.seated(id, seat, deckSpec.getNumberOfPlayers());
+		if (journal != null)
+			journal.append(Journal.JOIN, id, seat, 0);
+		if (--seatsToFill == 0)
+			startRound();
+		flushAll();
+		return true;
+	}
+
+	/**
+	 * Seats a client in a seat reserved since the table was rebuilt, and
+	 * tells it what it missed: its hand and its turn.
+	 */
+	private void rejoin(ClientSession client, int seat)
+	{
+		clients[seat] = client;
+		client.setTable(this, seat);
+		client.seated(id, seat, deckSpec.getNumberOfPlayers());
+		if (seatsToFill == 0)
+		{
+			client.dealt(state.getRound(), state.getDealer(), state.getHand(seat));
+			if (isToAct(seat) && state.getPhase() == TableState.BIDDING)
+				client.turnToBid(state.getHighestBid());
+			else if (isToAct(seat))
+				client.turnToPlay(loadPlay().getLegalMoves());
+		}
+		flushAll();
+	}
+
+	/**
+	 * Removes a client from the table. A bot takes the seat, and the table is
+	 * closed when no client is left.
+	 *
+	 * @param client
+	 *        The client.
+	 */
+	public void leave(ClientSession client)
+	{
+		int seat = seatOf(client);
+		if (seat == -1)
+			return;
+
+		boolean wasToAct = isToAct(seat);
+		record(Journal.LEAVE, seat, 0);
+		clients[seat] = null;
+		missedTurns[seat] = 0;
+		client.setTable(null, -1);
+		if (seatsToFill > 0)
+			++seatsToFill;
+		if (wasToAct)
+			stopClock();
+
+		boolean hasClients = false;
+		for (ClientSession other : clients)
+		{
+			hasClients |= other != null;
+		}
+		if (!hasClients)
+		{
+			isClosed = true;
+			stopClock();
+			if (feed != null)
+				feed.close();
+			if (journal != null)
+				journal.unregister(this);
+			server.removeTable(this);
+			return;
+		}
+
+		for (ClientSession other : clients)
+		{
+			if (other != null)
+				other.left(seat);
+		}
+		if (wasToAct)
+			advance();
+		flushAll();
+		suspendIfIdle();
+	}
+
+	/**
+	 * Calls a bid for a client.
+	 *
+	 * @param client
+	 *        The client.
+	 * @param bid
+	 *        The bid.
+	 */
+	public void bid(ClientSession client, Bid bid)
+	{
+		int seat = seatOf(client);
+		if (!isToAct(seat) || state.getPhase() != TableState.BIDDING)
+			reject(client, "Not your turn to bid");
+		else if (bid != Bid.PASS && bid.ordinal() <= state.getHighestBid().ordinal())
+			reject(client, "The bid must beat " + Protocol.bidName(state.getHighestBid()));
+		else
+		{
+			stopClock();
+			missedTurns[seat] = 0;
+			record(Journal.BID, seat, bid.ordinal());
+			applyBid(bid);
+			advance();
+			flushAll();
+		}
+	}
+
+	/**
+	 * Plays a card for a client.
+	 *
+	 * @param client
+	 *        The client.
+	 * @param card
+	 *        The id of the card.
+	 */
+	public void play(ClientSession client, int card)
+	{
+		int seat = seatOf(client);
+		if (!isToAct(seat) || state.getPhase() != TableState.PLAYING)
+		{
+			reject(client, "Not your turn to play");
+			return;
+		}
+		PlayState play = loadPlay();
+		if (card < 0 || card >= deckSpec.getDeckSize() || (play.getLegalMoves() & 1L << card) == 0)
+			reject(client, "Card " + card + " can't be played");
+		else
+		{
+			stopClock();
+			missedTurns[seat] = 0;
+			record(Journal.PLAY, seat, card);
+			if (!applyPlay(play, card) || !pause(TRICK_PAUSE, server.getTrickPauseMillis()))
+				advance();
+			flushAll();
+		}
+	}
+
+	/**
+	 * Adds a spectator to the table. The spectator receives the events of
+	 * every seat, without the hands.
+	 *
+	 * @param spectator
+	 *        The client of the spectator.
+	 * @param hub
+	 *        The hub sending the events to the spectators.
+	 */
+	public void watch(ClientSession spectator, SpectatorHub hub)
+	{
+		if (isSuspended)
+		{
+			server.watchSuspended(spectator, id);
+			return;
+		}
+		if (isClosed)
+		{
+			reject(spectator, "Table " + id + " is closed");
+			return;
+		}
+		if (feed == null)
+		{
+			feed = new SpectatorFeed(deckSpec.getNumberOfPlayers());
+			publishSnapshot();
+		}
+		hub.add(spectator, feed, this);
+	}
+
+	/**
+	 * Deals a round and starts the bidding.
+	 */
+	private void startRound()
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		int round = state.getRound();
+		int dealer = round % numberOfPlayers;
+		long[] dealtHands = loop.getScratch(deckSpec).getDealtHands();
+		loop.getCodec(deckSpec).dealHands((long) id << ROUND_BITS | round, dealtHands);
+		state.startRound(++round, dealer, dealtHands);
+		roundClients = clientMask();
+		roundActionCount = 0;
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			if (clients[seat] != null)
+				clients[seat].dealt(round, dealer, dealtHands[seat]);
+		}
+		if (feed != null)
+			feed.publish(SpectatorFeed.DEALT, dealer, round);
+		advance();
+	}
+
+	/**
+	 * Plays the turns of the bots until a client has to act, starting new
+	 * rounds as the rounds end, and asks that client to act.
+	 */
+	private void advance()
+	{
+		while (true)
+		{
+			int seat = state.getSeatToAct();
+			ClientSession client = clients[seat];
+			if (state.getPhase() == TableState.BIDDING)
+			{
+				if (client != null)
+				{
+					client.turnToBid(state.getHighestBid());
+					startClock();
+					return;
+				}
+				applyBid(BOT.chooseBid(deckSpec, state.getHand(seat), state.getHighestBid()));
+			}
+			else if (state.getPhase() == TableState.ROUND_OVER)
+			{
+				finishRound();
+				if (!pause(ROUND_PAUSE, server.getRoundPauseMillis()))
+					startRound();
+				return;
+			}
+			else
+			{
+				PlayState play = loadPlay();
+				if (client != null)
+				{
+					client.turnToPlay(play.getLegalMoves());
+					startClock();
+					return;
+				}
+				if (applyPlay(play, BOT.chooseCard(play)) && pause(TRICK_PAUSE, server.getTrickPauseMillis()))
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Starts the clock of the client who has to act.
+	 */
+	private void startClock()
+	{
+		long moveMillis = server.getMoveMillis();
+		if (moveMillis <= 0)
+			return;
+		turnDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(moveMillis);
+		if (!isClockArmed)
+		{
+			isClockArmed = true;
+			server.getTimers().schedule(clockTask, moveMillis);
+		}
+	}
+
+	/**
+	 * Stops the clock of the client who had to act.
+	 */
+	private void stopClock()
+	{
+		turnDeadline = 0;
+	}
+
+	/**
+	 * Checks the clock when the timeout of the table expires: waits again for
+	 * the deadline of the current turn, or has the client miss its turn.
+	 */
+	private void checkClock()
+	{
+		isClockArmed = false;
+		if (turnDeadline == 0 || isClosed)
+			return;
+		long remaining = turnDeadline - System.nanoTime();
+		if (remaining > 0)
+		{
+			isClockArmed = true;
+			server.getTimers().schedule(clockTask, TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+			return;
+		}
+		turnDeadline = 0;
+		moveTimedOut();
+	}
+
+	/**
+	 * Has a bot act for a client who ran out of time, or removes the client
+	 * once it missed too many turns in a row.
+	 */
+	private void moveTimedOut()
+	{
+		int seat = state.getSeatToAct();
+		ClientSession client = clients[seat];
+		int missed = missedTurns[seat] + 1;
+		if (missed >= MAX_MISSED_TURNS)
+		{
+			client.error("Removed after " + missed + " missed turns");
+			client.flush();
+			server.quit(client);
+			return;
+		}
+
+		if (state.getPhase() == TableState.BIDDING)
+			bid(client, BOT.chooseBid(deckSpec, state.getHand(seat), state.getHighestBid()));
+		else
+			play(client, BOT.chooseCard(loadPlay()));
+		missedTurns[seat] = missed;
+	}
+
+	/**
+	 * Pauses the table for a while, unless the pause lasts 0 ms or the table
+	 * is replaying the journal.
+	 *
+	 * @return {@code true} if the table paused.
+	 */
+	private boolean pause(int kind, long millis)
+	{
+		if (millis <= 0 || isReplaying)
+			return false;
+		pause = kind;
+		server.getTimers().schedule(resumeTask, millis);
+		return true;
+	}
+
+	/**
+	 * Ends a pause: the next round starts after the pause of a round, and the
+	 * next trick after the pause of a trick.
+	 */
+	private void resume()
+	{
+		int ended = pause;
+		pause = NO_PAUSE;
+		if (ended == NO_PAUSE || isClosed)
+			return;
+		if (ended == ROUND_PAUSE)
+			startRound();
+		else
+			advance();
+		flushAll();
+		suspendIfIdle();
+	}
+
+	/**
+	 * Calls a bid for the player who has to bid, and starts the play after
+	 * the last bid.
+	 */
+	private void applyBid(Bid bid)
+	{
+		int bidder = state.getSeatToAct();
+		for (ClientSession client : clients)
+		{
+			if (client != null)
+				client.bidCalled(bidder, bid);
+		}
+		if (feed != null)
+			feed.publish(SpectatorFeed.BID_CALLED, bidder, bid.ordinal());
+		if (!state.callBid(bid))
+			return;
+
+		// As in the game, the contractor doesn't exchange cards with the widow.
+		int contractor = state.getContractor();
+		Bid highestBid = state.getHighestBid();
+		for (ClientSession client : clients)
+		{
+			if (client != null)
+				client.contract(contractor, highestBid);
+		}
+		if (feed != null)
+			feed.publish(SpectatorFeed.CONTRACT, contractor, highestBid.ordinal());
+		trumpLength = highestBid.hasTrump() ? Long.bitCount(state.getHand(contractor)
+				& loadPlay().getSuitMask(highestBid.getTrumpSuit())) : 0;
+	}
+
+	/**
+	 * Plays a card for the player who has to play.
+	 *
+	 * @param play
+	 *        The play state set from the table.
+	 * @return {@code true} if the card ended a trick.
+	 */
+	private boolean applyPlay(PlayState play, int card)
+	{
+		int seat = state.getSeatToAct();
+		int winner = state.playCard(play, card);
+		for (ClientSession client : clients)
+		{
+			if (client == null)
+				continue;
+			client.cardPlayed(seat, card);
+			if (winner != -1)
+				client.trickWon(winner);
+		}
+		if (feed != null)
+		{
+			feed.publish(SpectatorFeed.CARD_PLAYED, seat, card);
+			if (winner != -1)
+				feed.publish(SpectatorFeed.TRICK_WON, winner, 0);
+		}
+		return winner != -1;
+	}
+
+	/**
+	 * Scores the round and reports it.
+	 */
+	private void finishRound()
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		TableScratch scratch = loop.getScratch(deckSpec);
+		int[] tricksWon = scratch.getTricksWon();
+		int[] scoreDeltas = scratch.getScoreDeltas();
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			tricksWon[seat] = state.getTricksWon(seat);
+		}
+		FiveHundredRules.scoreRound(state.getHighestBid(), state.getContractor(), tricksWon, scoreDeltas);
+		statistics.recordHand(state.getHighestBid(), state.getContractor(), trumpLength, tricksWon, scoreDeltas);
+		state.addScores(scoreDeltas);
+		for (ClientSession client : clients)
+		{
+			if (client != null)
+				client.scored(scoreDeltas, numberOfPlayers);
+		}
+		if (feed != null)
+		{
+			for (int seat = 0; seat < numberOfPlayers; ++seat)
+			{
+				feed.publish(SpectatorFeed.SCORED, seat, scoreDeltas[seat]);
+			}
+		}
+	}
+
+	/**
+	 * Remembers an action of a client in the round for the checkpoints, and
+	 * journals it.
+	 */
+	private void record(int type, int seat, int value)
+	{
+		if (state.getRound() > 0)
+			roundActions[roundActionCount++] = type << 16 | seat << 8 | value;
+		if (journal != null)
+			journal.append(type, id, seat, value);
+	}
+
+	/**
+	 * Writes the checkpoint of the table: the number of players and of seats
+	 * for clients, which {@link #restore(ByteBuffer)} expects to be read
+	 * already, then the state of the table at the start of the round and the
+	 * actions of the clients since. Called from the loop.
+	 *
+	 * @param output
+	 *        The buffer receiving the checkpoint.
+	 */
+	void writeCheckpoint(ByteBuffer output)
+	{
+		output.put((byte) deckSpec.getNumberOfPlayers());
+		output.put((byte) clientSeats);
+		output.putInt(state.getRound());
+		output.put((byte) seatsToFill);
+		output.put((byte) (state.getRound() == 0 ? clientMask() : roundClients));
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			output.putInt(state.getScore(seat));
+		}
+		output.putShort((short) roundActionCount);
+		for (int i = 0; i < roundActionCount; ++i)
+		{
+			int action = roundActions[i];
+			output.put((byte) (action >>> 16));
+			output.put((byte) (action >>> 8));
+			output.put((byte) action);
+		}
+	}
+
+	/**
+	 * Rebuilds the table from a checkpoint written by
+	 * {@link #writeCheckpoint(ByteBuffer)}, the seats of the clients being
+	 * reserved for them. The table must be new.
+	 *
+	 * @param input
+	 *        The checkpoint, after the number of players and of seats for
+	 *        clients.
+	 */
+	void restore(ByteBuffer input)
+	{
+		isReplaying = true;
+		int roundsStarted = input.getInt();
+		seatsToFill = input.get();
+		int clientMask = input.get();
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			state.setScore(seat, input.getInt());
+			if ((clientMask & 1 << seat) != 0)
+			{
+				clients[seat] = new ReservedSeat();
+				clients[seat].setTable(this, seat);
+			}
+		}
+		int actionCount = input.getShort();
+		if (roundsStarted > 0)
+		{
+			state.setRound(roundsStarted - 1);
+			startRound();
+		}
+		for (int i = 0; i < actionCount; ++i)
+		{
+			int type = input.get();
+			int seat = input.get();
+			apply(type, seat, input.get() & 0xFF);
+		}
+		isReplaying = false;
+	}
+
+	/**
+	 * Replays an action read from the journal. A client joining takes a
+	 * reserved seat.
+	 *
+	 * @param type
+	 *        The type of the record.
+	 * @param seat
+	 *        The seat of the client.
+	 * @param value
+	 *        The value of the record.
+	 */
+	void replay(int type, int seat, int value)
+	{
+		isReplaying = true;
+		apply(type, seat, value);
+		isReplaying = false;
+	}
+
+	/**
+	 * Applies an action read from the journal.
+	 */
+	private void apply(int type, int seat, int value)
+	{
+		ClientSession client = clients[seat];
+		if (type == Journal.JOIN ? client != null : client == null)
+			throw new IllegalStateException("Table " + id + " doesn't match the journal at seat " + seat);
+		switch (type)
+		{
+			case Journal.JOIN:
+				sit(new ReservedSeat());
+				break;
+			case Journal.LEAVE:
+				leave(client);
+				break;
+			case Journal.BID:
+				bid(client, BIDS[value]);
+				break;
+			default:
+				play(client, value);
+				break;
+		}
+	}
+
+	/**
+	 * Suspends the table to the {@link TableStore} of its loop if its seats
+	 * for clients are all waiting for their clients to come back, and nothing
+	 * else is going on: no pause and no spectator. The table is then closed,
+	 * and forgotten by the server and the journal, which checkpoints the store
+	 * instead.
+	 */
+	void suspendIfIdle()
+	{
+		if (isClosed || pause != NO_PAUSE || feed != null || seatOfReserved() == -1)
+			return;
+		for (ClientSession client : clients)
+		{
+			if (client != null && !(client instanceof ReservedSeat))
+				return;
+		}
+
+		TableStore store = loop.getStore();
+		int slot = store.add(id, deckSpec.getNumberOfPlayers());
+		ByteBuffer slab = store.getSlab(slot);
+		int position = store.getPosition(slot);
+		TableStore.write(state, slab, position);
+		slab.put(position + TableStore.CLIENT_SEATS, (byte) clientSeats);
+		slab.put(position + TableStore.SEATS_TO_FILL, (byte) seatsToFill);
+		slab.put(position + TableStore.RESERVED_SEATS, (byte) clientMask());
+		slab.put(position + TableStore.ROUND_CLIENTS, (byte) roundClients);
+		slab.put(position + TableStore.TRUMP_LENGTH, (byte) trumpLength);
+		slab.putShort(position + TableStore.ACTION_COUNT, (short) roundActionCount);
+		for (int i = 0; i < roundActionCount; ++i)
+		{
+			int action = roundActions[i];
+			int offset = position + TableStore.ACTIONS + 3 * i;
+			slab.put(offset, (byte) (action >>> 16));
+			slab.put(offset + 1, (byte) (action >>> 8));
+			slab.put(offset + 2, (byte) action);
+		}
+
+		isClosed = true;
+		isSuspended = true;
+		stopClock();
+		if (journal != null)
+			journal.unregister(this);
+		server.removeTable(this);
+	}
+
+	/**
+	 * Rebuilds a suspended table from its slot, the seats of the clients being
+	 * reserved for them. The table must be new.
+	 *
+	 * @param slab
+	 *        The buffer of the slot.
+	 * @param position
+	 *        The position of the slot.
+	 */
+	void readSlot(ByteBuffer slab, int position)
+	{
+		TableStore.read(slab, position, state);
+		seatsToFill = slab.get(position + TableStore.SEATS_TO_FILL);
+		int reserved = slab.get(position + TableStore.RESERVED_SEATS);
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			if ((reserved & 1 << seat) != 0)
+			{
+				clients[seat] = new ReservedSeat();
+				clients[seat].setTable(this, seat);
+			}
+		}
+		roundClients = slab.get(position + TableStore.ROUND_CLIENTS);
+		trumpLength = slab.get(position + TableStore.TRUMP_LENGTH);
+		roundActionCount = slab.getShort(position + TableStore.ACTION_COUNT);
+		for (int i = 0; i < roundActionCount; ++i)
+		{
+			int offset = position + TableStore.ACTIONS + 3 * i;
+			roundActions[i] = (slab.get(offset) & 0xFF) << 16 | (slab.get(offset + 1) & 0xFF) << 8 | slab.get(offset + 2)
+					& 0xFF;
+		}
+		JournalSegment segment = loop.getJournal();
+		if (segment != null)
+			segment.register(this);
+	}
+
+	/**
+	 * Returns {@code true} if a seat has to bid or play and the table is
+	 * waiting for it.
+	 */
+	private boolean isToAct(int seat)
+	{
+		int phase = state.getPhase();
+		return seatsToFill == 0 && pause == NO_PAUSE && state.getSeatToAct() == seat
+				&& (phase == TableState.BIDDING || phase == TableState.PLAYING);
+	}
+
+	/**
+	 * Sets the play state the tables of the loop share from this table.
+	 *
+	 * @return the play state.
+	 */
+	private PlayState loadPlay()
+	{
+		PlayState play = loop.getScratch(deckSpec).getPlay(state.getHighestBid());
+		play.set(state);
+		return play;
+	}
+
+	/**
+	 * Returns the seats of the clients as a bit set.
+	 */
+	private int clientMask()
+	{
+		int mask = 0;
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			if (clients[seat] != null)
+				mask |= 1 << seat;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the first seat reserved for a client of the rebuilt table, or -1.
+	 */
+	private int seatOfReserved()
+	{
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			if (clients[seat] instanceof ReservedSeat)
+				return seat;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sends an error to a client.
+	 */
+	private void reject(ClientSession client, String message)
+	{
+		client.error(message);
+		client.flush();
+	}
+
+	/**
+	 * Sends the events queued for every client at the table, and updates the
+	 * snapshot of the spectators.
+	 */
+	private void flushAll()
+	{
+		for (ClientSession client : clients)
+		{
+			if (client != null)
+				client.flush();
+		}
+		if (feed != null)
+			publishSnapshot();
+	}
+
+	/**
+	 * Writes the state of the table into the snapshot of the feed.
+	 */
+	private void publishSnapshot()
+	{
+		TableSnapshot snapshot = feed.beginSnapshot();
+		snapshot.set(id, state.getRound(), state.getDealer(), state.getHighestBid(), state.getContractor(), state
+				.getPhase() == TableState.BIDDING, state.getSeatToAct(), state.getPlayedCards());
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			snapshot.setPlayer(seat, state.getCardOnTable(seat), state.getTricksWon(seat), state.getScore(seat));
+		}
+		feed.endSnapshot();
+	}
+
+	/**
+	 * Returns the seat of a client, or -1 if the client isn't seated here.
+	 */
+	private int seatOf(ClientSession client)
+	{
+		for (int seat = 0; seat < clients.length; ++seat)
+		{
+			if (clients[seat] == client)
+				return seat;
+		}
+		return -1;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public DeckSpec getDeckSpec()
+	{
+		return deckSpec;
+	}
+
+	public EventLoop getLoop()
+	{
+		return loop;
+	}
+
+	/**
+	 * Returns the number of rounds started at this table.
+	 *
+	 * @return the number of rounds.
+	 */
+	public int getRound()
+	{
+		return state.getRound();
+	}
+
+	/**
+	 * Returns the total score of a player.
+	 *
+	 * @param seat
+	 *        The seat of the player.
+	 * @return the total score.
+	 */
+	public int getScore(int seat)
+	{
+		return state.getScore(seat);
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	void setJournal(JournalSegment journal)
+	{
+		this.journal = journal;
+	}
+}
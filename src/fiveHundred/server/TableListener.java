@@ -0,0 +1,128 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+/**
+ * Receives the events of a {@link Table}, as seen from one seat. On the server
+ * it is implemented by the {@link ClientSession}s, which encode the events in
+ * their protocol; on a client it receives the events decoded by
+ * {@link BinaryProtocol#decodeEvent}.
+ */
+public interface TableListener
+{
+	/**
+	 * Called when the client sat at a table.
+	 *
+	 * @param tableId
+	 *        The id of the table.
+	 * @param seat
+	 *        The seat of the client.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 */
+	void seated(int tableId, int seat, int numberOfPlayers);
+
+	/**
+	 * Called when a round is dealt.
+	 *
+	 * @param round
+	 *        The number of the round, starting at 1.
+	 * @param dealer
+	 *        The seat of the dealer.
+	 * @param hand
+	 *        The cards dealt to the client.
+	 */
+	void dealt(int round, int dealer, long hand);
+
+	/**
+	 * Called when a player calls a bid.
+	 *
+	 * @param seat
+	 *        The seat of the player.
+	 * @param bid
+	 *        The bid.
+	 */
+	void bidCalled(int seat, Bid bid);
+
+	/**
+	 * Called when the bidding is over.
+	 *
+	 * @param contractor
+	 *        The seat of the player who called the highest bid.
+	 * @param bid
+	 *        The contract.
+	 */
+	void contract(int contractor, Bid bid);
+
+	/**
+	 * Called when a player plays a card.
+	 *
+	 * @param seat
+	 *        The seat of the player.
+	 * @param card
+	 *        The id of the card.
+	 */
+	void cardPlayed(int seat, int card);
+
+	/**
+	 * Called when a trick is over.
+	 *
+	 * @param winner
+	 *        The seat of the player who won the trick.
+	 */
+	void trickWon(int winner);
+
+	/**
+	 * Called when a round is over.
+	 *
+	 * @param scoreDeltas
+	 *        The points scored by each player in the round. The array is only
+	 *        valid during the call.
+	 * @param numberOfPlayers
+	 *        The number of players, which may be less than the length of the
+	 *        array.
+	 */
+	void scored(int[] scoreDeltas, int numberOfPlayers);
+
+	/**
+	 * Called when the client has to bid.
+	 *
+	 * @param highestBid
+	 *        The highest bid called so far, which the bid of the client must
+	 *        beat unless it passes.
+	 */
+	void turnToBid(Bid highestBid);
+
+	/**
+	 * Called when the client has to play.
+	 *
+	 * @param legalMoves
+	 *        The cards the client may play.
+	 */
+	void turnToPlay(long legalMoves);
+
+	/**
+	 * Called when another client left the table. A bot takes its seat.
+	 *
+	 * @param seat
+	 *        The seat of the client.
+	 */
+	void left(int seat);
+
+	/**
+	 * Called when a spectator receives the state of the table, when it starts
+	 * watching or instead of the events it missed.
+	 *
+	 * @param snapshot
+	 *        The public state of the table. It is only valid during the call.
+	 */
+	void snapshot(TableSnapshot snapshot);
+
+	/**
+	 * Called when an action of the client was refused.
+	 *
+	 * @param message
+	 *        The reason.
+	 */
+	void error(String message);
+}
@@ -0,0 +1,80 @@
+package fiveHundred.server;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.rules.Bid;
+
+/**
+ * The working memory the tables of an {@link EventLoop} playing with a deck
+ * share, so a table only keeps its packed state between two actions. A table
+ * must not expect anything it left here to be there at its next action.
+ */
+final class TableScratch
+{
+	/** The deck of the tables. */
+	private final DeckSpec deckSpec;
+
+	/**
+	 * The play states of the tables, set from a table before each use, indexed
+	 * by the ordinal of the bid so the rules of a bid are only worked out once.
+	 * Created when first needed.
+	 */
+	private final PlayState[] plays;
+
+	/** The cards dealt to each player, followed by the widow. */
+	private final long[] dealtHands;
+
+	/** The tricks won and the points scored by each player in a round. */
+	private final int[] tricksWon, scoreDeltas;
+
+	/**
+	 * Creates the working memory of the tables playing with a deck.
+	 *
+	 * @param deckSpec
+	 *        The deck.
+	 */
+	TableScratch(DeckSpec deckSpec)
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		this.deckSpec = deckSpec;
+		plays = new PlayState[Bid.values().length];
+		dealtHands = new long[numberOfPlayers + 1];
+		tricksWon = new int[numberOfPlayers];
+		scoreDeltas = new int[numberOfPlayers];
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the play state of the tables playing a bid.
+	 *
+	 * @param bid
+	 *        The highest bid of the round.
+	 * @return the play state, to set from the table.
+	 */
+	PlayState getPlay(Bid bid)
+	{
+		PlayState play = plays[bid.ordinal()];
+		if (play == null)
+		{
+			play = new PlayState(deckSpec);
+			plays[bid.ordinal()] = play;
+		}
+		return play;
+	}
+
+	long[] getDealtHands()
+	{
+		return dealtHands;
+	}
+
+	int[] getTricksWon()
+	{
+		return tricksWon;
+	}
+
+	int[] getScoreDeltas()
+	{
+		return scoreDeltas;
+	}
+}
@@ -0,0 +1,213 @@
+package fiveHundred.server;
+
+import fiveHundred.rules.Bid;
+
+import java.util.Arrays;
+
+/**
+ * The public state of a {@link Table}, as a spectator sees it: the round, the
+ * bidding, the cards of the trick being played and the scores. The hands of
+ * the players are not part of it. A spectator who fell behind receives a
+ * snapshot instead of the events it missed.
+ */
+public class TableSnapshot
+{
+	/** The id of the table. */
+	private int tableId;
+
+	/** The number of rounds started. */
+	private int round;
+
+	/** The dealer of the round. */
+	private int dealer;
+
+	/** The highest bid called so far, or the contract once the bidding is over. */
+	private Bid highestBid;
+
+	/** The player who called the highest bid. */
+	private int contractor;
+
+	/** Value indicating whether the players are bidding. */
+	private boolean isBidding;
+
+	/** The player who has to act. */
+	private int seatToAct;
+
+	/** The cards played in the round. */
+	private long playedCards;
+
+	/** The card of each player in the trick being played, or -1. */
+	private final int[] cardsOnTable;
+
+	/** The tricks won by each player in the round. */
+	private final int[] tricksWon;
+
+	/** The total score of each player. */
+	private final int[] scores;
+
+	/** The number of events of the table reflected by this snapshot. */
+	private long sequence;
+
+	/**
+	 * Creates an empty snapshot.
+	 *
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 */
+	public TableSnapshot(int numberOfPlayers)
+	{
+		cardsOnTable = new int[numberOfPlayers];
+		Arrays.fill(cardsOnTable, -1);
+		tricksWon = new int[numberOfPlayers];
+		scores = new int[numberOfPlayers];
+		highestBid = Bid.PASS;
+	}
+
+	/**
+	 * Copies another snapshot of a table with the same number of players.
+	 *
+	 * @param other
+	 *        The snapshot to copy.
+	 */
+	public void copyFrom(TableSnapshot other)
+	{
+		set(other.tableId, other.round, other.dealer, other.highestBid, other.contractor, other.isBidding,
+				other.seatToAct, other.playedCards);
+		System.arraycopy(other.cardsOnTable, 0, cardsOnTable, 0, cardsOnTable.length);
+		System.arraycopy(other.tricksWon, 0, tricksWon, 0, tricksWon.length);
+		System.arraycopy(other.scores, 0, scores, 0, scores.length);
+		sequence = other.sequence;
+	}
+
+	/**
+	 * Sets the state of the table, except the state of each player.
+	 *
+	 * @param tableId
+	 *        The id of the table.
+	 * @param round
+	 *        The number of rounds started.
+	 * @param dealer
+	 *        The dealer of the round.
+	 * @param highestBid
+	 *        The highest bid called so far.
+	 * @param contractor
+	 *        The player who called the highest bid.
+	 * @param isBidding
+	 *        Value indicating whether the players are bidding.
+	 * @param seatToAct
+	 *        The player who has to act.
+	 * @param playedCards
+	 *        The cards played in the round.
+	 */
+	public void set(int tableId, int round, int dealer, Bid highestBid, int contractor, boolean isBidding,
+			int seatToAct, long playedCards)
+	{
+		this.tableId = tableId;
+		this.round = round;
+		this.dealer = dealer;
+		this.highestBid = highestBid;
+		this.contractor = contractor;
+		this.isBidding = isBidding;
+		this.seatToAct = seatToAct;
+		this.playedCards = playedCards;
+	}
+
+	/**
+	 * Sets the state of a player.
+	 *
+	 * @param seat
+	 *        The seat of the player.
+	 * @param cardOnTable
+	 *        The card of the player in the trick being played, or -1.
+	 * @param tricks
+	 *        The tricks won by the player in the round.
+	 * @param score
+	 *        The total score of the player.
+	 */
+	public void setPlayer(int seat, int cardOnTable, int tricks, int score)
+	{
+		cardsOnTable[seat] = cardOnTable;
+		tricksWon[seat] = tricks;
+		scores[seat] = score;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getNumberOfPlayers()
+	{
+		return scores.length;
+	}
+
+	public int getTableId()
+	{
+		return tableId;
+	}
+
+	public int getRound()
+	{
+		return round;
+	}
+
+	public int getDealer()
+	{
+		return dealer;
+	}
+
+	public Bid getHighestBid()
+	{
+		return highestBid;
+	}
+
+	public int getContractor()
+	{
+		return contractor;
+	}
+
+	public boolean isBidding()
+	{
+		return isBidding;
+	}
+
+	public int getSeatToAct()
+	{
+		return seatToAct;
+	}
+
+	public long getPlayedCards()
+	{
+		return playedCards;
+	}
+
+	public int getCardOnTable(int seat)
+	{
+		return cardsOnTable[seat];
+	}
+
+	public int getTricksWon(int seat)
+	{
+		return tricksWon[seat];
+	}
+
+	public int getScore(int seat)
+	{
+		return scores[seat];
+	}
+
+	/**
+	 * Returns the number of events of the table reflected by this snapshot.
+	 * The events from this number on come after it.
+	 *
+	 * @return the sequence number.
+	 */
+	long getSequence()
+	{
+		return sequence;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	void setSequence(long value)
+	{
+		sequence = value;
+	}
+}
@@ -0,0 +1,355 @@
+package fiveHundred.server;
+
+import fiveHundred.engine.TableState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps the suspended tables of an {@link EventLoop} off the heap. A table
+ * whose seats for clients are all waiting for their clients to come back is
+ * written to a slot of {@value #SLOT_SIZE} bytes, its packed
+ * {@link TableState} followed by its seats and the actions of its clients in
+ * the round, and the heap forgets it until a client comes back. So the heap
+ * and the work of the collector stay the same however many tables are
+ * suspended.
+ *
+ * <p>
+ * The slots are cut from direct buffers of {@value #SLOTS_PER_SLAB} slots allocated as needed,
+ * the free slots being chained through their first bytes. The slot of a table is found by its id
+ * in a hash table also kept in a direct buffer, with linear probing, so suspending, finding and
+ * resuming a table take constant time. The direct memory is limited by
+ * {@code -XX:MaxDirectMemorySize}, which is the size of the heap by default.
+ *
+ * <p>
+ * Like the tables it keeps, the store must only be used from its loop.
+ */
+final class TableStore
+{
+	/** The size of a slot. */
+	static final int SLOT_SIZE = 384;
+
+	/** The offset of the packed state of the table. */
+	static final int STATE = 0;
+
+	/** The offset of the id of the table. */
+	static final int ID = STATE + TableState.BYTES;
+
+	/** The offset of the number of players, 0 for a free slot. */
+	static final int PLAYERS = ID + Integer.BYTES;
+
+	/** The offset of the number of seats for clients. */
+	static final int CLIENT_SEATS = PLAYERS + 1;
+
+	/** The offset of the number of seats still waiting for a client before the first round. */
+	static final int SEATS_TO_FILL = CLIENT_SEATS + 1;
+
+	/** The offset of the seats reserved for their clients, as a bit set. */
+	static final int RESERVED_SEATS = SEATS_TO_FILL + 1;
+
+	/** The offset of the seats of the clients when the round started, as a bit set. */
+	static final int ROUND_CLIENTS = RESERVED_SEATS + 1;
+
+	/** The offset of the number of trumps the contractor held when the play started. */
+	static final int TRUMP_LENGTH = ROUND_CLIENTS + 1;
+
+	/** The offset of the number of actions of the clients in the round, on 2 bytes. */
+	static final int ACTION_COUNT = TRUMP_LENGTH + 1;
+
+	/** The offset of the actions of the clients in the round, on 3 bytes each. */
+	static final int ACTIONS = ACTION_COUNT + Short.BYTES;
+
+	/** The number of slots of a buffer. */
+	private static final int SLOTS_PER_SLAB = 1 << 14;
+
+	/** The initial number of entries of the hash table, a power of 2. */
+	private static final int INITIAL_INDEX_SIZE = 1024;
+
+	/** The size of an entry of the hash table: the id, then the slot plus 1, 0 for an empty entry. */
+	private static final int ENTRY_SIZE = 2 * Integer.BYTES;
+
+	/** The buffers holding the slots. */
+	private ByteBuffer[] slabs;
+
+	/** The number of slots ever used. */
+	private int slotCount;
+
+	/** The first free slot below {@link #slotCount}, or -1. */
+	private int firstFree;
+
+	/** The hash table giving the slot of each table. */
+	private ByteBuffer index;
+
+	/** The mask giving the first entry to probe for a hash. */
+	private int indexMask;
+
+	/** The number of tables in the store. */
+	private int count;
+
+	/**
+	 * Creates an empty store. The slots are only allocated with the first
+	 * table.
+	 */
+	TableStore()
+	{
+		slabs = new ByteBuffer[0];
+		firstFree = -1;
+		index = ByteBuffer.allocateDirect(INITIAL_INDEX_SIZE * ENTRY_SIZE);
+		indexMask = INITIAL_INDEX_SIZE - 1;
+	}
+
+	/**
+	 * Finds the slot of a table.
+	 *
+	 * @param id
+	 *        The id of the table.
+	 * @return the slot, or -1 if the table isn't in the store.
+	 */
+	int find(int id)
+	{
+		for (int entry = hash(id) & indexMask;; entry = entry + 1 & indexMask)
+		{
+			int slot = index.getInt(entry * ENTRY_SIZE + Integer.BYTES) - 1;
+			if (slot == -1 || index.getInt(entry * ENTRY_SIZE) == id)
+				return slot;
+		}
+	}
+
+	/**
+	 * Takes a free slot for a table, which the caller then writes.
+	 *
+	 * @param id
+	 *        The id of the table, which mustn't be in the store.
+	 * @param numberOfPlayers
+	 *        The number of players at the table.
+	 * @return the slot.
+	 */
+	int add(int id, int numberOfPlayers)
+	{
+		if (find(id) != -1)
+			throw new IllegalStateException("Table " + id + " is already suspended.");
+		if (2 * (count + 1) > indexMask + 1)
+			growIndex();
+
+		int slot = firstFree;
+		if (slot != -1)
+			firstFree = getSlab(slot).getInt(getPosition(slot) + STATE);
+		else
+		{
+			slot = slotCount++;
+			if (slot / SLOTS_PER_SLAB == slabs.length)
+			{
+				ByteBuffer[] larger = new ByteBuffer[slabs.length + 1];
+				System.arraycopy(slabs, 0, larger, 0, slabs.length);
+				larger[slabs.length] = ByteBuffer.allocateDirect(SLOTS_PER_SLAB * SLOT_SIZE);
+				slabs = larger;
+			}
+		}
+		getSlab(slot).putInt(getPosition(slot) + ID, id);
+		getSlab(slot).put(getPosition(slot) + PLAYERS, (byte) numberOfPlayers);
+		insert(id, slot);
+		++count;
+		return slot;
+	}
+
+	/**
+	 * Frees the slot of a table.
+	 *
+	 * @param id
+	 *        The id of the table.
+	 */
+	void remove(int id)
+	{
+		int entry = hash(id) & indexMask;
+		while (index.getInt(entry * ENTRY_SIZE) != id)
+		{
+			if (index.getInt(entry * ENTRY_SIZE + Integer.BYTES) == 0)
+				return;
+			entry = entry + 1 & indexMask;
+		}
+		int slot = index.getInt(entry * ENTRY_SIZE + Integer.BYTES) - 1;
+		getSlab(slot).put(getPosition(slot) + PLAYERS, (byte) 0);
+		getSlab(slot).putInt(getPosition(slot) + STATE, firstFree);
+		firstFree = slot;
+		--count;
+
+		// Moves back the entries which probed past the removed one, so no
+		// search stops at the hole.
+		int hole = entry;
+		for (entry = hole + 1 & indexMask; index.getInt(entry * ENTRY_SIZE + Integer.BYTES) != 0; entry = entry + 1
+				& indexMask)
+		{
+			int home = hash(index.getInt(entry * ENTRY_SIZE)) & indexMask;
+			if ((entry - home & indexMask) >= (entry - hole & indexMask))
+			{
+				index.putLong(hole * ENTRY_SIZE, index.getLong(entry * ENTRY_SIZE));
+				hole = entry;
+			}
+		}
+		index.putLong(hole * ENTRY_SIZE, 0);
+	}
+
+	/**
+	 * Writes the checkpoint of a suspended table, as
+	 * {@link Table#writeCheckpoint(ByteBuffer)} would have written it before
+	 * the table was suspended.
+	 *
+	 * @param slot
+	 *        The slot of the table.
+	 * @param output
+	 *        The buffer receiving the checkpoint.
+	 */
+	void writeCheckpoint(int slot, ByteBuffer output)
+	{
+		ByteBuffer slab = getSlab(slot);
+		int position = getPosition(slot);
+		TableState state = new TableState(slab.get(position + PLAYERS));
+		read(slab, position, state);
+		output.put(slab.get(position + PLAYERS));
+		output.put(slab.get(position + CLIENT_SEATS));
+		output.putInt(state.getRound());
+		output.put(slab.get(position + SEATS_TO_FILL));
+		output.put(slab.get(state.getRound() == 0 ? position + RESERVED_SEATS : position + ROUND_CLIENTS));
+		for (int seat = 0; seat < state.getNumberOfPlayers(); ++seat)
+		{
+			output.putInt(state.getScore(seat));
+		}
+		int actionCount = slab.getShort(position + ACTION_COUNT);
+		output.putShort((short) actionCount);
+		for (int i = 0; i < 3 * actionCount; ++i)
+		{
+			output.put(slab.get(position + ACTIONS + i));
+		}
+	}
+
+	/**
+	 * Links a table to its slot in the hash table.
+	 */
+	private void insert(int id, int slot)
+	{
+		int entry = hash(id) & indexMask;
+		while (index.getInt(entry * ENTRY_SIZE + Integer.BYTES) != 0)
+		{
+			entry = entry + 1 & indexMask;
+		}
+		index.putInt(entry * ENTRY_SIZE, id);
+		index.putInt(entry * ENTRY_SIZE + Integer.BYTES, slot + 1);
+	}
+
+	/**
+	 * Doubles the size of the hash table.
+	 */
+	private void growIndex()
+	{
+		ByteBuffer old = index;
+		int oldSize = indexMask + 1;
+		index = ByteBuffer.allocateDirect(2 * oldSize * ENTRY_SIZE);
+		indexMask = 2 * oldSize - 1;
+		for (int entry = 0; entry < oldSize; ++entry)
+		{
+			int slot = old.getInt(entry * ENTRY_SIZE + Integer.BYTES) - 1;
+			if (slot != -1)
+				insert(old.getInt(entry * ENTRY_SIZE), slot);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the buffer holding a slot.
+	 *
+	 * @param slot
+	 *        The slot.
+	 * @return the buffer, to use with absolute positions.
+	 */
+	ByteBuffer getSlab(int slot)
+	{
+		return slabs[slot / SLOTS_PER_SLAB];
+	}
+
+	/**
+	 * Returns the position of a slot in its buffer.
+	 *
+	 * @param slot
+	 *        The slot.
+	 * @return the position of the first byte of the slot.
+	 */
+	int getPosition(int slot)
+	{
+		return slot % SLOTS_PER_SLAB * SLOT_SIZE;
+	}
+
+	/**
+	 * Returns the number of slots ever used, free or not. The slots below it
+	 * holding a table are those {@link #isUsed(int)} accepts.
+	 *
+	 * @return the number of slots.
+	 */
+	int getSlotCount()
+	{
+		return slotCount;
+	}
+
+	boolean isUsed(int slot)
+	{
+		return getSlab(slot).get(getPosition(slot) + PLAYERS) != 0;
+	}
+
+	int getTableId(int slot)
+	{
+		return getSlab(slot).getInt(getPosition(slot) + ID);
+	}
+
+	int getCount()
+	{
+		return count;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Copies the packed state of a table to its slot.
+	 *
+	 * @param state
+	 *        The state.
+	 * @param slab
+	 *        The buffer of the slot.
+	 * @param position
+	 *        The position of the slot.
+	 */
+	static void write(TableState state, ByteBuffer slab, int position)
+	{
+		long[] words = state.getWords();
+		for (int i = 0; i < TableState.WORDS; ++i)
+		{
+			slab.putLong(position + STATE + i * Long.BYTES, words[state.getOffset() + i]);
+		}
+	}
+
+	/**
+	 * Copies the packed state of a table from its slot.
+	 *
+	 * @param slab
+	 *        The buffer of the slot.
+	 * @param position
+	 *        The position of the slot.
+	 * @param state
+	 *        Receives the state.
+	 */
+	static void read(ByteBuffer slab, int position, TableState state)
+	{
+		long[] words = state.getWords();
+		for (int i = 0; i < TableState.WORDS; ++i)
+		{
+			words[state.getOffset() + i] = slab.getLong(position + STATE + i * Long.BYTES);
+		}
+	}
+
+	/**
+	 * Spreads the ids over the hash table.
+	 */
+	private static int hash(int id)
+	{
+		int h = id * 0x9E3779B9;
+		return h ^ h >>> 16;
+	}
+}
@@ -0,0 +1,23 @@
+package fiveHundred.sim;
+
+import fiveHundred.record.HandRecord;
+
+/**
+ * Receives every hand played by a {@link TournamentRunner}.
+ *
+ * <p>
+ * The hands are reported from the threads of the runner, several at once, so an implementation
+ * must be thread-safe.
+ */
+public interface HandListener
+{
+	/**
+	 * Called when a hand has been played.
+	 *
+	 * @param record
+	 *        The record of the hand. It is only valid during the call.
+	 * @param simulator
+	 *        The simulator which played the hand.
+	 */
+	void handPlayed(HandRecord record, HandSimulator simulator);
+}
@@ -0,0 +1,189 @@
+package fiveHundred.sim;
+
+import fiveHundred.ai.HeuristicStrategy;
+import fiveHundred.ai.Strategy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.engine.PlayState;
+import fiveHundred.record.HandRecord;
+import fiveHundred.record.HandRecordCodec;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+import java.util.Arrays;
+
+/**
+ * Plays whole hands without any display, each seat being played by its own
+ * {@link Strategy}. Hands are dealt from their deal index exactly as in
+ * the game, so a simulated hand can be replayed like any recorded hand.
+ *
+ * <p>
+ * A simulator reuses its state from one hand to the next and doesn't create any garbage. An
+ * instance of this class must only be used by one thread at a time.
+ */
+public class HandSimulator
+{
+	/** The specification of the deck the hands are played with. */
+	private final DeckSpec deckSpec;
+
+	/** The strategy of each seat, indexed by seat. */
+	private final Strategy[] strategies;
+
+	/** Deals the hands from their deal index. */
+	private final HandRecordCodec codec;
+
+	/** The state the hands are played in. */
+	private final PlayState state;
+
+	/** The record of the last hand played. */
+	private final HandRecord record;
+
+	/** The cards dealt to each player, indexed by player, followed by the widow. */
+	private final long[] dealtHands;
+
+	/** An empty table, every entry being -1. */
+	private final int[] emptyTable;
+
+	/** The number of tricks won by each player, indexed by player. */
+	private final int[] tricksWon;
+
+	/** The points scored by each player, indexed by player. */
+	private final int[] scoreDeltas;
+
+	/** The number of trumps in the contractor's hand when the play started. */
+	private int trumpLength;
+
+	/**
+	 * Creates a simulator in which every seat follows the
+	 * {@link HeuristicStrategy}.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 */
+	public HandSimulator(DeckSpec deckSpec, long baseSeed)
+	{
+		this(deckSpec, baseSeed, null);
+	}
+
+	/**
+	 * Creates a simulator.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 * @param strategies
+	 *        The strategy of each seat, indexed by seat, or {@code null} for
+	 *        the {@link HeuristicStrategy} at every seat.
+	 */
+	public HandSimulator(DeckSpec deckSpec, long baseSeed, Strategy[] strategies)
+	{
+		this.deckSpec = deckSpec;
+		if (strategies == null)
+		{
+			strategies = new Strategy[deckSpec.getNumberOfPlayers()];
+			Arrays.fill(strategies, new HeuristicStrategy());
+		}
+		if (strategies.length != deckSpec.getNumberOfPlayers())
+			throw new IllegalArgumentException("One strategy is needed for each seat.");
+		this.strategies = strategies.clone();
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		codec = new HandRecordCodec(deckSpec, baseSeed);
+		state = new PlayState(deckSpec);
+		record = new HandRecord(deckSpec);
+		dealtHands = new long[numberOfPlayers + 1];
+		emptyTable = new int[numberOfPlayers];
+		Arrays.fill(emptyTable, -1);
+		tricksWon = new int[numberOfPlayers];
+		scoreDeltas = new int[numberOfPlayers];
+	}
+
+	/**
+	 * Deals and plays a hand. The dealer moves one seat to the left with each
+	 * deal.
+	 *
+	 * @param dealIndex
+	 *        The index of the hand in the game.
+	 * @return The record of the hand. It is overwritten by the next call.
+	 */
+	public HandRecord play(long dealIndex)
+	{
+		int numberOfPlayers = deckSpec.getNumberOfPlayers();
+		int dealer = (int) (dealIndex % numberOfPlayers);
+		codec.dealHands(dealIndex, dealtHands);
+		record.reset(dealIndex, dealer);
+
+		// Every player bids once, starting with the player left of the dealer.
+		// If everyone passes, the first player leads without a contract.
+		Bid highestBid = Bid.PASS;
+		int contractor = (dealer + 1) % numberOfPlayers;
+		for (int i = 1; i <= numberOfPlayers; ++i)
+		{
+			int seat = (dealer + i) % numberOfPlayers;
+			Bid bid = strategies[seat].chooseBid(deckSpec, dealtHands[seat], highestBid);
+			record.setBid(seat, bid);
+			if (bid.ordinal() > highestBid.ordinal())
+			{
+				highestBid = bid;
+				contractor = seat;
+			}
+		}
+		record.setContractor(contractor);
+
+		// As in the game, the contractor doesn't exchange cards with the widow
+		// yet, so the widow itself is discarded.
+		int discarded = 0;
+		for (long widow = dealtHands[numberOfPlayers]; widow != 0; widow &= widow - 1)
+		{
+			record.setDiscard(discarded++, Long.numberOfTrailingZeros(widow));
+		}
+
+		state.set(highestBid, contractor, dealtHands, emptyTable, -1, contractor);
+		trumpLength = highestBid.hasTrump() ? Long.bitCount(dealtHands[contractor]
+				& state.getSuitMask(highestBid.getTrumpSuit())) : 0;
+		while (!state.isRoundOver())
+		{
+			int card = strategies[state.getSeatToPlay()].chooseCard(state);
+			int tricksPlayed = state.getTricksPlayed();
+			record.addPlay(card);
+			state.makeMove(card);
+			if (state.getTricksPlayed() != tricksPlayed)
+				record.addTrickWinner(state.getTrickWinner(tricksPlayed));
+		}
+
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			tricksWon[i] = state.getTricksWon(i);
+		}
+		FiveHundredRules.scoreRound(highestBid, contractor, tricksWon, scoreDeltas);
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			record.setScoreDelta(i, scoreDeltas[i]);
+		}
+		return record;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public DeckSpec getDeckSpec()
+	{
+		return deckSpec;
+	}
+
+	public Strategy getStrategy(int seat)
+	{
+		return strategies[seat];
+	}
+
+	/**
+	 * Returns the number of trumps the contractor of the last hand played held
+	 * when the play started, 0 if there was no trump.
+	 *
+	 * @return the contractor's trump length.
+	 */
+	public int getTrumpLength()
+	{
+		return trumpLength;
+	}
+}
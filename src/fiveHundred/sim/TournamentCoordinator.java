@@ -0,0 +1,534 @@
+package fiveHundred.sim;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.stats.GameStatistics;
+import fiveHundred.stats.StatisticsSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a range of deals on several {@link TournamentWorker} processes started
+ * on this machine, so a tournament isn't limited to one JVM and survives the
+ * crash of a worker or of the coordinator itself.
+ *
+ * <p>
+ * The deals are cut into units of {@link #setDealsPerUnit(long) a fixed number of deals}. Each
+ * worker plays one unit at a time, talking to the coordinator through its standard input and
+ * output, and the statistics of every unit played are added to the {@link GameStatistics} of the
+ * coordinator. The counters of the statistics are sums, so the result doesn't depend on which
+ * worker played which unit: it is the same as with a single {@link TournamentRunner}.
+ *
+ * <p>
+ * When a worker dies, its unit goes back to the units to play and a new worker takes its place,
+ * up to a number of restarts. With a checkpoint file, the units played and their statistics are
+ * saved after every unit, and a run started again with the same file only plays the units
+ * missing.
+ */
+public class TournamentCoordinator
+{
+	/** The number of deals of a unit by default. */
+	public static final long DEFAULT_DEALS_PER_UNIT = 1 << 16;
+
+	/** The first bytes of a checkpoint file. */
+	public static final int MAGIC = 0x46485443;
+
+	/** The version of the checkpoint files written. */
+	public static final short VERSION = 1;
+
+	/** The time a worker has to exit once its input is closed, in milliseconds. */
+	private static final long EXIT_MILLIS = 2000;
+
+	/** The specification of the deck the hands are played with. */
+	private final DeckSpec deckSpec;
+
+	/** The seed every hand is dealt from. */
+	private final long baseSeed;
+
+	/** The statistics every unit played is added to. */
+	private final GameStatistics statistics;
+
+	/** The statistics of the units played in this run or before, as saved in the checkpoint. */
+	private GameStatistics progress;
+
+	/** The messages of the workers, read by the coordinator. */
+	private final BlockingQueue<Message> messages;
+
+	/** The file the progress is saved to, or {@code null}. */
+	private Path checkpoint;
+
+	/** The number of deals of a unit. */
+	private long dealsPerUnit;
+
+	/** The number of threads of each worker. */
+	private int threadsPerWorker;
+
+	/** The number of workers started to replace dead ones. */
+	private int restartCount;
+
+	/** The number of units given to another worker after their worker died. */
+	private int reassignedCount;
+
+	/**
+	 * A message from a worker: the statistics of a unit, or the death of the
+	 * worker.
+	 */
+	private static final class Message
+	{
+		/** The worker. */
+		private final Worker worker;
+
+		/** The unit played, or -1 if the worker died. */
+		private final int unit;
+
+		/** The statistics of the unit, or {@code null} if the worker died. */
+		private final StatisticsSnapshot snapshot;
+
+		private Message(Worker worker, int unit, StatisticsSnapshot snapshot)
+		{
+			this.worker = worker;
+			this.unit = unit;
+			this.snapshot = snapshot;
+		}
+	}
+
+	/**
+	 * A worker process, with a thread reading its output.
+	 */
+	private final class Worker
+	{
+		/** The process. */
+		private final Process process;
+
+		/** The input of the process. */
+		private final DataOutputStream output;
+
+		/** The unit the worker plays, or -1 if it is idle. */
+		private int unit;
+
+		/** Value indicating whether the worker died or was stopped. */
+		private boolean isDead;
+
+		/**
+		 * Starts a worker.
+		 *
+		 * @param number
+		 *        The number of the worker, naming its reading thread.
+		 */
+		private Worker(int number) throws IOException
+		{
+			String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), TournamentWorker.class
+					.getName(), Integer.toString(deckSpec.getNumberOfPlayers()), Long.toString(baseSeed), Integer
+					.toString(threadsPerWorker)).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			output = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			unit = -1;
+
+			Thread readThread = new Thread(this::readOutput, "Tournament worker " + number);
+			readThread.setDaemon(true);
+			readThread.start();
+		}
+
+		/**
+		 * Gives a unit to the worker. A worker which can't be written to is
+		 * dying, and its death gives the unit back.
+		 */
+		private void assign(int unit, long firstDeal, long dealCount)
+		{
+			this.unit = unit;
+			try
+			{
+				output.writeByte(TournamentWorker.UNIT);
+				output.writeInt(unit);
+				output.writeLong(firstDeal);
+				output.writeLong(dealCount);
+				output.flush();
+			}
+			catch (IOException e)
+			{
+				process.destroyForcibly();
+			}
+		}
+
+		/**
+		 * The loop of the reading thread. Posts the statistics of each unit,
+		 * then the death of the worker when its output ends.
+		 */
+		private void readOutput()
+		{
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream())))
+			{
+				while (true)
+				{
+					int type = in.readByte();
+					if (type != TournamentWorker.DONE)
+						throw new IOException("Unknown message " + type);
+					int unit = in.readInt();
+					messages.add(new Message(this, unit, StatisticsSnapshot.read(in)));
+				}
+			}
+			catch (IOException e)
+			{
+				// The worker died or was stopped.
+			}
+			finally
+			{
+				messages.add(new Message(this, -1, null));
+			}
+		}
+
+		/**
+		 * Stops the worker: closes its input, which ends it, or kills it if it
+		 * doesn't exit in time.
+		 */
+		private void stop()
+		{
+			isDead = true;
+			try
+			{
+				output.close();
+				if (!process.waitFor(EXIT_MILLIS, TimeUnit.MILLISECONDS))
+					process.destroyForcibly();
+			}
+			catch (IOException e)
+			{
+				process.destroyForcibly();
+			}
+			catch (InterruptedException e)
+			{
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Creates a coordinator.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 * @param statistics
+	 *        The statistics every unit played is added to.
+	 */
+	public TournamentCoordinator(DeckSpec deckSpec, long baseSeed, GameStatistics statistics)
+	{
+		this.deckSpec = deckSpec;
+		this.baseSeed = baseSeed;
+		this.statistics = statistics;
+		messages = new LinkedBlockingQueue<>();
+		dealsPerUnit = DEFAULT_DEALS_PER_UNIT;
+		threadsPerWorker = 1;
+	}
+
+	/**
+	 * Plays a range of deals on worker processes and waits until they are all
+	 * played.
+	 *
+	 * @param firstDeal
+	 *        The index of the first deal to play.
+	 * @param dealCount
+	 *        The number of deals to play.
+	 * @param workerCount
+	 *        The number of workers.
+	 * @param maxRestarts
+	 *        The number of workers which can be started to replace dead ones.
+	 * @throws IOException
+	 *         if the workers can't be started, every worker died, or the
+	 *         checkpoint can't be read or written or belongs to another run.
+	 * @throws InterruptedException
+	 *         if the current thread is interrupted while waiting.
+	 */
+	public void run(long firstDeal, long dealCount, int workerCount, int maxRestarts) throws IOException,
+			InterruptedException
+	{
+		long units = (dealCount + dealsPerUnit - 1) / dealsPerUnit;
+		if (units > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many units: use larger units.");
+		int unitCount = (int) units;
+
+		progress = new GameStatistics();
+		BitSet played = new BitSet(unitCount);
+		if (checkpoint != null && Files.exists(checkpoint))
+			readCheckpoint(firstDeal, dealCount, unitCount, played);
+		int remaining = unitCount - played.cardinality();
+		Queue<Integer> toPlay = new ArrayDeque<>();
+		for (int unit = played.nextClearBit(0); unit < unitCount; unit = played.nextClearBit(unit + 1))
+		{
+			toPlay.add(unit);
+		}
+
+		List<Worker> workers = new ArrayList<>();
+		try
+		{
+			for (int i = 0; i < workerCount && i < remaining; ++i)
+			{
+				workers.add(new Worker(i));
+			}
+			for (Worker worker : workers)
+			{
+				assignNext(worker, toPlay, firstDeal, dealCount);
+			}
+
+			while (remaining > 0)
+			{
+				Message message = messages.take();
+				Worker worker = message.worker;
+				if (message.snapshot != null)
+				{
+					if (!played.get(message.unit))
+					{
+						played.set(message.unit);
+						--remaining;
+						progress.add(message.snapshot);
+						statistics.add(message.snapshot);
+						if (checkpoint != null)
+							writeCheckpoint(firstDeal, dealCount, unitCount, played);
+					}
+					worker.unit = -1;
+					assignNext(worker, toPlay, firstDeal, dealCount);
+					continue;
+				}
+
+				if (worker.isDead)
+					continue;
+				worker.isDead = true;
+				workers.remove(worker);
+				if (worker.unit != -1 && !played.get(worker.unit))
+				{
+					toPlay.add(worker.unit);
+					++reassignedCount;
+				}
+				if (restartCount < maxRestarts && !toPlay.isEmpty())
+				{
+					Worker replacement = new Worker(workerCount + restartCount++);
+					workers.add(replacement);
+				}
+				else if (workers.isEmpty())
+					throw new IOException("Every worker died with " + remaining + " units left.");
+				for (Worker idle : workers)
+				{
+					if (idle.unit == -1)
+						assignNext(idle, toPlay, firstDeal, dealCount);
+				}
+			}
+		}
+		finally
+		{
+			for (Worker worker : workers)
+			{
+				worker.stop();
+			}
+			messages.clear();
+		}
+	}
+
+	/**
+	 * Gives the next unit to play to a worker, if any is left.
+	 */
+	private void assignNext(Worker worker, Queue<Integer> toPlay, long firstDeal, long dealCount)
+	{
+		Integer unit = toPlay.poll();
+		if (unit == null)
+			return;
+		long start = unit * dealsPerUnit;
+		worker.assign(unit, firstDeal + start, Math.min(dealsPerUnit, dealCount - start));
+	}
+
+	/**
+	 * Saves the units played and their statistics. The file is replaced at
+	 * once, so a crash leaves either the previous checkpoint or this one.
+	 */
+	private void writeCheckpoint(long firstDeal, long dealCount, int unitCount, BitSet played) throws IOException
+	{
+		Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))
+		{
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeByte(deckSpec.getNumberOfPlayers());
+			out.writeLong(baseSeed);
+			out.writeLong(firstDeal);
+			out.writeLong(dealCount);
+			out.writeLong(dealsPerUnit);
+			out.writeInt(unitCount);
+			long[] words = played.toLongArray();
+			out.writeInt(words.length);
+			for (long word : words)
+			{
+				out.writeLong(word);
+			}
+			progress.snapshot().write(out);
+		}
+		Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the units already played and adds their statistics.
+	 */
+	private void readCheckpoint(long firstDeal, long dealCount, int unitCount, BitSet played) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint))))
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a tournament checkpoint file.");
+			short version = in.readShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported tournament checkpoint version: " + version);
+			if (in.readByte() != deckSpec.getNumberOfPlayers() || in.readLong() != baseSeed || in
+					.readLong() != firstDeal || in.readLong() != dealCount || in.readLong() != dealsPerUnit || in
+							.readInt() != unitCount)
+				throw new IOException("The checkpoint " + checkpoint + " belongs to another tournament.");
+			long[] words = new long[in.readInt()];
+			for (int i = 0; i < words.length; ++i)
+			{
+				words[i] = in.readLong();
+			}
+			played.or(BitSet.valueOf(words));
+			StatisticsSnapshot snapshot = StatisticsSnapshot.read(in);
+			progress.add(snapshot);
+			statistics.add(snapshot);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getRestartCount()
+	{
+		return restartCount;
+	}
+
+	public int getReassignedCount()
+	{
+		return reassignedCount;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	/**
+	 * Sets the file the progress is saved to and resumed from. Must be called
+	 * before {@link #run(long, long, int, int)}.
+	 *
+	 * @param value
+	 *        The path of the file, or {@code null} not to save the progress.
+	 */
+	public void setCheckpoint(Path value)
+	{
+		checkpoint = value;
+	}
+
+	/**
+	 * Sets the number of deals of a unit, which is the work lost when a worker
+	 * dies. Must be called before {@link #run(long, long, int, int)}.
+	 *
+	 * @param value
+	 *        The number of deals, {@link #DEFAULT_DEALS_PER_UNIT} by default.
+	 */
+	public void setDealsPerUnit(long value)
+	{
+		if (value <= 0)
+			throw new IllegalArgumentException("A unit needs at least one deal.");
+		dealsPerUnit = value;
+	}
+
+	/**
+	 * Sets the number of threads of each worker. Must be called before
+	 * {@link #run(long, long, int, int)}.
+	 *
+	 * @param value
+	 *        The number of threads, 1 by default.
+	 */
+	public void setThreadsPerWorker(int value)
+	{
+		threadsPerWorker = value;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Returns the seed of the tournament saved in a checkpoint file, so a run
+	 * can be resumed without repeating it.
+	 *
+	 * @param checkpoint
+	 *        The path of the file.
+	 * @param defaultSeed
+	 *        The seed to use if there is no checkpoint yet.
+	 * @return the seed.
+	 * @throws IOException
+	 *         if the file exists but can't be read.
+	 */
+	public static long readSeed(Path checkpoint, long defaultSeed) throws IOException
+	{
+		if (!Files.exists(checkpoint))
+			return defaultSeed;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint))))
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a tournament checkpoint file.");
+			in.readShort();
+			in.readByte();
+			return in.readLong();
+		}
+	}
+
+	/**
+	 * Plays a tournament on worker processes from the command line and prints
+	 * its statistics.
+	 *
+	 * <p>
+	 * Arguments: the number of players, the number of deals, the number of workers, then optionally
+	 * the number of threads of each worker, the base seed and the path of a checkpoint file. The
+	 * seed of an existing checkpoint file replaces the one given.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: TournamentCoordinator <players> <deals> <workers> [threads] [seed] [checkpoint]");
+			System.exit(1);
+		}
+
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[0]));
+		long deals = Long.parseLong(args[1]);
+		int workers = Integer.parseInt(args[2]);
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+		Path checkpoint = args.length > 5 ? Paths.get(args[5]) : null;
+		if (checkpoint != null)
+			seed = readSeed(checkpoint, seed);
+
+		GameStatistics statistics = new GameStatistics();
+		TournamentCoordinator coordinator = new TournamentCoordinator(deckSpec, seed, statistics);
+		coordinator.setCheckpoint(checkpoint);
+		coordinator.setThreadsPerWorker(threads);
+
+		long start = System.nanoTime();
+		coordinator.run(0, deals, workers, workers);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		statistics.snapshot().print(System.out, deckSpec.getNumberOfPlayers());
+		System.out.printf("%d hands in %.2f s (%.0f hands/s) on %d workers of %d threads, seed %d%n", deals, seconds,
+				deals / seconds, workers, threads, seed);
+		System.out.printf("%d workers restarted, %d units reassigned%n", coordinator.getRestartCount(), coordinator
+				.getReassignedCount());
+	}
+}
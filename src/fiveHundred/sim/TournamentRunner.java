@@ -0,0 +1,225 @@
+package fiveHundred.sim;
+
+import fiveHundred.ai.Strategy;
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.record.GameRecordWriter;
+import fiveHundred.record.HandRecord;
+import fiveHundred.stats.GameStatistics;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays a range of deals on every core without any display and reports each
+ * hand to {@link GameStatistics}, and optionally to a game record file.
+ *
+ * <p>
+ * The threads take the deals in batches from a shared counter, so the work stays balanced and
+ * the same deals are played whatever the number of threads.
+ */
+public class TournamentRunner
+{
+	/** The number of deals a thread takes at once. */
+	private static final int DEALS_PER_BATCH = 1024;
+
+	/** The specification of the deck the hands are played with. */
+	private final DeckSpec deckSpec;
+
+	/** The seed every hand is dealt from. */
+	private final long baseSeed;
+
+	/** The statistics every hand is reported to. */
+	private final GameStatistics statistics;
+
+	/** The file every hand is recorded to, or {@code null}. */
+	private GameRecordWriter recordWriter;
+
+	/** The strategy of each seat, or {@code null} for the heuristic at every seat. */
+	private Strategy[] strategies;
+
+	/** Receives every hand played, or {@code null}. */
+	private HandListener handListener;
+
+	/** The next deal to hand to a thread. */
+	private final AtomicLong nextDeal;
+
+	/** The first error thrown by a thread, if any. */
+	private volatile RuntimeException failure;
+
+	/**
+	 * Creates a runner.
+	 *
+	 * @param deckSpec
+	 *        The specification of the deck the hands are played with.
+	 * @param baseSeed
+	 *        The seed every hand is dealt from.
+	 * @param statistics
+	 *        The statistics every hand is reported to.
+	 */
+	public TournamentRunner(DeckSpec deckSpec, long baseSeed, GameStatistics statistics)
+	{
+		this.deckSpec = deckSpec;
+		this.baseSeed = baseSeed;
+		this.statistics = statistics;
+		nextDeal = new AtomicLong();
+	}
+
+	/**
+	 * Plays a range of deals and waits until they are all played.
+	 *
+	 * @param firstDeal
+	 *        The index of the first deal to play.
+	 * @param dealCount
+	 *        The number of deals to play.
+	 * @param threadCount
+	 *        The number of threads playing the deals.
+	 * @throws InterruptedException
+	 *         if the current thread is interrupted while waiting.
+	 * @throws RuntimeException
+	 *         if a thread failed to play a hand.
+	 */
+	public void run(long firstDeal, long dealCount, int threadCount) throws InterruptedException
+	{
+		long endDeal = firstDeal + dealCount;
+		nextDeal.set(firstDeal);
+		failure = null;
+
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; ++i)
+		{
+			threads[i] = new Thread(() -> playDeals(endDeal), "Tournament " + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * The loop of each thread. Plays batches of deals until every deal before
+	 * the end is taken.
+	 *
+	 * @param endDeal
+	 *        The index after the last deal to play.
+	 */
+	private void playDeals(long endDeal)
+	{
+		HandSimulator simulator = new HandSimulator(deckSpec, baseSeed, strategies);
+		GameRecordWriter writer = recordWriter;
+		HandListener listener = handListener;
+		try
+		{
+			while (failure == null)
+			{
+				long start = nextDeal.getAndAdd(DEALS_PER_BATCH);
+				if (start >= endDeal)
+					return;
+
+				long end = Math.min(endDeal, start + DEALS_PER_BATCH);
+				for (long dealIndex = start; dealIndex < end; ++dealIndex)
+				{
+					HandRecord record = simulator.play(dealIndex);
+					statistics.recordHand(record, simulator.getTrumpLength());
+					if (writer != null)
+						writer.append(record);
+					if (listener != null)
+						listener.handPlayed(record, simulator);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			failure = e;
+		}
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	/**
+	 * Sets the file every hand is recorded to. Must be called before
+	 * {@link #run(long, long, int)}. The writer is not closed by the runner.
+	 *
+	 * @param value
+	 *        The writer, or {@code null} not to record the hands.
+	 */
+	public void setRecordWriter(GameRecordWriter value)
+	{
+		recordWriter = value;
+	}
+
+	/**
+	 * Sets the strategy of each seat. Must be called before
+	 * {@link #run(long, long, int)}.
+	 *
+	 * @param value
+	 *        The strategy of each seat, indexed by seat, or {@code null} for
+	 *        the heuristic at every seat.
+	 */
+	public void setStrategies(Strategy[] value)
+	{
+		strategies = value == null ? null : value.clone();
+	}
+
+	/**
+	 * Sets the listener receiving every hand played. Must be called before
+	 * {@link #run(long, long, int)}.
+	 *
+	 * @param value
+	 *        The listener, or {@code null}.
+	 */
+	public void setHandListener(HandListener value)
+	{
+		handListener = value;
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Plays a tournament from the command line and prints its statistics.
+	 *
+	 * <p>
+	 * Arguments: the number of players, the number of deals, then optionally the number of
+	 * threads, the base seed and the path of a game record file to create.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: TournamentRunner <players> <deals> [threads] [seed] [record file]");
+			System.exit(1);
+		}
+
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[0]));
+		long deals = Long.parseLong(args[1]);
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+		GameStatistics statistics = new GameStatistics();
+		TournamentRunner runner = new TournamentRunner(deckSpec, seed, statistics);
+		GameRecordWriter writer = args.length > 4 ? new GameRecordWriter(Paths.get(args[4]), deckSpec, seed) : null;
+		runner.setRecordWriter(writer);
+
+		long start = System.nanoTime();
+		try
+		{
+			runner.run(0, deals, threads);
+		}
+		finally
+		{
+			if (writer != null)
+				writer.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		statistics.snapshot().print(System.out, deckSpec.getNumberOfPlayers());
+		System.out.printf("%d hands in %.2f s (%.0f hands/s) on %d threads, seed %d%n", deals, seconds, deals
+				/ seconds, threads, seed);
+	}
+}
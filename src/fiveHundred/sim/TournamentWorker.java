@@ -0,0 +1,93 @@
+package fiveHundred.sim;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.stats.GameStatistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A child process of a {@link TournamentCoordinator}. The worker reads the
+ * ranges of deals to play from its standard input, plays each one with a
+ * {@link TournamentRunner} on its own statistics, and writes the statistics of
+ * the range back to its standard output, so nothing else may be printed
+ * there.
+ *
+ * <p>
+ * The messages are written with {@link java.io.DataOutput}, each starting with its type:
+ * <ul>
+ * <li>{@link #UNIT}, from the coordinator: the index of the unit, its first deal and its number of
+ * deals;</li>
+ * <li>{@link #DONE}, from the worker: the index of the unit and its
+ * {@link fiveHundred.stats.StatisticsSnapshot}.</li>
+ * </ul>
+ * The worker stops when its input ends.
+ */
+public class TournamentWorker
+{
+	/** A range of deals to play. */
+	static final int UNIT = 1;
+
+	/** The statistics of a range of deals played. */
+	static final int DONE = 2;
+
+	private TournamentWorker()
+	{
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Plays the ranges of deals a coordinator sends until its input ends.
+	 *
+	 * <p>
+	 * Arguments: the number of players, the base seed and the number of threads.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: TournamentWorker <players> <seed> <threads>");
+			System.exit(1);
+		}
+
+		DeckSpec deckSpec = DeckSpec.forPlayers(Integer.parseInt(args[0]));
+		long seed = Long.parseLong(args[1]);
+		int threads = Integer.parseInt(args[2]);
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+		while (true)
+		{
+			int type;
+			try
+			{
+				type = in.readByte();
+			}
+			catch (EOFException e)
+			{
+				return;
+			}
+			if (type != UNIT)
+				throw new IOException("Unknown message " + type);
+
+			int unit = in.readInt();
+			long firstDeal = in.readLong();
+			long dealCount = in.readLong();
+			GameStatistics statistics = new GameStatistics();
+			new TournamentRunner(deckSpec, seed, statistics).run(firstDeal, dealCount, threads);
+
+			out.writeByte(DONE);
+			out.writeInt(unit);
+			statistics.snapshot().write(out);
+			out.flush();
+		}
+	}
+}
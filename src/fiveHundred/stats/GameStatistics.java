@@ -0,0 +1,200 @@
+package fiveHundred.stats;
+
+import fiveHundred.cards.DeckSpec;
+import fiveHundred.record.HandRecord;
+import fiveHundred.rules.Bid;
+import fiveHundred.rules.FiveHundredRules;
+
+/**
+ * Gathers statistics on the outcome of many hands: how often each bid is
+ * taken and made, how many tricks the contractor's side wins for each length
+ * of trump it holds and the score swing of each seat.
+ *
+ * <p>
+ * Any number of threads can report hands at the same time. Recording a hand only adds to
+ * {@link StripedCounters}, so it takes no lock and allocates nothing. A snapshot can be taken at
+ * any time, even while hands are reported.
+ */
+public class GameStatistics
+{
+	/** The largest number of players at a table. */
+	public static final int MAX_PLAYERS = 6;
+
+	/** The buckets of the score swing histogram of each seat. */
+	public static final Histogram SCORE_SWINGS = new Histogram(-520, 20, 53);
+
+	/** The number of trick counts a side can reach, from 0 to a whole hand. */
+	static final int TRICK_VALUES = DeckSpec.HAND_SIZE + 1;
+
+	/** The number of bids. */
+	private static final int BID_COUNT = Bid.values().length;
+
+	/** The counter of the number of hands. */
+	static final int HANDS = 0;
+
+	/** The first counter of the number of times each bid won the auction. */
+	static final int BIDS_TAKEN = HANDS + 1;
+
+	/** The first counter of the number of times each bid was made. */
+	static final int BIDS_MADE = BIDS_TAKEN + BID_COUNT;
+
+	/**
+	 * The first counter of the number of tricks won by the contractor's side,
+	 * indexed by the contractor's trump length then by the number of tricks.
+	 */
+	static final int TRICKS = BIDS_MADE + BID_COUNT;
+
+	/** The first counter of the sum of the score swings of each seat. */
+	static final int SCORE_TOTALS = TRICKS + TRICK_VALUES * TRICK_VALUES;
+
+	/** The first counter of the score swing histogram of each seat. */
+	static final int SCORE_SWING_COUNTS = SCORE_TOTALS + MAX_PLAYERS;
+
+	/** The number of counters. */
+	static final int COUNTER_COUNT = SCORE_SWING_COUNTS + MAX_PLAYERS * SCORE_SWINGS.getBucketCount();
+
+	/** The counters. */
+	private final StripedCounters counters;
+
+	/**
+	 * Creates empty statistics.
+	 */
+	public GameStatistics()
+	{
+		counters = new StripedCounters(COUNTER_COUNT);
+	}
+
+	/**
+	 * Reports the outcome of a hand.
+	 *
+	 * @param bid
+	 *        The highest bid of the hand, {@link Bid#PASS} if every player
+	 *        passed.
+	 * @param contractor
+	 *        The index of the highest bidder.
+	 * @param trumpLength
+	 *        The number of trumps in the contractor's hand when the play
+	 *        started.
+	 * @param tricksWon
+	 *        The number of tricks won by each player, indexed by player.
+	 * @param scoreDeltas
+	 *        The points scored by each player, indexed by player.
+	 */
+	public void recordHand(Bid bid, int contractor, int trumpLength, int[] tricksWon, int[] scoreDeltas)
+	{
+		int numberOfPlayers = tricksWon.length;
+		int sideTricks = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (FiveHundredRules.arePartners(i, contractor, numberOfPlayers))
+				sideTricks += tricksWon[i];
+		}
+
+		int stripe = counters.getStripe();
+		recordContract(stripe, bid, trumpLength, sideTricks);
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			recordScore(stripe, seat, scoreDeltas[seat]);
+		}
+	}
+
+	/**
+	 * Reports the outcome of a recorded hand.
+	 *
+	 * @param record
+	 *        The hand. It must be complete.
+	 * @param trumpLength
+	 *        The number of trumps in the contractor's hand when the play
+	 *        started.
+	 */
+	public void recordHand(HandRecord record, int trumpLength)
+	{
+		int numberOfPlayers = record.getNumberOfPlayers();
+		int contractor = record.getContractor();
+		int sideTricks = 0;
+		for (int i = 0; i < numberOfPlayers; ++i)
+		{
+			if (FiveHundredRules.arePartners(i, contractor, numberOfPlayers))
+				sideTricks += record.getTricksWon(i);
+		}
+
+		int stripe = counters.getStripe();
+		recordContract(stripe, record.getHighestBid(), trumpLength, sideTricks);
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			recordScore(stripe, seat, record.getScoreDelta(seat));
+		}
+	}
+
+	/**
+	 * Counts a hand and the outcome of its contract.
+	 *
+	 * @param stripe
+	 *        The stripe of the current thread.
+	 * @param bid
+	 *        The highest bid of the hand.
+	 * @param trumpLength
+	 *        The number of trumps in the contractor's hand.
+	 * @param sideTricks
+	 *        The number of tricks won by the contractor's side.
+	 */
+	private void recordContract(int stripe, Bid bid, int trumpLength, int sideTricks)
+	{
+		counters.add(stripe, HANDS, 1);
+		counters.add(stripe, BIDS_TAKEN + bid.ordinal(), 1);
+		if (bid == Bid.PASS)
+			return;
+
+		if (sideTricks >= bid.getTricksToWin())
+			counters.add(stripe, BIDS_MADE + bid.ordinal(), 1);
+		counters.add(stripe, TRICKS + Math.min(trumpLength, DeckSpec.HAND_SIZE) * TRICK_VALUES + sideTricks, 1);
+	}
+
+	/**
+	 * Counts the score swing of a seat.
+	 *
+	 * @param stripe
+	 *        The stripe of the current thread.
+	 * @param seat
+	 *        The index of the seat.
+	 * @param scoreDelta
+	 *        The points scored by the seat.
+	 */
+	private void recordScore(int stripe, int seat, int scoreDelta)
+	{
+		counters.add(stripe, SCORE_TOTALS + seat, scoreDelta);
+		counters.add(stripe, SCORE_SWING_COUNTS + seat * SCORE_SWINGS.getBucketCount()
+				+ SCORE_SWINGS.getBucket(scoreDelta), 1);
+	}
+
+	/**
+	 * Adds the counts of a snapshot to these statistics, typically to merge
+	 * the statistics gathered elsewhere.
+	 *
+	 * @param snapshot
+	 *        The snapshot to add.
+	 */
+	public void add(StatisticsSnapshot snapshot)
+	{
+		int stripe = counters.getStripe();
+		for (int counter = 0; counter < COUNTER_COUNT; ++counter)
+		{
+			long value = snapshot.getCounter(counter);
+			if (value != 0)
+				counters.add(stripe, counter, value);
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the statistics. Hands reported while the snapshot is
+	 * taken may be partly included.
+	 *
+	 * @return a new snapshot.
+	 */
+	public StatisticsSnapshot snapshot()
+	{
+		long[] values = new long[COUNTER_COUNT];
+		counters.getAll(values);
+		return new StatisticsSnapshot(values);
+	}
+}
@@ -0,0 +1,115 @@
+package fiveHundred.stats;
+
+/**
+ * The buckets of a histogram of integer values. Every bucket covers the same
+ * number of values; the first and last buckets also receive the values below
+ * and above the range. A histogram only describes its buckets: the counts are
+ * kept by the caller, typically in {@link StripedCounters}.
+ */
+public class Histogram
+{
+	/** The smallest value of the first bucket. */
+	private final int min;
+
+	/** The number of values covered by each bucket. */
+	private final int bucketWidth;
+
+	/** The number of buckets. */
+	private final int bucketCount;
+
+	/**
+	 * Creates the buckets of a histogram.
+	 *
+	 * @param min
+	 *        The smallest value of the first bucket.
+	 * @param bucketWidth
+	 *        The number of values covered by each bucket.
+	 * @param bucketCount
+	 *        The number of buckets.
+	 */
+	public Histogram(int min, int bucketWidth, int bucketCount)
+	{
+		if (bucketWidth <= 0 || bucketCount <= 0)
+			throw new IllegalArgumentException("A histogram needs at least one bucket of one value.");
+		this.min = min;
+		this.bucketWidth = bucketWidth;
+		this.bucketCount = bucketCount;
+	}
+
+	/**
+	 * Returns the bucket of a value.
+	 *
+	 * @param value
+	 *        The value.
+	 * @return the index of the bucket receiving the value.
+	 */
+	public int getBucket(int value)
+	{
+		if (value < min)
+			return 0;
+		return (int) Math.min(bucketCount - 1, ((long) value - min) / bucketWidth);
+	}
+
+	/**
+	 * Returns the smallest value of a bucket.
+	 *
+	 * @param bucket
+	 *        The index of the bucket.
+	 * @return the smallest value of the bucket.
+	 */
+	public int getBucketMin(int bucket)
+	{
+		return min + bucket * bucketWidth;
+	}
+
+	/**
+	 * Returns the approximate value below which a fraction of the values fall.
+	 * The value returned is the middle of the bucket where the fraction is
+	 * reached.
+	 *
+	 * @param counts
+	 *        The count of each bucket.
+	 * @param offset
+	 *        The index in {@code counts} of the count of the first bucket.
+	 * @param fraction
+	 *        The fraction of the values, between 0 and 1.
+	 * @return the value, or 0 if there is no value.
+	 */
+	public int getPercentile(long[] counts, int offset, double fraction)
+	{
+		long total = 0;
+		for (int bucket = 0; bucket < bucketCount; ++bucket)
+		{
+			total += counts[offset + bucket];
+		}
+		if (total == 0)
+			return 0;
+
+		long target = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for (int bucket = 0; bucket < bucketCount; ++bucket)
+		{
+			seen += counts[offset + bucket];
+			if (seen >= target && seen > 0)
+				return getBucketMin(bucket) + bucketWidth / 2;
+		}
+		return getBucketMin(bucketCount - 1) + bucketWidth / 2;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getMin()
+	{
+		return min;
+	}
+
+	public int getBucketWidth()
+	{
+		return bucketWidth;
+	}
+
+	public int getBucketCount()
+	{
+		return bucketCount;
+	}
+}
@@ -0,0 +1,240 @@
+package fiveHundred.stats;
+
+import fiveHundred.rules.Bid;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * The values of {@link GameStatistics} at one moment. A snapshot doesn't
+ * change once taken.
+ */
+public class StatisticsSnapshot
+{
+	/** The value of each counter, laid out as in {@link GameStatistics}. */
+	private final long[] counters;
+
+	/**
+	 * Creates a snapshot.
+	 *
+	 * @param counters
+	 *        The value of each counter. The array is not copied.
+	 */
+	StatisticsSnapshot(long[] counters)
+	{
+		this.counters = counters;
+	}
+
+	/**
+	 * Returns the fraction of the contracts of a bid that were made.
+	 *
+	 * @param bid
+	 *        The bid.
+	 * @return the make rate, or {@code NaN} if the bid never won the auction.
+	 */
+	public double getMakeRate(Bid bid)
+	{
+		return (double) getBidsMade(bid) / getBidsTaken(bid);
+	}
+
+	/**
+	 * Returns the average number of tricks won by the contractor's side when
+	 * the contractor held a number of trumps.
+	 *
+	 * @param trumpLength
+	 *        The number of trumps in the contractor's hand.
+	 * @return the average number of tricks, or {@code NaN} if no contractor
+	 *         held that many trumps.
+	 */
+	public double getAverageTricks(int trumpLength)
+	{
+		long hands = 0, tricks = 0;
+		for (int i = 0; i < GameStatistics.TRICK_VALUES; ++i)
+		{
+			long count = getTrickCount(trumpLength, i);
+			hands += count;
+			tricks += count * i;
+		}
+		return (double) tricks / hands;
+	}
+
+	/**
+	 * Returns the average points scored by a seat in each hand.
+	 *
+	 * @param seat
+	 *        The index of the seat.
+	 * @return the average score swing of the seat.
+	 */
+	public double getAverageScore(int seat)
+	{
+		return (double) getScoreTotal(seat) / getHands();
+	}
+
+	/**
+	 * Returns the approximate score swing of a seat below which a fraction of
+	 * its swings fall.
+	 *
+	 * @param seat
+	 *        The index of the seat.
+	 * @param fraction
+	 *        The fraction of the swings, between 0 and 1.
+	 * @return the score swing.
+	 */
+	public int getScoreSwingPercentile(int seat, double fraction)
+	{
+		return GameStatistics.SCORE_SWINGS.getPercentile(counters, GameStatistics.SCORE_SWING_COUNTS + seat
+				* GameStatistics.SCORE_SWINGS.getBucketCount(), fraction);
+	}
+
+	/**
+	 * Prints a summary of the statistics.
+	 *
+	 * @param out
+	 *        The stream to print to.
+	 * @param numberOfPlayers
+	 *        The number of seats to print.
+	 */
+	public void print(PrintStream out, int numberOfPlayers)
+	{
+		out.printf("Hands: %d%n", getHands());
+		out.println("Bid                 Taken      Made  Make rate");
+		for (Bid bid : Bid.values())
+		{
+			if (bid != Bid.PASS && getBidsTaken(bid) > 0)
+				out.printf("%-16s %8d  %8d  %8.1f%%%n", bid.getName(), getBidsTaken(bid), getBidsMade(bid),
+						100 * getMakeRate(bid));
+		}
+		out.printf("%-16s %8d%n", Bid.PASS.getName(), getBidsTaken(Bid.PASS));
+
+		out.println("Trumps  Contracts  Average tricks");
+		for (int trumpLength = 0; trumpLength < GameStatistics.TRICK_VALUES; ++trumpLength)
+		{
+			long contracts = 0;
+			for (int i = 0; i < GameStatistics.TRICK_VALUES; ++i)
+			{
+				contracts += getTrickCount(trumpLength, i);
+			}
+			if (contracts > 0)
+				out.printf("%6d  %9d  %14.2f%n", trumpLength, contracts, getAverageTricks(trumpLength));
+		}
+
+		out.println("Seat  Average score  Median swing  5% swing  95% swing");
+		for (int seat = 0; seat < numberOfPlayers; ++seat)
+		{
+			out.printf("%4d  %13.1f  %12d  %8d  %9d%n", seat, getAverageScore(seat),
+					getScoreSwingPercentile(seat, 0.5), getScoreSwingPercentile(seat, 0.05),
+					getScoreSwingPercentile(seat, 0.95));
+		}
+	}
+
+	/**
+	 * Writes the counters of the snapshot, typically to send them to another
+	 * process or to save them. {@link #read(DataInput)} reads them back.
+	 *
+	 * @param out
+	 *        The output.
+	 * @throws IOException
+	 *         if the output can't be written.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(counters.length);
+		for (long counter : counters)
+		{
+			out.writeLong(counter);
+		}
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public long getHands()
+	{
+		return counters[GameStatistics.HANDS];
+	}
+
+	public long getBidsTaken(Bid bid)
+	{
+		return counters[GameStatistics.BIDS_TAKEN + bid.ordinal()];
+	}
+
+	public long getBidsMade(Bid bid)
+	{
+		return counters[GameStatistics.BIDS_MADE + bid.ordinal()];
+	}
+
+	/**
+	 * Returns the number of hands in which the contractor held a number of
+	 * trumps and the contractor's side won a number of tricks.
+	 *
+	 * @param trumpLength
+	 *        The number of trumps in the contractor's hand.
+	 * @param tricks
+	 *        The number of tricks won by the contractor's side.
+	 * @return the number of hands.
+	 */
+	public long getTrickCount(int trumpLength, int tricks)
+	{
+		return counters[GameStatistics.TRICKS + trumpLength * GameStatistics.TRICK_VALUES + tricks];
+	}
+
+	public long getScoreTotal(int seat)
+	{
+		return counters[GameStatistics.SCORE_TOTALS + seat];
+	}
+
+	/**
+	 * Returns the number of hands in which a seat's score swing fell in a
+	 * bucket of {@link GameStatistics#SCORE_SWINGS}.
+	 *
+	 * @param seat
+	 *        The index of the seat.
+	 * @param bucket
+	 *        The index of the bucket.
+	 * @return the number of hands.
+	 */
+	public long getScoreSwingCount(int seat, int bucket)
+	{
+		return counters[GameStatistics.SCORE_SWING_COUNTS + seat * GameStatistics.SCORE_SWINGS.getBucketCount()
+				+ bucket];
+	}
+
+	/**
+	 * Returns the raw value of a counter, as laid out by
+	 * {@link GameStatistics}.
+	 *
+	 * @param counter
+	 *        The index of the counter.
+	 * @return the value of the counter.
+	 */
+	long getCounter(int counter)
+	{
+		return counters[counter];
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Reads the counters written by {@link #write(DataOutput)}.
+	 *
+	 * @param in
+	 *        The input.
+	 * @return the snapshot.
+	 * @throws IOException
+	 *         if the input can't be read or wasn't written with the same
+	 *         counters.
+	 */
+	public static StatisticsSnapshot read(DataInput in) throws IOException
+	{
+		int count = in.readInt();
+		if (count != GameStatistics.COUNTER_COUNT)
+			throw new IOException("Expected " + GameStatistics.COUNTER_COUNT + " counters, not " + count + ".");
+		long[] counters = new long[count];
+		for (int i = 0; i < count; ++i)
+		{
+			counters[i] = in.readLong();
+		}
+		return new StatisticsSnapshot(counters);
+	}
+}
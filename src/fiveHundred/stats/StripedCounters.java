@@ -0,0 +1,153 @@
+package fiveHundred.stats;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed set of counters that many threads can increment at the same time
+ * without locks.
+ *
+ * <p>
+ * Every counter is split into several stripes and each thread adds to the stripe its id maps to,
+ * so threads rarely update the same cache line. Each stripe is padded to whole cache lines. A
+ * counter's value is the sum of its stripes, which is computed when it is read. The value read
+ * while other threads are adding is not an atomic snapshot of every counter, but each addition is
+ * counted exactly once.
+ */
+public class StripedCounters
+{
+	/** The number of longs in a cache line. */
+	private static final int LONGS_PER_CACHE_LINE = 8;
+
+	/** The number of stripes, a power of two. */
+	private static final int STRIPE_COUNT = Math.min(64,
+			Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1);
+
+	/** Gives atomic access to the elements of the cells array. */
+	private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/** The number of counters. */
+	private final int counterCount;
+
+	/** The distance between the first cells of two stripes. */
+	private final int stripeSize;
+
+	/**
+	 * The cells of every stripe, one after the other. A cache line of padding
+	 * comes before the first stripe.
+	 */
+	private final long[] cells;
+
+	/**
+	 * Creates a set of counters starting at zero.
+	 *
+	 * @param counterCount
+	 *        The number of counters.
+	 */
+	public StripedCounters(int counterCount)
+	{
+		this.counterCount = counterCount;
+		stripeSize = (counterCount + 2 * LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE * LONGS_PER_CACHE_LINE;
+		cells = new long[LONGS_PER_CACHE_LINE + STRIPE_COUNT * stripeSize];
+	}
+
+	/**
+	 * Returns the offset of the stripe of the current thread. Pass it to
+	 * {@link #add(int, int, long)} to update several counters for one event.
+	 *
+	 * @return the offset of the stripe of the current thread.
+	 */
+	public int getStripe()
+	{
+		long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return LONGS_PER_CACHE_LINE + ((int) (hash >>> 40) & (STRIPE_COUNT - 1)) * stripeSize;
+	}
+
+	/**
+	 * Adds a value to a counter.
+	 *
+	 * @param counter
+	 *        The index of the counter.
+	 * @param delta
+	 *        The value to add.
+	 */
+	public void add(int counter, long delta)
+	{
+		add(getStripe(), counter, delta);
+	}
+
+	/**
+	 * Adds a value to a counter in a stripe.
+	 *
+	 * @param stripe
+	 *        The stripe, as returned by {@link #getStripe()}.
+	 * @param counter
+	 *        The index of the counter.
+	 * @param delta
+	 *        The value to add.
+	 */
+	public void add(int stripe, int counter, long delta)
+	{
+		CELLS.getAndAdd(cells, stripe + checkIndex(counter), delta);
+	}
+
+	/**
+	 * Returns the value of a counter.
+	 *
+	 * @param counter
+	 *        The index of the counter.
+	 * @return the sum of every value added to the counter.
+	 */
+	public long get(int counter)
+	{
+		checkIndex(counter);
+		long sum = 0;
+		for (int stripe = LONGS_PER_CACHE_LINE; stripe < cells.length; stripe += stripeSize)
+		{
+			sum += (long) CELLS.getOpaque(cells, stripe + counter);
+		}
+		return sum;
+	}
+
+	/**
+	 * Copies the value of every counter.
+	 *
+	 * @param values
+	 *        Receives the value of each counter, indexed by counter.
+	 */
+	public void getAll(long[] values)
+	{
+		for (int counter = 0; counter < counterCount; ++counter)
+		{
+			values[counter] = 0;
+		}
+		for (int stripe = LONGS_PER_CACHE_LINE; stripe < cells.length; stripe += stripeSize)
+		{
+			for (int counter = 0; counter < counterCount; ++counter)
+			{
+				values[counter] += (long) CELLS.getOpaque(cells, stripe + counter);
+			}
+		}
+	}
+
+	/**
+	 * Checks that a counter exists.
+	 *
+	 * @param counter
+	 *        The index of the counter.
+	 * @return the index of the counter.
+	 */
+	private int checkIndex(int counter)
+	{
+		if (counter < 0 || counter >= counterCount)
+			throw new IndexOutOfBoundsException("Counter " + counter + " out of " + counterCount + ".");
+		return counter;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	public int getCounterCount()
+	{
+		return counterCount;
+	}
+}
@@ -10,6 +10,7 @@ import gameCore.time.TimeSpan;
 import java.awt.Canvas;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
@@ -238,6 +239,24 @@ public abstract class GameCore extends Canvas implements Runnable
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		frame.setLocationRelativeTo(null);
 
+		// The game is considered paused while its window is minimized.
+		frame.addWindowListener(new WindowAdapter() {
+			public void windowIconified(WindowEvent e)
+			{
+				onDeactivated();
+			}
+
+			public void windowDeiconified(WindowEvent e)
+			{
+				onActivated();
+			}
+
+			public void windowClosing(WindowEvent e)
+			{
+				onExiting();
+			}
+		});
+
 		// Initialize the buffer strategy
 		createBufferStrategy(3);
 		buffStrat = getBufferStrategy();
@@ -258,6 +277,7 @@ public abstract class GameCore extends Canvas implements Runnable
 	public synchronized void stop()
 	{
 		isRunning = false;
+		onExiting();
 		// simulate clicking on the X button on the frame to close it.
 		frame.dispatchEvent(new WindowEvent(frame, WindowEvent.WINDOW_CLOSING));
 		try
@@ -494,6 +514,34 @@ public abstract class GameCore extends Canvas implements Runnable
 	 */
 	protected abstract void draw(GameTime gameTime);
 
+	/**
+	 * Called when the game window is restored after being minimized. Override
+	 * this method to resume work that was paused in {@code onDeactivated}.
+	 * 
+	 * <p>
+	 * This method is called on the event dispatch thread, not on the game thread.
+	 */
+	protected void onActivated()
+	{}
+
+	/**
+	 * Called when the game window is minimized, which pauses the game. Override
+	 * this method to stop any background work while the game is paused.
+	 * 
+	 * <p>
+	 * This method is called on the event dispatch thread, not on the game thread.
+	 */
+	protected void onDeactivated()
+	{}
+
+	/**
+	 * Called when the game is about to exit. Override this method to stop any
+	 * background work before the game closes. This method can be called more
+	 * than once.
+	 */
+	protected void onExiting()
+	{}
+
 	/** Draws the image from the buffer to the screen */
 	private void drawImageToScreen()
 	{
@@ -0,0 +1,124 @@
+package gameCore.graphics;
+
+import gameCore.graphics.SpriteBatch.BlendState;
+
+import java.awt.Rectangle;
+
+/**
+ * Measures how many pixels of the card sprites {@link SpriteBatch} blends per
+ * second. It compares the premultiplied sprites, the same sprites blended
+ * from their straight colors, as resized sprites are, and the former blend
+ * which divided each component by 255.
+ */
+public class BlendBenchmark
+{
+	/** The width and height of the screen, those of the table. */
+	private static final int WIDTH = 800, HEIGHT = 520;
+
+	/** The card sprites drawn in turn. */
+	private static final Sprite[] CARDS = { Sprite.clubAce, Sprite.diamond10, Sprite.spadeQ, Sprite.heartK,
+			Sprite.firstJoker, Sprite.cardBackRed, Sprite.cardHighlight };
+
+	private BlendBenchmark()
+	{
+	}
+
+	// ++++++++++ Static methods ++++++++++ //
+
+	/**
+	 * Draws the cards all over the screen, in each way, and prints the pixels
+	 * blended per second.
+	 *
+	 * <p>
+	 * Arguments: optionally the number of rounds, which defaults to 5, each drawing 200 000 cards
+	 * in each way.
+	 *
+	 * @param args
+	 *        The command line arguments.
+	 */
+	public static void main(String[] args)
+	{
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int draws = 200000;
+		SpriteBatch spriteBatch = new SpriteBatch(WIDTH, HEIGHT);
+		for (int round = 0; round < rounds; ++round)
+		{
+			long pixels = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < draws; ++i)
+			{
+				Sprite card = CARDS[i % CARDS.length];
+				spriteBatch.draw(card, getX(i), getY(i), BlendState.ALPHA_BLEND);
+				pixels += card.getWidth() * card.getHeight();
+			}
+			long premultiplied = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < draws; ++i)
+			{
+				Sprite card = CARDS[i % CARDS.length];
+				spriteBatch.draw(card, new Rectangle(getX(i), getY(i), card.getWidth(), card.getHeight()),
+						SpriteBatch.InterpolationType.NEAREST_NEIGHBOR, BlendState.ALPHA_BLEND);
+			}
+			long straight = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < draws; ++i)
+			{
+				blendDividing(spriteBatch, CARDS[i % CARDS.length], getX(i), getY(i));
+			}
+			long dividing = System.nanoTime() - start;
+
+			System.out.printf("premultiplied %.0f Mpixels/s, straight %.0f Mpixels/s, dividing %.0f Mpixels/s%n",
+					pixels * 1e3 / premultiplied, pixels * 1e3 / straight, pixels * 1e3 / dividing);
+		}
+	}
+
+	/**
+	 * Returns the x position of a card, inside the screen.
+	 */
+	private static int getX(int draw)
+	{
+		return draw * 37 % (WIDTH - 110);
+	}
+
+	/**
+	 * Returns the y position of a card, inside the screen.
+	 */
+	private static int getY(int draw)
+	{
+		return draw * 53 % (HEIGHT - 110);
+	}
+
+	/**
+	 * Blends a sprite inside the screen the way {@link SpriteBatch} did
+	 * before its sprites were premultiplied, dividing each component by 255.
+	 */
+	private static void blendDividing(SpriteBatch spriteBatch, Sprite sprite, int xDestPos, int yDestPos)
+	{
+		int[] screenPixels = spriteBatch.screenPixels;
+		for (int y = 0; y < sprite.getHeight(); y++)
+		{
+			int screenIndex = xDestPos + (y + yDestPos) * WIDTH;
+			int spriteIndex = y * sprite.getWidth();
+			for (int x = 0; x < sprite.getWidth(); x++)
+			{
+				int foregroundCol = sprite.pixels[spriteIndex + x];
+				int foregroundAlpha = foregroundCol >>> 24;
+				if (foregroundAlpha == 255)
+				{
+					screenPixels[screenIndex + x] = foregroundCol;
+					continue;
+				}
+				int backgroundCol = screenPixels[screenIndex + x];
+				int r = (((foregroundCol >> 16) & 0xff) * foregroundAlpha / 255)
+						+ (((backgroundCol >> 16) & 0xff) * (255 - foregroundAlpha) / 255);
+				int g = (((foregroundCol >> 8) & 0xff) * foregroundAlpha / 255)
+						+ (((backgroundCol >> 8) & 0xff) * (255 - foregroundAlpha) / 255);
+				int b = ((foregroundCol & 0xff) * foregroundAlpha / 255)
+						+ ((backgroundCol & 0xff) * (255 - foregroundAlpha) / 255);
+				screenPixels[screenIndex + x] = r << 16 | g << 8 | b;
+			}
+		}
+	}
+}
@@ -79,6 +79,9 @@ public class Sprite
 	// Card highlight for selected card
 	public static Sprite cardHighlight = new Sprite(85, 110, 0, 0, SpriteSheet.cardHighlight);
 
+	// Blank card used to create the cards that don't have an image
+	public static Sprite blankCard = new Sprite("/images/cards/zBlank.png");
+
 	// The size of the sprite (if width == height)
 	public final int SIZE;
 
@@ -88,8 +91,12 @@ public class Sprite
 	// The x and y starting location of the sprite on a sheet
 	private int x, y;
 
-	// The array of pixels of the sprite
-	public int[] pixels;
+	// The array of pixels of the sprite, only written while it is created
+	protected int[] pixels;
+
+	// The pixels with their colors premultiplied by their alpha, converted
+	// once the pixels are loaded
+	private int[] premultipliedPixels;
 
 	protected SpriteSheet sheet;
 
@@ -201,6 +208,7 @@ public class Sprite
 		{
 			this.pixels[i] = pixels[i];
 		}
+		premultiply();
 	}
 
 	private void setColor(int color)
@@ -209,6 +217,7 @@ public class Sprite
 		{
 			pixels[i] = color;
 		}
+		premultiply();
 	}
 
 	private void load()
@@ -220,6 +229,7 @@ public class Sprite
 				pixels[x + y * width] = sheet.pixels[(x + this.x) + (y + this.y) * sheet.SPRITE_WIDTH];
 			}
 		}
+		premultiply();
 	}
 
 	private void load(String path)
@@ -233,6 +243,7 @@ public class Sprite
 			this.height = image.getHeight();
 			pixels = new int[width * height];
 			image.getRGB(0, 0, width, height, pixels, 0, width);
+			premultiply();
 		}
 		catch (IOException e)
 		{
@@ -244,6 +255,43 @@ public class Sprite
 		}
 	}
 
+	/**
+	 * Converts the pixels once they are loaded, so drawing the sprite never
+	 * has to.
+	 */
+	private void premultiply()
+	{
+		premultipliedPixels = new int[pixels.length];
+		for (int i = 0; i < pixels.length; i++)
+		{
+			premultipliedPixels[i] = SpriteBatch.premultiply(pixels[i]);
+		}
+	}
+
+	/**
+	 * Returns a copy of the pixels of the sprite.
+	 * 
+	 * @return The pixels in the ARGB format.
+	 */
+	public int[] getPixels()
+	{
+		return pixels.clone();
+	}
+
+	/**
+	 * Returns the pixels of the sprite with the color of each one
+	 * premultiplied by its alpha, so blending them with the screen only takes
+	 * the share of the background. They are converted when the sprite is
+	 * created.
+	 * 
+	 * @return The premultiplied pixels in the ARGB format, which mustn't be
+	 *         changed.
+	 */
+	public int[] getPremultipliedPixels()
+	{
+		return premultipliedPixels;
+	}
+
 	public int getWidth()
 	{
 		return width;
@@ -86,11 +86,62 @@ public class SpriteBatch
 	 */
 	private int xOffset, yOffset;
 
+	/**
+	 * The rectangle of the screen the sprites are drawn in, the right and
+	 * bottom bounds excluded. The whole screen by default.
+	 */
+	private int clipLeft, clipTop, clipRight, clipBottom;
+
 	public SpriteBatch(int width, int height)
 	{
 		this.width = width;
 		this.height = height;
 		screenPixels = new int[width * height];
+		resetClip();
+	}
+
+	/**
+	 * Restricts the drawing of the sprites to a rectangle of the screen, so a
+	 * panel can't draw outside its bounds. The part of the rectangle outside
+	 * the screen is ignored.
+	 * 
+	 * @param x
+	 *        The x position of the top left corner of the clip rectangle.
+	 * @param y
+	 *        The y position of the top left corner of the clip rectangle.
+	 * @param clipWidth
+	 *        The width of the clip rectangle in pixels.
+	 * @param clipHeight
+	 *        The height of the clip rectangle in pixels.
+	 */
+	public void setClip(int x, int y, int clipWidth, int clipHeight)
+	{
+		clipLeft = Math.max(0, x);
+		clipTop = Math.max(0, y);
+		clipRight = (int) Math.max(clipLeft, Math.min(width, (long) x + clipWidth));
+		clipBottom = (int) Math.max(clipTop, Math.min(height, (long) y + clipHeight));
+	}
+
+	/**
+	 * Restricts the drawing of the sprites to a rectangle of the screen.
+	 * 
+	 * @param clip
+	 *        The clip rectangle, or {@code null} to draw on the whole screen.
+	 */
+	public void setClip(Rectangle clip)
+	{
+		if (clip == null)
+			resetClip();
+		else
+			setClip(clip.x, clip.y, clip.width, clip.height);
+	}
+
+	/**
+	 * Lets the sprites be drawn on the whole screen again.
+	 */
+	public void resetClip()
+	{
+		setClip(0, 0, width, height);
 	}
 
 	/**
@@ -195,82 +246,9 @@ public class SpriteBatch
 	public void renderSprite(Sprite sprite, int xDestPos, int yDestPos, Color tint, float alphaFactor, int alphaColor,
 			BlendState blendState) throws NullPointerException
 	{
-
 		checkValidSprite(sprite);
-
-		// Extract our tint components
-		int rTint = tint.getRed();
-		int gTint = tint.getGreen();
-		int bTint = tint.getBlue();
-
-		// Calculate the new foreground color alpha component
-		int foregroundAlpha = (int) (alphaFactor * 255);
-
-		for (int y = 0; y < sprite.getHeight(); y++)
-		{
-			int ya = y + yDestPos;
-			for (int x = 0; x < sprite.getWidth(); x++)
-			{
-				int xa = x + xDestPos;
-
-				// The color of the pixel about to be drawn.
-				int foregroundCol = sprite.pixels[x + y * sprite.getWidth()];
-
-				// If current pixel is out of screen bounds or current pixel
-				// color equals alphaColor, skip it.
-				if (xa < 0 || xa >= width || ya < 0 || ya >= height || foregroundCol == alphaColor)
-					continue;
-
-				// The alpha value of the pixel about to be drawn.
-				if (alphaFactor < 0.0f)
-				{
-					foregroundAlpha = (foregroundCol >> 24) & 0xff;
-				}
-				// The color of the pixel already there.
-				int backgroundCol = screenPixels[xa + ya * width];
-				// The resulting color of the pixel to be drawn
-				int color;
-
-				// The components of the pixel about to be drawn.
-				int foregroundR = (foregroundCol >> 16) & 0xff;
-				int foregroundG = (foregroundCol >> 8) & 0xff;
-				int foregroundB = (foregroundCol) & 0xff;
-
-				// Using Color.WHITE would have no effect so skip this
-				if (!tint.equals(Color.WHITE))
-				{
-					// Typical tint formula -> original component * tint / 255
-					foregroundR = foregroundR * rTint / 255;
-					foregroundG = foregroundG * gTint / 255;
-					foregroundB = foregroundB * bTint / 255;
-				}
-
-				// If alpha is 255 it completely overrides the existing color.
-				if (foregroundAlpha == 255 || blendState == BlendState.OPAQUE)
-				{
-					color = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				else if (blendState == BlendState.ALPHA_BLEND)
-				{
-					// Do the alpha-blending.
-					int backgroundR = (backgroundCol >> 16) & 0xff;
-					int backgroundG = (backgroundCol >> 8) & 0xff;
-					int backgroundB = (backgroundCol) & 0xff;
-					// Typical over blend formula
-					int r = (foregroundR * foregroundAlpha / 255) + (backgroundR * (255 - foregroundAlpha) / 255);
-					int g = (foregroundG * foregroundAlpha / 255) + (backgroundG * (255 - foregroundAlpha) / 255);
-					int b = (foregroundB * foregroundAlpha / 255) + (backgroundB * (255 - foregroundAlpha) / 255);
-					color = r << 16 | g << 8 | b;
-				}
-				else
-				{
-					// Defaults to BlendState.OPAQUE after tinting.
-					color = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-
-				screenPixels[xa + ya * width] = color;
-			}
-		}
+		blit(sprite, sprite.pixels, sprite.getWidth(), 0, 0, sprite.getWidth(), sprite.getHeight(), xDestPos, yDestPos,
+				tint, alphaFactor, true, alphaColor, blendState);
 	}
 
 	/**
@@ -397,84 +375,9 @@ public class SpriteBatch
 	public void draw(Sprite sprite, int xDestPos, int yDestPos, Color tint, float alphaFactor, BlendState blendState)
 			throws NullPointerException
 	{
-
 		checkValidSprite(sprite);
-		// The pixel about to be drawn is the foreground color and the existing
-		// pixel is the background color
-
-		// Extract our tint components
-		int rTint = tint.getRed();
-		int gTint = tint.getGreen();
-		int bTint = tint.getBlue();
-
-		// Calculate the new foreground color alpha component
-		int foregroundAlpha = (int) (alphaFactor * 255);
-
-		// Cycle through all the sprites pixels. and apply tint and
-		// alpha-blending
-		for (int y = 0; y < sprite.getHeight(); y++)
-		{
-			// Set our Y position relative to the screen.
-			int ya = y + yDestPos;
-			for (int x = 0; x < sprite.getWidth(); x++)
-			{
-				// Set our X position relative to the screen.
-				int xa = x + xDestPos;
-				// If this pixel is out of the screen's bound, skip it.
-				if (xa < 0 || xa >= width || ya < 0 || ya >= height)
-					continue;
-
-				// The color of the pixel about to be drawn.
-				int foregroundCol = sprite.pixels[x + y * sprite.getWidth()];
-				// The alpha value of the pixel about to be drawn.
-				if (alphaFactor < 0.0f)
-				{
-					foregroundAlpha = (foregroundCol >> 24) & 0xff;
-				}
-				// The color of the pixel already there.
-				int backgroundCol = screenPixels[xa + ya * width];
-				// The resulting color of the pixel to be drawn
-				int col;
-
-				// The components of the pixel about to be drawn.
-				int foregroundR = (foregroundCol >> 16) & 0xff;
-				int foregroundG = (foregroundCol >> 8) & 0xff;
-				int foregroundB = (foregroundCol) & 0xff;
-
-				// Using Color.WHITE would have no effect so skip this
-				if (!tint.equals(Color.WHITE))
-				{
-					// Typical tint formula -> original component * tint / 255
-					foregroundR = foregroundR * rTint / 255;
-					foregroundG = foregroundG * gTint / 255;
-					foregroundB = foregroundB * bTint / 255;
-				}
-
-				// If alpha is 255 it completely overrides the existing color.
-				if (foregroundAlpha == 255 || blendState == BlendState.OPAQUE)
-				{
-					col = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				else if (blendState == BlendState.ALPHA_BLEND)
-				{
-					// Do the alpha-blending.
-					int backgroundR = (backgroundCol >> 16) & 0xff;
-					int backgroundG = (backgroundCol >> 8) & 0xff;
-					int backgroundB = (backgroundCol) & 0xff;
-					// Typical over blend formula
-					int r = (foregroundR * foregroundAlpha / 255) + (backgroundR * (255 - foregroundAlpha) / 255);
-					int g = (foregroundG * foregroundAlpha / 255) + (backgroundG * (255 - foregroundAlpha) / 255);
-					int b = (foregroundB * foregroundAlpha / 255) + (backgroundB * (255 - foregroundAlpha) / 255);
-					col = r << 16 | g << 8 | b;
-				}
-				else
-				{
-					// Defaults to BlendState.OPAQUE after tinting.
-					col = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				screenPixels[xa + ya * width] = col;
-			}
-		}
+		blit(sprite, sprite.pixels, sprite.getWidth(), 0, 0, sprite.getWidth(), sprite.getHeight(), xDestPos, yDestPos,
+				tint, alphaFactor, false, 0, blendState);
 	}
 
 	/**
@@ -634,81 +537,8 @@ public class SpriteBatch
 			spritePixels = sprite.pixels;
 		}
 
-		int xDestPos = destinationRectangle.x;
-		int yDestPos = destinationRectangle.y;
-
-		// Extract our tint components
-		int rTint = tint.getRed();
-		int gTint = tint.getGreen();
-		int bTint = tint.getBlue();
-
-		// Calculate the new foreground color alpha component
-		int foregroundAlpha = (int) (alphaFactor * 255);
-
-		// Cycle through all the sprites pixels.
-		for (int y = 0; y < spriteHeight; y++)
-		{
-			// Set our Y position relative to the screen.
-			int ya = y + yDestPos;
-			for (int x = 0; x < spriteWidth; x++)
-			{
-				// Set our X position relative to the screen.
-				int xa = x + xDestPos;
-				// If this pixel is out of the screen's bound, skip it.
-				if (xa < 0 || xa >= width || ya < 0 || ya >= height)
-					continue;
-
-				// The color of the pixel about to be drawn.
-				int foregroundCol = spritePixels[x + y * spriteWidth];
-				// The color of the pixel already there.
-				int backgroundCol = screenPixels[xa + ya * width];
-				// The alpha value of the pixel about to be drawn.
-				if (alphaFactor < 0.0f)
-				{
-					foregroundAlpha = (foregroundCol >> 24) & 0xff;
-				}
-				// The resulting color of the pixel to be drawn
-				int col;
-
-				// The components of the pixel about to be drawn.
-				int foregroundR = (foregroundCol >> 16) & 0xff;
-				int foregroundG = (foregroundCol >> 8) & 0xff;
-				int foregroundB = (foregroundCol) & 0xff;
-
-				// Using Color.WHITE would have no effect so skip this
-				if (!tint.equals(Color.WHITE))
-				{
-					// Typical tint formula -> original component * tint / 255
-					foregroundR = foregroundR * rTint / 255;
-					foregroundG = foregroundG * gTint / 255;
-					foregroundB = foregroundB * bTint / 255;
-				}
-
-				// If alpha is 255 it completely overrides the existing color.
-				if (foregroundAlpha == 255 || blendState == BlendState.OPAQUE)
-				{
-					col = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				else if (blendState == BlendState.ALPHA_BLEND)
-				{
-					// Do the alpha-blending.
-					int backgroundR = (backgroundCol >> 16) & 0xff;
-					int backgroundG = (backgroundCol >> 8) & 0xff;
-					int backgroundB = (backgroundCol) & 0xff;
-					// Typical over blend formula
-					int r = (foregroundR * foregroundAlpha / 255) + (backgroundR * (255 - foregroundAlpha) / 255);
-					int g = (foregroundG * foregroundAlpha / 255) + (backgroundG * (255 - foregroundAlpha) / 255);
-					int b = (foregroundB * foregroundAlpha / 255) + (backgroundB * (255 - foregroundAlpha) / 255);
-					col = r << 16 | g << 8 | b;
-				}
-				else
-				{
-					// Defaults to BlendState.OPAQUE after tinting.
-					col = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				screenPixels[xa + ya * width] = col;
-			}
-		}
+		blit(null, spritePixels, spriteWidth, 0, 0, spriteWidth, spriteHeight, destinationRectangle.x,
+				destinationRectangle.y, tint, alphaFactor, false, 0, blendState);
 	}
 
 	/**
@@ -756,31 +586,28 @@ public class SpriteBatch
 	 * @throws NullPointerException
 	 *         If the sprite is null.
 	 * @throws IllegalArgumentException
-	 *         If the sourceRectangle size is bigger than the sprite size.
+	 *         If the sourceRectangle isn't inside the sprite.
 	 */
 	public void draw(Sprite sprite, Rectangle sourceRectangle, Rectangle destinationRectangle,
 			InterpolationType interpolationType, Color tint, float alphaFactor, BlendState blendState)
 			throws NullPointerException
 	{
-
-		if (sourceRectangle.width > sprite.getWidth() || sourceRectangle.height > sprite.getHeight())
-			throw new IllegalArgumentException("sourceRectangle cannot be bigger than sprite size");
-
 		checkValidSprite(sprite);
 
-		int[] spritePixels;
-		int spriteWidth, spriteHeight;
+		if (sourceRectangle.x < 0 || sourceRectangle.y < 0
+				|| sourceRectangle.x + sourceRectangle.width > sprite.getWidth()
+				|| sourceRectangle.y + sourceRectangle.height > sprite.getHeight())
+			throw new IllegalArgumentException("sourceRectangle must be inside the sprite");
 
 		// Determine if we need to resize our sprite. If so, we select the
-		// interpolation type and set our local variables accordingly.
-		// Otherwise, we set our local variables to the original's sprite
-		// values.
+		// interpolation type and draw the resized pixels. Otherwise, we draw
+		// the portion of the original sprite in place.
 		if (sourceRectangle.width != destinationRectangle.width
 				|| sourceRectangle.height != destinationRectangle.height)
 		{
-			spriteWidth = destinationRectangle.width;
-			spriteHeight = destinationRectangle.height;
-			spritePixels = new int[spriteWidth * spriteHeight];
+			int spriteWidth = destinationRectangle.width;
+			int spriteHeight = destinationRectangle.height;
+			int[] spritePixels = new int[spriteWidth * spriteHeight];
 			switch (interpolationType)
 			{
 				case NEAREST_NEIGHBOR:
@@ -796,92 +623,345 @@ public class SpriteBatch
 				default:
 					// TODO: Do I want a default action or throw an exception.
 			}
+			blit(null, spritePixels, spriteWidth, 0, 0, spriteWidth, spriteHeight, destinationRectangle.x,
+					destinationRectangle.y, tint, alphaFactor, false, 0, blendState);
 		}
 		else
+			blit(sprite, sprite.pixels, sprite.getWidth(), sourceRectangle.x, sourceRectangle.y,
+					sourceRectangle.width, sourceRectangle.height, destinationRectangle.x, destinationRectangle.y, tint,
+					alphaFactor, false, 0, blendState);
+	}
+
+	/**
+	 * Draws a rectangle of pixels at the specified position, only inside the
+	 * clip rectangle. The visible part of the rectangle is found once, so the
+	 * loops only go through the pixels actually drawn, one row at a time.
+	 * 
+	 * @param sprite
+	 *        The sprite whose premultiplied pixels match the pixels drawn, or
+	 *        {@code null} if the pixels were resized.
+	 * @param spritePixels
+	 *        The pixels of the sprite, row after row.
+	 * @param spriteStride
+	 *        The number of pixels in a row of the sprite.
+	 * @param xSource
+	 *        The x position in the sprite of the first pixel to draw.
+	 * @param ySource
+	 *        The y position in the sprite of the first pixel to draw.
+	 * @param sourceWidth
+	 *        The width of the rectangle to draw.
+	 * @param sourceHeight
+	 *        The height of the rectangle to draw.
+	 * @param xDestPos
+	 *        The X position at which to begin drawing the rectangle.
+	 * @param yDestPos
+	 *        The Y position at which to begin drawing the rectangle.
+	 * @param tint
+	 *        The color to tint the pixels.
+	 * @param alphaFactor
+	 *        alpha value applied to the new color, or -1.0f to use the alpha
+	 *        of each pixel.
+	 * @param skipAlphaColor
+	 *        {@code true} if the pixels of the alpha color are left out.
+	 * @param alphaColor
+	 *        The color in the ARGB model that will be transparent.
+	 * @param blendState
+	 *        The type of blending to use.
+	 */
+	private void blit(Sprite sprite, int[] spritePixels, int spriteStride, int xSource, int ySource,
+			int sourceWidth, int sourceHeight, int xDestPos, int yDestPos, Color tint, float alphaFactor,
+			boolean skipAlphaColor, int alphaColor, BlendState blendState)
+	{
+		// Intersect the destination with the clip rectangle once.
+		int left = Math.max(xDestPos, clipLeft);
+		int top = Math.max(yDestPos, clipTop);
+		int right = Math.min(xDestPos + sourceWidth, clipRight);
+		int bottom = Math.min(yDestPos + sourceHeight, clipBottom);
+		if (left >= right || top >= bottom)
+			return;
+		int spanWidth = right - left;
+		int rows = bottom - top;
+		// The first pixel of the visible part in the sprite and on the screen.
+		int spriteIndex = xSource + left - xDestPos + (ySource + top - yDestPos) * spriteStride;
+		int screenIndex = left + top * width;
+
+		// Everything that doesn't change from one pixel to the next is decided
+		// here, once, and picks the loop drawing the pixels.
+		boolean isTinted = !tint.equals(Color.WHITE);
+		int rgbTint = tint.getRGB() & 0xffffff;
+		// The alpha of every pixel, or -1 to use the alpha of each pixel.
+		int constantAlpha = alphaFactor < 0.0f ? -1 : (int) (alphaFactor * 255);
+		boolean isBlended = blendState == BlendState.ALPHA_BLEND && constantAlpha != 255;
+
+		if (skipAlphaColor)
+			blitKeyed(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows, isTinted ? rgbTint : -1,
+					constantAlpha, alphaColor, isBlended);
+		else if (isBlended && isTinted)
+			blendTinted(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows, rgbTint, constantAlpha);
+		else if (isBlended && constantAlpha == -1 && sprite != null)
+			blendPremultiplied(sprite.getPremultipliedPixels(), spriteIndex, spriteStride, screenIndex, spanWidth,
+					rows);
+		else if (isBlended && constantAlpha == -1)
+			blendPerPixelAlpha(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows);
+		else if (isBlended)
+			blendConstantAlpha(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows, constantAlpha);
+		else if (isTinted)
+			copyTinted(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows, rgbTint, constantAlpha);
+		else if (constantAlpha == -1)
+			copyOpaque(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows);
+		else
+			copyConstantAlpha(spritePixels, spriteIndex, spriteStride, screenIndex, spanWidth, rows, constantAlpha);
+	}
+
+	/*
+	 * The loops drawing the pixels, one for each kind of draw. Each one draws
+	 * a span of spanWidth pixels on each of the rows, starting at spriteIndex
+	 * in the sprite and at screenIndex on the screen, the rows being
+	 * spriteStride pixels apart in the sprite. A tint is given as an RGB
+	 * color and an alpha of -1 means the alpha of each pixel.
+	 * 
+	 * No loop divides: a product of two components is divided by 255 with
+	 * divide255, and the red and blue components are multiplied together,
+	 * 16 bits apart in the same int.
+	 */
+
+	/**
+	 * Copies the pixels as they are, one row at a time.
+	 */
+	private void copyOpaque(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex, int spanWidth,
+			int rows)
+	{
+		for (int row = 0; row < rows; ++row)
 		{
-			spriteWidth = sourceRectangle.width;
-			spriteHeight = sourceRectangle.height;
-			spritePixels = new int[spriteWidth * spriteHeight];
-			spritePixels = sprite.pixels;
+			System.arraycopy(spritePixels, spriteIndex, screenPixels, screenIndex, spanWidth);
+			spriteIndex += spriteStride;
+			screenIndex += width;
 		}
+	}
 
-		int xDestPos = destinationRectangle.x;
-		int yDestPos = destinationRectangle.y;
-
-		// Extract our tint components
-		int rTint = tint.getRed();
-		int gTint = tint.getGreen();
-		int bTint = tint.getBlue();
+	/**
+	 * Copies the colors of the pixels with the same alpha for all.
+	 */
+	private void copyConstantAlpha(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex,
+			int spanWidth, int rows, int alpha)
+	{
+		int alphaBits = alpha << 24;
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int i = 0; i < spanWidth; ++i)
+			{
+				screenPixels[screenIndex + i] = alphaBits | spritePixels[spriteIndex + i] & 0xffffff;
+			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
+		}
+	}
 
-		// Calculate the new foreground color alpha component
-		int foregroundAlpha = (int) (alphaFactor * 255);
+	/**
+	 * Copies the tinted colors of the pixels, with their own alpha or the
+	 * same alpha for all.
+	 */
+	private void copyTinted(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex, int spanWidth,
+			int rows, int rgbTint, int alpha)
+	{
+		// Keeps the alpha of each pixel, or replaces it with the constant one.
+		int alphaMask = alpha == -1 ? 0xff000000 : 0;
+		int alphaBits = alpha == -1 ? 0 : alpha << 24;
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int i = 0; i < spanWidth; ++i)
+			{
+				int foregroundCol = spritePixels[spriteIndex + i];
+				screenPixels[screenIndex + i] = foregroundCol & alphaMask | alphaBits | tint(foregroundCol, rgbTint);
+			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
+		}
+	}
 
-		// Cycle through all the sprites pixels.
-		for (int y = sourceRectangle.y; y < spriteHeight; y++)
+	/**
+	 * Blends the pixels with the screen using the alpha of each pixel.
+	 */
+	private void blendPerPixelAlpha(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex,
+			int spanWidth, int rows)
+	{
+		for (int row = 0; row < rows; ++row)
 		{
-			// Set our Y position relative to the screen.
-			int ya = y + yDestPos;
-			for (int x = sourceRectangle.x; x < spriteWidth; x++)
+			for (int i = 0; i < spanWidth; ++i)
 			{
-				// Set our X position relative to the screen.
-				int xa = x + xDestPos;
-				// If this pixel is out of the screen's bound, skip it.
-				if (xa < 0 || xa >= width || ya < 0 || ya >= height)
-					continue;
+				int foregroundCol = spritePixels[spriteIndex + i];
+				int foregroundAlpha = foregroundCol >>> 24;
+				// If alpha is 255 it completely overrides the existing color.
+				screenPixels[screenIndex + i] = foregroundAlpha == 255 ? foregroundCol
+						: blend(foregroundCol, screenPixels[screenIndex + i], foregroundAlpha);
+			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
+		}
+	}
 
-				// The color of the pixel about to be drawn.
-				int foregroundCol = spritePixels[x + y * spriteWidth];
-				// The color of the pixel already there.
-				int backgroundCol = screenPixels[xa + ya * width];
-				// The alpha value of the pixel about to be drawn.
-				if (alphaFactor < 0.0f)
+	/**
+	 * Blends the premultiplied pixels of a sprite with the screen, which only
+	 * takes the share of the color already there.
+	 */
+	private void blendPremultiplied(int[] premultipliedPixels, int spriteIndex, int spriteStride, int screenIndex,
+			int spanWidth, int rows)
+	{
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int i = 0; i < spanWidth; ++i)
+			{
+				int foregroundCol = premultipliedPixels[spriteIndex + i];
+				int backgroundAlpha = 255 - (foregroundCol >>> 24);
+				if (backgroundAlpha == 0)
 				{
-					foregroundAlpha = (foregroundCol >> 24) & 0xff;
+					// An opaque pixel is the same premultiplied or not.
+					screenPixels[screenIndex + i] = foregroundCol;
+					continue;
 				}
-				// The resulting color of the pixel to be drawn
-				int col;
+				int backgroundCol = screenPixels[screenIndex + i];
+				int redBlue = (foregroundCol & 0xff00ff) + divide255((backgroundCol & 0xff00ff) * backgroundAlpha);
+				int green = (foregroundCol & 0xff00) + (divide255((backgroundCol >> 8 & 0xff) * backgroundAlpha) << 8);
+				screenPixels[screenIndex + i] = redBlue | green;
+			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
+		}
+	}
 
-				// The components of the pixel about to be drawn.
-				int foregroundR = (foregroundCol >> 16) & 0xff;
-				int foregroundG = (foregroundCol >> 8) & 0xff;
-				int foregroundB = (foregroundCol) & 0xff;
+	/**
+	 * Blends the pixels with the screen using the same alpha for all.
+	 */
+	private void blendConstantAlpha(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex,
+			int spanWidth, int rows, int alpha)
+	{
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int i = 0; i < spanWidth; ++i)
+			{
+				screenPixels[screenIndex + i] = blend(spritePixels[spriteIndex + i], screenPixels[screenIndex + i],
+						alpha);
+			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
+		}
+	}
 
-				// Using Color.WHITE would have no effect so skip this
-				if (!tint.equals(Color.WHITE))
-				{
-					// Typical tint formula -> original component * tint / 255
-					foregroundR = foregroundR * rTint / 255;
-					foregroundG = foregroundG * gTint / 255;
-					foregroundB = foregroundB * bTint / 255;
-				}
+	/**
+	 * Blends the tinted pixels with the screen, using their own alpha or the
+	 * same alpha for all.
+	 */
+	private void blendTinted(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex, int spanWidth,
+			int rows, int rgbTint, int alpha)
+	{
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int i = 0; i < spanWidth; ++i)
+			{
+				int foregroundCol = spritePixels[spriteIndex + i];
+				int foregroundAlpha = alpha == -1 ? foregroundCol >>> 24 : alpha;
+				int tinted = tint(foregroundCol, rgbTint);
+				screenPixels[screenIndex + i] = foregroundAlpha == 255 ? 0xff000000 | tinted
+						: blend(tinted, screenPixels[screenIndex + i], foregroundAlpha);
+			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
+		}
+	}
 
-				// If alpha is 255 it completely overrides the existing color.
-				if (foregroundAlpha == 255 || blendState == BlendState.OPAQUE)
-				{
-					col = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				else if (blendState == BlendState.ALPHA_BLEND)
-				{
-					// Do the alpha-blending.
-					int backgroundR = (backgroundCol >> 16) & 0xff;
-					int backgroundG = (backgroundCol >> 8) & 0xff;
-					int backgroundB = (backgroundCol) & 0xff;
-					// Typical over blend formula
-					int r = (foregroundR * foregroundAlpha / 255) + (backgroundR * (255 - foregroundAlpha) / 255);
-					int g = (foregroundG * foregroundAlpha / 255) + (backgroundG * (255 - foregroundAlpha) / 255);
-					int b = (foregroundB * foregroundAlpha / 255) + (backgroundB * (255 - foregroundAlpha) / 255);
-					col = r << 16 | g << 8 | b;
-				}
-				else
-				{
-					// Defaults to BlendState.OPAQUE after tinting.
-					col = foregroundAlpha << 24 | foregroundR << 16 | foregroundG << 8 | foregroundB;
-				}
-				screenPixels[xa + ya * width] = col;
+	/**
+	 * Draws the pixels other than the alpha color, tinted if the tint isn't
+	 * -1, blended or not.
+	 */
+	private void blitKeyed(int[] spritePixels, int spriteIndex, int spriteStride, int screenIndex, int spanWidth,
+			int rows, int rgbTint, int alpha, int alphaColor, boolean isBlended)
+	{
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int i = 0; i < spanWidth; ++i)
+			{
+				int foregroundCol = spritePixels[spriteIndex + i];
+				if (foregroundCol == alphaColor)
+					continue;
+				int foregroundAlpha = alpha == -1 ? foregroundCol >>> 24 : alpha;
+				int rgb = rgbTint == -1 ? foregroundCol & 0xffffff : tint(foregroundCol, rgbTint);
+				screenPixels[screenIndex + i] = !isBlended || foregroundAlpha == 255 ? foregroundAlpha << 24 | rgb
+						: blend(rgb, screenPixels[screenIndex + i], foregroundAlpha);
 			}
+			spriteIndex += spriteStride;
+			screenIndex += width;
 		}
 	}
 
+	/**
+	 * Tints the color of a pixel.
+	 * 
+	 * @param color
+	 *        The color in the ARGB format.
+	 * @param rgbTint
+	 *        The tint in the RGB format.
+	 * @return The tinted color in the RGB format, without alpha.
+	 */
+	private static int tint(int color, int rgbTint)
+	{
+		// Typical tint formula -> original component * tint / 255
+		int r = divide255(((color >> 16) & 0xff) * ((rgbTint >> 16) & 0xff));
+		int g = divide255(((color >> 8) & 0xff) * ((rgbTint >> 8) & 0xff));
+		int b = divide255((color & 0xff) * (rgbTint & 0xff));
+		return r << 16 | g << 8 | b;
+	}
+
+	/**
+	 * Blends a color over the color already on the screen.
+	 * 
+	 * @param foregroundCol
+	 *        The color about to be drawn, whose alpha is ignored.
+	 * @param backgroundCol
+	 *        The color already there.
+	 * @param foregroundAlpha
+	 *        The alpha of the color about to be drawn.
+	 * @return The resulting color in the RGB format, with an alpha of 0.
+	 */
+	private static int blend(int foregroundCol, int backgroundCol, int foregroundAlpha)
+	{
+		// Typical over blend formula, the red and blue components together
+		int backgroundAlpha = 255 - foregroundAlpha;
+		int redBlue = divide255((foregroundCol & 0xff00ff) * foregroundAlpha)
+				+ divide255((backgroundCol & 0xff00ff) * backgroundAlpha);
+		int green = divide255((foregroundCol >> 8 & 0xff) * foregroundAlpha)
+				+ divide255((backgroundCol >> 8 & 0xff) * backgroundAlpha);
+		return redBlue | green << 8;
+	}
+
+	/**
+	 * Premultiplies the color of a pixel by its alpha.
+	 * 
+	 * @param color
+	 *        The color in the ARGB format.
+	 * @return The color with each component multiplied by the alpha and
+	 *         divided by 255, rounded down, and the same alpha.
+	 */
+	static int premultiply(int color)
+	{
+		int alpha = color >>> 24;
+		return color & 0xff000000 | divide255((color & 0xff00ff) * alpha)
+				| divide255((color >> 8 & 0xff) * alpha) << 8;
+	}
+
+	/**
+	 * Divides by 255, rounding down, one product of two components or two of
+	 * them 16 bits apart, without dividing. Exact for products up to 255 *
+	 * 255.
+	 * 
+	 * @param products
+	 *        The products, in the low 16 bits and optionally the high 16 bits.
+	 * @return The quotients, in the low 8 bits of each half.
+	 */
+	private static int divide255(int products)
+	{
+		return (products + 0x10001 + (products >>> 8 & 0xff00ff)) >>> 8 & 0xff00ff;
+	}
+
 	/**
 	 * Renders the specified sprite representing a text character to the buffer.
 	 * The specified alpha color will not be rendered, that is, it will let what
@@ -907,17 +987,18 @@ public class SpriteBatch
 			xDestPos -= xOffset;
 			yDestPos -= yOffset;
 		}
-		for (int y = 0; y < spriteFont.getHeight(); y++)
+		int left = Math.max(xDestPos, clipLeft);
+		int top = Math.max(yDestPos, clipTop);
+		int right = Math.min(xDestPos + spriteFont.getWidth(), clipRight);
+		int bottom = Math.min(yDestPos + spriteFont.getHeight(), clipBottom);
+		for (int ya = top; ya < bottom; ya++)
 		{
-			int ya = y + yDestPos;
-			for (int x = 0; x < spriteFont.getWidth(); x++)
+			int fontOffset = (ya - yDestPos) * spriteFont.getWidth() - xDestPos;
+			int screenOffset = ya * width;
+			for (int xa = left; xa < right; xa++)
 			{
-				int xa = x + xDestPos;
-				if (xa < 0 || xa >= width || ya < 0 || ya >= height)
-					continue;
-				int currentColor = spriteFont.pixels[x + y * spriteFont.getWidth()];
-				if (currentColor != alphaColor)
-					screenPixels[xa + ya * width] = alphaColor;
+				if (spriteFont.pixels[fontOffset + xa] != alphaColor)
+					screenPixels[screenOffset + xa] = alphaColor;
 			}
 		}
 	}
@@ -937,16 +1018,14 @@ public class SpriteBatch
 	 */
 	public void drawSheet(SpriteSheet sheet, int xDestPos, int yDestPos)
 	{
-		for (int y = 0; y < sheet.SPRITE_HEIGHT; y++)
+		int left = Math.max(xDestPos, clipLeft);
+		int top = Math.max(yDestPos, clipTop);
+		int right = Math.min(xDestPos + sheet.SPRITE_WIDTH, clipRight);
+		int bottom = Math.min(yDestPos + sheet.SPRITE_HEIGHT, clipBottom);
+		for (int ya = top; ya < bottom && left < right; ya++)
 		{
-			int ya = y + yDestPos;
-			for (int x = 0; x < sheet.SPRITE_WIDTH; x++)
-			{
-				int xa = x + xDestPos;
-				if (xa < 0 || xa >= width || ya < 0 || ya >= height)
-					continue;
-				screenPixels[xa + ya * width] = sheet.pixels[x + y * sheet.SPRITE_WIDTH];
-			}
+			System.arraycopy(sheet.pixels, left - xDestPos + (ya - yDestPos) * sheet.SPRITE_WIDTH, screenPixels,
+					left + ya * width, right - left);
 		}
 	}
 
@@ -1188,6 +1267,16 @@ public class SpriteBatch
 
 	// ++++++++++ GETTERS ++++++++++ //
 
+	/**
+	 * Returns the rectangle of the screen the sprites are drawn in.
+	 * 
+	 * @return A copy of the clip rectangle.
+	 */
+	public Rectangle getClip()
+	{
+		return new Rectangle(clipLeft, clipTop, clipRight - clipLeft, clipBottom - clipTop);
+	}
+
 	/**
 	 * Returns the width of the screen.
 	 * 
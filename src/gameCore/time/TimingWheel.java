@@ -0,0 +1,310 @@
+package gameCore.time;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Runs tasks after a delay, for any number of clocks and timeouts, from a
+ * single ticker thread. The time is cut into ticks and the wheel has one
+ * bucket per tick, wrapping around: a timeout is linked into the bucket of the
+ * tick it expires at, with the number of turns of the wheel still to wait, so
+ * scheduling and cancelling take constant time and each tick only visits one
+ * bucket.
+ *
+ * <p>
+ * The timeouts are scheduled and cancelled from any thread through queues the ticker drains at
+ * each tick, so the buckets are only touched by the ticker. A task runs on the ticker thread and
+ * must be short: it typically hands the work to the thread owning the state it is about. A task
+ * runs at most one tick late, or more if the ticker falls behind.
+ */
+public class TimingWheel
+{
+	/** The timeouts scheduled and not yet in a bucket. */
+	private final Queue<Timeout> pending;
+
+	/** The timeouts cancelled and maybe still in a bucket. */
+	private final Queue<Timeout> cancelled;
+
+	/** The buckets, each the head of a list of timeouts. */
+	private final Timeout[] buckets;
+
+	/** The mask giving the bucket of a tick. */
+	private final int mask;
+
+	/** The duration of a tick, in nanoseconds. */
+	private final long tickNanos;
+
+	/** The time the wheel started, in nanoseconds. */
+	private final long startTime;
+
+	/** The ticker thread. */
+	private final Thread thread;
+
+	/** The number of ticks done. Only used by the ticker. */
+	private long tick;
+
+	/** The number of timeouts in the buckets. Only used by the ticker. */
+	private int bucketedCount;
+
+	/** Value indicating whether the wheel is running. */
+	private volatile boolean isRunning;
+
+	/**
+	 * A task waiting to run, which can be cancelled until it runs.
+	 */
+	public static final class Timeout
+	{
+		/** The timeout wasn't cancelled and didn't expire. */
+		private static final int WAITING = 0;
+
+		/** The timeout was cancelled. */
+		private static final int CANCELLED = 1;
+
+		/** The timeout expired and its task ran. */
+		private static final int EXPIRED = 2;
+
+		/** Changes the state atomically. */
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(
+				Timeout.class, "state");
+
+		/** The wheel of the timeout. */
+		private final TimingWheel wheel;
+
+		/** The task. */
+		private final Runnable task;
+
+		/** The time the timeout expires at, in nanoseconds. */
+		private final long deadline;
+
+		/** The number of turns of the wheel before the timeout expires. */
+		private long remainingRounds;
+
+		/** The bucket of the timeout, or -1 when it isn't in a bucket. */
+		private int bucket;
+
+		/** The neighbours of the timeout in its bucket. */
+		private Timeout previous, next;
+
+		/** The state of the timeout. */
+		private volatile int state;
+
+		private Timeout(TimingWheel wheel, Runnable task, long deadline)
+		{
+			this.wheel = wheel;
+			this.task = task;
+			this.deadline = deadline;
+			bucket = -1;
+		}
+
+		/**
+		 * Cancels the timeout, unless its task already ran. Can be called from
+		 * any thread.
+		 *
+		 * @return {@code true} if the task won't run.
+		 */
+		public boolean cancel()
+		{
+			if (!STATE.compareAndSet(this, WAITING, CANCELLED))
+				return state == CANCELLED;
+			wheel.cancelled.add(this);
+			return true;
+		}
+
+		// ++++++++++ GETTERS ++++++++++ //
+
+		public boolean isCancelled()
+		{
+			return state == CANCELLED;
+		}
+
+		public boolean isExpired()
+		{
+			return state == EXPIRED;
+		}
+	}
+
+	/**
+	 * Creates and starts a wheel.
+	 *
+	 * @param name
+	 *        The name of the ticker thread.
+	 * @param tickMillis
+	 *        The duration of a tick, which is the precision of the timeouts,
+	 *        in milliseconds.
+	 * @param bucketCount
+	 *        The number of buckets, rounded up to a power of 2. The timeouts
+	 *        shorter than a turn of the wheel are only visited once.
+	 */
+	public TimingWheel(String name, long tickMillis, int bucketCount)
+	{
+		if (tickMillis <= 0 || bucketCount <= 0)
+			throw new IllegalArgumentException("The tick and the number of buckets must be positive.");
+
+		int size = Integer.highestOneBit(bucketCount - 1) << 1;
+		buckets = new Timeout[Math.max(size, 1)];
+		mask = buckets.length - 1;
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		pending = new ConcurrentLinkedQueue<>();
+		cancelled = new ConcurrentLinkedQueue<>();
+		startTime = System.nanoTime();
+		isRunning = true;
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Schedules a task. Can be called from any thread.
+	 *
+	 * @param task
+	 *        The task, which runs on the ticker thread.
+	 * @param delayMillis
+	 *        The delay before the task runs, in milliseconds.
+	 * @return the timeout, which can cancel the task.
+	 */
+	public Timeout schedule(Runnable task, long delayMillis)
+	{
+		Timeout timeout = new Timeout(this, task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+		pending.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Stops the ticker. The tasks still waiting never run.
+	 */
+	public void shutdown()
+	{
+		isRunning = false;
+		thread.interrupt();
+	}
+
+	/**
+	 * The loop of the ticker thread.
+	 */
+	private void run()
+	{
+		while (isRunning)
+		{
+			long sleep = startTime + (tick + 1) * tickNanos - System.nanoTime();
+			if (sleep > 0)
+			{
+				try
+				{
+					TimeUnit.NANOSECONDS.sleep(sleep);
+				}
+				catch (InterruptedException e)
+				{
+					continue;
+				}
+			}
+
+			removeCancelled();
+			addPending();
+			expire(buckets[(int) tick & mask]);
+			++tick;
+		}
+	}
+
+	/**
+	 * Unlinks the timeouts cancelled since the last tick.
+	 */
+	private void removeCancelled()
+	{
+		Timeout timeout;
+		while ((timeout = cancelled.poll()) != null)
+		{
+			if (timeout.bucket != -1)
+				unlink(timeout);
+		}
+	}
+
+	/**
+	 * Links the timeouts scheduled since the last tick into their buckets.
+	 * The timeouts already due go to the bucket of this tick.
+	 */
+	private void addPending()
+	{
+		Timeout timeout;
+		while ((timeout = pending.poll()) != null)
+		{
+			if (timeout.state != Timeout.WAITING)
+				continue;
+			long expiryTick = Math.max((timeout.deadline - startTime) / tickNanos, tick);
+			timeout.remainingRounds = (expiryTick - tick) / buckets.length;
+			timeout.bucket = (int) expiryTick & mask;
+			timeout.next = buckets[timeout.bucket];
+			if (timeout.next != null)
+				timeout.next.previous = timeout;
+			buckets[timeout.bucket] = timeout;
+			++bucketedCount;
+		}
+	}
+
+	/**
+	 * Runs the tasks of a bucket which are due, and counts down the others.
+	 */
+	private void expire(Timeout head)
+	{
+		Timeout timeout = head;
+		while (timeout != null)
+		{
+			Timeout next = timeout.next;
+			if (timeout.remainingRounds > 0)
+				--timeout.remainingRounds;
+			else
+			{
+				unlink(timeout);
+				if (Timeout.STATE.compareAndSet(timeout, Timeout.WAITING, Timeout.EXPIRED))
+				{
+					// A failing task must not stop the wheel.
+					try
+					{
+						timeout.task.run();
+					}
+					catch (RuntimeException e)
+					{
+						e.printStackTrace();
+					}
+				}
+			}
+			timeout = next;
+		}
+	}
+
+	/**
+	 * Removes a timeout from its bucket.
+	 */
+	private void unlink(Timeout timeout)
+	{
+		if (timeout.previous != null)
+			timeout.previous.next = timeout.next;
+		else
+			buckets[timeout.bucket] = timeout.next;
+		if (timeout.next != null)
+			timeout.next.previous = timeout.previous;
+		timeout.previous = null;
+		timeout.next = null;
+		timeout.bucket = -1;
+		--bucketedCount;
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the number of timeouts in the buckets, as of the last tick. Only
+	 * meant for monitoring, since it is read without synchronization.
+	 *
+	 * @return the number of timeouts waiting.
+	 */
+	public int getWaitingCount()
+	{
+		return bucketedCount;
+	}
+
+	public long getTickMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+	}
+}
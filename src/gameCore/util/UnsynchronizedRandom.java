@@ -0,0 +1,98 @@
+package gameCore.util;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} producing exactly the same numbers as {@code Random} for
+ * the same seed, but keeping its seed in a plain field instead of an atomic
+ * one. It is several times faster when a single thread draws many numbers,
+ * such as when dealing thousands of hands again from their seeds.
+ *
+ * <p>
+ * An instance of this class must only be used by one thread at a time.
+ */
+public class UnsynchronizedRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The multiplier of the linear congruential generator of {@code Random}. */
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+
+	/** The increment of the linear congruential generator of {@code Random}. */
+	private static final long ADDEND = 0xBL;
+
+	/** The mask keeping the 48 bits of the seed. */
+	private static final long MASK = (1L << 48) - 1;
+
+	/**
+	 * The state of the generator. It isn't initialized here since the
+	 * constructor of {@code Random} sets it through {@link #setSeed(long)}
+	 * before the fields of this class are initialized.
+	 */
+	private long state;
+
+	/**
+	 * Creates a generator with a seed that is very likely to differ from any
+	 * other.
+	 */
+	public UnsynchronizedRandom()
+	{
+		super();
+	}
+
+	/**
+	 * Creates a generator with the specified seed.
+	 *
+	 * @param seed
+	 *        The initial seed.
+	 */
+	public UnsynchronizedRandom(long seed)
+	{
+		super(seed);
+	}
+
+	@Override
+	public void setSeed(long seed)
+	{
+		// Also resets the state of nextGaussian in Random.
+		super.setSeed(seed);
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	// ++++++++++ GETTERS ++++++++++ //
+
+	/**
+	 * Returns the state of the generator, so it can be saved and go on later
+	 * with {@link #setState(long)} where it left. Unlike a seed, the state
+	 * isn't scrambled.
+	 *
+	 * @return the 48 bits of the state.
+	 */
+	public long getState()
+	{
+		return state;
+	}
+
+	// ++++++++++ SETTERS ++++++++++ //
+
+	/**
+	 * Restores a state returned by {@link #getState()}. The next numbers are
+	 * those the generator would have drawn after that state, except the second
+	 * half of a pair of {@link #nextGaussian()}, which isn't part of the state.
+	 *
+	 * @param value
+	 *        The state.
+	 */
+	public void setState(long value)
+	{
+		super.setSeed(0);
+		state = value & MASK;
+	}
+}